@@ -0,0 +1,146 @@
+package normalformsolver;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the pivots in PivotKernels against the original Lemke-Howson pivot,
+ * for square matrices of several sizes. Each pivot is on the next diagonal element
+ * of a random diagonally dominant matrix, which keeps the pivot elements away from zero.
+ *
+ * The benchmark sources are kept out of src, since they need JMH (jmh-core and
+ * jmh-generator-annprocess 1.37, from Maven Central, with their dependencies jopt-simple
+ * and commons-math3). To run them, compile src and bench together with those jars on the
+ * classpath (the annotation processor generates the benchmark harness), and then run
+ * java -cp <classes>:<jars> org.openjdk.jmh.Main PivotKernelsBenchmark
+ *
+ * @author sodomka
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations=5, time=200, timeUnit=TimeUnit.MILLISECONDS)
+@Measurement(iterations=5, time=200, timeUnit=TimeUnit.MILLISECONDS)
+public class PivotKernelsBenchmark {
+
+	@Param({"5", "10", "20", "50", "100", "200"})
+	public int size;
+
+	private double[][] m;
+	private double[] q;
+	private double[][] initialTableau;
+	private double[][] tableau;
+	private int pivotIdx;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(0);
+		m = new double[size][size];
+		q = new double[size];
+		for (int i=0; i<size; i++) {
+			q[i] = random.nextGaussian();
+			for (int j=0; j<size; j++) {
+				m[i][j] = random.nextGaussian();
+			}
+			m[i][i] += size;
+		}
+		initialTableau = new double[size][];
+		tableau = new double[size][size];
+		for (int i=0; i<size; i++) {
+			initialTableau[i] = m[i].clone();
+		}
+	}
+
+	@Benchmark
+	public double referencePivot() {
+		int diagonalIdx = nextDiagonalIdx();
+		referencePivot(q, m, diagonalIdx, diagonalIdx, size);
+		return m[diagonalIdx][0];
+	}
+
+	@Benchmark
+	public double complementaryPivot() {
+		int diagonalIdx = nextDiagonalIdx();
+		PivotKernels.complementaryPivot(m, q, size, diagonalIdx, diagonalIdx, 1e-9);
+		return m[diagonalIdx][0];
+	}
+
+	/**
+	 * Repeated Gauss-Jordan pivots would soon reach the identity matrix, so the
+	 * tableau is reset before each one (and the time includes the copy).
+	 */
+	@Benchmark
+	public double gaussJordanPivot() {
+		int diagonalIdx = nextDiagonalIdx();
+		for (int i=0; i<size; i++) {
+			System.arraycopy(initialTableau[i], 0, tableau[i], 0, size);
+		}
+		PivotKernels.pivot(tableau, size, size, diagonalIdx, diagonalIdx);
+		return tableau[diagonalIdx][0];
+	}
+
+	private int nextDiagonalIdx() {
+		int diagonalIdx = pivotIdx;
+		pivotIdx = (pivotIdx + 1) % size;
+		return diagonalIdx;
+	}
+
+
+	/**
+	 * The pivot from the original Lemke-Howson code (Hu and Zhang's, which BimatrixHuSolver
+	 * was built on), kept as the baseline. It builds the new q and M in new arrays
+	 * and then copies them back.
+	 */
+	private static void referencePivot(double Q1[], double M1[][], int r1, int c1, int dimM) {
+		double pPoint;
+		double MLocal[][];
+		double QLocal[];
+		MLocal = new double[dimM][dimM];
+		QLocal = new double[dimM];
+
+		// the pivot point
+		pPoint = M1[r1][c1];
+
+		if (Math.abs(pPoint) <= 0.000000001) {
+			return;
+		}
+
+		for (int i=0; i<dimM; i++) {
+			if (i==r1) QLocal[i] = -Q1[r1]/pPoint;
+			else QLocal[i] = Q1[i] - (Q1[r1]/pPoint)*M1[i][c1];
+
+			for (int j=0; j<dimM; j++) {
+				if (i==r1) {
+					if (j==c1) MLocal[i][j] = 1.0/pPoint;
+					else MLocal[i][j] = - M1[r1][j] /pPoint;
+				}
+				else {
+					if (j==c1) MLocal[i][j] = M1[i][c1]/pPoint;
+					else MLocal[i][j] = M1[i][j] -(M1[i][c1]/pPoint)*M1[r1][j];
+				}
+			}
+		}
+		for (int i=0; i<dimM; i++) Q1[i] = QLocal[i];
+		for (int i=0; i<dimM; i++) {
+			for (int j=0; j<dimM; j++) {
+				M1[i][j] = MLocal[i][j];
+			}
+		}
+	}
+
+}
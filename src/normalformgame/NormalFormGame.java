@@ -1,6 +1,6 @@
 package normalformgame;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -8,53 +8,190 @@ import props.Joint;
 import sequentialgame.AbstractAction;
 
 /**
- * An N-player normal form game, which is primarily defined by its payoff matrix: 
+ * An N-player normal form game, which is primarily defined by its payoff matrix:
  * A mapping from vectors of actions (one per player) to vectors of
- * payoffs (one per player). 
- * TODO: Right now, the game takes in a list of actions for each player. We could 
- * abstract this away and instead express actions in terms of their indices.
- * 
+ * payoffs (one per player).
+ *
+ * Payoffs are stored in a dense array, indexed by joint action and then by player.
+ * A joint action's index is a mixed-radix number with one digit per player (the index
+ * of that player's action in its list of possible actions), with player 0's digit the
+ * most significant, so the joint actions are in the same order as GridGame lists them.
+ * Solvers can read payoffs by index (see getPayoff and getStride) without building
+ * Joint keys; the Joint-based methods are kept as a view of the same array.
+ *
  * @author sodomka
  *
  * @param <A>
  */
 public class NormalFormGame<A extends AbstractAction> {
 	int numPlayers;
-	Map<Joint<A>, Joint<Double>> payoffs;
-	Joint<List<A>> possibleActionsPerPlayer;	
+	Joint<List<A>> possibleActionsPerPlayer;
 	List<Joint<A>> possibleJointActions;
 
-	public NormalFormGame(int numPlayers, 
+	/**
+	 * numActions[p] is the number of actions of player p, and strides[p] is how much
+	 * a joint action's index changes when player p's action index changes by one.
+	 */
+	int[] numActions;
+	int[] strides;
+	int numJointActions;
+
+	/**
+	 * payoffs[jointActionIdx * numPlayers + playerIdx]. Joint actions that haven't been
+	 * given payoffs (e.g., ones that aren't possible) have hasPayoffs false.
+	 */
+	double[] payoffs;
+	boolean[] hasPayoffs;
+
+	public NormalFormGame(int numPlayers,
 			Joint<List<A>> possibleActionsPerPlayer,
 			List<Joint<A>> possibleJointActions) {
 		this.numPlayers = numPlayers;
 		this.possibleActionsPerPlayer = possibleActionsPerPlayer;
 		this.possibleJointActions = possibleJointActions;
-		this.payoffs = new HashMap<Joint<A>, Joint<Double>>();
+		this.numActions = new int[numPlayers];
+		this.strides = new int[numPlayers];
+		this.numJointActions = 1;
+		for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+			numActions[playerIdx] = possibleActionsPerPlayer.getForPlayer(playerIdx).size();
+			strides[playerIdx] = numJointActions;
+			numJointActions *= numActions[playerIdx];
+		}
+		this.payoffs = new double[numJointActions * numPlayers];
+		this.hasPayoffs = new boolean[numJointActions];
 	}
-	
+
+	/**
+	 * Gives the joint action its payoffs.
+	 * @param jointActions
+	 * @param jointPayoffs
+	 * @throws IllegalArgumentException if some player's action isn't one of its possible
+	 *         actions, or if the joint action already has payoffs
+	 */
 	public void addPayoffsForJointAction(Joint<A> jointActions, Joint<Double> jointPayoffs) {
-		assert(!payoffs.containsKey(jointActions));
-		payoffs.put(jointActions, jointPayoffs);
+		int jointActionIdx = getJointActionIndex(jointActions);
+		if (jointActionIdx == -1) {
+			throw new IllegalArgumentException("Joint action " + jointActions + " isn't one of the game's joint actions.");
+		}
+		if (hasPayoffs[jointActionIdx]) {
+			throw new IllegalArgumentException("Joint action " + jointActions + " already has payoffs.");
+		}
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			payoffs[jointActionIdx * numPlayers + playerIdx] = jointPayoffs.get(playerIdx);
+		}
+		hasPayoffs[jointActionIdx] = true;
 	}
-		
+
+	/**
+	 * Returns a new Joint holding the payoffs for the joint action,
+	 * or null if the joint action hasn't been given payoffs.
+	 * @param actionsPerPlayer
+	 * @return
+	 */
 	public Joint<Double> getPayoffsForJointAction(Joint<A> actionsPerPlayer) {
-		return payoffs.get(actionsPerPlayer);
+		int jointActionIdx = getJointActionIndex(actionsPerPlayer);
+		if (jointActionIdx == -1 || !hasPayoffs[jointActionIdx]) return null;
+		Joint<Double> jointPayoffs = new Joint<Double>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			jointPayoffs.add(payoffs[jointActionIdx * numPlayers + playerIdx]);
+		}
+		return jointPayoffs;
+	}
+
+	/**
+	 * Returns the player's payoff for the joint action with the given index.
+	 * @param jointActionIdx
+	 * @param playerIdx
+	 * @return
+	 */
+	public double getPayoff(int jointActionIdx, int playerIdx) {
+		return payoffs[jointActionIdx * numPlayers + playerIdx];
+	}
+
+	public void setPayoff(int jointActionIdx, int playerIdx, double payoff) {
+		payoffs[jointActionIdx * numPlayers + playerIdx] = payoff;
+		hasPayoffs[jointActionIdx] = true;
+	}
+
+	/**
+	 * Returns the index of the joint action, or -1 if some player's action isn't one of its possible actions.
+	 * @param actionsPerPlayer
+	 * @return
+	 */
+	public int getJointActionIndex(Joint<A> actionsPerPlayer) {
+		int jointActionIdx = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			int actionIdx = getActionIndex(playerIdx, actionsPerPlayer.get(playerIdx));
+			if (actionIdx == -1) return -1;
+			jointActionIdx += actionIdx * strides[playerIdx];
+		}
+		return jointActionIdx;
+	}
+
+	/**
+	 * Returns the index of the joint action in which each player takes the action with the given index.
+	 * @param actionIndices
+	 * @return
+	 */
+	public int getJointActionIndex(int[] actionIndices) {
+		int jointActionIdx = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			jointActionIdx += actionIndices[playerIdx] * strides[playerIdx];
+		}
+		return jointActionIdx;
 	}
-	
+
+	/**
+	 * Returns the index of the action in the player's list of possible actions, or -1 if it isn't there.
+	 * @param playerIdx
+	 * @param action
+	 * @return
+	 */
+	public int getActionIndex(int playerIdx, A action) {
+		return possibleActionsPerPlayer.getForPlayer(playerIdx).indexOf(action);
+	}
+
+	/**
+	 * Returns the payoff array itself (indexed as in getPayoff), for solvers
+	 * that work on the dense payoffs directly. It shouldn't be modified.
+	 * @return
+	 */
+	public double[] getPayoffs() {
+		return payoffs;
+	}
+
+	public int getNumActionsForPlayer(int playerIdx) {
+		return numActions[playerIdx];
+	}
+
+	public int getStride(int playerIdx) {
+		return strides[playerIdx];
+	}
+
+	public int getNumJointActions() {
+		return numJointActions;
+	}
+
 	public List<Joint<A>> getPossibleJointActions() {
 		return possibleJointActions;
 	}
-	
+
 	public List<A> getPossibleActionsForPlayer(int playerIdx) {
 		return possibleActionsPerPlayer.getForPlayer(playerIdx);
 	}
-	
+
 	public int getNumPlayers() {
 		return numPlayers;
 	}
-	
+
 	public String toString() {
-		return payoffs.toString();
+		Map<Joint<A>, Joint<Double>> payoffMap = new LinkedHashMap<Joint<A>, Joint<Double>>();
+		for (Joint<A> jointAction : possibleJointActions) {
+			Joint<Double> jointPayoffs = getPayoffsForJointAction(jointAction);
+			if (jointPayoffs != null) {
+				payoffMap.put(jointAction, jointPayoffs);
+			}
+		}
+		return payoffMap.toString();
 	}
 }
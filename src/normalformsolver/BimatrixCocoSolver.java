@@ -1,6 +1,8 @@
 package normalformsolver;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import props.DiscreteDistribution;
@@ -14,186 +16,164 @@ public class BimatrixCocoSolver<A extends AbstractAction> implements NormalFormS
 	static final int player1Idx = 0;
 	static final int player2Idx = 1;
 	ZeroSumBimatrixGameSolver zeroSumBimatrixGameSolver;
+	private LpBackend lpBackend;
+
+	/**
+	 * This solver and copies of it, for solving batches of games at the same time
+	 * with the simplex backend (see solveAll).
+	 */
+	private List<BimatrixCocoSolver<A>> parallelSolvers;
+
+	/**
+	 * Player 1's competitive payoffs and their column maxima, reused while the game size stays the same.
+	 */
+	private double[][] competitivePayoffs;
+	private double[] columnMaxima;
+
+	private int numGames;
+	private int numLps;
 	
 	public BimatrixCocoSolver() {
-		zeroSumBimatrixGameSolver = new ZeroSumBimatrixGameSolver();
+		this(LpBackend.DEFAULT);
+	}
+
+	public BimatrixCocoSolver(LpBackend lpBackend) {
+		this.lpBackend = lpBackend;
+		zeroSumBimatrixGameSolver = new ZeroSumBimatrixGameSolver(lpBackend);
+	}
+
+	/**
+	 * With the simplex backend, solves the games at the same time, one chunk per processor,
+	 * each with its own copy of this solver. With CPLEX, solves them one at a time
+	 * (grouped by size) with this solver's model.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		if (parallelSolvers == null) {
+			parallelSolvers = new ArrayList<BimatrixCocoSolver<A>>();
+			parallelSolvers.add(this);
+			if (lpBackend == LpBackend.SIMPLEX) {
+				for (int solverIdx=1; solverIdx<SolverExecutor.getNumThreads(); solverIdx++) {
+					parallelSolvers.add(new BimatrixCocoSolver<A>(lpBackend));
+				}
+			}
+		}
+		return SolverExecutor.solveAll(parallelSolvers, normalFormGames, previousJointActionDistributions);
 	}
 	
 	@Override
 	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
-		
-		List<A> player1Actions = normalFormGame.getPossibleActionsForPlayer(player1Idx);
-		List<A> player2Actions = normalFormGame.getPossibleActionsForPlayer(player2Idx);		
-		int numPlayer1Actions = player1Actions.size();
-		int numPlayer2Actions = player2Actions.size();
-		
-		// Extract the payoff matrices for players 1 and 2.
-		double[][] player1Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player1Idx);
-		double[][] player2Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player2Idx);
-		
-		// Create cooperative and competitive payoff matrices.
-		double[][] player1CooperativePayoffs = new double[numPlayer1Actions][numPlayer2Actions];
-		double[][] player2CooperativePayoffs = new double[numPlayer1Actions][numPlayer2Actions];
-		double[][] player1CompetitivePayoffs = new double[numPlayer1Actions][numPlayer2Actions];
-		double[][] player2CompetitivePayoffs = new double[numPlayer1Actions][numPlayer2Actions];
-		for (int player1ActionIdx=0; player1ActionIdx<numPlayer1Actions; player1ActionIdx++) {
-			for (int player2ActionIdx=0; player2ActionIdx<numPlayer2Actions; player2ActionIdx++) {
-				double player1Payoff = player1Payoffs[player1ActionIdx][player2ActionIdx];
-				double player2Payoff = player2Payoffs[player1ActionIdx][player2ActionIdx];
-				double cooperativePayoff = (player1Payoff + player2Payoff) / 2.0;
-				double competitivePayoff = (player1Payoff - player2Payoff) / 2.0;
-				player1CooperativePayoffs[player1ActionIdx][player2ActionIdx] = cooperativePayoff;
-				player2CooperativePayoffs[player1ActionIdx][player2ActionIdx] = cooperativePayoff;
-				player1CompetitivePayoffs[player1ActionIdx][player2ActionIdx] = competitivePayoff;
-				player2CompetitivePayoffs[player1ActionIdx][player2ActionIdx] = -competitivePayoff;
-			}
+		int numPlayer1Actions = normalFormGame.getNumActionsForPlayer(player1Idx);
+		int numPlayer2Actions = normalFormGame.getNumActionsForPlayer(player2Idx);
+		int player1Stride = normalFormGame.getStride(player1Idx);
+		int player2Stride = normalFormGame.getStride(player2Idx);
+		double[] payoffs = normalFormGame.getPayoffs();
+		if (competitivePayoffs == null || competitivePayoffs.length != numPlayer1Actions || competitivePayoffs[0].length != numPlayer2Actions) {
+			competitivePayoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			columnMaxima = new double[numPlayer2Actions];
 		}
-		
-//		System.out.println("player1Payoffs:\n" + print2dArr(player1Payoffs));
-//		System.out.println("player2Payoffs:\n" + print2dArr(player2Payoffs));
-//		System.out.println("player1CoopPayoffs:\n" + print2dArr(player1CooperativePayoffs));
-//		System.out.println("player2CoopPayoffs:\n" + print2dArr(player2CooperativePayoffs));
-//		System.out.println("player1CompPayoffs:\n" + print2dArr(player1CompetitivePayoffs));
-//		System.out.println("player2CompPayoffs:\n" + print2dArr(player2CompetitivePayoffs));
-
-		
-		// Solve the cooperative game.
-		// Choose the joint action with highest payoffs.
+
+		// In one pass over the payoffs, find the joint action with the highest total payoff
+		// (the cooperative game's solution), and create player 1's competitive payoff matrix,
+		// along with its largest row minimum and smallest column maximum (to check for a saddle point).
 		double maxJointPayoff = Double.NEGATIVE_INFINITY;
+		int bestJointActionIdx = -1;
 		int bestA1 = -1;
 		int bestA2 = -1;
+		double maxRowMinimum = Double.NEGATIVE_INFINITY;
+		Arrays.fill(columnMaxima, Double.NEGATIVE_INFINITY);
 		for (int a1=0; a1<numPlayer1Actions; a1++) {
+			double rowMinimum = Double.POSITIVE_INFINITY;
 			for (int a2=0; a2<numPlayer2Actions; a2++) {
-				double jointPayoff = player1Payoffs[a1][a2] + player2Payoffs[a1][a2];
+				int jointActionIdx = a1*player1Stride + a2*player2Stride;
+				double player1Payoff = payoffs[jointActionIdx*2 + player1Idx];
+				double player2Payoff = payoffs[jointActionIdx*2 + player2Idx];
+				double jointPayoff = player1Payoff + player2Payoff;
 				if (jointPayoff > maxJointPayoff) {
 					maxJointPayoff = jointPayoff;
+					bestJointActionIdx = jointActionIdx;
 					bestA1 = a1;
 					bestA2 = a2;
 				}
+				double competitivePayoff = (player1Payoff - player2Payoff) / 2.0;
+				competitivePayoffs[a1][a2] = competitivePayoff;
+				rowMinimum = Math.min(rowMinimum, competitivePayoff);
+				columnMaxima[a2] = Math.max(columnMaxima[a2], competitivePayoff);
 			}
+			maxRowMinimum = Math.max(maxRowMinimum, rowMinimum);
+		}
+		double minColumnMaximum = Double.POSITIVE_INFINITY;
+		for (int a2=0; a2<numPlayer2Actions; a2++) {
+			minColumnMaximum = Math.min(minColumnMaximum, columnMaxima[a2]);
 		}
-		double[] player1CooperativeStrategy = new double[numPlayer1Actions];
-		double[] player2CooperativeStrategy = new double[numPlayer2Actions];
-		player1CooperativeStrategy[bestA1] = 1;
-		player2CooperativeStrategy[bestA2] = 1;
-		double[][] jointCooperativeStrategy = BimatrixHuSolver.getDistributionOverJointActions(player1CooperativeStrategy, player2CooperativeStrategy);
 		double player1CooperativeExpectedPayoff = maxJointPayoff / 2;
 		double player2CooperativeExpectedPayoff = maxJointPayoff / 2;
-		
-		
-//		Joint<double[]> cooperativeMixedStrategyPerPlayer = BimatrixHuSolver.solveForMixedStrategies(player1CooperativePayoffs, player2CooperativePayoffs);
-//		double[] player1CooperativeStrategy = cooperativeMixedStrategyPerPlayer.getForPlayer(player1Idx);
-//		double[] player2CooperativeStrategy = cooperativeMixedStrategyPerPlayer.getForPlayer(player2Idx);
-//		double[][] jointCooperativeStrategy = BimatrixHuSolver.getDistributionOverJointActions(player1CooperativeStrategy, player2CooperativeStrategy);
-//		// Get expected payoffs if agents play these strategies. 
-//		double player1CooperativeExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player1CooperativePayoffs, jointCooperativeStrategy);
-//		double player2CooperativeExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player2CooperativePayoffs, jointCooperativeStrategy);
-//		
-//		System.out.println("jointCooperativeStrategy:\n" + print2dArr(jointCooperativeStrategy));
-
-		// Solve the competitive game.
-//		Joint<double[]> competitiveMixedStrategyPerPlayer = BimatrixHuSolver.solveForMixedStrategies(player1CompetitivePayoffs, player2CompetitivePayoffs);
-		
-		// Buggy. Use minmax / maxmin
-//		boolean minmaxHack = true;
-//		double[] player1CompetitiveStrategy;
-//		double[] player2CompetitiveStrategy;
-//		if (!minmaxHack) { 
-//			player1CompetitiveStrategy = competitiveMixedStrategyPerPlayer.getForPlayer(player1Idx);
-//			player2CompetitiveStrategy = competitiveMixedStrategyPerPlayer.getForPlayer(player2Idx);
-//		}
-//		
-//		////////////// START HACK
-//		else {
-//		// minmax
-//		int player1BestAction = -1;
-//		double player1BestVal = Double.NEGATIVE_INFINITY;
-//		for (int a1=0; a1<numPlayer1Actions; a1++) {
-//			// Get best a2 value for this action
-//			int bestA2 = -1;
-//			double bestA2Val = Double.NEGATIVE_INFINITY;			
-//			for (int a2=0; a2<numPlayer2Actions; a2++) {
-//				if (player2CompetitivePayoffs[a1][a2] > bestA2Val) {
-//					bestA2Val = player2CompetitivePayoffs[a1][a2];
-//					bestA2 = a2;
-//				}
-//			}
-//			// See if a1 is still better than any other action if a2 minimizes a1.
-//			if (player1CompetitivePayoffs[a1][bestA2] > player1BestVal) {
-//				player1BestVal = player1CompetitivePayoffs[a1][bestA2];
-//				player1BestAction = a1;
-//			}
-//		}
-//		player1CompetitiveStrategy = new double[numPlayer1Actions];
-//		player1CompetitiveStrategy[player1BestAction] = 1.0;
-//		
-//		// maxmin
-//		int player2BestAction = -1;
-//		double player2BestVal = Double.NEGATIVE_INFINITY;
-//		for (int a2=0; a2<numPlayer2Actions; a2++) {
-//			// Get best a1 value for this action
-//			int bestA1 = -1;
-//			double bestA1Val = Double.NEGATIVE_INFINITY;			
-//			for (int a1=0; a1<numPlayer1Actions; a1++) {
-//				if (player1CompetitivePayoffs[a1][a2] > bestA1Val) {
-//					bestA1Val = player1CompetitivePayoffs[a1][a2];
-//					bestA1 = a1;
-//				}
-//			}
-//			// See if a2 is still better than any other action if a1 minimizes a2.
-//			if (player2CompetitivePayoffs[bestA1][a2] > player2BestVal) {
-//				player2BestVal = player2CompetitivePayoffs[bestA1][a2];
-//				player2BestAction = a2;
-//			}
-//		}
-//		player2CompetitiveStrategy = new double[numPlayer2Actions];
-//		player2CompetitiveStrategy[player2BestAction] = 1.0;
-//		}
-//		//////////////////////// END HACK
-//				
-//		double[][] jointCompetitiveStrategy = BimatrixHuSolver.getDistributionOverJointActions(player1CompetitiveStrategy, player2CompetitiveStrategy);
-//		// Get expected payoffs if agents play these strategies. 
-//		
-//		
-//		
-//		
-//		double player1CompetitiveExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player1CompetitivePayoffs, jointCompetitiveStrategy);
-//		double player2CompetitiveExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player2CompetitivePayoffs, jointCompetitiveStrategy);
-
-
-		// Solve for payoffs of competitive game (when at equilibrium)
-		double minimaxValue = zeroSumBimatrixGameSolver.solveForMinimaxValue(player1CompetitivePayoffs);
+
+		// Solve for payoffs of competitive game (when at equilibrium).
+		// Only solve an LP if the game has no saddle point and isn't 2x2.
+		double minimaxValue = ZeroSumBimatrixGameSolver.solveForMinimaxValueInClosedForm(competitivePayoffs, maxRowMinimum, minColumnMaximum);
+		if (Double.isNaN(minimaxValue)) {
+			minimaxValue = zeroSumBimatrixGameSolver.solveForMinimaxValue(competitivePayoffs);
+			numLps++;
+		}
 		double player1CompetitiveExpectedPayoff = minimaxValue;
 		double player2CompetitiveExpectedPayoff = -minimaxValue;
-		
-		
+
 		// Compute coco values
 		double player1CoCoVal = player1CooperativeExpectedPayoff + player1CompetitiveExpectedPayoff;
 		double player2CoCoVal = player2CooperativeExpectedPayoff + player2CompetitiveExpectedPayoff;
 
-		// Compute agents' actual payoffs for following cooperative strategy
-		double player1ActualExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player1Payoffs, jointCooperativeStrategy);
-		double player2ActualExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player2Payoffs, jointCooperativeStrategy);
+		// Agents' actual payoffs for following the cooperative strategy
+		double player1ActualExpectedPayoff = payoffs[bestJointActionIdx*2 + player1Idx];
+		double player2ActualExpectedPayoff = payoffs[bestJointActionIdx*2 + player2Idx];
 		Joint<Double> expectedPayoffs = new Joint<Double>();
 		expectedPayoffs.add(player1ActualExpectedPayoff);
 		expectedPayoffs.add(player2ActualExpectedPayoff);
-		
+
 		// Compute transfer payments
-		double player1TransferPayments = player1CoCoVal - player1ActualExpectedPayoff;
-		double player2TransferPayments = player2CoCoVal - player2ActualExpectedPayoff;
 		Joint<Double> transferPayments = new Joint<Double>();
-		transferPayments.add(player1TransferPayments);
-		transferPayments.add(player2TransferPayments);
+		transferPayments.add(player1CoCoVal - player1ActualExpectedPayoff);
+		transferPayments.add(player2CoCoVal - player2ActualExpectedPayoff);
+		numGames++;
 
-//		System.out.println("p1Coco=" + player1CoCoVal + ", p2Coco=" + player2CoCoVal);
-//		System.out.println("p1ActualPayoff=" + player1ActualExpectedPayoff + ", p2ActualPayoff=" + player2ActualExpectedPayoff);
-//		System.out.println("p1Transfer=" + player1TransferPayments + ", p2Transfer=" + player2TransferPayments);
-		
 		// Solution is to follow the cooperative strategy.
+		double[] player1CooperativeStrategy = new double[numPlayer1Actions];
+		double[] player2CooperativeStrategy = new double[numPlayer2Actions];
+		player1CooperativeStrategy[bestA1] = 1;
+		player2CooperativeStrategy[bestA2] = 1;
 		DiscreteDistribution<Joint<A>> jointStrategy = BimatrixHuSolver.getJointStrategyFromIndependentStrategies(normalFormGame, player1CooperativeStrategy, player2CooperativeStrategy);
-		GameSolution<A> solution = new UncorrelatedGameSolution<A>(normalFormGame, jointStrategy, expectedPayoffs, transferPayments);
+		return new UncorrelatedGameSolution<A>(normalFormGame, jointStrategy, expectedPayoffs, transferPayments);
+	}
+
 
-		return solution;
+	/**
+	 * Releases the CPLEX environments of this solver and its copies, if there are any.
+	 */
+	@Override
+	public void close() {
+		zeroSumBimatrixGameSolver.close();
+		if (parallelSolvers != null) {
+			for (BimatrixCocoSolver<A> solver : parallelSolvers.subList(1, parallelSolvers.size())) {
+				solver.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the fraction of the games solved by this solver whose competitive
+	 * part needed an LP (i.e., had no saddle point and wasn't 2x2), including
+	 * the games solved by its copies (see solveAll).
+	 * @return
+	 */
+	public double getLpFraction() {
+		int totalNumGames = 0;
+		int totalNumLps = 0;
+		for (BimatrixCocoSolver<A> solver : (parallelSolvers == null) ? Collections.singletonList(this) : parallelSolvers) {
+			totalNumGames += solver.numGames;
+			totalNumLps += solver.numLps;
+		}
+		return (totalNumGames == 0) ? 0 : (double) totalNumLps / totalNumGames;
 	}
 	
 	
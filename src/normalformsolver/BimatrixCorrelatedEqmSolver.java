@@ -1,12 +1,20 @@
 package normalformsolver;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
 
 import sequentialgame.AbstractAction;
 
 import ilog.concert.IloException;
 import ilog.concert.IloLinearNumExpr;
 import ilog.concert.IloNumVar;
+import ilog.concert.IloObjective;
+import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
 
 public class BimatrixCorrelatedEqmSolver<A extends AbstractAction> extends BimatrixNormalFormSolver<A> {
@@ -26,14 +34,125 @@ public class BimatrixCorrelatedEqmSolver<A extends AbstractAction> extends Bimat
 	
 	// sum(all pi[a1][a2][...]) == 1
 	
-	IloCplex cplex;
+	/**
+	 * The CPLEX model, with the CPLEX backend. It's kept in its own class so that
+	 * the simplex backend doesn't need CPLEX on the classpath.
+	 */
+	private CplexCorrelatedEqmModel cplexModel;
+
+	private LpBackend lpBackend;
+
+	/**
+	 * Buffers for the simplex backend's LP, reused while the game size stays the same.
+	 */
+	private DenseSimplexSolver simplexSolver;
+	private double[][] constraintCoefficients;
+	private int[] constraintTypes;
+	private double[] rhs;
+	private double[] objectiveCoefficients;
+
+	/**
+	 * This solver and copies of it, for solving batches of games at the same time
+	 * with the simplex backend (see solveAll).
+	 */
+	private List<BimatrixCorrelatedEqmSolver<A>> parallelSolvers;
+
+	/**
+	 * Solves games with more than 2 players, and games with objectives other than
+	 * the utilitarian one (created when first needed).
+	 */
+	private CorrelatedEqmSolver<A> multiPlayerSolver;
+	private CorrelatedEqmSolver.Objective ceObjective = CorrelatedEqmSolver.Objective.UTILITARIAN;
 	
 	public BimatrixCorrelatedEqmSolver() {
-		try {
-			cplex = new IloCplex();
-			cplex.setOut(null); // suppress output
-		} catch (IloException e) {
-			e.printStackTrace();
+		this(LpBackend.DEFAULT);
+	}
+
+	public BimatrixCorrelatedEqmSolver(LpBackend lpBackend) {
+		this.lpBackend = lpBackend;
+		if (lpBackend == LpBackend.SIMPLEX) {
+			simplexSolver = new DenseSimplexSolver();
+			return;
+		}
+		cplexModel = new CplexCorrelatedEqmModel();
+	}
+	
+	
+	/**
+	 * Games with more than 2 players, and all games if the objective isn't utilitarian,
+	 * are passed to a CorrelatedEqmSolver with the same backend.
+	 */
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		if (normalFormGame.getNumPlayers() > 2 || ceObjective != CorrelatedEqmSolver.Objective.UTILITARIAN) {
+			return getMultiPlayerSolver().solve(normalFormGame, previousJointActionDistribution);
+		}
+		return super.solve(normalFormGame, previousJointActionDistribution);
+	}
+
+
+	public synchronized CorrelatedEqmSolver<A> getMultiPlayerSolver() {
+		if (multiPlayerSolver == null) {
+			multiPlayerSolver = new CorrelatedEqmSolver<A>(lpBackend);
+			multiPlayerSolver.setObjective(ceObjective);
+		}
+		return multiPlayerSolver;
+	}
+
+
+	public CorrelatedEqmSolver.Objective getObjective() {
+		return ceObjective;
+	}
+
+	public synchronized void setObjective(CorrelatedEqmSolver.Objective objective) {
+		this.ceObjective = objective;
+		if (multiPlayerSolver != null) {
+			multiPlayerSolver.setObjective(ceObjective);
+		}
+	}
+	
+	
+	/**
+	 * With the simplex backend, solves the games at the same time, one chunk per processor,
+	 * each with its own copy of this solver. With CPLEX, solves them one at a time
+	 * (grouped by size) with this solver's model.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		if (lpBackend != LpBackend.SIMPLEX) {
+			return super.solveAll(normalFormGames, previousJointActionDistributions);
+		}
+		if (parallelSolvers == null) {
+			parallelSolvers = new ArrayList<BimatrixCorrelatedEqmSolver<A>>();
+			parallelSolvers.add(this);
+			for (int solverIdx=1; solverIdx<SolverExecutor.getNumThreads(); solverIdx++) {
+				parallelSolvers.add(new BimatrixCorrelatedEqmSolver<A>(lpBackend));
+			}
+		}
+		for (BimatrixCorrelatedEqmSolver<A> solver : parallelSolvers) {
+			solver.setEquilibriumSelector(getEquilibriumSelector());
+			solver.setObjective(ceObjective);
+		}
+		return SolverExecutor.solveAll(parallelSolvers, normalFormGames, previousJointActionDistributions);
+	}
+	
+	
+	/**
+	 * Releases the CPLEX environments of this solver, its copies, and its multi-player solver,
+	 * if there are any.
+	 */
+	@Override
+	public synchronized void close() {
+		if (cplexModel != null) {
+			cplexModel.close();
+		}
+		if (multiPlayerSolver != null) {
+			multiPlayerSolver.close();
+		}
+		if (parallelSolvers != null) {
+			for (BimatrixCorrelatedEqmSolver<A> solver : parallelSolvers.subList(1, parallelSolvers.size())) {
+				solver.close();
+			}
 		}
 	}
 	
@@ -46,62 +165,217 @@ public class BimatrixCorrelatedEqmSolver<A extends AbstractAction> extends Bimat
 	 * @return
 	 */
 	public double[][] solve(double[][] player1Payoffs, double[][] player2Payoffs) {
-		double[][] jointProbsDouble = null;
-		try {
-			cplex.clearModel();
-			
-			// Create solver for a two-player game
-			int numP1Actions = player1Payoffs.length;
-			int numP2Actions = player1Payoffs[0].length;
+		if (lpBackend == LpBackend.SIMPLEX) {
+			return solveWithSimplex(player1Payoffs, player2Payoffs);
+		}
+		return cplexModel.solve(player1Payoffs, player2Payoffs);
+	}
+	
+	
+	/**
+	 * Solves the same LP as solve with the simplex backend. Variables are the joint action
+	 * probabilities, indexed a1*numP2Actions+a2. Each incentive constraint is written as 
+	 * (payoff for deviating - payoff for obeying) <= 0, so that its slack can start in the basis.
+	 */
+	private double[][] solveWithSimplex(double[][] player1Payoffs, double[][] player2Payoffs) {
+		int numP1Actions = player1Payoffs.length;
+		int numP2Actions = player1Payoffs[0].length;
+		int numVariables = numP1Actions * numP2Actions;
+		int numConstraints = numP1Actions*(numP1Actions-1) + numP2Actions*(numP2Actions-1) + 1;
+		if (rhs == null || rhs.length != numConstraints || objectiveCoefficients.length != numVariables) {
+			constraintCoefficients = new double[numConstraints][numVariables];
+			constraintTypes = new int[numConstraints];
+			rhs = new double[numConstraints];
+			objectiveCoefficients = new double[numVariables];
+		}
+
+		int constraintIdx = 0;
+		// Player 1's incentive constraints.
+		for (int a1=0; a1<numP1Actions; a1++) {
+			for (int a1Prime=0; a1Prime<numP1Actions; a1Prime++) {
+				if (a1==a1Prime) continue;
+				double[] coefficients = constraintCoefficients[constraintIdx];
+				Arrays.fill(coefficients, 0);
+				for (int a2=0; a2<numP2Actions; a2++) {
+					coefficients[a1*numP2Actions+a2] = player1Payoffs[a1Prime][a2] - player1Payoffs[a1][a2];
+				}
+				constraintTypes[constraintIdx] = DenseSimplexSolver.LESS_THAN_OR_EQUAL;
+				rhs[constraintIdx++] = 0;
+			}
+		}
+		// Player 2's incentive constraints.
+		for (int a2=0; a2<numP2Actions; a2++) {
+			for (int a2Prime=0; a2Prime<numP2Actions; a2Prime++) {
+				if (a2==a2Prime) continue;
+				double[] coefficients = constraintCoefficients[constraintIdx];
+				Arrays.fill(coefficients, 0);
+				for (int a1=0; a1<numP1Actions; a1++) {
+					coefficients[a1*numP2Actions+a2] = player2Payoffs[a1][a2Prime] - player2Payoffs[a1][a2];
+				}
+				constraintTypes[constraintIdx] = DenseSimplexSolver.LESS_THAN_OR_EQUAL;
+				rhs[constraintIdx++] = 0;
+			}
+		}
+		// sum(all pi[a1][a2]) == 1, and maximize the sum of players' expected rewards.
+		for (int a1=0; a1<numP1Actions; a1++) {
+			for (int a2=0; a2<numP2Actions; a2++) {
+				constraintCoefficients[constraintIdx][a1*numP2Actions+a2] = 1;
+				objectiveCoefficients[a1*numP2Actions+a2] = player1Payoffs[a1][a2] + player2Payoffs[a1][a2];
+			}
+		}
+		constraintTypes[constraintIdx] = DenseSimplexSolver.EQUAL;
+		rhs[constraintIdx] = 1;
 
+		int status = simplexSolver.maximize(constraintCoefficients, constraintTypes, rhs, objectiveCoefficients);
+		if (status != DenseSimplexSolver.OPTIMAL) {
+			System.err.println("Simplex solver failed to find a correlated equilibrium; status=" + status);
+			return null;
+		}
+		double[] solution = simplexSolver.getSolution();
+		double[][] jointProbs = new double[numP1Actions][numP2Actions];
+		for (int a1=0; a1<numP1Actions; a1++) {
+			for (int a2=0; a2<numP2Actions; a2++) {
+				jointProbs[a1][a2] = solution[a1*numP2Actions+a2];
+			}
+		}
+		return jointProbs;
+	}
+	
+	
+	/**
+	 * The CPLEX model for the last game size solved (see buildModel).
+	 */
+	private static class CplexCorrelatedEqmModel {
+		private IloCplex cplex;
+		private int modelNumP1Actions = -1;
+		private int modelNumP2Actions = -1;
+		private IloNumVar[][] jointActionProbability;
+		private IloNumVar[][] jointActionProbabilityByP2Action;
+		private IloRange[][] player1IncentiveConstraints;
+		private IloRange[][] player2IncentiveConstraints;
+		private IloObjective objective;
+		private double[] player1CoefficientBuffer;
+		private double[] player2CoefficientBuffer;
+
+		public CplexCorrelatedEqmModel() {
+			try {
+				cplex = new IloCplex();
+				cplex.setOut(null); // suppress output
+				cplex.setParam(IloCplex.IntParam.AdvInd, 1); // warm start from the previous basis
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+		}
+
+		public void close() {
+			if (cplex != null) {
+				cplex.end();
+			}
+		}
+
+		public double[][] solve(double[][] player1Payoffs, double[][] player2Payoffs) {
+			double[][] jointProbsDouble = null;
+			try {
+				// Create solver for a two-player game
+				int numP1Actions = player1Payoffs.length;
+				int numP2Actions = player1Payoffs[0].length;
+				if (numP1Actions != modelNumP1Actions || numP2Actions != modelNumP2Actions) {
+					buildModel(numP1Actions, numP2Actions);
+				}
+
+				// For each player (1 or 2), each action, and other action, set the coefficients of the
+				// constraint saying expected profit for taking the action is >= expected profit for 
+				// taking the other action, given the action signal.
+				// [Start with player 1]
+				for (int a1=0; a1<numP1Actions; a1++) {
+					for (int a1Prime=0; a1Prime<numP1Actions; a1Prime++) {
+						if (a1==a1Prime) continue;
+						// Sum over other opponent's actions 
+						// (from the perspective of the outer loop player)
+						for (int a2=0; a2<numP2Actions; a2++) {
+							player1CoefficientBuffer[a2] = player1Payoffs[a1][a2] - player1Payoffs[a1Prime][a2];
+						}
+						cplex.setLinearCoefs(player1IncentiveConstraints[a1][a1Prime], player1CoefficientBuffer, jointActionProbability[a1]);
+					}
+				}
+
+				// [Do the same thing for player 2]
+				for (int a2=0; a2<numP2Actions; a2++) {
+					for (int a2Prime=0; a2Prime<numP2Actions; a2Prime++) {
+						if (a2==a2Prime) continue;
+						for (int a1=0; a1<numP1Actions; a1++) {
+							player2CoefficientBuffer[a1] = player2Payoffs[a1][a2] - player2Payoffs[a1][a2Prime];
+						}
+						cplex.setLinearCoefs(player2IncentiveConstraints[a2][a2Prime], player2CoefficientBuffer, jointActionProbabilityByP2Action[a2]);
+					}
+				}
+
+				// Maximize sum of players expected rewards:
+				for (int a1=0; a1<numP1Actions; a1++) {
+					for (int a2=0; a2<numP2Actions; a2++) {
+						player1CoefficientBuffer[a2] = player1Payoffs[a1][a2] + player2Payoffs[a1][a2];
+					}
+					cplex.setLinearCoefs(objective, player1CoefficientBuffer, jointActionProbability[a1]);
+				}
+
+				// Solve and get result. CPLEX starts from the previous call's basis, since 
+				// only coefficients have changed.
+				if ( cplex.solve() ) {
+					cplex.output().println("Solution status = " + cplex.getStatus());
+					cplex.output().println("Solution value = " + cplex.getObjValue());
+					cplex.output().println("Objective function = " + cplex.getObjective());
+					jointProbsDouble = new double[numP1Actions][numP2Actions];
+					//Create double array to return
+					for (int a1=0; a1<numP1Actions; a1++) {
+						jointProbsDouble[a1] = cplex.getValues(jointActionProbability[a1]);
+					}
+				}			
 			
+			
+			} catch (IloException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+			return jointProbsDouble;
+		}
+
+
+		/**
+		 * Builds the CPLEX model for games with the given numbers of actions. 
+		 * The model's structure (variables, which constraints there are, and which variables 
+		 * each involves) only depends on the numbers of actions, so it's built once and 
+		 * reused for every game of that size; solve only changes its coefficients.
+		 * The incentive constraints and objective are created with no terms.
+		 */
+		private void buildModel(int numP1Actions, int numP2Actions) throws IloException {
+			cplex.clearModel();
+
 			// Create decision variables to hold the joint probabiliity.
-			IloNumVar[][] jointActionProbability = new IloNumVar[numP1Actions][numP2Actions];
+			jointActionProbability = new IloNumVar[numP1Actions][numP2Actions];
+			jointActionProbabilityByP2Action = new IloNumVar[numP2Actions][numP1Actions];
 			for (int a1=0; a1<numP1Actions; a1++) {
 				for (int a2=0; a2<numP2Actions; a2++) {
 					jointActionProbability[a1][a2] = cplex.numVar(0, 1);
+					jointActionProbabilityByP2Action[a2][a1] = jointActionProbability[a1][a2];
 				}
 			}
-			
-			// For each player (1 or 2), each action, and other action:
-			// [Start with player 1]
+
+			// Incentive constraints: sum(coefficient * pi) >= 0
+			player1IncentiveConstraints = new IloRange[numP1Actions][numP1Actions];
 			for (int a1=0; a1<numP1Actions; a1++) {
 				for (int a1Prime=0; a1Prime<numP1Actions; a1Prime++) {
-					// Add constraint about how expected profit for taking action a1 is 
-					// >= expected profit for taking action a1Prime.
 					if (a1==a1Prime) continue;
-					IloLinearNumExpr expectedPayoffForActionGivenActionSignal = cplex.linearNumExpr();
-					IloLinearNumExpr expectedPayoffForOtherActionGivenActionSignal = cplex.linearNumExpr();					
-					// Sum over other opponent's actions 
-					// (from the perspective of the outer loop player)
-					for (int a2=0; a2<numP2Actions; a2++) {
-						expectedPayoffForActionGivenActionSignal.addTerm(player1Payoffs[a1][a2], jointActionProbability[a1][a2]);
-						expectedPayoffForOtherActionGivenActionSignal.addTerm(player1Payoffs[a1Prime][a2], jointActionProbability[a1][a2]);
-					}
-					// Add constraint
-					cplex.addGe(expectedPayoffForActionGivenActionSignal, expectedPayoffForOtherActionGivenActionSignal);
+					player1IncentiveConstraints[a1][a1Prime] = cplex.addGe(cplex.linearNumExpr(), 0);
 				}
 			}
-
-			// [Do the same thing for player 2]
+			player2IncentiveConstraints = new IloRange[numP2Actions][numP2Actions];
 			for (int a2=0; a2<numP2Actions; a2++) {
 				for (int a2Prime=0; a2Prime<numP2Actions; a2Prime++) {
-					// Add constraint about how expected profit for taking action a1 is 
-					// >= expected profit for taking action a1Prime.
 					if (a2==a2Prime) continue;
-					IloLinearNumExpr expectedPayoffForActionGivenActionSignal = cplex.linearNumExpr();
-					IloLinearNumExpr expectedPayoffForOtherActionGivenActionSignal = cplex.linearNumExpr();					
-					// Sum over other opponent's actions 
-					// (from the perspective of the outer loop player)
-					for (int a1=0; a1<numP1Actions; a1++) {
-						expectedPayoffForActionGivenActionSignal.addTerm(player2Payoffs[a1][a2], jointActionProbability[a1][a2]);
-						expectedPayoffForOtherActionGivenActionSignal.addTerm(player2Payoffs[a1][a2Prime], jointActionProbability[a1][a2]);
-					}
-					// Add constraint
-					cplex.addGe(expectedPayoffForActionGivenActionSignal, expectedPayoffForOtherActionGivenActionSignal);
+					player2IncentiveConstraints[a2][a2Prime] = cplex.addGe(cplex.linearNumExpr(), 0);
 				}
 			}
-			
+
 			// sum(all pi[a1][a2][...]) == 1
 			IloLinearNumExpr sumProbs = cplex.linearNumExpr();
 			for (int a1=0; a1<numP1Actions; a1++) {
@@ -110,49 +384,18 @@ public class BimatrixCorrelatedEqmSolver<A extends AbstractAction> extends Bimat
 				}
 			}
 			cplex.addEq(1, sumProbs);
-			
-			
-			
-			// Add some objective:
-			IloLinearNumExpr objective = cplex.linearNumExpr();
-			// Maximize sum of players expected rewards:
-			for (int a1=0; a1<numP1Actions; a1++) {
-				for (int a2=0; a2<numP2Actions; a2++) {
-					objective.addTerm(player1Payoffs[a1][a2], jointActionProbability[a1][a2]);
-					objective.addTerm(player2Payoffs[a1][a2], jointActionProbability[a1][a2]);					
-				}
-			}
-			cplex.addMaximize(objective);
 
-			
-			
-			// Solve and get result
-			if ( cplex.solve() ) {
-				cplex.output().println("Solution status = " + cplex.getStatus());
-				cplex.output().println("Solution value = " + cplex.getObjValue());
-				cplex.output().println("Objective function = " + cplex.getObjective());
-				double objectiveVal = cplex.getObjValue();
-				jointProbsDouble = new double[numP1Actions][numP2Actions];
-				//Create double array to return
-				for (int a1=0; a1<numP1Actions; a1++) {
-					for (int a2=0; a2<numP2Actions; a2++) {
-						jointProbsDouble[a1][a2] = cplex.getValue(jointActionProbability[a1][a2]);
-					}
-				}
+			objective = cplex.addMaximize(cplex.linearNumExpr());
 
-
-				
-			}			
-			
-			
-		} catch (IloException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			player1CoefficientBuffer = new double[numP2Actions];
+			player2CoefficientBuffer = new double[numP1Actions];
+			modelNumP1Actions = numP1Actions;
+			modelNumP2Actions = numP2Actions;
 		}
-		return jointProbsDouble;
+
 	}
-	
-	
+
+
 	public static void main(String[] args) {
 		BimatrixCorrelatedEqmSolver solver = new BimatrixCorrelatedEqmSolver();
 		double[][] player1Payoffs = {{6,2},{7,0}};
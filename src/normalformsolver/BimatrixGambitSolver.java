@@ -2,17 +2,25 @@ package normalformsolver;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
 import props.Joint;
 import sequentialgame.AbstractAction;
 
 /**
  * Uses gambit command-line tools to solve a normal form game.
+ * Each game is solved by a new gambit process, so for many small games
+ * BimatrixSupportEnumerationSolver (which this falls back to when gambit 
+ * isn't installed) is much faster.
  * 
  * @author sodomka
  *
@@ -22,6 +30,12 @@ public class BimatrixGambitSolver<A extends AbstractAction> extends BimatrixNorm
 	// See http://www.gambit-project.org/doc/tools.html
 	private String gambitLocation = "/usr/local/bin/";
 	private String solverToUse = "gambit-gnm";
+	private Boolean gambitAvailable;
+
+	/**
+	 * If not null, games are solved by these long-lived gambit processes.
+	 */
+	private GambitWorkerPool workerPool;
 
 
 	public double[][] solve(double[][] p1Payoffs, double[][] p2Payoffs) {
@@ -40,16 +54,181 @@ public class BimatrixGambitSolver<A extends AbstractAction> extends BimatrixNorm
 	 * @return
 	 */
 	public Joint<double[]> solveForNash(double[][] p1Payoffs, double[][] p2Payoffs) {
-		int numP1Actions = p1Payoffs.length;
-		int numP2Actions = p1Payoffs[0].length;
+		boolean stopAfterFirstNE = true;
+		List<Joint<double[]>> profiles = solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		//System.out.println("profiles=" + Arrays.toString(profiles.get(0).get(0)) + " ; " + Arrays.toString(profiles.get(0).get(1)));
+		return profiles.get(0);
+	}
+
+
+	/**
+	 * Returns the solutions gambit finds to a normal-form game, 
+	 * each in terms of a mixed strategy for each player.
+	 * @param p1Payoffs
+	 * @param p2Payoffs
+	 * @param stopAfterFirstNE
+	 * @return
+	 */
+	public List<Joint<double[]>> solveForNash(double[][] p1Payoffs, double[][] p2Payoffs, boolean stopAfterFirstNE) {
+		if (workerPool == null && !isGambitAvailable()) {
+			return BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		}
 		String gameString = createGameStringFromPayoffs(p1Payoffs, p2Payoffs);
 		//System.out.println("gameString=" + gameString);
-		List<String> output = executeCommand(getGambitCommandFromString(gambitLocation, solverToUse, gameString));
+		List<String> output = (workerPool != null) ? workerPool.solve(gameString) :
+			executeCommand(getGambitCommandFromString(gambitLocation, solverToUse, gameString));
 		//System.out.println("output=" + output);
-		boolean stopAfterFirstNE = true;
+		return getMixedStrategyProfiles(output, stopAfterFirstNE, p1Payoffs, p2Payoffs);
+	}
+
+
+	/**
+	 * Solves many games, returning the solutions gambit finds to each (as from 
+	 * solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE)). With a worker pool, 
+	 * every game is submitted before waiting on any of them, so the pool's workers 
+	 * solve games concurrently.
+	 * @param p1PayoffsList
+	 * @param p2PayoffsList
+	 * @param stopAfterFirstNE
+	 * @return
+	 */
+	public List<List<Joint<double[]>>> solveForNash(List<double[][]> p1PayoffsList, List<double[][]> p2PayoffsList, boolean stopAfterFirstNE) {
+		int numGames = p1PayoffsList.size();
+		List<List<Joint<double[]>>> profilesList = new ArrayList<List<Joint<double[]>>>();
+		if (workerPool == null) {
+			for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+				profilesList.add(solveForNash(p1PayoffsList.get(gameIdx), p2PayoffsList.get(gameIdx), stopAfterFirstNE));
+			}
+			return profilesList;
+		}
+
+		List<Future<List<String>>> outputs = new ArrayList<Future<List<String>>>();
+		for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+			outputs.add(workerPool.submit(createGameStringFromPayoffs(p1PayoffsList.get(gameIdx), p2PayoffsList.get(gameIdx))));
+		}
+		for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+			List<String> output = new ArrayList<String>();
+			try {
+				output = outputs.get(gameIdx).get();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+			profilesList.add(getMixedStrategyProfiles(output, stopAfterFirstNE, p1PayoffsList.get(gameIdx), p2PayoffsList.get(gameIdx)));
+		}
+		return profilesList;
+	}
+
+
+	/**
+	 * Parses gambit's output for a game, falling back to support enumeration if gambit found no equilibria.
+	 */
+	private static List<Joint<double[]>> getMixedStrategyProfiles(List<String> output, boolean stopAfterFirstNE, double[][] p1Payoffs, double[][] p2Payoffs) {
+		int numP1Actions = p1Payoffs.length;
+		int numP2Actions = p1Payoffs[0].length;
 		List<Joint<double[]>> profiles = getMixedStrategyProfilesFromGambitOutput(output, stopAfterFirstNE, numP1Actions, numP2Actions);
-		//System.out.println("profiles=" + Arrays.toString(profiles.get(0).get(0)) + " ; " + Arrays.toString(profiles.get(0).get(1)));
-		return profiles.get(0);
+		if (profiles.isEmpty()) {
+			System.err.println("gambit returned no equilibria; using support enumeration instead.");
+			return BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		}
+		return profiles;
+	}
+
+
+	/**
+	 * Solves games on the given pool of long-lived gambit processes, rather than 
+	 * starting a new process for each game. The pool should run this solver's gambit 
+	 * command (see getGambitCommand).
+	 * @param workerPool
+	 */
+	public void setWorkerPool(GambitWorkerPool workerPool) {
+		this.workerPool = workerPool;
+	}
+
+	public GambitWorkerPool getWorkerPool() {
+		return workerPool;
+	}
+
+	/**
+	 * Stops the worker pool's gambit processes, if there is a worker pool.
+	 */
+	@Override
+	public void close() {
+		if (workerPool != null) {
+			workerPool.shutdown();
+		}
+	}
+
+	public String getGambitCommand() {
+		return gambitLocation + solverToUse;
+	}
+
+
+	/**
+	 * Returns true if the gambit solver is installed. If it isn't, games are
+	 * solved in-process by BimatrixSupportEnumerationSolver instead.
+	 * @return
+	 */
+	private boolean isGambitAvailable() {
+		if (gambitAvailable == null) {
+			gambitAvailable = new File(gambitLocation + solverToUse).canExecute();
+			if (!gambitAvailable) {
+				System.err.println(gambitLocation + solverToUse + " not found; using support enumeration instead.");
+			}
+		}
+		return gambitAvailable;
+	}
+
+
+	/**
+	 * With a worker pool, submits every game to the pool before waiting on any of them
+	 * (see solveForNash(List, List, boolean)), so that the pool's workers solve them
+	 * at the same time. Without one, solves them one at a time.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		if (workerPool == null) {
+			return super.solveAll(normalFormGames, previousJointActionDistributions);
+		}
+		int numGames = normalFormGames.size();
+		List<double[][]> p1PayoffsList = new ArrayList<double[][]>();
+		List<double[][]> p2PayoffsList = new ArrayList<double[][]>();
+		for (NormalFormGame<A> normalFormGame : normalFormGames) {
+			p1PayoffsList.add(BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player1Idx));
+			p2PayoffsList.add(BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player2Idx));
+		}
+		boolean stopAfterFirstNE = (getEquilibriumSelector().getCriterion() == EquilibriumSelector.Criterion.FIRST);
+		List<List<Joint<double[]>>> profilesList = solveForNash(p1PayoffsList, p2PayoffsList, stopAfterFirstNE);
+
+		List<GameSolution<A>> solutions = new ArrayList<GameSolution<A>>();
+		for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+			List<double[][]> candidates = new ArrayList<double[][]>();
+			for (Joint<double[]> profile : profilesList.get(gameIdx)) {
+				candidates.add(getDistributionOverJointActions(profile.get(player1Idx), profile.get(player2Idx)));
+			}
+			DiscreteDistribution<Joint<A>> previousJointActionDistribution = (previousJointActionDistributions == null) ? null : previousJointActionDistributions.get(gameIdx);
+			solutions.add(getSolution(normalFormGames.get(gameIdx), p1PayoffsList.get(gameIdx), p2PayoffsList.get(gameIdx), candidates, previousJointActionDistribution));
+		}
+		return solutions;
+	}
+
+
+	/**
+	 * Only asks gambit for every equilibrium when the selector will choose between them.
+	 */
+	@Override
+	protected List<double[][]> solveForCandidates(double[][] p1Payoffs, double[][] p2Payoffs) {
+		if (getEquilibriumSelector().getCriterion() == EquilibriumSelector.Criterion.FIRST) {
+			return super.solveForCandidates(p1Payoffs, p2Payoffs);
+		}
+		boolean stopAfterFirstNE = false;
+		List<Joint<double[]>> profiles = solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		List<double[][]> candidates = new ArrayList<double[][]>();
+		for (Joint<double[]> profile : profiles) {
+			candidates.add(getDistributionOverJointActions(profile.get(player1Idx), profile.get(player2Idx)));
+		}
+		return candidates;
 	}
 
 	
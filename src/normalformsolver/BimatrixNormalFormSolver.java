@@ -1,5 +1,7 @@
 package normalformsolver;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import props.DiscreteDistribution;
@@ -20,19 +22,55 @@ public abstract class BimatrixNormalFormSolver<A extends AbstractAction> impleme
 
 	static final int player1Idx = 0;
 	static final int player2Idx = 1;
+
+	/**
+	 * Chooses between solutions when the solver finds several.
+	 */
+	private EquilibriumSelector equilibriumSelector = new EquilibriumSelector(EquilibriumSelector.Criterion.FIRST);
+
+	public void setEquilibriumSelector(EquilibriumSelector equilibriumSelector) {
+		this.equilibriumSelector = equilibriumSelector;
+	}
+
+	public EquilibriumSelector getEquilibriumSelector() {
+		return equilibriumSelector;
+	}
 	
 	@Override
 	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		// Extract the payoff matrices for players 1 and 2.
+		double[][] player1Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player1Idx);
+		double[][] player2Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player2Idx);
+
+		List<double[][]> candidateJointActionProbs = solveForCandidates(player1Payoffs, player2Payoffs);
+		return getSolution(normalFormGame, player1Payoffs, player2Payoffs, candidateJointActionProbs, previousJointActionDistribution);
+	}
+
+
+	/**
+	 * Returns the solution that the equilibrium selector chooses from the candidates
+	 * (see solveForCandidates) for the game with the given payoff matrices.
+	 */
+	protected GameSolution<A> getSolution(NormalFormGame<A> normalFormGame, double[][] player1Payoffs, double[][] player2Payoffs, 
+			List<double[][]> candidateJointActionProbs, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
 		List<A> player1Actions = normalFormGame.getPossibleActionsForPlayer(player1Idx);
 		List<A> player2Actions = normalFormGame.getPossibleActionsForPlayer(player2Idx);		
 		int numPlayer1Actions = player1Actions.size();
 		int numPlayer2Actions = player2Actions.size();
-		
-		// Extract the payoff matrices for players 1 and 2.
-		double[][] player1Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player1Idx);
-		double[][] player2Payoffs = BimatrixHuSolver.getPayoffMatrixForPlayer(normalFormGame, player2Idx);
 
-		double[][] jointActionProbs = solve(player1Payoffs, player2Payoffs);
+		// Solvers return null when they fail (e.g., when an LP can't be solved).
+		if (candidateJointActionProbs.isEmpty() || candidateJointActionProbs.contains(null)) {
+			throw new IllegalStateException(getClass().getSimpleName() + " failed to solve the game.");
+		}
+		double[][] previousJointActionProbs = (previousJointActionDistribution == null) ? null : 
+			BimatrixHuSolver.getJointActionProbsFromDistribution(normalFormGame, previousJointActionDistribution);
+		int selectedIdx = equilibriumSelector.select(candidateJointActionProbs, player1Payoffs, player2Payoffs, previousJointActionProbs);
+		double[][] jointActionProbs = candidateJointActionProbs.get(selectedIdx);
 				
 		// Compute expected payoffs.
 		double player1ActualExpectedPayoff = BimatrixHuSolver.getExpectedPayoffsForPlayer(player1Payoffs, jointActionProbs);
@@ -62,6 +100,16 @@ public abstract class BimatrixNormalFormSolver<A extends AbstractAction> impleme
 	}
 	
 	
+	/**
+	 * Solves the games one at a time, grouped by size, so that solvers that build
+	 * a model per game size rebuild it as little as possible.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		return SolverExecutor.solveAll(Collections.singletonList(this), normalFormGames, previousJointActionDistributions);
+	}
+	
+	
 	public static double[][] getDistributionOverJointActions(double[] player1Mix, double[] player2Mix) {
 		int numPlayer1Actions = player1Mix.length; 
 		int numPlayer2Actions = player2Mix.length;
@@ -85,4 +133,19 @@ public abstract class BimatrixNormalFormSolver<A extends AbstractAction> impleme
 	 */
 	public abstract double[][] solve(double[][] player1Payoffs, double[][] player2Payoffs);
 
+
+	/**
+	 * Given payoffs for player 1 and 2, return every solution found, each as a joint over outcomes,
+	 * with the one returned by solve(player1Payoffs, player2Payoffs) first.
+	 * Solvers that only find one solution needn't override this.
+	 * @param player1Payoffs
+	 * @param player2Payoffs
+	 * @return
+	 */
+	protected List<double[][]> solveForCandidates(double[][] player1Payoffs, double[][] player2Payoffs) {
+		List<double[][]> candidates = new ArrayList<double[][]>();
+		candidates.add(solve(player1Payoffs, player2Payoffs));
+		return candidates;
+	}
+
 }
@@ -0,0 +1,335 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * Finds Nash equilibria of 2-player games by support enumeration, in-process.
+ * (An alternative to BimatrixGambitSolver, which starts a gambit process for every game.)
+ *
+ * Most one-step games in grid games have a pure equilibrium, so pure equilibria are
+ * looked for first, by checking each joint action against both players' best responses,
+ * which takes O(mn) time and no linear algebra. Only if there are none (or if every
+ * equilibrium is wanted) are larger supports considered: for each pair of equally-sized
+ * supports (sets of actions each player plays with positive probability), smallest first,
+ * each player's mixed strategy is found by solving the linear system that makes the other
+ * player indifferent between the actions in its support. The pair gives an equilibrium if
+ * both strategies are nonnegative and neither player gains by playing an action outside
+ * its support.
+ *
+ * Every nondegenerate game has an equilibrium with equally-sized supports. In degenerate
+ * games (e.g., with tied payoffs) there might not be, in which case Lemke-Howson
+ * (BimatrixHuSolver) is used instead.
+ *
+ * The one-step games in grid games have 5 actions per player, so there are at most
+ * 251 support pairs to check.
+ *
+ * @author sodomka
+ *
+ */
+public class BimatrixSupportEnumerationSolver<A extends AbstractAction> extends BimatrixNormalFormSolver<A> {
+
+	/**
+	 * Tolerance for an equilibrium's probabilities being nonnegative and
+	 * for actions outside the support being no better than actions inside it.
+	 */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * Pivots smaller than this are treated as zero, i.e., the linear system is singular.
+	 */
+	private static final double PIVOT_EPSILON = 1e-12;
+
+
+	public double[][] solve(double[][] p1Payoffs, double[][] p2Payoffs) {
+		Joint<double[]> mixedStrategies = solveForNash(p1Payoffs, p2Payoffs);
+		double[] player1Mix = mixedStrategies.get(player1Idx);
+		double[] player2Mix = mixedStrategies.get(player2Idx);
+		return getDistributionOverJointActions(player1Mix, player2Mix);
+	}
+
+
+	/**
+	 * Solves the games at the same time, one chunk per processor. (Solving keeps no state
+	 * besides the equilibrium selector's, which is synchronized.)
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		return SolverExecutor.solveAll(Collections.nCopies(SolverExecutor.getNumThreads(), this), normalFormGames, previousJointActionDistributions);
+	}
+
+
+	/**
+	 * Returns a solution to a normal-form game, in terms of a mixed strategy for each player.
+	 * @param p1Payoffs
+	 * @param p2Payoffs
+	 * @return
+	 */
+	public static Joint<double[]> solveForNash(double[][] p1Payoffs, double[][] p2Payoffs) {
+		boolean stopAfterFirstNE = true;
+		return solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE).get(0);
+	}
+
+
+	/**
+	 * Finds every equilibrium with equally-sized supports (or only the first, if stopAfterFirstNE),
+	 * each in terms of a mixed strategy for each player. If there are none,
+	 * returns the equilibrium found by Lemke-Howson, so the list is never empty.
+	 * @param p1Payoffs
+	 * @param p2Payoffs
+	 * @param stopAfterFirstNE
+	 * @return
+	 */
+	public static List<Joint<double[]>> solveForNash(double[][] p1Payoffs, double[][] p2Payoffs, boolean stopAfterFirstNE) {
+		int numP1Actions = p1Payoffs.length;
+		int numP2Actions = p1Payoffs[0].length;
+		List<Joint<double[]>> equilibria = solveForPureNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		if (stopAfterFirstNE && !equilibria.isEmpty()) return equilibria;
+		int maxSupportSize = Math.min(numP1Actions, numP2Actions);
+		for (int supportSize=2; supportSize<=maxSupportSize; supportSize++) {
+			int[] p1Support = getFirstSupport(supportSize);
+			do {
+				int[] p2Support = getFirstSupport(supportSize);
+				do {
+					// Player 2's strategy makes player 1 indifferent over player 1's support, and vice versa.
+					double[] p2Mix = getIndifferenceStrategy(p1Payoffs, p1Support, p2Support, false);
+					if (p2Mix == null || !isBestResponseSupport(p1Payoffs, p2Mix, p1Support, false)) continue;
+					double[] p1Mix = getIndifferenceStrategy(p2Payoffs, p2Support, p1Support, true);
+					if (p1Mix == null || !isBestResponseSupport(p2Payoffs, p1Mix, p2Support, true)) continue;
+					if (containsEquilibrium(equilibria, p1Mix, p2Mix)) continue;
+					Joint<double[]> mixedStrategies = new Joint<double[]>();
+					mixedStrategies.add(p1Mix);
+					mixedStrategies.add(p2Mix);
+					equilibria.add(mixedStrategies);
+					if (stopAfterFirstNE) return equilibria;
+				} while (nextSupport(p2Support, numP2Actions));
+			} while (nextSupport(p1Support, numP1Actions));
+		}
+
+		if (equilibria.isEmpty()) {
+			//System.out.println("No equal-support equilibrium found; using Lemke-Howson.");
+			equilibria.add(BimatrixHuSolver.solveForMixedStrategies(p1Payoffs, p2Payoffs));
+		}
+		return equilibria;
+	}
+
+
+	/**
+	 * Returns the pure equilibria (or only the first, if stopAfterFirstNE), in O(mn) time:
+	 * a joint action is an equilibrium if player 1's payoff is the best in its column
+	 * and player 2's payoff is the best in its row.
+	 * @param p1Payoffs
+	 * @param p2Payoffs
+	 * @param stopAfterFirstNE
+	 * @return
+	 */
+	public static List<Joint<double[]>> solveForPureNash(double[][] p1Payoffs, double[][] p2Payoffs, boolean stopAfterFirstNE) {
+		int numP1Actions = p1Payoffs.length;
+		int numP2Actions = p1Payoffs[0].length;
+		List<Joint<double[]>> equilibria = new ArrayList<Joint<double[]>>();
+
+		// Player 1's best payoff against each of player 2's actions.
+		double[] p1BestPayoffs = new double[numP2Actions];
+		for (int a2=0; a2<numP2Actions; a2++) {
+			double bestPayoff = Double.NEGATIVE_INFINITY;
+			for (int a1=0; a1<numP1Actions; a1++) {
+				bestPayoff = Math.max(bestPayoff, p1Payoffs[a1][a2]);
+			}
+			p1BestPayoffs[a2] = bestPayoff;
+		}
+
+		for (int a1=0; a1<numP1Actions; a1++) {
+			// Player 2's best payoff against this action.
+			double p2BestPayoff = Double.NEGATIVE_INFINITY;
+			for (int a2=0; a2<numP2Actions; a2++) {
+				p2BestPayoff = Math.max(p2BestPayoff, p2Payoffs[a1][a2]);
+			}
+			for (int a2=0; a2<numP2Actions; a2++) {
+				if (p1Payoffs[a1][a2] < p1BestPayoffs[a2] - EPSILON * Math.max(1, Math.abs(p1BestPayoffs[a2]))) continue;
+				if (p2Payoffs[a1][a2] < p2BestPayoff - EPSILON * Math.max(1, Math.abs(p2BestPayoff))) continue;
+				Joint<double[]> mixedStrategies = new Joint<double[]>();
+				double[] p1Mix = new double[numP1Actions];
+				double[] p2Mix = new double[numP2Actions];
+				p1Mix[a1] = 1;
+				p2Mix[a2] = 1;
+				mixedStrategies.add(p1Mix);
+				mixedStrategies.add(p2Mix);
+				equilibria.add(mixedStrategies);
+				if (stopAfterFirstNE) return equilibria;
+			}
+		}
+		return equilibria;
+	}
+
+
+	@Override
+	protected List<double[][]> solveForCandidates(double[][] p1Payoffs, double[][] p2Payoffs) {
+		boolean stopAfterFirstNE = (getEquilibriumSelector().getCriterion() == EquilibriumSelector.Criterion.FIRST);
+		List<Joint<double[]>> profiles = solveForNash(p1Payoffs, p2Payoffs, stopAfterFirstNE);
+		List<double[][]> candidates = new ArrayList<double[][]>();
+		for (Joint<double[]> profile : profiles) {
+			candidates.add(getDistributionOverJointActions(profile.get(player1Idx), profile.get(player2Idx)));
+		}
+		return candidates;
+	}
+
+
+	/**
+	 * Returns the mixed strategy over otherSupport that makes the player with the given payoffs
+	 * indifferent between the actions in playerSupport, or null if there isn't one
+	 * (the system is singular or the strategy has negative probabilities).
+	 * If transposed, payoffs[a1][a2] is indexed by the other player's action first.
+	 */
+	private static double[] getIndifferenceStrategy(double[][] payoffs, int[] playerSupport, int[] otherSupport, boolean transposed) {
+		int supportSize = playerSupport.length;
+		int numOtherActions = transposed ? payoffs.length : payoffs[0].length;
+
+		// Unknowns are the other player's probabilities on its support, then the player's payoff u.
+		// For each action i in the player's support: sum_j payoff(i,j) * prob_j - u = 0.
+		// Probabilities sum to 1.
+		int n = supportSize + 1;
+		double[][] system = new double[n][n+1];
+		for (int row=0; row<supportSize; row++) {
+			for (int col=0; col<supportSize; col++) {
+				system[row][col] = getPayoff(payoffs, playerSupport[row], otherSupport[col], transposed);
+			}
+			system[row][supportSize] = -1;
+			system[row][n] = 0;
+		}
+		for (int col=0; col<supportSize; col++) {
+			system[supportSize][col] = 1;
+		}
+		system[supportSize][supportSize] = 0;
+		system[supportSize][n] = 1;
+
+		double[] solution = solveLinearSystem(system);
+		if (solution == null) return null;
+
+		double[] mixedStrategy = new double[numOtherActions];
+		for (int col=0; col<supportSize; col++) {
+			double prob = solution[col];
+			if (prob < -EPSILON || Double.isNaN(prob)) return null;
+			mixedStrategy[otherSupport[col]] = Math.max(0, prob);
+		}
+		return mixedStrategy;
+	}
+
+
+	/**
+	 * Returns true if no action of the player with the given payoffs does better against
+	 * the other player's mixed strategy than the actions in the player's support.
+	 */
+	private static boolean isBestResponseSupport(double[][] payoffs, double[] otherMix, int[] playerSupport, boolean transposed) {
+		int numPlayerActions = transposed ? payoffs[0].length : payoffs.length;
+		double supportPayoff = getExpectedPayoff(payoffs, playerSupport[0], otherMix, transposed);
+		double maxAbsPayoff = Math.abs(supportPayoff);
+		for (int action=0; action<numPlayerActions; action++) {
+			maxAbsPayoff = Math.max(maxAbsPayoff, Math.abs(getExpectedPayoff(payoffs, action, otherMix, transposed)));
+		}
+		double tolerance = EPSILON * Math.max(1, maxAbsPayoff);
+		for (int action=0; action<numPlayerActions; action++) {
+			if (getExpectedPayoff(payoffs, action, otherMix, transposed) > supportPayoff + tolerance) return false;
+		}
+		return true;
+	}
+
+
+	private static double getExpectedPayoff(double[][] payoffs, int action, double[] otherMix, boolean transposed) {
+		double expectedPayoff = 0;
+		for (int otherAction=0; otherAction<otherMix.length; otherAction++) {
+			expectedPayoff += getPayoff(payoffs, action, otherAction, transposed) * otherMix[otherAction];
+		}
+		return expectedPayoff;
+	}
+
+
+	private static double getPayoff(double[][] payoffs, int action, int otherAction, boolean transposed) {
+		return transposed ? payoffs[otherAction][action] : payoffs[action][otherAction];
+	}
+
+
+	/**
+	 * Solves the n x n system given as an augmented n x (n+1) matrix, by Gaussian
+	 * elimination with partial pivoting. The matrix is overwritten.
+	 * Returns null if the system is singular.
+	 */
+	static double[] solveLinearSystem(double[][] system) {
+		int n = system.length;
+		for (int col=0; col<n; col++) {
+			int pivotRow = col;
+			for (int row=col+1; row<n; row++) {
+				if (Math.abs(system[row][col]) > Math.abs(system[pivotRow][col])) pivotRow = row;
+			}
+			if (Math.abs(system[pivotRow][col]) < PIVOT_EPSILON) return null;
+			double[] temp = system[col];
+			system[col] = system[pivotRow];
+			system[pivotRow] = temp;
+			for (int row=col+1; row<n; row++) {
+				double factor = system[row][col] / system[col][col];
+				if (factor == 0) continue;
+				for (int c=col; c<=n; c++) {
+					system[row][c] -= factor * system[col][c];
+				}
+			}
+		}
+		double[] solution = new double[n];
+		for (int row=n-1; row>=0; row--) {
+			double sum = system[row][n];
+			for (int c=row+1; c<n; c++) {
+				sum -= system[row][c] * solution[c];
+			}
+			solution[row] = sum / system[row][row];
+		}
+		return solution;
+	}
+
+
+	private static int[] getFirstSupport(int supportSize) {
+		int[] support = new int[supportSize];
+		for (int i=0; i<supportSize; i++) {
+			support[i] = i;
+		}
+		return support;
+	}
+
+
+	/**
+	 * Advances support (a sorted subset of 0..numActions-1) to the next subset of the
+	 * same size, in lexicographic order. Returns false if there is no next subset.
+	 */
+	private static boolean nextSupport(int[] support, int numActions) {
+		int k = support.length;
+		int i = k-1;
+		while (i >= 0 && support[i] == numActions - k + i) i--;
+		if (i < 0) return false;
+		support[i]++;
+		for (int j=i+1; j<k; j++) {
+			support[j] = support[j-1] + 1;
+		}
+		return true;
+	}
+
+
+	private static boolean containsEquilibrium(List<Joint<double[]>> equilibria, double[] p1Mix, double[] p2Mix) {
+		for (Joint<double[]> equilibrium : equilibria) {
+			if (isClose(equilibrium.get(player1Idx), p1Mix) && isClose(equilibrium.get(player2Idx), p2Mix)) return true;
+		}
+		return false;
+	}
+
+
+	private static boolean isClose(double[] mix1, double[] mix2) {
+		for (int i=0; i<mix1.length; i++) {
+			if (Math.abs(mix1[i] - mix2[i]) > 1e-6) return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,824 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloObjective;
+import ilog.concert.IloRange;
+import ilog.cplex.IloCplex;
+
+/**
+ * Finds a correlated equilibrium for games with any number of players, chosen by one of
+ * the objectives of Greenwald and Hall's CE-Q (see Objective). (BimatrixCorrelatedEqmSolver
+ * solves the utilitarian LP for 2-player games.)
+ *
+ * The variables are the joint action probabilities, indexed as NormalFormGame indexes
+ * joint actions. For each player i and pair of its actions (j,k), the incentive constraint
+ * says that when told to play j, player i doesn't gain by playing k instead:
+ *   sum over a_-i of pi(j,a_-i) * (u_i(j,a_-i) - u_i(k,a_-i)) >= 0.
+ * There are sum_i |A_i|(|A_i|-1) such constraints, but |A|^N variables, and each
+ * constraint only involves the |A|^N / |A_i| joint actions in which player i plays j.
+ * So constraints are generated from the game's dense payoff array over just those joint
+ * actions (precomputed per player and action), and the model is only rebuilt when the
+ * numbers of actions change; otherwise only its coefficients are changed.
+ *
+ * The model also has one more variable z, with a constraint z <= (player i's expected payoff)
+ * for each player, so that the egalitarian objective is just "maximize z". All the objectives
+ * then share the same constraints: a game's constraints are set once, and each objective
+ * is solved by changing only the objective and starting from the previous objective's
+ * optimal basis, which is still feasible (see solveForAllObjectives).
+ *
+ * If the LP can't be solved, regret matching's approximate correlated equilibrium
+ * (see RegretMatchingCorrelatedEqmSolver) is returned instead.
+ *
+ * @author sodomka
+ *
+ */
+public class CorrelatedEqmSolver<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	/**
+	 * Which correlated equilibrium to choose, as in Greenwald and Hall's CE-Q
+	 * (http://www.cs.brown.edu/research/pubs/pdfs/2005/Greenwald-2005-CL.pdf).
+	 */
+	public enum Objective {
+		/** Maximizes the sum of the players' expected payoffs. */
+		UTILITARIAN,
+		/** Maximizes the smallest of the players' expected payoffs. */
+		EGALITARIAN,
+		/** Maximizes the largest of the players' expected payoffs. */
+		REPUBLICAN,
+		/**
+		 * Each player follows the equilibrium that maximizes its own expected payoff.
+		 * The players' equilibria generally differ, so the joint action distribution
+		 * is the product of each player's marginal in its own equilibrium, and each
+		 * player's expected payoff is its payoff in its own equilibrium.
+		 */
+		LIBERTARIAN
+	}
+
+	/**
+	 * The relative amount by which the simplex backend's incentive constraints are loosened
+	 * when the LP can't be solved without (see solveWithSimplex).
+	 */
+	private static final double PERTURBATION = 1e-6;
+
+	/**
+	 * Objectives of a single LP solve (see solveLp): the players' total payoff,
+	 * the smallest player's payoff, or (if nonnegative) a single player's payoff.
+	 */
+	private static final int TOTAL_PAYOFF = -1;
+	private static final int MIN_PAYOFF = -2;
+
+	private LpBackend lpBackend;
+	private Objective objective = Objective.UTILITARIAN;
+
+	/**
+	 * The numbers of actions of the last game solved, and the model built for them.
+	 * jointActionIndices[i][j] lists the joint actions in which player i plays j, in order.
+	 */
+	private int[] modelNumActions;
+	private int[][][] jointActionIndices;
+
+	/**
+	 * The payoffs of the game whose constraints are set, and whether an LP has been
+	 * solved for them (so the next objective can start from its basis).
+	 */
+	private double[] payoffs;
+	private boolean hasOptimalBasis;
+
+	/**
+	 * The CPLEX model, with the CPLEX backend. It's kept in its own class so that
+	 * the simplex backend doesn't need CPLEX on the classpath.
+	 */
+	private CplexCorrelatedEqmModel cplexModel;
+
+	/**
+	 * Buffers for the simplex backend's LP. Entries outside a constraint's joint actions
+	 * stay 0 while the numbers of actions stay the same. The variable z is the last column;
+	 * the incentive constraints come first, then the constraints on z, then the sum of the
+	 * probabilities. isPerturbed says whether the incentive constraints' right-hand sides
+	 * have been loosened for the current game.
+	 */
+	private DenseSimplexSolver simplexSolver;
+	private double[][] constraintCoefficients;
+	private int[] constraintTypes;
+	private double[] rhs;
+	private double[] objectiveCoefficients;
+	private int numIncentiveConstraints;
+	private boolean isPerturbed;
+
+	private int numFailures;
+
+	/**
+	 * This solver and copies of it, for solving batches of games at the same time
+	 * with the simplex backend (see solveAll).
+	 */
+	private List<CorrelatedEqmSolver<A>> parallelSolvers;
+
+
+	public CorrelatedEqmSolver() {
+		this(LpBackend.DEFAULT);
+	}
+
+	public CorrelatedEqmSolver(LpBackend lpBackend) {
+		this.lpBackend = lpBackend;
+		if (lpBackend == LpBackend.SIMPLEX) {
+			simplexSolver = new DenseSimplexSolver();
+			return;
+		}
+		cplexModel = new CplexCorrelatedEqmModel();
+	}
+
+
+	public Objective getObjective() {
+		return objective;
+	}
+
+	public void setObjective(Objective objective) {
+		this.objective = objective;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		int[] numActions = getNumActions(normalFormGame);
+		double[][] distributionPerPlayer = solve(numActions, normalFormGame.getPayoffs(), objective);
+		if (distributionPerPlayer == null) {
+			distributionPerPlayer = solveWithRegretMatching(numActions, normalFormGame.getPayoffs());
+		}
+		return getGameSolution(normalFormGame, distributionPerPlayer);
+	}
+
+
+	/**
+	 * Solves the game for every objective, setting its constraints once and starting each
+	 * objective's LP from the previous one's optimal basis: first the utilitarian objective,
+	 * then each player's payoff (from which the republican and libertarian equilibria are
+	 * chosen), then the egalitarian objective.
+	 * @param normalFormGame
+	 * @return
+	 */
+	public Map<Objective, GameSolution<A>> solveForAllObjectives(NormalFormGame<A> normalFormGame) {
+		int[] numActions = getNumActions(normalFormGame);
+		Map<Objective, double[][]> distributionsPerObjective = solveForAllObjectives(numActions, normalFormGame.getPayoffs());
+		if (distributionsPerObjective == null) {
+			double[][] distributionPerPlayer = solveWithRegretMatching(numActions, normalFormGame.getPayoffs());
+			distributionsPerObjective = new EnumMap<Objective, double[][]>(Objective.class);
+			for (Objective objective : Objective.values()) {
+				distributionsPerObjective.put(objective, distributionPerPlayer);
+			}
+		}
+		Map<Objective, GameSolution<A>> solutions = new EnumMap<Objective, GameSolution<A>>(Objective.class);
+		for (Objective objective : Objective.values()) {
+			solutions.put(objective, getGameSolution(normalFormGame, distributionsPerObjective.get(objective)));
+		}
+		return solutions;
+	}
+
+
+	/**
+	 * With the simplex backend, solves the games at the same time, one chunk per processor,
+	 * each with its own copy of this solver. With CPLEX, solves them one at a time
+	 * (grouped by size) with this solver's model.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		if (lpBackend != LpBackend.SIMPLEX) {
+			return SolverExecutor.solveAll(Collections.singletonList(this), normalFormGames, previousJointActionDistributions);
+		}
+		if (parallelSolvers == null) {
+			parallelSolvers = new ArrayList<CorrelatedEqmSolver<A>>();
+			parallelSolvers.add(this);
+			for (int solverIdx=1; solverIdx<SolverExecutor.getNumThreads(); solverIdx++) {
+				parallelSolvers.add(new CorrelatedEqmSolver<A>(lpBackend));
+			}
+		}
+		for (CorrelatedEqmSolver<A> solver : parallelSolvers) {
+			solver.setObjective(objective);
+		}
+		return SolverExecutor.solveAll(parallelSolvers, normalFormGames, previousJointActionDistributions);
+	}
+
+
+	/**
+	 * Returns a correlated equilibrium for this solver's objective, as a probability for each
+	 * joint action, or null if the LP couldn't be solved.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx], indexed as in NormalFormGame
+	 * @return
+	 */
+	public double[] solve(int[] numActions, double[] payoffs) {
+		double[][] distributionPerPlayer = solve(numActions, payoffs, objective);
+		if (distributionPerPlayer == null) return null;
+		return getJointActionProbs(distributionPerPlayer);
+	}
+
+
+	/**
+	 * Returns the correlated equilibrium each player follows for the given objective
+	 * (the same one for every player, except with the libertarian objective),
+	 * as a probability for each joint action, or null if the LP couldn't be solved.
+	 * @param numActions
+	 * @param payoffs
+	 * @param objective
+	 * @return
+	 */
+	public double[][] solve(int[] numActions, double[] payoffs, Objective objective) {
+		if (!setUpLp(numActions, payoffs)) return null;
+		return solveSetUpLp(objective, null);
+	}
+
+
+	/**
+	 * Returns, for each objective, the correlated equilibrium each player follows (as in
+	 * solve(numActions, payoffs, objective)), or null if an LP couldn't be solved.
+	 * @param numActions
+	 * @param payoffs
+	 * @return
+	 */
+	public Map<Objective, double[][]> solveForAllObjectives(int[] numActions, double[] payoffs) {
+		if (!setUpLp(numActions, payoffs)) return null;
+		Map<Objective, double[][]> distributionsPerObjective = new EnumMap<Objective, double[][]>(Objective.class);
+		double[][] distributionPerPlayer = solveSetUpLp(Objective.UTILITARIAN, null);
+		if (distributionPerPlayer == null) return null;
+		distributionsPerObjective.put(Objective.UTILITARIAN, distributionPerPlayer);
+
+		// The republican and libertarian equilibria are both chosen from the players' own best equilibria.
+		double[][] ownDistributionPerPlayer = solveSetUpLp(Objective.LIBERTARIAN, null);
+		if (ownDistributionPerPlayer == null) return null;
+		distributionsPerObjective.put(Objective.LIBERTARIAN, ownDistributionPerPlayer);
+		distributionsPerObjective.put(Objective.REPUBLICAN, solveSetUpLp(Objective.REPUBLICAN, ownDistributionPerPlayer));
+
+		distributionPerPlayer = solveSetUpLp(Objective.EGALITARIAN, null);
+		if (distributionPerPlayer == null) return null;
+		distributionsPerObjective.put(Objective.EGALITARIAN, distributionPerPlayer);
+		return distributionsPerObjective;
+	}
+
+
+	/**
+	 * Solves the LP whose constraints are set up for the given objective. The republican
+	 * objective is chosen from the players' own best equilibria, which are solved for
+	 * unless given.
+	 */
+	private double[][] solveSetUpLp(Objective objective, double[][] ownDistributionPerPlayer) {
+		int numPlayers = modelNumActions.length;
+		double[][] distributionPerPlayer = new double[numPlayers][];
+		if (objective == Objective.UTILITARIAN || objective == Objective.EGALITARIAN) {
+			double[] jointActionProbs = solveLp(objective == Objective.UTILITARIAN ? TOTAL_PAYOFF : MIN_PAYOFF);
+			if (jointActionProbs == null) return null;
+			Arrays.fill(distributionPerPlayer, jointActionProbs);
+			return distributionPerPlayer;
+		}
+
+		if (ownDistributionPerPlayer == null) {
+			ownDistributionPerPlayer = new double[numPlayers][];
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				ownDistributionPerPlayer[playerIdx] = solveLp(playerIdx);
+				if (ownDistributionPerPlayer[playerIdx] == null) return null;
+			}
+		}
+		if (objective == Objective.LIBERTARIAN) {
+			return ownDistributionPerPlayer;
+		}
+		int bestPlayerIdx = 0;
+		double bestPayoff = Double.NEGATIVE_INFINITY;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			double expectedPayoff = getExpectedPayoff(ownDistributionPerPlayer[playerIdx], playerIdx);
+			if (expectedPayoff > bestPayoff) {
+				bestPayoff = expectedPayoff;
+				bestPlayerIdx = playerIdx;
+			}
+		}
+		Arrays.fill(distributionPerPlayer, ownDistributionPerPlayer[bestPlayerIdx]);
+		return distributionPerPlayer;
+	}
+
+
+	private double getExpectedPayoff(double[] jointActionProbs, int playerIdx) {
+		int numPlayers = modelNumActions.length;
+		double expectedPayoff = 0;
+		for (int jointActionIdx=0; jointActionIdx<jointActionProbs.length; jointActionIdx++) {
+			expectedPayoff += jointActionProbs[jointActionIdx] * payoffs[jointActionIdx * numPlayers + playerIdx];
+		}
+		return expectedPayoff;
+	}
+
+
+	/**
+	 * Returns the joint action distribution the players follow: their shared equilibrium if
+	 * they all follow the same one, and otherwise the product of each player's marginal
+	 * in its own equilibrium.
+	 */
+	private double[] getJointActionProbs(double[][] distributionPerPlayer) {
+		int numPlayers = distributionPerPlayer.length;
+		boolean isShared = true;
+		for (int playerIdx=1; playerIdx<numPlayers; playerIdx++) {
+			isShared &= (distributionPerPlayer[playerIdx] == distributionPerPlayer[0]);
+		}
+		if (isShared) return distributionPerPlayer[0];
+
+		int numJointActions = distributionPerPlayer[0].length;
+		double[] jointActionProbs = new double[numJointActions];
+		Arrays.fill(jointActionProbs, 1);
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			for (int action=0; action<modelNumActions[playerIdx]; action++) {
+				int[] indices = jointActionIndices[playerIdx][action];
+				double marginal = 0;
+				for (int jointActionIdx : indices) {
+					marginal += distributionPerPlayer[playerIdx][jointActionIdx];
+				}
+				for (int jointActionIdx : indices) {
+					jointActionProbs[jointActionIdx] *= marginal;
+				}
+			}
+		}
+		return jointActionProbs;
+	}
+
+
+	private GameSolution<A> getGameSolution(NormalFormGame<A> normalFormGame, double[][] distributionPerPlayer) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		double[] payoffs = normalFormGame.getPayoffs();
+		double[] jointActionProbs = getJointActionProbs(distributionPerPlayer);
+		DiscreteDistribution<Joint<A>> jointStrategy = new DiscreteDistribution<Joint<A>>();
+		double[] expectedPayoffs = new double[numPlayers];
+		for (Joint<A> jointAction : normalFormGame.getPossibleJointActions()) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(jointAction);
+			jointStrategy.add(jointAction, jointActionProbs[jointActionIdx]);
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				expectedPayoffs[playerIdx] += distributionPerPlayer[playerIdx][jointActionIdx] * payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+		}
+		Joint<Double> expectedPayoffsPerPlayer = new Joint<Double>();
+		Joint<Double> transferPayments = new Joint<Double>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			expectedPayoffsPerPlayer.add(expectedPayoffs[playerIdx]);
+			transferPayments.add(0.0);
+		}
+		return new UncorrelatedGameSolution<A>(normalFormGame, jointStrategy, expectedPayoffsPerPlayer, transferPayments);
+	}
+
+
+	private double[][] solveWithRegretMatching(int[] numActions, double[] payoffs) {
+		synchronized (this) {
+			numFailures++;
+		}
+		double[] jointActionProbs = RegretMatchingCorrelatedEqmSolver.solveForCorrelatedEqm(numActions, payoffs,
+				RegretMatchingCorrelatedEqmSolver.DEFAULT_MAX_ITERATIONS, RegretMatchingCorrelatedEqmSolver.DEFAULT_TARGET_GAP, null);
+		double[][] distributionPerPlayer = new double[numActions.length][];
+		Arrays.fill(distributionPerPlayer, jointActionProbs);
+		return distributionPerPlayer;
+	}
+
+
+	private static int[] getNumActions(NormalFormGame<?> normalFormGame) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		int[] numActions = new int[numPlayers];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numActions[playerIdx] = normalFormGame.getNumActionsForPlayer(playerIdx);
+		}
+		return numActions;
+	}
+
+
+	/**
+	 * Sets the LP's constraints for the game, first building the model if the numbers of actions
+	 * have changed. Returns false if the model couldn't be built.
+	 */
+	private boolean setUpLp(int[] numActions, double[] payoffs) {
+		if (!Arrays.equals(numActions, modelNumActions)) {
+			setJointActionIndices(numActions);
+			if (lpBackend == LpBackend.SIMPLEX) {
+				buildSimplexBuffers();
+			} else {
+				if (!cplexModel.buildModel(modelNumActions, jointActionIndices)) {
+					modelNumActions = null;
+					return false;
+				}
+			}
+		}
+		this.payoffs = payoffs;
+		hasOptimalBasis = false;
+		if (lpBackend == LpBackend.SIMPLEX) {
+			setSimplexConstraints();
+			return true;
+		}
+		return cplexModel.setConstraints(payoffs);
+	}
+
+
+	/**
+	 * Solves the LP whose constraints are set up, maximizing TOTAL_PAYOFF, MIN_PAYOFF, or
+	 * the given player's payoff. Returns the joint action probabilities, or null if the
+	 * LP couldn't be solved.
+	 */
+	private double[] solveLp(int target) {
+		double[] jointActionProbs = (lpBackend == LpBackend.SIMPLEX) ? solveWithSimplex(target) : cplexModel.solve(payoffs, target);
+		hasOptimalBasis = (jointActionProbs != null);
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Lists, for each player and action, the joint actions in which the player takes that action.
+	 */
+	private void setJointActionIndices(int[] numActions) {
+		int numPlayers = numActions.length;
+		int numJointActions = 1;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numJointActions *= numActions[playerIdx];
+		}
+		jointActionIndices = new int[numPlayers][][];
+		int stride = numJointActions;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			stride /= numActions[playerIdx];
+			int numOtherJointActions = numJointActions / numActions[playerIdx];
+			jointActionIndices[playerIdx] = new int[numActions[playerIdx]][numOtherJointActions];
+			int[] numListed = new int[numActions[playerIdx]];
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				int action = (jointActionIdx / stride) % numActions[playerIdx];
+				jointActionIndices[playerIdx][action][numListed[action]++] = jointActionIdx;
+			}
+		}
+		modelNumActions = numActions.clone();
+	}
+
+
+	/**
+	 * Returns how much a joint action's index changes when the player's action index changes by one.
+	 */
+	private static int getStride(int[] numActions, int playerIdx) {
+		int stride = 1;
+		for (int otherIdx=playerIdx+1; otherIdx<numActions.length; otherIdx++) {
+			stride *= numActions[otherIdx];
+		}
+		return stride;
+	}
+
+
+	/**
+	 * Allocates the simplex backend's LP for the current numbers of actions. Each incentive
+	 * constraint is written as (payoff for deviating - payoff for obeying) <= 0, so that its
+	 * slack can start in the basis. The last constraint says the probabilities sum to at most 1,
+	 * rather than exactly 1, so that every constraint's slack starts in the basis and there is
+	 * no phase 1. (With an equality, phase 1 starts at a vertex where every incentive constraint
+	 * is tight, and on games with many tied payoffs, as in 3-player grid games, it could pivot
+	 * through thousands of degenerate bases and give up.) See solveWithSimplex for why the
+	 * probabilities still sum to 1.
+	 */
+	private void buildSimplexBuffers() {
+		int numPlayers = modelNumActions.length;
+		int numJointActions = jointActionIndices[0][0].length * modelNumActions[0];
+		numIncentiveConstraints = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numIncentiveConstraints += modelNumActions[playerIdx] * (modelNumActions[playerIdx]-1);
+		}
+		int numConstraints = numIncentiveConstraints + numPlayers + 1;
+		constraintCoefficients = new double[numConstraints][numJointActions+1];
+		constraintTypes = new int[numConstraints];
+		rhs = new double[numConstraints];
+		objectiveCoefficients = new double[numJointActions+1];
+		Arrays.fill(constraintTypes, DenseSimplexSolver.LESS_THAN_OR_EQUAL);
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			constraintCoefficients[numIncentiveConstraints + playerIdx][numJointActions] = 1;
+		}
+		Arrays.fill(constraintCoefficients[numConstraints-1], 0, numJointActions, 1);
+		rhs[numConstraints-1] = 1;
+	}
+
+
+	/**
+	 * Sets the simplex backend's constraints for the game. The constraints on z are
+	 * z - sum over a of pi(a) * (u_i(a) - m + 1) <= 0, where m is the game's smallest payoff,
+	 * which (when the probabilities sum to 1) is z <= u_i - m + 1, and keeps z's
+	 * coefficients positive (see solveWithSimplex).
+	 */
+	private void setSimplexConstraints() {
+		int numPlayers = modelNumActions.length;
+		int constraintIdx = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			int stride = getStride(modelNumActions, playerIdx);
+			int numActions = modelNumActions[playerIdx];
+			for (int action=0; action<numActions; action++) {
+				int[] indices = jointActionIndices[playerIdx][action];
+				for (int deviation=0; deviation<numActions; deviation++) {
+					if (deviation == action) continue;
+					int deviationOffset = (deviation - action) * stride;
+					double[] coefficients = constraintCoefficients[constraintIdx++];
+					for (int jointActionIdx : indices) {
+						coefficients[jointActionIdx] = payoffs[(jointActionIdx + deviationOffset) * numPlayers + playerIdx]
+								- payoffs[jointActionIdx * numPlayers + playerIdx];
+					}
+				}
+			}
+		}
+		int numJointActions = objectiveCoefficients.length - 1;
+		double smallestPayoff = Double.POSITIVE_INFINITY;
+		for (int i=0; i<numJointActions * numPlayers; i++) {
+			smallestPayoff = Math.min(smallestPayoff, payoffs[i]);
+		}
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			double[] coefficients = constraintCoefficients[numIncentiveConstraints + playerIdx];
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				coefficients[jointActionIdx] = smallestPayoff - 1 - payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+		}
+		if (isPerturbed) {
+			Arrays.fill(rhs, 0, numIncentiveConstraints, 0);
+			isPerturbed = false;
+		}
+	}
+
+
+	private double[] solveWithSimplex(int target) {
+		// The incentive constraints only restrict the joint distribution's shape, not its total,
+		// so if every objective coefficient is positive, the best solution has total probability 1.
+		// Adding the same amount to every coefficient doesn't change which distribution summing
+		// to 1 is best, so the payoffs are shifted to make the smallest one 1. (With MIN_PAYOFF,
+		// z's constraints are shifted instead; see setSimplexConstraints.)
+		int numPlayers = modelNumActions.length;
+		int numJointActions = objectiveCoefficients.length - 1;
+		double minCoefficient = Double.POSITIVE_INFINITY;
+		for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+			double coefficient = 0;
+			if (target == TOTAL_PAYOFF) {
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					coefficient += payoffs[jointActionIdx * numPlayers + playerIdx];
+				}
+			} else if (target != MIN_PAYOFF) {
+				coefficient = payoffs[jointActionIdx * numPlayers + target];
+			}
+			objectiveCoefficients[jointActionIdx] = coefficient;
+			minCoefficient = Math.min(minCoefficient, coefficient);
+		}
+		if (target != MIN_PAYOFF) {
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				objectiveCoefficients[jointActionIdx] += 1 - minCoefficient;
+			}
+		}
+		objectiveCoefficients[numJointActions] = (target == MIN_PAYOFF) ? 1 : 0;
+
+		// Only the objective has changed since the last LP solved for this game, so its
+		// optimal basis is still feasible, and starting from it skips most of the pivots.
+		double[] jointActionProbs = null;
+		if (hasOptimalBasis) {
+			jointActionProbs = getSimplexSolution(simplexSolver.reoptimize(objectiveCoefficients), numJointActions);
+		}
+		if (jointActionProbs == null) {
+			jointActionProbs = getSimplexSolution(simplexSolver.maximize(constraintCoefficients, constraintTypes, rhs, objectiveCoefficients), numJointActions);
+		}
+		if (jointActionProbs == null && !isPerturbed) {
+			// Perturb the incentive constraints' right-hand sides by different small amounts
+			// (relative to each constraint's coefficients), which breaks the ties between them
+			// that can make the simplex method stall, and try again. They stay perturbed for
+			// the game's other objectives, so that its bases stay feasible.
+			for (int rowIdx=0; rowIdx<numIncentiveConstraints; rowIdx++) {
+				double maxCoefficient = 0;
+				for (double coefficient : constraintCoefficients[rowIdx]) {
+					maxCoefficient = Math.max(maxCoefficient, Math.abs(coefficient));
+				}
+				rhs[rowIdx] = PERTURBATION * (1 + (double) rowIdx / rhs.length) * maxCoefficient;
+			}
+			isPerturbed = true;
+			jointActionProbs = getSimplexSolution(simplexSolver.maximize(constraintCoefficients, constraintTypes, rhs, objectiveCoefficients), numJointActions);
+		}
+		if (jointActionProbs == null) {
+			System.err.println("Simplex solver failed to find a correlated equilibrium.");
+		}
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Returns the joint action probabilities of the simplex backend's solution (normalized
+	 * to sum to 1), or null if it couldn't be solved.
+	 */
+	private double[] getSimplexSolution(int status, int numJointActions) {
+		if (status != DenseSimplexSolver.OPTIMAL) return null;
+		double[] jointActionProbs = Arrays.copyOf(simplexSolver.getSolution(), numJointActions);
+		double totalProb = 0;
+		for (double prob : jointActionProbs) {
+			totalProb += prob;
+		}
+		// The total is 1 unless the solver stalled at the all-zero solution.
+		if (totalProb <= .5) return null;
+		for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+			jointActionProbs[jointActionIdx] /= totalProb;
+		}
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Releases the CPLEX environments of this solver and its copies, if there are any.
+	 */
+	@Override
+	public void close() {
+		if (cplexModel != null) {
+			cplexModel.close();
+		}
+		if (parallelSolvers != null) {
+			for (CorrelatedEqmSolver<A> solver : parallelSolvers.subList(1, parallelSolvers.size())) {
+				solver.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of games for which the LP couldn't be solved,
+	 * and regret matching was used instead.
+	 * @return
+	 */
+	public synchronized int getNumFailures() {
+		return numFailures;
+	}
+
+
+	/**
+	 * Returns the total number of pivots performed by the simplex backend (0 with CPLEX).
+	 * @return
+	 */
+	public int getNumPivots() {
+		return (simplexSolver == null) ? 0 : simplexSolver.getNumPivots();
+	}
+
+
+	/**
+	 * The CPLEX model for the last numbers of actions solved (see buildModel).
+	 * jointActionIndices[i][j] lists the joint actions in which player i plays j, in order.
+	 */
+	private static class CplexCorrelatedEqmModel {
+		private IloCplex cplex;
+		private int[] numActions;
+		private int[][][] jointActionIndices;
+		private IloNumVar[] jointActionProbability;
+		private IloNumVar[][][] jointActionProbabilityByAction;
+		private IloNumVar minPayoff;
+		private IloRange[][][] incentiveConstraints;
+		private IloRange[] minPayoffConstraints;
+		private IloObjective cplexObjective;
+		private double[][] coefficientBuffers;
+		private double[] objectiveBuffer;
+
+		public CplexCorrelatedEqmModel() {
+			try {
+				cplex = new IloCplex();
+				cplex.setOut(null); // suppress output
+				cplex.setParam(IloCplex.IntParam.AdvInd, 1); // warm start from the previous basis
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+		}
+
+		public void close() {
+			if (cplex != null) {
+				cplex.end();
+			}
+		}
+
+		/**
+		 * Builds the CPLEX model for the given numbers of actions. The incentive constraints,
+		 * the constraints on z, and the objective are created without the joint action
+		 * probabilities' terms (see setConstraints and solve). Returns false if the model
+		 * couldn't be built.
+		 */
+		public boolean buildModel(int[] numActions, int[][][] jointActionIndices) {
+			this.numActions = numActions;
+			this.jointActionIndices = jointActionIndices;
+			try {
+				cplex.clearModel();
+				int numPlayers = numActions.length;
+				int numJointActions = jointActionIndices[0][0].length * numActions[0];
+
+				jointActionProbability = new IloNumVar[numJointActions];
+				IloLinearNumExpr sumProbs = cplex.linearNumExpr();
+				for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+					jointActionProbability[jointActionIdx] = cplex.numVar(0, 1);
+					sumProbs.addTerm(1, jointActionProbability[jointActionIdx]);
+				}
+
+				jointActionProbabilityByAction = new IloNumVar[numPlayers][][];
+				incentiveConstraints = new IloRange[numPlayers][][];
+				coefficientBuffers = new double[numPlayers][];
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					int numPlayerActions = numActions[playerIdx];
+					int numOtherJointActions = jointActionIndices[playerIdx][0].length;
+					coefficientBuffers[playerIdx] = new double[numOtherJointActions];
+					jointActionProbabilityByAction[playerIdx] = new IloNumVar[numPlayerActions][numOtherJointActions];
+					incentiveConstraints[playerIdx] = new IloRange[numPlayerActions][numPlayerActions];
+					for (int action=0; action<numPlayerActions; action++) {
+						for (int otherIdx=0; otherIdx<numOtherJointActions; otherIdx++) {
+							jointActionProbabilityByAction[playerIdx][action][otherIdx] = jointActionProbability[jointActionIndices[playerIdx][action][otherIdx]];
+						}
+						for (int deviation=0; deviation<numPlayerActions; deviation++) {
+							if (deviation == action) continue;
+							incentiveConstraints[playerIdx][action][deviation] = cplex.addGe(cplex.linearNumExpr(), 0);
+						}
+					}
+				}
+
+				// z - (player i's expected payoff) <= 0
+				minPayoff = cplex.numVar(-Double.MAX_VALUE, Double.MAX_VALUE);
+				minPayoffConstraints = new IloRange[numPlayers];
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					IloLinearNumExpr expr = cplex.linearNumExpr();
+					expr.addTerm(1, minPayoff);
+					minPayoffConstraints[playerIdx] = cplex.addLe(expr, 0);
+				}
+
+				cplex.addEq(1, sumProbs);
+				cplexObjective = cplex.addMaximize(cplex.linearNumExpr());
+				objectiveBuffer = new double[numJointActions];
+				return true;
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		public boolean setConstraints(double[] payoffs) {
+			int numPlayers = numActions.length;
+			try {
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					int stride = getStride(numActions, playerIdx);
+					int numPlayerActions = numActions[playerIdx];
+					for (int action=0; action<numPlayerActions; action++) {
+						int[] indices = jointActionIndices[playerIdx][action];
+						double[] coefficients = coefficientBuffers[playerIdx];
+						for (int deviation=0; deviation<numPlayerActions; deviation++) {
+							if (deviation == action) continue;
+							int deviationOffset = (deviation - action) * stride;
+							for (int otherIdx=0; otherIdx<indices.length; otherIdx++) {
+								int jointActionIdx = indices[otherIdx];
+								coefficients[otherIdx] = payoffs[jointActionIdx * numPlayers + playerIdx]
+										- payoffs[(jointActionIdx + deviationOffset) * numPlayers + playerIdx];
+							}
+							cplex.setLinearCoefs(incentiveConstraints[playerIdx][action][deviation], coefficients, jointActionProbabilityByAction[playerIdx][action]);
+						}
+					}
+				}
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					for (int jointActionIdx=0; jointActionIdx<objectiveBuffer.length; jointActionIdx++) {
+						objectiveBuffer[jointActionIdx] = -payoffs[jointActionIdx * numPlayers + playerIdx];
+					}
+					cplex.setLinearCoefs(minPayoffConstraints[playerIdx], objectiveBuffer, jointActionProbability);
+				}
+				return true;
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		public double[] solve(double[] payoffs, int target) {
+			int numPlayers = numActions.length;
+			try {
+				int numJointActions = jointActionProbability.length;
+				for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+					double coefficient = 0;
+					if (target == TOTAL_PAYOFF) {
+						for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+							coefficient += payoffs[jointActionIdx * numPlayers + playerIdx];
+						}
+					} else if (target != MIN_PAYOFF) {
+						coefficient = payoffs[jointActionIdx * numPlayers + target];
+					}
+					objectiveBuffer[jointActionIdx] = coefficient;
+				}
+				cplex.setLinearCoefs(cplexObjective, objectiveBuffer, jointActionProbability);
+				cplex.setLinearCoef(cplexObjective, (target == MIN_PAYOFF) ? 1 : 0, minPayoff);
+
+				// CPLEX starts from the previous solve's basis (AdvInd).
+				if (cplex.solve()) {
+					return cplex.getValues(jointActionProbability);
+				}
+				System.err.println("CPLEX failed to find a correlated equilibrium; status=" + cplex.getStatus());
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,341 @@
+package normalformsolver;
+
+/**
+ * A small dense simplex solver for linear programs of the form
+ *
+ *   maximize    c x
+ *   subject to  a[i] x (<=, >=, or =) b[i]   for each constraint i
+ *               x >= 0
+ *
+ * The LPs solved by the game solvers here have tens of variables and constraints,
+ * so rather than building a model through an external solver's API, this works
+ * directly on a double[][] tableau. The two-phase method is used (artificial variables
+ * find a feasible basis first), falling back to Bland's rule on degenerate pivots so
+ * the solver can't cycle. The tableau is kept between calls, so solving a stream of
+ * LPs of the same size doesn't allocate.
+ *
+ * A solver isn't thread-safe; use one per thread.
+ *
+ * @author sodomka
+ *
+ */
+public class DenseSimplexSolver {
+
+	/**
+	 * Constraint types.
+	 */
+	public static final int LESS_THAN_OR_EQUAL = 0;
+	public static final int GREATER_THAN_OR_EQUAL = 1;
+	public static final int EQUAL = 2;
+
+	/**
+	 * Solution statuses.
+	 */
+	public static final int OPTIMAL = 0;
+	public static final int INFEASIBLE = 1;
+	public static final int UNBOUNDED = 2;
+	public static final int ITERATION_LIMIT = 3;
+
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * Coefficients at or below this are never pivoted on. (Constraints are scaled so
+	 * their largest coefficient is 1.)
+	 */
+	private static final double PIVOT_EPSILON = 1e-7;
+
+	/**
+	 * Rows 0..numRows-1 hold the constraints; row numRows holds the reduced costs,
+	 * with the negated objective value in the last column. Columns hold the original
+	 * variables, then slack/surplus variables, then artificial variables, then the right-hand side.
+	 */
+	private double[][] tableau = new double[0][0];
+	private int[] basis = new int[0];
+	private double[] solution = new double[0];
+
+	private int numRows;
+	private int numVariables;
+	private int numColumns;
+	private int firstArtificialColumn;
+	private int rhsColumn;
+
+	private double objectiveValue;
+	private int status;
+	/**
+	 * Whether the basis is feasible, i.e., phase 1 finished (so reoptimize can start from it).
+	 */
+	private boolean isFeasibleBasis;
+	private int numPivots;
+
+
+	/**
+	 * Solves the LP, returning its status (OPTIMAL, INFEASIBLE, UNBOUNDED, or ITERATION_LIMIT).
+	 * The optimal solution and objective value are then available from getSolution and getObjectiveValue.
+	 * @param constraintCoefficients a[i][j], the coefficient of variable j in constraint i
+	 * @param constraintTypes LESS_THAN_OR_EQUAL, GREATER_THAN_OR_EQUAL, or EQUAL for each constraint
+	 * @param rhs b[i], the right-hand side of constraint i
+	 * @param objectiveCoefficients c[j], the objective coefficient of variable j
+	 * @return
+	 */
+	public int maximize(double[][] constraintCoefficients, int[] constraintTypes, double[] rhs, double[] objectiveCoefficients) {
+		setUpTableau(constraintCoefficients, constraintTypes, rhs);
+		isFeasibleBasis = false;
+
+		// Phase 1: maximize the negated sum of the artificial variables.
+		for (int column=0; column<firstArtificialColumn; column++) {
+			double reducedCost = 0;
+			for (int row=0; row<numRows; row++) {
+				if (basis[row] >= firstArtificialColumn) {
+					reducedCost += tableau[row][column];
+				}
+			}
+			tableau[numRows][column] = reducedCost;
+		}
+		double totalInfeasibility = 0;
+		for (int row=0; row<numRows; row++) {
+			if (basis[row] >= firstArtificialColumn) {
+				totalInfeasibility += tableau[row][rhsColumn];
+			}
+		}
+		for (int column=firstArtificialColumn; column<numColumns; column++) {
+			tableau[numRows][column] = 0;
+		}
+		tableau[numRows][rhsColumn] = totalInfeasibility;
+		status = iterate();
+		if (status != OPTIMAL) return status;
+		if (tableau[numRows][rhsColumn] > EPSILON * Math.max(1, totalInfeasibility)) {
+			status = INFEASIBLE;
+			return status;
+		}
+		driveOutArtificialVariables();
+		return optimize(objectiveCoefficients);
+	}
+
+
+	/**
+	 * Solves the LP from the last call to maximize again, with a different objective,
+	 * starting from the last basis found. The constraints haven't changed, so that basis
+	 * is still feasible, and only phase 2 is needed; if the objectives are similar, few
+	 * pivots are. Returns INFEASIBLE if the last call didn't find a feasible basis.
+	 * @param objectiveCoefficients c[j], the objective coefficient of variable j
+	 * @return
+	 */
+	public int reoptimize(double[] objectiveCoefficients) {
+		if (!isFeasibleBasis) {
+			status = INFEASIBLE;
+			return status;
+		}
+		return optimize(objectiveCoefficients);
+	}
+
+
+	/**
+	 * Phase 2: maximizes the objective from the current (feasible) basis, and reads off the solution.
+	 */
+	private int optimize(double[] objectiveCoefficients) {
+		isFeasibleBasis = true;
+		for (int column=0; column<numColumns; column++) {
+			tableau[numRows][column] = (column < numVariables) ? objectiveCoefficients[column] : 0;
+		}
+		tableau[numRows][rhsColumn] = 0;
+		for (int row=0; row<numRows; row++) {
+			int basicColumn = basis[row];
+			double basicCost = (basicColumn < numVariables) ? objectiveCoefficients[basicColumn] : 0;
+			if (basicCost == 0) continue;
+			for (int column=0; column<=rhsColumn; column++) {
+				tableau[numRows][column] -= basicCost * tableau[row][column];
+			}
+		}
+		status = iterate();
+		if (status != OPTIMAL) return status;
+
+		// Read off the solution.
+		if (solution.length < numVariables) {
+			solution = new double[numVariables];
+		}
+		for (int column=0; column<numVariables; column++) {
+			solution[column] = 0;
+		}
+		for (int row=0; row<numRows; row++) {
+			if (basis[row] < numVariables) {
+				solution[basis[row]] = tableau[row][rhsColumn];
+			}
+		}
+		objectiveValue = -tableau[numRows][rhsColumn];
+		return status;
+	}
+
+
+	/**
+	 * Fills the tableau for the given constraints, with a slack or surplus variable
+	 * for each inequality and an artificial variable for each constraint whose
+	 * slack can't start in the basis. Rows are negated as needed so that every
+	 * right-hand side is nonnegative.
+	 */
+	private void setUpTableau(double[][] constraintCoefficients, int[] constraintTypes, double[] rhs) {
+		numRows = rhs.length;
+		numVariables = constraintCoefficients[0].length;
+		int numSlackVariables = 0;
+		int numArtificialVariables = 0;
+		for (int row=0; row<numRows; row++) {
+			int constraintType = getNormalizedConstraintType(constraintTypes[row], rhs[row]);
+			if (constraintType != EQUAL) numSlackVariables++;
+			if (constraintType != LESS_THAN_OR_EQUAL) numArtificialVariables++;
+		}
+		firstArtificialColumn = numVariables + numSlackVariables;
+		numColumns = firstArtificialColumn + numArtificialVariables;
+		rhsColumn = numColumns;
+
+		if (tableau.length < numRows+1 || tableau[0].length < numColumns+1) {
+			tableau = new double[Math.max(tableau.length, numRows+1)][Math.max((tableau.length == 0) ? 0 : tableau[0].length, numColumns+1)];
+		}
+		if (basis.length < numRows) {
+			basis = new int[numRows];
+		}
+
+		int slackColumn = numVariables;
+		int artificialColumn = firstArtificialColumn;
+		for (int row=0; row<numRows; row++) {
+			double[] tableauRow = tableau[row];
+			// Scale the row so its largest coefficient is 1, so that the solver's tolerances
+			// mean the same thing for every constraint.
+			double maxCoefficient = 0;
+			for (int column=0; column<numVariables; column++) {
+				maxCoefficient = Math.max(maxCoefficient, Math.abs(constraintCoefficients[row][column]));
+			}
+			double sign = ((rhs[row] < 0) ? -1 : 1) / ((maxCoefficient > 0) ? maxCoefficient : 1);
+			for (int column=0; column<numVariables; column++) {
+				tableauRow[column] = sign * constraintCoefficients[row][column];
+			}
+			for (int column=numVariables; column<numColumns; column++) {
+				tableauRow[column] = 0;
+			}
+			tableauRow[rhsColumn] = sign * rhs[row];
+
+			int constraintType = getNormalizedConstraintType(constraintTypes[row], rhs[row]);
+			if (constraintType == LESS_THAN_OR_EQUAL) {
+				tableauRow[slackColumn] = 1;
+				basis[row] = slackColumn++;
+			} else if (constraintType == GREATER_THAN_OR_EQUAL) {
+				tableauRow[slackColumn++] = -1;
+				tableauRow[artificialColumn] = 1;
+				basis[row] = artificialColumn++;
+			} else {
+				tableauRow[artificialColumn] = 1;
+				basis[row] = artificialColumn++;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the constraint type after the constraint is negated (if needed) to make its right-hand side nonnegative.
+	 */
+	private static int getNormalizedConstraintType(int constraintType, double rhs) {
+		if (rhs >= 0 || constraintType == EQUAL) return constraintType;
+		return (constraintType == LESS_THAN_OR_EQUAL) ? GREATER_THAN_OR_EQUAL : LESS_THAN_OR_EQUAL;
+	}
+
+
+	/**
+	 * Pivots until no reduced cost is positive. Artificial variables never enter the basis.
+	 * Normally the entering variable is the one with the largest reduced cost, and ties in the
+	 * ratio test go to the row with the largest pivot element, which keeps rounding error down.
+	 * The incentive constraints of a correlated equilibrium LP all have a zero right-hand side,
+	 * though, so many pivots are degenerate (they don't change the objective), and those rules
+	 * can cycle. After a run of degenerate pivots, Bland's rule is used instead (the lowest-indexed
+	 * entering variable, and ratio test ties to the lowest-indexed basic variable), which can't
+	 * cycle, until the objective changes again.
+	 */
+	private int iterate() {
+		int maxNumPivots = 50 * (numRows + numColumns);
+		int maxNumDegeneratePivots = numRows;
+		int numDegeneratePivots = 0;
+		double[] reducedCosts = tableau[numRows];
+		for (int pivot=0; pivot<maxNumPivots; pivot++) {
+			boolean useBlandsRule = (numDegeneratePivots >= maxNumDegeneratePivots);
+			int enteringColumn = -1;
+			for (int column=0; column<firstArtificialColumn; column++) {
+				if (reducedCosts[column] <= EPSILON) continue;
+				if (enteringColumn == -1 || reducedCosts[column] > reducedCosts[enteringColumn]) {
+					enteringColumn = column;
+				}
+				if (useBlandsRule) break;
+			}
+			if (enteringColumn == -1) return OPTIMAL;
+
+			double minRatio = Double.POSITIVE_INFINITY;
+			for (int row=0; row<numRows; row++) {
+				double coefficient = tableau[row][enteringColumn];
+				if (coefficient <= PIVOT_EPSILON) continue;
+				minRatio = Math.min(minRatio, tableau[row][rhsColumn] / coefficient);
+			}
+			if (minRatio == Double.POSITIVE_INFINITY) return UNBOUNDED;
+			int leavingRow = -1;
+			for (int row=0; row<numRows; row++) {
+				double coefficient = tableau[row][enteringColumn];
+				if (coefficient <= PIVOT_EPSILON) continue;
+				if (tableau[row][rhsColumn] / coefficient > minRatio + EPSILON) continue;
+				if (leavingRow == -1 ||
+						(useBlandsRule && basis[row] < basis[leavingRow]) ||
+						(!useBlandsRule && coefficient > tableau[leavingRow][enteringColumn])) {
+					leavingRow = row;
+				}
+			}
+			numDegeneratePivots = (minRatio <= EPSILON) ? numDegeneratePivots+1 : 0;
+			pivot(leavingRow, enteringColumn);
+		}
+		return ITERATION_LIMIT;
+	}
+
+
+	/**
+	 * Removes artificial variables (which are zero after a feasible phase 1) from the basis
+	 * where possible. An artificial variable that can't be removed is in a redundant row,
+	 * and stays zero.
+	 */
+	private void driveOutArtificialVariables() {
+		for (int row=0; row<numRows; row++) {
+			if (basis[row] < firstArtificialColumn) continue;
+			for (int column=0; column<firstArtificialColumn; column++) {
+				if (Math.abs(tableau[row][column]) > EPSILON) {
+					pivot(row, column);
+					break;
+				}
+			}
+		}
+	}
+
+
+	private void pivot(int pivotRow, int pivotColumn) {
+		numPivots++;
+		PivotKernels.pivot(tableau, numRows+1, rhsColumn+1, pivotRow, pivotColumn);
+		basis[pivotRow] = pivotColumn;
+	}
+
+
+	/**
+	 * Returns the optimal values of the variables from the last call to maximize.
+	 * The returned array is reused by the next call, and may be longer than the number of variables.
+	 * @return
+	 */
+	public double[] getSolution() {
+		return solution;
+	}
+
+	public double getObjectiveValue() {
+		return objectiveValue;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the total number of pivots performed by this solver.
+	 * @return
+	 */
+	public int getNumPivots() {
+		return numPivots;
+	}
+}
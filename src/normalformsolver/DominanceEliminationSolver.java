@@ -0,0 +1,243 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * A solver that shrinks a game before passing it to another solver.
+ * Actions are removed from the game, and then the smaller game is solved,
+ * and the solution is expanded back to the original game (removed actions get
+ * zero probability). Two kinds of actions can be removed:
+ *
+ * 1) Strictly dominated actions, i.e., actions that are worse for the player than
+ *    some other action, whatever the other players do. This is iterated, since removing
+ *    one player's actions can make another player's actions dominated. Nash and correlated
+ *    equilibria never use strictly dominated actions, so this doesn't change the solutions
+ *    of solvers for those. It can change coco values, though (an action that's dominated
+ *    for one player might be best for the team), so it shouldn't be used with coco.
+ * 2) Duplicate actions, i.e., actions that give every player the same payoffs as some
+ *    other action of the same player, whatever the other players do. (In grid games, moving
+ *    into a wall is a duplicate of sticking.) Only the first of a set of duplicate actions is kept.
+ *    This is safe for any solver, though for solution concepts with several solutions,
+ *    a different one might be found.
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public class DominanceEliminationSolver<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	private NormalFormSolver<A> solver;
+	private boolean removeDominatedActions;
+	private boolean removeDuplicateActions;
+
+	/**
+	 * Totals over all games solved, for seeing how much smaller games become.
+	 */
+	private long numActionsBefore;
+	private long numActionsAfter;
+
+
+	/**
+	 * Removes strictly dominated actions and duplicate actions.
+	 * @param solver the solver for the smaller games
+	 */
+	public DominanceEliminationSolver(NormalFormSolver<A> solver) {
+		this(solver, true, true);
+	}
+
+	/**
+	 * @param solver the solver for the smaller games
+	 * @param removeDominatedActions whether to remove strictly dominated actions
+	 * @param removeDuplicateActions whether to remove duplicate actions
+	 */
+	public DominanceEliminationSolver(NormalFormSolver<A> solver, boolean removeDominatedActions, boolean removeDuplicateActions) {
+		this.solver = solver;
+		this.removeDominatedActions = removeDominatedActions;
+		this.removeDuplicateActions = removeDuplicateActions;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		NormalFormGame<A> reducedGame = getReducedGame(normalFormGame);
+		if (reducedGame == normalFormGame) {
+			return solver.solve(normalFormGame, previousJointActionDistribution);
+		}
+		return getExpandedSolution(normalFormGame, solver.solve(reducedGame, previousJointActionDistribution));
+	}
+
+
+	/**
+	 * Reduces all of the games, and then passes the smaller games to the solver's solveAll,
+	 * so that a solver that solves batches in parallel still can.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		List<NormalFormGame<A>> reducedGames = new ArrayList<NormalFormGame<A>>();
+		for (NormalFormGame<A> normalFormGame : normalFormGames) {
+			reducedGames.add(getReducedGame(normalFormGame));
+		}
+		List<GameSolution<A>> reducedSolutions = solver.solveAll(reducedGames, previousJointActionDistributions);
+		List<GameSolution<A>> solutions = new ArrayList<GameSolution<A>>();
+		for (int gameIdx=0; gameIdx<normalFormGames.size(); gameIdx++) {
+			NormalFormGame<A> normalFormGame = normalFormGames.get(gameIdx);
+			GameSolution<A> reducedSolution = reducedSolutions.get(gameIdx);
+			solutions.add((reducedGames.get(gameIdx) == normalFormGame) ? reducedSolution : getExpandedSolution(normalFormGame, reducedSolution));
+		}
+		return solutions;
+	}
+
+
+	/**
+	 * Returns the solution to the reduced game as a solution to the original game.
+	 * Removed joint actions get zero probability.
+	 */
+	private GameSolution<A> getExpandedSolution(NormalFormGame<A> normalFormGame, GameSolution<A> reducedSolution) {
+		DiscreteDistribution<Joint<A>> reducedDistribution = reducedSolution.getJointActionDistribution();
+		DiscreteDistribution<Joint<A>> jointActionDistribution = new DiscreteDistribution<Joint<A>>();
+		for (Joint<A> jointAction : normalFormGame.getPossibleJointActions()) {
+			Double prob = reducedDistribution.get(jointAction);
+			jointActionDistribution.add(jointAction, (prob == null) ? 0 : prob);
+		}
+		return new UncorrelatedGameSolution<A>(normalFormGame, jointActionDistribution,
+				reducedSolution.getExpectedPayoffsWithoutTransfer(), reducedSolution.getTransferPayments());
+	}
+
+
+	/**
+	 * Returns the game with dominated and/or duplicate actions removed,
+	 * or the game itself if no actions were removed.
+	 * @param normalFormGame
+	 * @return
+	 */
+	public NormalFormGame<A> getReducedGame(NormalFormGame<A> normalFormGame) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		Joint<List<A>> remainingActions = new Joint<List<A>>();
+		int numActions = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			remainingActions.add(new ArrayList<A>(normalFormGame.getPossibleActionsForPlayer(playerIdx)));
+			numActions += normalFormGame.getPossibleActionsForPlayer(playerIdx).size();
+		}
+		List<Joint<A>> remainingJointActions = new ArrayList<Joint<A>>(normalFormGame.getPossibleJointActions());
+
+		// Keep going until no player has an action to remove.
+		boolean removedAction = true;
+		while (removedAction) {
+			removedAction = false;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				List<A> playerActions = remainingActions.get(playerIdx);
+				for (int actionIdx=0; actionIdx<playerActions.size() && playerActions.size() > 1; actionIdx++) {
+					A action = playerActions.get(actionIdx);
+					if (isRemovable(normalFormGame, remainingJointActions, playerIdx, action, playerActions)) {
+						playerActions.remove(actionIdx);
+						remainingJointActions = removeJointActions(remainingJointActions, playerIdx, action);
+						actionIdx--;
+						removedAction = true;
+					}
+				}
+			}
+		}
+
+		int numRemainingActions = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numRemainingActions += remainingActions.get(playerIdx).size();
+		}
+		synchronized (this) {
+			numActionsBefore += numActions;
+			numActionsAfter += numRemainingActions;
+		}
+		if (numRemainingActions == numActions) return normalFormGame;
+
+		NormalFormGame<A> reducedGame = new NormalFormGame<A>(numPlayers, remainingActions, remainingJointActions);
+		for (Joint<A> jointAction : remainingJointActions) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(jointAction);
+			int reducedJointActionIdx = reducedGame.getJointActionIndex(jointAction);
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				reducedGame.setPayoff(reducedJointActionIdx, playerIdx, normalFormGame.getPayoff(jointActionIdx, playerIdx));
+			}
+		}
+		return reducedGame;
+	}
+
+
+	/**
+	 * Returns true if the player's action is strictly dominated by, or (if it comes after it)
+	 * a duplicate of, another of the player's remaining actions, given the remaining joint actions.
+	 */
+	private boolean isRemovable(NormalFormGame<A> game, List<Joint<A>> remainingJointActions, int playerIdx, A action, List<A> playerActions) {
+		int actionIdx = game.getActionIndex(playerIdx, action);
+		for (int otherActionIdx=0; otherActionIdx<playerActions.size(); otherActionIdx++) {
+			A otherAction = playerActions.get(otherActionIdx);
+			if (otherAction.equals(action)) continue;
+			boolean isDominated = removeDominatedActions;
+			// Only the later of two duplicate actions is removed.
+			boolean isDuplicate = removeDuplicateActions && otherActionIdx < playerActions.indexOf(action);
+			// Switching to the other action moves the joint action index by this much.
+			int otherJointActionOffset = (game.getActionIndex(playerIdx, otherAction) - actionIdx) * game.getStride(playerIdx);
+			for (Joint<A> jointAction : remainingJointActions) {
+				if (!isDominated && !isDuplicate) break;
+				if (!jointAction.get(playerIdx).equals(action)) continue;
+				int jointActionIdx = game.getJointActionIndex(jointAction);
+				int otherJointActionIdx = jointActionIdx + otherJointActionOffset;
+				if (game.getPayoff(jointActionIdx, playerIdx) >= game.getPayoff(otherJointActionIdx, playerIdx)) {
+					isDominated = false;
+				}
+				if (isDuplicate && !haveSamePayoffs(game, jointActionIdx, otherJointActionIdx)) {
+					isDuplicate = false;
+				}
+			}
+			if (isDominated || isDuplicate) return true;
+		}
+		return false;
+	}
+
+
+	private boolean haveSamePayoffs(NormalFormGame<A> game, int jointActionIdx, int otherJointActionIdx) {
+		for (int playerIdx=0; playerIdx<game.getNumPlayers(); playerIdx++) {
+			if (game.getPayoff(jointActionIdx, playerIdx) != game.getPayoff(otherJointActionIdx, playerIdx)) return false;
+		}
+		return true;
+	}
+
+
+	private List<Joint<A>> removeJointActions(List<Joint<A>> jointActions, int playerIdx, A action) {
+		List<Joint<A>> remainingJointActions = new ArrayList<Joint<A>>();
+		for (Joint<A> jointAction : jointActions) {
+			if (!jointAction.get(playerIdx).equals(action)) {
+				remainingJointActions.add(jointAction);
+			}
+		}
+		return remainingJointActions;
+	}
+
+
+	public NormalFormSolver<A> getSolver() {
+		return solver;
+	}
+
+	@Override
+	public void close() {
+		solver.close();
+	}
+
+	/**
+	 * Returns the average fraction of actions kept, over all games solved so far.
+	 * @return
+	 */
+	public synchronized double getFractionOfActionsKept() {
+		return (numActionsBefore == 0) ? 1 : (double) numActionsAfter / numActionsBefore;
+	}
+
+}
@@ -0,0 +1,136 @@
+package normalformsolver;
+
+import java.util.List;
+
+/**
+ * Chooses one equilibrium when a solver finds several for a 2-player game.
+ * Always taking whichever equilibrium a solver happens to find first
+ * can make the chosen equilibrium at a state flip between value iteration
+ * iterations, so that values oscillate instead of converging. Choosing
+ * the equilibrium closest to the state's previous solution avoids this.
+ *
+ * The selector also counts how often the chosen equilibrium "flips", i.e.,
+ * has a different support (set of joint actions with positive probability)
+ * than the previous solution it was given.
+ *
+ * @author sodomka
+ *
+ */
+public class EquilibriumSelector {
+
+	public enum Criterion {
+		/** The first equilibrium found (the solvers' original behavior). */
+		FIRST,
+		/** The equilibrium closest (in L1 distance) to the previous solution. */
+		CLOSEST_TO_PREVIOUS,
+		/** The equilibrium with the highest sum of expected payoffs. */
+		MAX_WELFARE
+	}
+
+	/**
+	 * Probabilities at or below this are considered outside an equilibrium's support.
+	 */
+	private static final double SUPPORT_EPSILON = 1e-6;
+
+	private Criterion criterion;
+	private int numSelections;
+	private int numFlips;
+
+	public EquilibriumSelector(Criterion criterion) {
+		this.criterion = criterion;
+	}
+
+	public Criterion getCriterion() {
+		return criterion;
+	}
+
+	/**
+	 * Returns the index of the chosen equilibrium.
+	 * @param equilibria each a distribution over joint actions, [player1Action][player2Action]
+	 * @param player1Payoffs
+	 * @param player2Payoffs
+	 * @param previousJointActionProbs the previous solution for the same state, or null if there is none.
+	 * @return
+	 */
+	public synchronized int select(List<double[][]> equilibria, double[][] player1Payoffs, double[][] player2Payoffs, double[][] previousJointActionProbs) {
+		int selectedIdx = 0;
+		if (criterion == Criterion.CLOSEST_TO_PREVIOUS && previousJointActionProbs != null) {
+			double minDistance = Double.POSITIVE_INFINITY;
+			for (int equilibriumIdx=0; equilibriumIdx<equilibria.size(); equilibriumIdx++) {
+				double distance = getDistance(equilibria.get(equilibriumIdx), previousJointActionProbs);
+				if (distance < minDistance) {
+					minDistance = distance;
+					selectedIdx = equilibriumIdx;
+				}
+			}
+		} else if (criterion == Criterion.MAX_WELFARE) {
+			double maxWelfare = Double.NEGATIVE_INFINITY;
+			for (int equilibriumIdx=0; equilibriumIdx<equilibria.size(); equilibriumIdx++) {
+				double[][] equilibrium = equilibria.get(equilibriumIdx);
+				double welfare = BimatrixHuSolver.getExpectedPayoffsForPlayer(player1Payoffs, equilibrium)
+						+ BimatrixHuSolver.getExpectedPayoffsForPlayer(player2Payoffs, equilibrium);
+				if (welfare > maxWelfare) {
+					maxWelfare = welfare;
+					selectedIdx = equilibriumIdx;
+				}
+			}
+		}
+
+		if (previousJointActionProbs != null) {
+			numSelections++;
+			if (!haveSameSupport(equilibria.get(selectedIdx), previousJointActionProbs)) {
+				numFlips++;
+			}
+		}
+		return selectedIdx;
+	}
+
+	/**
+	 * Returns the L1 distance between two distributions over joint actions.
+	 */
+	public static double getDistance(double[][] jointActionProbs1, double[][] jointActionProbs2) {
+		double distance = 0;
+		for (int a1=0; a1<jointActionProbs1.length; a1++) {
+			for (int a2=0; a2<jointActionProbs1[a1].length; a2++) {
+				distance += Math.abs(jointActionProbs1[a1][a2] - jointActionProbs2[a1][a2]);
+			}
+		}
+		return distance;
+	}
+
+	public static boolean haveSameSupport(double[][] jointActionProbs1, double[][] jointActionProbs2) {
+		for (int a1=0; a1<jointActionProbs1.length; a1++) {
+			for (int a2=0; a2<jointActionProbs1[a1].length; a2++) {
+				boolean inSupport1 = jointActionProbs1[a1][a2] > SUPPORT_EPSILON;
+				boolean inSupport2 = jointActionProbs2[a1][a2] > SUPPORT_EPSILON;
+				if (inSupport1 != inSupport2) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of selections made with a previous solution available.
+	 * @return
+	 */
+	public synchronized int getNumSelections() {
+		return numSelections;
+	}
+
+	/**
+	 * Returns the number of selections whose support differed from the previous solution.
+	 * @return
+	 */
+	public synchronized int getNumFlips() {
+		return numFlips;
+	}
+
+	public synchronized double getFlipRate() {
+		return (numSelections == 0) ? 0 : (double) numFlips / numSelections;
+	}
+
+	public synchronized void resetStatistics() {
+		numSelections = 0;
+		numFlips = 0;
+	}
+}
@@ -0,0 +1,218 @@
+package normalformsolver;
+
+import java.util.Map;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * Measures how far a joint action distribution is from being an equilibrium of a game,
+ * working directly on the game's dense payoff array (indexed as in NormalFormGame).
+ * Both measures take one pass over the joint actions per player, skipping joint actions
+ * with zero probability, so they're much cheaper than solving the game.
+ *
+ * - The deviation gain is the most any player gains, in expectation, by ignoring the
+ *   distribution and always playing one of its actions. For a distribution that is the product
+ *   of the players' strategies, it's 0 exactly when the strategies are a Nash equilibrium
+ *   (and otherwise, they're an epsilon-Nash equilibrium for epsilon = the gain).
+ *   The total deviation gain adds up what each player could gain; it's the exploitability
+ *   that FictitiousPlayNashSolver reports.
+ * - The correlated equilibrium violation is the most any player gains, in expectation,
+ *   by replacing one of its actions with another whenever it is recommended. It's 0
+ *   exactly when the distribution is a correlated equilibrium. (It's the gap that
+ *   RegretMatchingCorrelatedEqmSolver reports.)
+ *
+ * @author sodomka
+ *
+ */
+public class EquilibriumVerifier {
+
+	/**
+	 * Returns the most any player gains by always playing one of its actions instead of
+	 * following the joint action distribution.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx]
+	 * @param jointActionProbs the probability of each joint action
+	 * @return
+	 */
+	public static double getMaxDeviationGain(int[] numActions, double[] payoffs, double[] jointActionProbs) {
+		double maxGain = 0;
+		for (double gain : getDeviationGains(numActions, payoffs, jointActionProbs)) {
+			maxGain = Math.max(maxGain, gain);
+		}
+		return maxGain;
+	}
+
+
+	/**
+	 * Returns the total of what the players could gain by each always playing one of its
+	 * actions instead of following the joint action distribution.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx]
+	 * @param jointActionProbs the probability of each joint action
+	 * @return
+	 */
+	public static double getTotalDeviationGain(int[] numActions, double[] payoffs, double[] jointActionProbs) {
+		double totalGain = 0;
+		for (double gain : getDeviationGains(numActions, payoffs, jointActionProbs)) {
+			totalGain += gain;
+		}
+		return totalGain;
+	}
+
+
+	/**
+	 * Returns the most each player gains by always playing one of its actions (0 if it can't gain).
+	 */
+	private static double[] getDeviationGains(int[] numActions, double[] payoffs, double[] jointActionProbs) {
+		int numPlayers = numActions.length;
+		int numJointActions = jointActionProbs.length;
+		double[] gains = new double[numPlayers];
+		int stride = numJointActions;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			stride /= numActions[playerIdx];
+			double[] deviationPayoffs = new double[numActions[playerIdx]];
+			double expectedPayoff = 0;
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				double prob = jointActionProbs[jointActionIdx];
+				if (prob == 0) continue;
+				expectedPayoff += prob * payoffs[jointActionIdx * numPlayers + playerIdx];
+				int action = (jointActionIdx / stride) % numActions[playerIdx];
+				int otherJointActionIdx = jointActionIdx - action * stride;
+				for (int deviation=0; deviation<numActions[playerIdx]; deviation++) {
+					deviationPayoffs[deviation] += prob * payoffs[(otherJointActionIdx + deviation * stride) * numPlayers + playerIdx];
+				}
+			}
+			for (double deviationPayoff : deviationPayoffs) {
+				gains[playerIdx] = Math.max(gains[playerIdx], deviationPayoff - expectedPayoff);
+			}
+		}
+		return gains;
+	}
+
+
+	/**
+	 * Returns the most any player gains by replacing one of its actions with another
+	 * whenever the joint action distribution recommends it.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx]
+	 * @param jointActionProbs the probability of each joint action
+	 * @return
+	 */
+	public static double getMaxCorrelatedEqmViolation(int[] numActions, double[] payoffs, double[] jointActionProbs) {
+		int numPlayers = numActions.length;
+		int numJointActions = jointActionProbs.length;
+		double maxViolation = 0;
+		int stride = numJointActions;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			stride /= numActions[playerIdx];
+			int numPlayerActions = numActions[playerIdx];
+			// gains[action * numPlayerActions + deviation]
+			double[] gains = new double[numPlayerActions * numPlayerActions];
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				double prob = jointActionProbs[jointActionIdx];
+				if (prob == 0) continue;
+				double payoff = payoffs[jointActionIdx * numPlayers + playerIdx];
+				int action = (jointActionIdx / stride) % numPlayerActions;
+				int otherJointActionIdx = jointActionIdx - action * stride;
+				for (int deviation=0; deviation<numPlayerActions; deviation++) {
+					gains[action * numPlayerActions + deviation] += prob * (payoffs[(otherJointActionIdx + deviation * stride) * numPlayers + playerIdx] - payoff);
+				}
+			}
+			for (double gain : gains) {
+				maxViolation = Math.max(maxViolation, gain);
+			}
+		}
+		return maxViolation;
+	}
+
+
+	/**
+	 * Returns the most that any player's expected payoff without transfers, as reported by
+	 * the solution, differs from its expected payoff under the solution's joint action distribution.
+	 * @param normalFormGame
+	 * @param solution
+	 * @param jointActionProbs the solution's joint action distribution (see getJointActionProbs)
+	 * @return
+	 */
+	public static <A extends AbstractAction> double getMaxPayoffError(NormalFormGame<A> normalFormGame, GameSolution<A> solution, double[] jointActionProbs) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		double[] payoffs = normalFormGame.getPayoffs();
+		Joint<Double> reportedPayoffs = solution.getExpectedPayoffsWithoutTransfer();
+		double maxError = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			double expectedPayoff = 0;
+			for (int jointActionIdx=0; jointActionIdx<jointActionProbs.length; jointActionIdx++) {
+				expectedPayoff += jointActionProbs[jointActionIdx] * payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+			maxError = Math.max(maxError, Math.abs(expectedPayoff - reportedPayoffs.get(playerIdx)));
+		}
+		return maxError;
+	}
+
+
+	/**
+	 * Returns how far the total of the joint action probabilities is from 1.
+	 * @param jointActionProbs
+	 * @return
+	 */
+	public static double getTotalProbError(double[] jointActionProbs) {
+		double totalProb = 0;
+		for (double prob : jointActionProbs) {
+			totalProb += prob;
+		}
+		return Math.abs(totalProb - 1);
+	}
+
+
+	/**
+	 * Returns the size of the game's payoffs, which deviation gains and payoff errors are
+	 * measured against: the largest absolute payoff, or 1 if that is smaller (so that
+	 * games with tiny payoffs aren't held to tolerances below round-off).
+	 * @param payoffs
+	 * @return
+	 */
+	public static double getPayoffScale(double[] payoffs) {
+		double payoffScale = 1;
+		for (double payoff : payoffs) {
+			payoffScale = Math.max(payoffScale, Math.abs(payoff));
+		}
+		return payoffScale;
+	}
+
+
+	/**
+	 * Returns the probability of each of the game's joint actions (indexed as in NormalFormGame)
+	 * under the distribution. Joint actions that aren't in the game are ignored.
+	 * @param normalFormGame
+	 * @param jointActionDistribution
+	 * @return
+	 */
+	public static <A extends AbstractAction> double[] getJointActionProbs(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> jointActionDistribution) {
+		double[] jointActionProbs = new double[normalFormGame.getNumJointActions()];
+		for (Map.Entry<Joint<A>, Double> entry : jointActionDistribution.entrySet()) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(entry.getKey());
+			if (jointActionIdx != -1) {
+				jointActionProbs[jointActionIdx] += entry.getValue();
+			}
+		}
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Returns the numbers of actions of each of the game's players.
+	 * @param normalFormGame
+	 * @return
+	 */
+	public static int[] getNumActions(NormalFormGame<?> normalFormGame) {
+		int[] numActions = new int[normalFormGame.getNumPlayers()];
+		for (int playerIdx=0; playerIdx<numActions.length; playerIdx++) {
+			numActions[playerIdx] = normalFormGame.getNumActionsForPlayer(playerIdx);
+		}
+		return numActions;
+	}
+
+}
@@ -0,0 +1,282 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * A solver that tries a chain of solvers in order, e.g., a correlated equilibrium LP,
+ * then Hu's Lemke-Howson solver, then regret matching, and returns the first valid solution.
+ * A solution is invalid if the solver throws an exception or returns null (as some solvers
+ * do when their LP fails), or if its joint action distribution doesn't sum to 1 or its
+ * payoffs aren't finite.
+ *
+ * Every solver but the last gets a time budget per game: it runs on a separate thread, and if
+ * it hasn't finished within the budget, it is interrupted and the next solver is tried. (CPLEX
+ * and gambit don't always stop when interrupted, so a solver that ran out of time isn't used
+ * again until its abandoned call finishes; until then, it's skipped.) The last solver runs
+ * on the calling thread without a budget, so it should be one that always finishes quickly,
+ * like regret matching. So a value iteration sweep never blocks on a stalled stage game.
+ *
+ * The number of games answered by each solver, and the numbers of its timeouts and failures,
+ * are counted.
+ *
+ * Only the counters are shared safely between threads: a chain calls its solvers from whichever
+ * thread calls it, and most solvers can't be called from several threads at once. So solveAll
+ * solves a batch one game at a time, and to solve batches in parallel, chains should be wrapped
+ * in a NormalFormSolverPool, which gives each thread its own chain. (If a chain is called from
+ * several threads anyway, a solver with a time budget that's busy with another thread's game
+ * is skipped, as if its call had been abandoned.)
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public class FallbackNormalFormSolver<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+
+	/**
+	 * Solutions' joint action probabilities must sum to 1 within this.
+	 */
+	private static final double PROBABILITY_TOLERANCE = 1e-6;
+
+	private static ExecutorService executor;
+
+	private List<NormalFormSolver<A>> solvers;
+	private long timeBudgetMillis;
+
+	/**
+	 * Whether each solver is running on another thread, e.g., because its last call
+	 * was abandoned when it ran out of time and hasn't finished yet.
+	 */
+	private AtomicBoolean[] isRunning;
+
+	private AtomicIntegerArray numAnswered;
+	private AtomicIntegerArray numTimeouts;
+	private AtomicIntegerArray numFailures;
+
+
+	public FallbackNormalFormSolver(List<NormalFormSolver<A>> solvers) {
+		this(solvers, DEFAULT_TIME_BUDGET_MILLIS);
+	}
+
+	/**
+	 * @param solvers the solvers to try, in order
+	 * @param timeBudgetMillis how long each solver but the last can take per game,
+	 *   or 0 for no limit (in which case every solver runs on the calling thread)
+	 */
+	public FallbackNormalFormSolver(List<NormalFormSolver<A>> solvers, long timeBudgetMillis) {
+		if (solvers.isEmpty()) {
+			throw new IllegalArgumentException("A fallback chain needs at least one solver.");
+		}
+		this.solvers = new ArrayList<NormalFormSolver<A>>(solvers);
+		this.timeBudgetMillis = timeBudgetMillis;
+		isRunning = new AtomicBoolean[solvers.size()];
+		for (int solverIdx=0; solverIdx<solvers.size(); solverIdx++) {
+			isRunning[solverIdx] = new AtomicBoolean();
+		}
+		numAnswered = new AtomicIntegerArray(solvers.size());
+		numTimeouts = new AtomicIntegerArray(solvers.size());
+		numFailures = new AtomicIntegerArray(solvers.size());
+	}
+
+
+	/**
+	 * Returns the pool of daemon threads that solvers with a time budget run on. It isn't
+	 * bounded, since threads whose calls were abandoned can stay busy indefinitely.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "fallback-solver");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		int lastSolverIdx = solvers.size() - 1;
+		for (int solverIdx=0; solverIdx<lastSolverIdx; solverIdx++) {
+			GameSolution<A> solution = (timeBudgetMillis > 0) ?
+					solveWithTimeBudget(solverIdx, normalFormGame, previousJointActionDistribution) :
+					solveAndCheck(solverIdx, normalFormGame, previousJointActionDistribution);
+			if (solution != null) {
+				numAnswered.incrementAndGet(solverIdx);
+				return solution;
+			}
+		}
+		GameSolution<A> solution = solvers.get(lastSolverIdx).solve(normalFormGame, previousJointActionDistribution);
+		numAnswered.incrementAndGet(lastSolverIdx);
+		if (!isValid(solution, normalFormGame.getNumPlayers())) {
+			numFailures.incrementAndGet(lastSolverIdx);
+			System.err.println("Every solver in the fallback chain failed to solve a game.");
+		}
+		return solution;
+	}
+
+
+	/**
+	 * Runs the solver on the game on another thread, returning its solution if it's valid
+	 * and found within the time budget, and otherwise null.
+	 */
+	private GameSolution<A> solveWithTimeBudget(int solverIdx, final NormalFormGame<A> normalFormGame,
+			final DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		// Skip the solver if an abandoned call is still running. (Its Future can't tell,
+		// since a cancelled call counts as done even if the solver hasn't stopped.)
+		final AtomicBoolean isSolverRunning = isRunning[solverIdx];
+		if (!isSolverRunning.compareAndSet(false, true)) return null;
+
+		final NormalFormSolver<A> solver = solvers.get(solverIdx);
+		Future<GameSolution<A>> call = getExecutor().submit(new Callable<GameSolution<A>>() {
+			@Override
+			public GameSolution<A> call() {
+				try {
+					return solver.solve(normalFormGame, previousJointActionDistribution);
+				} finally {
+					isSolverRunning.set(false);
+				}
+			}
+		});
+		GameSolution<A> solution = null;
+		try {
+			solution = call.get(timeBudgetMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			call.cancel(true);
+			numTimeouts.incrementAndGet(solverIdx);
+			return null;
+		} catch (InterruptedException e) {
+			call.cancel(true);
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			// The solver threw an exception; it's counted as a failure below.
+		}
+		if (!isValid(solution, normalFormGame.getNumPlayers())) {
+			numFailures.incrementAndGet(solverIdx);
+			return null;
+		}
+		return solution;
+	}
+
+
+	/**
+	 * Runs the solver on the game on this thread, returning its solution if it's valid, and otherwise null.
+	 */
+	private GameSolution<A> solveAndCheck(int solverIdx, NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		GameSolution<A> solution = null;
+		try {
+			solution = solvers.get(solverIdx).solve(normalFormGame, previousJointActionDistribution);
+		} catch (RuntimeException e) {
+			// Counted as a failure below.
+		}
+		if (!isValid(solution, normalFormGame.getNumPlayers())) {
+			numFailures.incrementAndGet(solverIdx);
+			return null;
+		}
+		return solution;
+	}
+
+
+	/**
+	 * Returns whether the solution has a joint action distribution that sums to 1 and finite payoffs.
+	 */
+	private static <A extends AbstractAction> boolean isValid(GameSolution<A> solution, int numPlayers) {
+		if (solution == null || solution.getJointActionDistribution() == null) return false;
+		double totalProb = 0;
+		for (double prob : solution.getJointActionDistribution().values()) {
+			if (Double.isNaN(prob) || prob < -PROBABILITY_TOLERANCE) return false;
+			totalProb += prob;
+		}
+		if (Math.abs(totalProb - 1) > PROBABILITY_TOLERANCE) return false;
+		Joint<Double> expectedPayoffs = solution.getExpectedPayoffsWithTransfer();
+		if (expectedPayoffs == null || expectedPayoffs.size() != numPlayers) return false;
+		for (double expectedPayoff : expectedPayoffs) {
+			if (Double.isNaN(expectedPayoff) || Double.isInfinite(expectedPayoff)) return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the number of games for which the given solver's solution was returned.
+	 * @param solverIdx the solver's position in the chain
+	 * @return
+	 */
+	public int getNumAnswered(int solverIdx) {
+		return numAnswered.get(solverIdx);
+	}
+
+	/**
+	 * Returns the number of games for which the given solver ran out of time.
+	 * @param solverIdx
+	 * @return
+	 */
+	public int getNumTimeouts(int solverIdx) {
+		return numTimeouts.get(solverIdx);
+	}
+
+	/**
+	 * Returns the number of games for which the given solver's solution was invalid.
+	 * @param solverIdx
+	 * @return
+	 */
+	public int getNumFailures(int solverIdx) {
+		return numFailures.get(solverIdx);
+	}
+
+	public List<NormalFormSolver<A>> getSolvers() {
+		return solvers;
+	}
+
+	/**
+	 * Closes every solver in the chain. (A solver whose abandoned call is still running
+	 * is closed too, which may be what finally stops it.)
+	 */
+	@Override
+	public void close() {
+		for (NormalFormSolver<A> solver : solvers) {
+			solver.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int solverIdx=0; solverIdx<solvers.size(); solverIdx++) {
+			sb.append(solvers.get(solverIdx).getClass().getSimpleName()
+					+ ": answered=" + numAnswered.get(solverIdx)
+					+ ", timeouts=" + numTimeouts.get(solverIdx)
+					+ ", failures=" + numFailures.get(solverIdx) + "\n");
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,385 @@
+package normalformsolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * Finds approximate Nash equilibria of games with any number of players by fictitious play.
+ * (The other Nash solvers only handle 2-player games.)
+ *
+ * Each player keeps the average of the strategies it has played so far. Every iteration,
+ * each player plays a best response to the other players' average strategies, and these
+ * are added to the averages. With a positive temperature, players play the logit
+ * (softmax) response instead of a best response ("smooth" fictitious play), which tends to
+ * cycle less but converges to a quantal response equilibrium, not a Nash equilibrium.
+ *
+ * The average strategies' exploitability, i.e., the total amount the players could gain by
+ * switching to best responses, is 0 exactly at a Nash equilibrium. Since it comes from the
+ * same expected payoffs the best responses are computed from, it is checked every iteration,
+ * and iterations stop once it is at most the target exploitability, or when the iteration
+ * or time budget is used up. Fictitious play converges in 2-player zero-sum games and some
+ * others (e.g., potential games), but not in general, so the budgets matter.
+ *
+ * If the previous solution at a state is given, its marginals are the starting strategies,
+ * so that in value iteration, where games change little between iterations, few iterations
+ * are needed once values settle. Otherwise players start out uniformly random. The starting
+ * strategies count as a single play, except that starting strategies that are already
+ * near an equilibrium count as warmStartWeight plays: otherwise the first best response would
+ * move each average halfway to a pure strategy, and a warm start would only help in games
+ * that need no iterations at all. (Starting strategies that aren't near an equilibrium
+ * usually come from a game that has changed, e.g., whose pure equilibrium has moved, and
+ * weighting them would only slow the move to the new one.)
+ *
+ * @author sodomka
+ *
+ */
+public class FictitiousPlayNashSolver<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	public static final int DEFAULT_MAX_ITERATIONS = 10000;
+	public static final double DEFAULT_TARGET_EXPLOITABILITY = 1e-3;
+	public static final double DEFAULT_WARM_START_WEIGHT = 100;
+
+	/**
+	 * Starting strategies are near an equilibrium if their exploitability is at most
+	 * this many times the target exploitability.
+	 */
+	private static final double NEAR_EQUILIBRIUM_FACTOR = 10;
+
+	/**
+	 * The clock is only read every this many iterations.
+	 */
+	private static final int ITERATIONS_PER_TIME_CHECK = 64;
+
+	private int maxIterations;
+	private double targetExploitability;
+
+	/**
+	 * The number of plays that the previous solution's strategies count as, if they are near an equilibrium.
+	 */
+	private double warmStartWeight = DEFAULT_WARM_START_WEIGHT;
+
+	/**
+	 * The most time to spend per game, or 0 for no limit.
+	 */
+	private long maxMillis;
+
+	/**
+	 * 0 for fictitious play, or the temperature of the logit responses for smooth fictitious play.
+	 */
+	private double temperature;
+
+	/**
+	 * Totals over all games solved, for seeing how accurate the solutions are.
+	 */
+	private int numSolves;
+	private long totalIterations;
+	private double totalExploitability;
+	private double maxExploitability;
+
+
+	public FictitiousPlayNashSolver() {
+		this(DEFAULT_MAX_ITERATIONS, DEFAULT_TARGET_EXPLOITABILITY);
+	}
+
+	/**
+	 * @param maxIterations the most iterations of fictitious play per game
+	 * @param targetExploitability iterations stop once the players' average strategies are this close to a Nash equilibrium
+	 */
+	public FictitiousPlayNashSolver(int maxIterations, double targetExploitability) {
+		this.maxIterations = maxIterations;
+		this.targetExploitability = targetExploitability;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		int[] numActions = new int[numPlayers];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numActions[playerIdx] = normalFormGame.getNumActionsForPlayer(playerIdx);
+		}
+		double[] payoffs = normalFormGame.getPayoffs();
+		double[][] strategies = (previousJointActionDistribution == null) ?
+				null : getMarginals(normalFormGame, previousJointActionDistribution);
+
+		double[] exploitabilityAndIterations = new double[2];
+		strategies = solveForNash(numActions, payoffs, strategies, warmStartWeight, maxIterations, targetExploitability, maxMillis, temperature, exploitabilityAndIterations);
+		synchronized (this) {
+			numSolves++;
+			totalExploitability += exploitabilityAndIterations[0];
+			maxExploitability = Math.max(maxExploitability, exploitabilityAndIterations[0]);
+			totalIterations += (long) exploitabilityAndIterations[1];
+		}
+
+		// The joint strategy is the product of the players' strategies.
+		DiscreteDistribution<Joint<A>> jointStrategy = new DiscreteDistribution<Joint<A>>();
+		double[] expectedPayoffs = new double[numPlayers];
+		for (Joint<A> jointAction : normalFormGame.getPossibleJointActions()) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(jointAction);
+			double prob = 1;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				prob *= strategies[playerIdx][getActionIndex(normalFormGame, jointActionIdx, playerIdx)];
+			}
+			jointStrategy.add(jointAction, prob);
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				expectedPayoffs[playerIdx] += prob * payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+		}
+		Joint<Double> expectedPayoffsPerPlayer = new Joint<Double>();
+		Joint<Double> transferPayments = new Joint<Double>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			expectedPayoffsPerPlayer.add(expectedPayoffs[playerIdx]);
+			transferPayments.add(0.0);
+		}
+		return new UncorrelatedGameSolution<A>(normalFormGame, jointStrategy, expectedPayoffsPerPlayer, transferPayments);
+	}
+
+
+	/**
+	 * Solves the games at the same time, one chunk per processor. (Solving keeps no state
+	 * besides the statistics, which are synchronized.)
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		return SolverExecutor.solveAll(Collections.nCopies(SolverExecutor.getNumThreads(), this), normalFormGames, previousJointActionDistributions);
+	}
+
+
+	/**
+	 * Returns each player's marginal distribution over its actions.
+	 */
+	private static <A extends AbstractAction> double[][] getMarginals(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> jointActionDistribution) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		double[][] marginals = new double[numPlayers][];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			marginals[playerIdx] = new double[normalFormGame.getNumActionsForPlayer(playerIdx)];
+		}
+		for (Joint<A> jointAction : jointActionDistribution.keySet()) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(jointAction);
+			if (jointActionIdx == -1) continue;
+			double prob = jointActionDistribution.get(jointAction);
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				marginals[playerIdx][getActionIndex(normalFormGame, jointActionIdx, playerIdx)] += prob;
+			}
+		}
+		return marginals;
+	}
+
+
+	private static <A extends AbstractAction> int getActionIndex(NormalFormGame<A> normalFormGame, int jointActionIdx, int playerIdx) {
+		return (jointActionIdx / normalFormGame.getStride(playerIdx)) % normalFormGame.getNumActionsForPlayer(playerIdx);
+	}
+
+
+	/**
+	 * Returns an approximate Nash equilibrium, as a mixed strategy for each player.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx], where joint action indices
+	 *   are as in NormalFormGame (player 0's action is the most significant digit)
+	 * @param initialStrategies the strategies to start from, or null to start from uniform strategies.
+	 *   They are normalized (a player whose strategy sums to 0 starts uniform), and not modified.
+	 * @param initialWeight the number of plays the initial strategies count as if they are near an
+	 *   equilibrium (see NEAR_EQUILIBRIUM_FACTOR). Otherwise, or if there are none, they count as a single play.
+	 * @param maxIterations
+	 * @param targetExploitability
+	 * @param maxMillis the most time to spend, or 0 for no limit
+	 * @param temperature 0 for best responses, or the temperature of logit responses
+	 * @param exploitabilityAndIterations if not null, gets the solution's exploitability (the total of what
+	 *   the players could gain by deviating) and the number of iterations used
+	 * @return
+	 */
+	public static double[][] solveForNash(int[] numActions, double[] payoffs, double[][] initialStrategies, double initialWeight,
+			int maxIterations, double targetExploitability, long maxMillis, double temperature, double[] exploitabilityAndIterations) {
+		long deadline = (maxMillis > 0) ? System.nanoTime() + maxMillis * 1000000 : Long.MAX_VALUE;
+		int numPlayers = numActions.length;
+		int numJointActions = payoffs.length / numPlayers;
+
+		double[][] strategies = new double[numPlayers][];
+		double[][] actionPayoffs = new double[numPlayers][];
+		double[][] responses = new double[numPlayers][];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			int n = numActions[playerIdx];
+			strategies[playerIdx] = new double[n];
+			actionPayoffs[playerIdx] = new double[n];
+			responses[playerIdx] = new double[n];
+			double total = 0;
+			if (initialStrategies != null) {
+				for (int action=0; action<n; action++) {
+					total += Math.max(initialStrategies[playerIdx][action], 0);
+				}
+			}
+			for (int action=0; action<n; action++) {
+				strategies[playerIdx][action] = (total > 0) ? Math.max(initialStrategies[playerIdx][action], 0) / total : 1.0 / n;
+			}
+		}
+		double numInitialPlays = 1;
+		int[] actions = new int[numPlayers];
+		double[] prefixProbs = new double[numPlayers+1];
+
+		double exploitability = Double.POSITIVE_INFINITY;
+		int iteration = 0;
+		while (true) {
+			// Get each player's expected payoff for each of its actions,
+			// given the other players' average strategies.
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				Arrays.fill(actionPayoffs[playerIdx], 0);
+				actions[playerIdx] = 0;
+			}
+			prefixProbs[0] = 1;
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					prefixProbs[playerIdx+1] = prefixProbs[playerIdx] * strategies[playerIdx][actions[playerIdx]];
+				}
+				double suffixProb = 1;
+				for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+					actionPayoffs[playerIdx][actions[playerIdx]] += prefixProbs[playerIdx] * suffixProb * payoffs[jointActionIdx * numPlayers + playerIdx];
+					suffixProb *= strategies[playerIdx][actions[playerIdx]];
+				}
+				// Move to the next joint action (the last player's action changes fastest).
+				for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+					if (++actions[playerIdx] < numActions[playerIdx]) break;
+					actions[playerIdx] = 0;
+				}
+			}
+
+			// Each player could gain the difference between its best response and its average strategy.
+			exploitability = 0;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				double[] strategy = strategies[playerIdx];
+				double[] payoffPerAction = actionPayoffs[playerIdx];
+				double bestPayoff = Double.NEGATIVE_INFINITY;
+				double expectedPayoff = 0;
+				for (int action=0; action<strategy.length; action++) {
+					bestPayoff = Math.max(bestPayoff, payoffPerAction[action]);
+					expectedPayoff += strategy[action] * payoffPerAction[action];
+				}
+				exploitability += Math.max(bestPayoff - expectedPayoff, 0);
+			}
+			if (exploitability <= targetExploitability || iteration >= maxIterations) break;
+			if (iteration == 0 && initialStrategies != null && exploitability <= NEAR_EQUILIBRIUM_FACTOR * targetExploitability) {
+				numInitialPlays = Math.max(initialWeight, 1);
+			}
+			if (iteration % ITERATIONS_PER_TIME_CHECK == 0 && iteration > 0 && System.nanoTime() > deadline) break;
+			iteration++;
+
+			// Move each average strategy toward the response, given the number of plays so far.
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				double[] response = responses[playerIdx];
+				getResponse(actionPayoffs[playerIdx], temperature, response);
+				double[] strategy = strategies[playerIdx];
+				for (int action=0; action<strategy.length; action++) {
+					strategy[action] += (response[action] - strategy[action]) / (numInitialPlays + iteration);
+				}
+			}
+		}
+
+		if (exploitabilityAndIterations != null) {
+			exploitabilityAndIterations[0] = exploitability;
+			exploitabilityAndIterations[1] = iteration;
+		}
+		return strategies;
+	}
+
+
+	/**
+	 * Sets the response to the best response (the first, if there are ties) or, with a positive
+	 * temperature, to the logit response, whose probabilities are proportional to exp(payoff / temperature).
+	 */
+	private static void getResponse(double[] payoffPerAction, double temperature, double[] response) {
+		int bestAction = 0;
+		for (int action=1; action<payoffPerAction.length; action++) {
+			if (payoffPerAction[action] > payoffPerAction[bestAction]) bestAction = action;
+		}
+		if (temperature <= 0) {
+			Arrays.fill(response, 0);
+			response[bestAction] = 1;
+			return;
+		}
+		// Payoffs are shifted by the best payoff so that exp doesn't overflow.
+		double total = 0;
+		for (int action=0; action<payoffPerAction.length; action++) {
+			response[action] = Math.exp((payoffPerAction[action] - payoffPerAction[bestAction]) / temperature);
+			total += response[action];
+		}
+		for (int action=0; action<payoffPerAction.length; action++) {
+			response[action] /= total;
+		}
+	}
+
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double getTargetExploitability() {
+		return targetExploitability;
+	}
+
+	public void setTargetExploitability(double targetExploitability) {
+		this.targetExploitability = targetExploitability;
+	}
+
+	public double getWarmStartWeight() {
+		return warmStartWeight;
+	}
+
+	public void setWarmStartWeight(double warmStartWeight) {
+		this.warmStartWeight = warmStartWeight;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	public void setMaxMillis(long maxMillis) {
+		this.maxMillis = maxMillis;
+	}
+
+	public double getTemperature() {
+		return temperature;
+	}
+
+	public void setTemperature(double temperature) {
+		this.temperature = temperature;
+	}
+
+	/**
+	 * Returns the largest exploitability of any game solved so far (see solveForNash).
+	 * @return
+	 */
+	public synchronized double getMaxExploitability() {
+		return maxExploitability;
+	}
+
+	public synchronized double getAverageExploitability() {
+		return (numSolves == 0) ? 0 : totalExploitability / numSolves;
+	}
+
+	public synchronized double getAverageIterations() {
+		return (numSolves == 0) ? 0 : (double) totalIterations / numSolves;
+	}
+
+	public synchronized void resetStatistics() {
+		numSolves = 0;
+		totalIterations = 0;
+		totalExploitability = 0;
+		maxExploitability = 0;
+	}
+
+}
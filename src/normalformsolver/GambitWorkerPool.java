@@ -0,0 +1,207 @@
+package normalformsolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A pool of long-lived worker processes for solving games with a gambit command-line tool.
+ *
+ * Without a pool, BimatrixGambitSolver starts a new shell (and a new gambit) from the JVM
+ * for every game, and waits for it. Here, each worker is a shell started once, which reads
+ * games from its standard input and runs gambit on each, so the JVM only ever starts
+ * numWorkers processes. The protocol on a worker's standard input is a game (in .nfg format)
+ * followed by a line containing END_OF_GAME; the worker answers with gambit's output
+ * followed by a line containing END_OF_SOLUTION. Anything gambit writes to its standard
+ * error is discarded.
+ *
+ * Several games can be solved at once, one per worker, either by calling solve from
+ * several threads or by submitting games to the pool's own threads (see submit).
+ *
+ * @author sodomka
+ *
+ */
+public class GambitWorkerPool {
+
+	static final String END_OF_GAME = "END_OF_GAME";
+	static final String END_OF_SOLUTION = "END_OF_SOLUTION";
+
+	private String gambitCommand;
+	private BlockingQueue<Worker> idleWorkers;
+	private List<Worker> workers;
+	private ExecutorService executor;
+
+
+	/**
+	 * Creates a pool with one worker per processor.
+	 * @param gambitCommand the gambit command to run on each game, e.g., /usr/local/bin/gambit-gnm
+	 */
+	public GambitWorkerPool(String gambitCommand) {
+		this(gambitCommand, SolverExecutor.getNumThreads());
+	}
+
+
+	/**
+	 * @param gambitCommand the gambit command to run on each game, e.g., /usr/local/bin/gambit-gnm
+	 * @param numWorkers the number of worker processes, i.e., the number of games solved at once.
+	 */
+	public GambitWorkerPool(String gambitCommand, int numWorkers) {
+		this.gambitCommand = gambitCommand;
+		this.idleWorkers = new LinkedBlockingQueue<Worker>();
+		this.workers = new ArrayList<Worker>();
+		for (int workerIdx=0; workerIdx<numWorkers; workerIdx++) {
+			Worker worker = new Worker();
+			workers.add(worker);
+			idleWorkers.add(worker);
+		}
+		this.executor = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "gambit-worker-pool");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+
+	/**
+	 * Solves the given game on the next idle worker (waiting for one if all are busy),
+	 * and returns gambit's output, one line per element. If the worker fails, it is
+	 * restarted and an empty list is returned.
+	 * @param gameString a game in .nfg format
+	 * @return
+	 */
+	public List<String> solve(String gameString) {
+		Worker worker;
+		try {
+			worker = idleWorkers.take();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			Thread.currentThread().interrupt();
+			return new ArrayList<String>();
+		}
+		try {
+			return worker.solve(gameString);
+		} finally {
+			idleWorkers.add(worker);
+		}
+	}
+
+
+	/**
+	 * Solves the given game on one of the pool's threads, so that the caller
+	 * can submit many games before waiting on any of them.
+	 * @param gameString a game in .nfg format
+	 * @return gambit's output, as from solve
+	 */
+	public Future<List<String>> submit(final String gameString) {
+		return executor.submit(new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return solve(gameString);
+			}
+		});
+	}
+
+
+	public int getNumWorkers() {
+		return workers.size();
+	}
+
+
+	/**
+	 * Stops the pool's threads and worker processes.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		for (Worker worker : workers) {
+			worker.stop();
+		}
+	}
+
+
+	/**
+	 * The shell script run by each worker. Lines are collected in a temporary file
+	 * until END_OF_GAME, then gambit is run on the file.
+	 */
+	private String getWorkerScript() {
+		return "f=$(mktemp); trap 'rm -f \"$f\"' EXIT; " +
+				"while IFS= read -r line; do " +
+				"if [ \"$line\" = \"" + END_OF_GAME + "\" ]; then " +
+				gambitCommand + " < \"$f\"; echo " + END_OF_SOLUTION + "; : > \"$f\"; " +
+				"else printf '%s\\n' \"$line\" >> \"$f\"; fi; " +
+				"done";
+	}
+
+
+	/**
+	 * One worker process and the streams used to talk to it.
+	 * Only used by one thread at a time.
+	 */
+	private class Worker {
+		private Process process;
+		private PrintWriter in;
+		private BufferedReader out;
+
+		public Worker() {
+			start();
+		}
+
+		private void start() {
+			try {
+				// Nothing reads the worker's standard error, so it's discarded; otherwise
+				// gambit's warnings would fill the pipe until gambit (and the worker) blocked.
+				ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", getWorkerScript());
+				processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+				process = processBuilder.start();
+				in = new PrintWriter(new OutputStreamWriter(process.getOutputStream()));
+				out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		public List<String> solve(String gameString) {
+			List<String> outputLines = new ArrayList<String>();
+			if (process == null) {
+				start();
+				if (process == null) return outputLines;
+			}
+			try {
+				in.println(gameString);
+				in.println(END_OF_GAME);
+				in.flush();
+				String line;
+				while ((line = out.readLine()) != null) {
+					if (line.equals(END_OF_SOLUTION)) return outputLines;
+					outputLines.add(line);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			System.err.println("gambit worker stopped unexpectedly; restarting it.");
+			stop();
+			start();
+			return new ArrayList<String>();
+		}
+
+		public void stop() {
+			if (process == null) return;
+			in.close();
+			process.destroy();
+		}
+	}
+
+}
@@ -0,0 +1,480 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The Lemke-Howson method from BimatrixHuSolver's original code (Hu and Zhang's),
+ * rewritten so that solving a game doesn't allocate. The original built new cost matrices,
+ * a new complementarity matrix, and new index lists for every game, and a new matrix for
+ * every pivot, and it always ran Lemke-Howson once for every starting label (each of
+ * player 1's actions), even when only the first equilibrium was wanted.
+ *
+ * Here, each thread has a workspace that is reused from game to game (and grown when
+ * a bigger game comes along), pivots are done in place, and callers choose how many
+ * starting labels to run:
+ *
+ *   solveFromLabel             - one starting label.
+ *   solveForFirstEquilibrium   - starting labels in order until one gives a valid equilibrium.
+ *   solveFromAllLabels         - every starting label, optionally in parallel.
+ *
+ * The arithmetic and pivoting rules are the same as the original's, so the same
+ * equilibria are found, except for how ties in the minimum ratio test are broken.
+ * Degenerate games (e.g., grid games where several actions give the same payoffs) have
+ * ties, and breaking them by the lowest index can make Lemke-Howson cycle forever.
+ * Here, ratios within a tolerance of each other are tied, and ties are broken
+ * lexicographically, which amounts to solving a slightly perturbed, nondegenerate game
+ * and so can't cycle. In case rounding error still makes the path go wrong, a run is
+ * also given up after a maximum number of pivots, and reported as failed.
+ *
+ * Nothing here is shared between threads except the (read-only) payoff matrices,
+ * so any of these can be called concurrently.
+ *
+ * @author sodomka
+ *
+ */
+public class LemkeHowsonEngine {
+
+	/**
+	 * Constants from the original implementation: the starting value of the
+	 * best-response searches, the ratio test's stand-in for "no ratio", the smallest
+	 * magnitude pivoted on, and the smallest magnitude (negative) coefficient
+	 * considered in the ratio test.
+	 */
+	private static final double MIN_START = 200000;
+	private static final double NO_RATIO = 20000000;
+	private static final double PIVOT_EPSILON = 0.000000001;
+	private static final double RATIO_EPSILON = 0.00001;
+
+	/**
+	 * Ratios (and lexicographic tie-breaking terms) within this of each other are tied.
+	 */
+	public static final double DEFAULT_TOLERANCE = 1e-12;
+
+	/**
+	 * The number of pivots after which a run is given up.
+	 */
+	public static final int DEFAULT_MAX_PIVOTS = 10000;
+
+	/**
+	 * Types of the variables in the index lists.
+	 */
+	private static final int W = 1;
+	private static final int Z = 2;
+
+	private static final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	private static ExecutorService executor;
+
+
+	/**
+	 * Runs Lemke-Howson from the given starting label (one of player 1's actions).
+	 * @param player1Payoffs
+	 * @param player2Payoffs
+	 * @param label the starting label, 0 <= label < number of player 1 actions
+	 * @param equilibrium filled with player 1's mixed strategy followed by player 2's.
+	 *   Its length must be at least the total number of actions.
+	 * @return false if the run failed, in which case the equilibrium is filled with NaN.
+	 */
+	public static boolean solveFromLabel(double[][] player1Payoffs, double[][] player2Payoffs, int label, double[] equilibrium) {
+		return solveFromLabel(player1Payoffs, player2Payoffs, label, equilibrium, DEFAULT_TOLERANCE, DEFAULT_MAX_PIVOTS);
+	}
+
+	/**
+	 * As above, with the given tie tolerance and maximum number of pivots.
+	 */
+	public static boolean solveFromLabel(double[][] player1Payoffs, double[][] player2Payoffs, int label, double[] equilibrium,
+			double tolerance, int maxPivots) {
+		return solveFromLabel(player1Payoffs, player2Payoffs, getAbsMax(player1Payoffs), getAbsMax(player2Payoffs), label, equilibrium,
+				tolerance, maxPivots);
+	}
+
+
+	/**
+	 * Returns the equilibrium found from the first starting label that gives a valid
+	 * (e.g., not NaN) equilibrium, or the one found from label 0 if none do.
+	 * This is the equilibrium listed first by solveFromAllLabels, without running
+	 * every label.
+	 * @param player1Payoffs
+	 * @param player2Payoffs
+	 * @return player 1's mixed strategy followed by player 2's.
+	 */
+	public static double[] solveForFirstEquilibrium(double[][] player1Payoffs, double[][] player2Payoffs) {
+		return solveForFirstEquilibrium(player1Payoffs, player2Payoffs, DEFAULT_TOLERANCE, DEFAULT_MAX_PIVOTS);
+	}
+
+	/**
+	 * As above, with the given tie tolerance and maximum number of pivots (per starting label).
+	 */
+	public static double[] solveForFirstEquilibrium(double[][] player1Payoffs, double[][] player2Payoffs, double tolerance, int maxPivots) {
+		int numPlayer1Actions = player1Payoffs.length;
+		int numTotalActions = numPlayer1Actions + player1Payoffs[0].length;
+		double maxAbsPlayer1Payoff = getAbsMax(player1Payoffs);
+		double maxAbsPlayer2Payoff = getAbsMax(player2Payoffs);
+		double[] equilibrium = new double[numTotalActions];
+		for (int label=0; label<numPlayer1Actions; label++) {
+			solveFromLabel(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, label, equilibrium, tolerance, maxPivots);
+			if (isValid(equilibrium)) return equilibrium;
+		}
+		solveFromLabel(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, 0, equilibrium, tolerance, maxPivots);
+		return equilibrium;
+	}
+
+
+	/**
+	 * Runs Lemke-Howson from every starting label.
+	 * @param player1Payoffs
+	 * @param player2Payoffs
+	 * @param parallel whether to run the labels on several threads
+	 * @return one row per starting label, each holding player 1's mixed strategy followed by player 2's.
+	 *   Rows may be repeated, and are NaN for runs that failed, or that hadn't finished when the
+	 *   calling thread was interrupted (whose interrupt status is kept).
+	 */
+	public static double[][] solveFromAllLabels(double[][] player1Payoffs, double[][] player2Payoffs, boolean parallel) {
+		return solveFromAllLabels(player1Payoffs, player2Payoffs, parallel, DEFAULT_TOLERANCE, DEFAULT_MAX_PIVOTS);
+	}
+
+	/**
+	 * As above, with the given tie tolerance and maximum number of pivots (per starting label).
+	 */
+	public static double[][] solveFromAllLabels(final double[][] player1Payoffs, final double[][] player2Payoffs, boolean parallel,
+			final double tolerance, final int maxPivots) {
+		int numPlayer1Actions = player1Payoffs.length;
+		int numTotalActions = numPlayer1Actions + player1Payoffs[0].length;
+		final double maxAbsPlayer1Payoff = getAbsMax(player1Payoffs);
+		final double maxAbsPlayer2Payoff = getAbsMax(player2Payoffs);
+		final double[][] equilibria = new double[numPlayer1Actions][numTotalActions];
+
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		if (parallel && numPlayer1Actions > 1) {
+			// The calling thread does label 0 while the others are done on the executor.
+			for (int label=1; label<numPlayer1Actions; label++) {
+				final int finalLabel = label;
+				futures.add(getExecutor().submit(new Runnable() {
+					@Override
+					public void run() {
+						solveFromLabel(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, finalLabel, equilibria[finalLabel], tolerance, maxPivots);
+					}
+				}));
+			}
+		}
+		solveFromLabel(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, 0, equilibria[0], tolerance, maxPivots);
+		for (int label=1; label<numPlayer1Actions; label++) {
+			if (!futures.isEmpty()) {
+				try {
+					futures.get(label-1).get();
+					continue;
+				} catch (InterruptedException e) {
+					// Unfinished runs count as failed. They get new rows, since a run that was already
+					// going may still write to its old one.
+					for (int unfinishedLabel=label; unfinishedLabel<numPlayer1Actions; unfinishedLabel++) {
+						futures.get(unfinishedLabel-1).cancel(true);
+						equilibria[unfinishedLabel] = new double[numTotalActions];
+						Arrays.fill(equilibria[unfinishedLabel], Double.NaN);
+					}
+					Thread.currentThread().interrupt();
+					return equilibria;
+				} catch (ExecutionException e) {
+					// The run has finished, so it can be tried again here.
+					e.printStackTrace();
+				}
+			}
+			solveFromLabel(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, label, equilibria[label], tolerance, maxPivots);
+		}
+		return equilibria;
+	}
+
+
+	/**
+	 * Returns true if every probability in the equilibrium is a number.
+	 * @param equilibrium
+	 * @return
+	 */
+	public static boolean isValid(double[] equilibrium) {
+		for (double prob : equilibrium) {
+			if (Double.isNaN(prob) || Double.isInfinite(prob)) return false;
+		}
+		return true;
+	}
+
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "lemke-howson");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+
+	/**
+	 * One run of Lemke-Howson from the given starting label, using this thread's workspace.
+	 * (The original's getonenash.)
+	 */
+	private static boolean solveFromLabel(double[][] player1Payoffs, double[][] player2Payoffs,
+			double maxAbsPlayer1Payoff, double maxAbsPlayer2Payoff, int label, double[] equilibrium,
+			double tolerance, int maxPivots) {
+		int row = player1Payoffs.length;
+		int col = player1Payoffs[0].length;
+		int dimM = row + col;
+		Workspace workspace = workspaces.get();
+		workspace.reset(player1Payoffs, player2Payoffs, maxAbsPlayer1Payoff, maxAbsPlayer2Payoff, dimM);
+		for (int i=0; i<dimM; i++) {
+			equilibrium[i] = 0;
+		}
+
+		// c is player 2's best response to the label.
+		int c = getBestResponseColumn(player2Payoffs, label, col);
+		workspace.pivot(c+row, label);
+		workspace.exchange(c+row, label);
+
+		// r is player 1's best response to c.
+		int r = getBestResponseRow(player1Payoffs, c, row);
+		workspace.pivot(r, c+row);
+		workspace.exchange(r, c+row);
+
+		if (r != label) {
+			// Ties in the ratio test are broken as if the current solution were perturbed.
+			workspace.setLexicographicBasis();
+			int j1 = workspace.getMinRatioRow(r, tolerance);
+			if (j1 != -1) {
+				workspace.pivot(j1, r);
+				int numPivots = 1;
+				while (j1 != -1 && workspace.wIndex[j1] != label) {
+					int leavingType = workspace.wType[j1];
+					int leavingIndex = workspace.wIndex[j1];
+					workspace.exchange(j1, r);
+					// The complement of the variable that just left is the new driving variable.
+					r = workspace.findInZ(3-leavingType, leavingIndex);
+					if (r == -1 || numPivots >= maxPivots) {
+						Arrays.fill(equilibrium, 0, dimM, Double.NaN);
+						return false;
+					}
+					j1 = workspace.getMinRatioRow(r, tolerance);
+					if (j1 != -1) {
+						workspace.pivot(j1, r);
+						numPivots++;
+					}
+				}
+				if (j1 != -1) workspace.exchange(j1, r);
+			}
+		}
+		workspace.getSolution(equilibrium);
+		normalize(equilibrium, row, dimM);
+		return true;
+	}
+
+
+	/**
+	 * Player 2's best response to player 1's action, i.e., the minimum cost (negated payoff),
+	 * with ties to the lowest index.
+	 */
+	private static int getBestResponseColumn(double[][] player2Payoffs, int player1Action, int col) {
+		double min = MIN_START;
+		int c = 0;
+		for (int j=0; j<col; j++) {
+			if (-player2Payoffs[player1Action][j] < min) {
+				min = -player2Payoffs[player1Action][j];
+				c = j;
+			}
+		}
+		return c;
+	}
+
+	private static int getBestResponseRow(double[][] player1Payoffs, int player2Action, int row) {
+		double min = MIN_START;
+		int r = 0;
+		for (int i=0; i<row; i++) {
+			if (-player1Payoffs[i][player2Action] < min) {
+				min = -player1Payoffs[i][player2Action];
+				r = i;
+			}
+		}
+		return r;
+	}
+
+	private static double getAbsMax(double[][] payoffs) {
+		double max = 0;
+		for (int i=0; i<payoffs.length; i++) {
+			for (int j=0; j<payoffs[i].length; j++) {
+				double abs = Math.abs(payoffs[i][j]);
+				if (abs > max) max = abs;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Scales each player's part of the solution into a probability distribution.
+	 */
+	private static void normalize(double[] equilibrium, int row, int dimM) {
+		double sum1 = 0, sum2 = 0;
+		for (int i=0; i<row; i++) sum1 += Math.abs(equilibrium[i]);
+		for (int i=row; i<dimM; i++) sum2 += Math.abs(equilibrium[i]);
+		for (int i=0; i<dimM; i++) {
+			if (i<row) equilibrium[i] = Math.abs(equilibrium[i])/sum1;
+			else equilibrium[i] = Math.abs(equilibrium[i])/sum2;
+		}
+	}
+
+
+	/**
+	 * The complementarity matrix M, the vector q, and the lists of which (w or z) variable
+	 * each row and column currently stands for. Arrays only ever grow.
+	 */
+	private static class Workspace {
+		private double[][] m = new double[0][0];
+		private double[] q = new double[0];
+		private int[] wType = new int[0];
+		private int[] wIndex = new int[0];
+		private int[] zType = new int[0];
+		private int[] zIndex = new int[0];
+		private int[] lexType = new int[0];
+		private int[] lexIndex = new int[0];
+		private int dimM;
+
+		/**
+		 * Sets up M (shifted so all its payoff entries are positive) and q = -1, with every
+		 * w variable basic. (The original's AllClear and Comp.)
+		 */
+		void reset(double[][] player1Payoffs, double[][] player2Payoffs, double maxAbsPlayer1Payoff, double maxAbsPlayer2Payoff, int dimM) {
+			this.dimM = dimM;
+			if (q.length < dimM) {
+				m = new double[dimM][dimM];
+				q = new double[dimM];
+				wType = new int[dimM];
+				wIndex = new int[dimM];
+				zType = new int[dimM];
+				zIndex = new int[dimM];
+				lexType = new int[dimM];
+				lexIndex = new int[dimM];
+			}
+			int row = player1Payoffs.length;
+			for (int i=0; i<dimM; i++) {
+				wType[i] = W; wIndex[i] = i;
+				zType[i] = Z; zIndex[i] = i;
+				q[i] = -1;
+				double[] mRow = m[i];
+				for (int j=0; j<dimM; j++) {
+					if ((i<row && j<row) || (i>=row && j>=row)) {
+						mRow[j] = 0;
+					} else if (i<row) {
+						mRow[j] = -player1Payoffs[i][j-row] + maxAbsPlayer1Payoff + 1;
+					} else {
+						mRow[j] = -player2Payoffs[j][i-row] + maxAbsPlayer2Payoff + 1;
+					}
+				}
+			}
+		}
+
+		void pivot(int r1, int c1) {
+			PivotKernels.complementaryPivot(m, q, dimM, r1, c1, PIVOT_EPSILON);
+		}
+
+		/**
+		 * Exchanges the rth w list entry with the cth z list entry.
+		 */
+		void exchange(int r, int c) {
+			int type = wType[r], index = wIndex[r];
+			wType[r] = zType[c]; wIndex[r] = zIndex[c];
+			zType[c] = type; zIndex[c] = index;
+		}
+
+		/**
+		 * Records the current basis as the one whose solution is perturbed for
+		 * lexicographic tie-breaking: the variable basic in row k gets epsilon^(k+1) added.
+		 */
+		void setLexicographicBasis() {
+			System.arraycopy(wType, 0, lexType, 0, dimM);
+			System.arraycopy(wIndex, 0, lexIndex, 0, dimM);
+		}
+
+		/**
+		 * The minimum ratio test for driving variable r. Returns -1 if no row limits r.
+		 * Rows whose ratios are within the tolerance of the minimum are tied, and ties are
+		 * broken lexicographically (with the lowest row winning exact ties).
+		 */
+		int getMinRatioRow(int r, double tolerance) {
+			double min = NO_RATIO;
+			for (int i=0; i<dimM; i++) {
+				if (m[i][r] < -RATIO_EPSILON) {
+					double ratio = -q[i]/m[i][r];
+					if (ratio != NO_RATIO && ratio < min) {
+						min = ratio;
+					}
+				}
+			}
+			int j = -1;
+			for (int i=0; i<dimM; i++) {
+				if (m[i][r] < -RATIO_EPSILON) {
+					double ratio = -q[i]/m[i][r];
+					if (ratio == NO_RATIO || ratio > min + tolerance) continue;
+					if (j == -1 || isLexicographicallySmaller(i, j, r, tolerance)) {
+						j = i;
+					}
+				}
+			}
+			return j;
+		}
+
+		/**
+		 * Compares rows i and j's perturbation terms, divided by their coefficients on
+		 * the driving variable r. In the tableau form of the system, the terms are the
+		 * columns of the variables that were basic in setLexicographicBasis: a unit column
+		 * if the variable is still basic, and the negated column of M if not.
+		 */
+		private boolean isLexicographicallySmaller(int i, int j, int r, double tolerance) {
+			double iDenominator = -m[i][r];
+			double jDenominator = -m[j][r];
+			for (int k=0; k<dimM; k++) {
+				double iTerm, jTerm;
+				int column = findInZ(lexType[k], lexIndex[k]);
+				if (column != -1) {
+					iTerm = -m[i][column];
+					jTerm = -m[j][column];
+				} else {
+					iTerm = (wType[i] == lexType[k] && wIndex[i] == lexIndex[k]) ? 1 : 0;
+					jTerm = (wType[j] == lexType[k] && wIndex[j] == lexIndex[k]) ? 1 : 0;
+				}
+				double difference = iTerm/iDenominator - jTerm/jDenominator;
+				if (difference < -tolerance) return true;
+				if (difference > tolerance) return false;
+			}
+			return false;
+		}
+
+		int findInZ(int type, int index) {
+			for (int i=0; i<dimM; i++) {
+				if (zType[i] == type && zIndex[i] == index) return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Reads off the z variables that are basic.
+		 */
+		void getSolution(double[] equilibrium) {
+			for (int i=0; i<dimM; i++) {
+				if (wType[i] == Z) equilibrium[wIndex[i]] = q[i];
+			}
+		}
+	}
+
+}
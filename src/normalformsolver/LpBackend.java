@@ -0,0 +1,21 @@
+package normalformsolver;
+
+/**
+ * The linear programming engine used by solvers that solve LPs
+ * (e.g., for minimax values or correlated equilibria).
+ * 
+ * @author sodomka
+ *
+ */
+public enum LpBackend {
+	/** ILOG CPLEX, which needs a license and native libraries. */
+	CPLEX,
+	/** The in-process DenseSimplexSolver, which needs neither. */
+	SIMPLEX;
+
+	/**
+	 * The backend of every LP-based solver created without one, so that
+	 * none of them needs CPLEX unless it's asked for.
+	 */
+	public static final LpBackend DEFAULT = SIMPLEX;
+}
@@ -0,0 +1,157 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import normalformsolver.VerifyingNormalFormSolver.SolutionConcept;
+import sequentialgame.AbstractAction;
+
+/**
+ * Creates normal form solvers from their names (see createSolver), e.g., the names
+ * given to SolverRunner and to sharded value iteration's workers, so that every
+ * solver that can be chosen by name is listed in one place. As a factory, it creates
+ * solvers with the same name, e.g., one per thread for a NormalFormSolverPool.
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public class NamedNormalFormSolverFactory<A extends AbstractAction> implements NormalFormSolverFactory<A> {
+
+	private static final String VERIFIED_PREFIX = "verified-";
+
+	private String solverName;
+
+	public NamedNormalFormSolverFactory(String solverName) {
+		this.solverName = solverName;
+	}
+
+
+	@Override
+	public NormalFormSolver<A> createSolver() {
+		return NamedNormalFormSolverFactory.<A>createSolver(solverName);
+	}
+
+
+	public String getSolverName() {
+		return solverName;
+	}
+
+
+	/**
+	 * Creates a normal form game solver from its name.
+	 * @param solverName one of "hu", "coco", "ce", "gambit", or "nash" (support enumeration). 
+	 *        "coco" and "ce" solve their LPs with LpBackend.DEFAULT; "coco-cplex" and "ce-cplex" use
+	 *        CPLEX, and "coco-simplex" and "ce-simplex" don't.
+	 *        "gambit-pool" runs gambit in long-lived processes (see GambitWorkerPool). "ce-rm" finds approximate
+	 *        correlated equilibria by regret matching, and "fp" approximate Nash equilibria
+	 *        by fictitious play (for any number of players). "ce-egalitarian", "ce-republican"
+	 *        and "ce-libertarian" (optionally followed by "-cplex" or "-simplex") choose correlated
+	 *        equilibria by those objectives instead (see CorrelatedEqmSolver.Objective).
+	 *        A comma-separated list of names, e.g. "ce,hu,ce-rm", tries those solvers in order
+	 *        (see FallbackNormalFormSolver), with a chain for each thread (see NormalFormSolverPool).
+	 *        A name prefixed with "verified-", e.g. "verified-hu", checks a sample of that solver's solutions (see VerifyingNormalFormSolver).
+	 * @return
+	 */
+	public static <A extends AbstractAction> NormalFormSolver<A> createSolver(final String solverName) {
+		if (solverName.toLowerCase().startsWith(VERIFIED_PREFIX)) {
+			String name = solverName.substring(VERIFIED_PREFIX.length());
+			return new VerifyingNormalFormSolver<A>(NamedNormalFormSolverFactory.<A>createSolver(name), getSolutionConcept(name));
+		}
+		if (solverName.contains(",")) {
+			// A chain solves one game at a time, so each thread gets its own.
+			return new NormalFormSolverPool<A>(new NormalFormSolverFactory<A>() {
+				@Override
+				public NormalFormSolver<A> createSolver() {
+					return NamedNormalFormSolverFactory.<A>createFallbackSolver(solverName);
+				}
+			});
+		}
+		if (solverName.equalsIgnoreCase("hu")) {
+			return new BimatrixHuSolver<A>();
+		} else if (solverName.equalsIgnoreCase("coco")) {
+			return new BimatrixCocoSolver<A>();
+		} else if (solverName.equalsIgnoreCase("coco-simplex")) {
+			return new BimatrixCocoSolver<A>(LpBackend.SIMPLEX);
+		} else if (solverName.equalsIgnoreCase("coco-cplex")) {
+			return new BimatrixCocoSolver<A>(LpBackend.CPLEX);
+		} else if (solverName.equalsIgnoreCase("ce")) {
+			return new BimatrixCorrelatedEqmSolver<A>();
+		} else if (solverName.equalsIgnoreCase("ce-simplex")) {
+			return new BimatrixCorrelatedEqmSolver<A>(LpBackend.SIMPLEX);
+		} else if (solverName.equalsIgnoreCase("ce-cplex")) {
+			return new BimatrixCorrelatedEqmSolver<A>(LpBackend.CPLEX);
+		} else if (solverName.toLowerCase().startsWith("ce-") && getObjective(solverName) != null) {
+			LpBackend lpBackend = solverName.toLowerCase().endsWith("-cplex") ? LpBackend.CPLEX
+					: solverName.toLowerCase().endsWith("-simplex") ? LpBackend.SIMPLEX : LpBackend.DEFAULT;
+			BimatrixCorrelatedEqmSolver<A> ceSolver = new BimatrixCorrelatedEqmSolver<A>(lpBackend);
+			ceSolver.setObjective(getObjective(solverName));
+			return ceSolver;
+		} else if (solverName.equalsIgnoreCase("ce-rm")) {
+			return new RegretMatchingCorrelatedEqmSolver<A>();
+		} else if (solverName.equalsIgnoreCase("fp")) {
+			return new FictitiousPlayNashSolver<A>();
+		} else if (solverName.equalsIgnoreCase("gambit")) {
+			return new BimatrixGambitSolver<A>();
+		} else if (solverName.equalsIgnoreCase("gambit-pool")) {
+			BimatrixGambitSolver<A> gambitSolver = new BimatrixGambitSolver<A>();
+			gambitSolver.setWorkerPool(new GambitWorkerPool(gambitSolver.getGambitCommand()));
+			return gambitSolver;
+		} else if (solverName.equalsIgnoreCase("nash")) {
+			return new BimatrixSupportEnumerationSolver<A>();
+		}
+		throw new IllegalArgumentException("Unknown solver: " + solverName);
+	}
+
+
+	/**
+	 * Creates a chain of the solvers in a comma-separated list of names.
+	 */
+	private static <A extends AbstractAction> FallbackNormalFormSolver<A> createFallbackSolver(String solverNames) {
+		List<NormalFormSolver<A>> solvers = new ArrayList<NormalFormSolver<A>>();
+		for (String name : solverNames.split(",")) {
+			solvers.add(NamedNormalFormSolverFactory.<A>createSolver(name.trim()));
+		}
+		return new FallbackNormalFormSolver<A>(solvers);
+	}
+
+
+	/**
+	 * Returns the solution concept of the named solver's solutions: correlated equilibria for
+	 * "ce..." solvers, except that only the distributions of libertarian ones are checked
+	 * (see VerifyingNormalFormSolver), none for coco (whose solutions are checked only for
+	 * consistent payoffs), and Nash equilibria for the rest. A fallback chain's solutions
+	 * are checked for the weakest of its solvers' concepts.
+	 */
+	public static SolutionConcept getSolutionConcept(String solverName) {
+		SolutionConcept solutionConcept = SolutionConcept.NASH;
+		for (String name : solverName.toLowerCase().split(",")) {
+			name = name.trim();
+			if (getObjective(name) == CorrelatedEqmSolver.Objective.LIBERTARIAN) {
+				return SolutionConcept.DISTRIBUTION;
+			} else if (name.startsWith("coco")) {
+				solutionConcept = SolutionConcept.NONE;
+			} else if (name.startsWith("ce") && solutionConcept == SolutionConcept.NASH) {
+				solutionConcept = SolutionConcept.CORRELATED_EQM;
+			}
+		}
+		return solutionConcept;
+	}
+
+
+	/**
+	 * Returns the correlated equilibrium objective named by a solver name like
+	 * "ce-egalitarian" or "ce-egalitarian-simplex", or null if there isn't one.
+	 */
+	private static CorrelatedEqmSolver.Objective getObjective(String solverName) {
+		String[] parts = solverName.split("-");
+		if (parts.length < 2) return null;
+		for (CorrelatedEqmSolver.Objective objective : CorrelatedEqmSolver.Objective.values()) {
+			if (objective.name().equalsIgnoreCase(parts[1])) {
+				return objective;
+			}
+		}
+		return null;
+	}
+
+}
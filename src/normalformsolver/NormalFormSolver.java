@@ -1,5 +1,10 @@
 package normalformsolver;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import props.DiscreteDistribution;
+import props.Joint;
 import sequentialgame.AbstractAction;
 import normalformgame.NormalFormGame;
 
@@ -17,5 +22,49 @@ import normalformgame.NormalFormGame;
 public interface NormalFormSolver<A extends AbstractAction> {
 	
 	public GameSolution<A> solve(NormalFormGame<A> normalFormGame);
-	
+
+	/**
+	 * Solves a game that was previously solved (e.g., the one-step game at the same
+	 * state in an earlier value iteration iteration), given the previous solution's
+	 * distribution over joint actions. Solvers that find several solutions can use it
+	 * to choose consistently between them (see EquilibriumSelector).
+	 * By default, the previous solution is ignored.
+	 * @param normalFormGame
+	 * @param previousJointActionDistribution the previous solution, or null if there is none.
+	 * @return
+	 */
+	public default GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		return solve(normalFormGame);
+	}
+
+	/**
+	 * Solves a batch of games, e.g., the one-step games at every state in one iteration of
+	 * value iteration. Solvers that can share work between games (or solve them at the
+	 * same time) override this; by default, the games are solved one at a time, in order.
+	 * @param normalFormGames
+	 * @param previousJointActionDistributions the previous solution for each game (see solve), 
+	 *   or null if there are none.
+	 * @return the solutions, in the same order as the games.
+	 */
+	public default List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		List<GameSolution<A>> solutions = new ArrayList<GameSolution<A>>();
+		for (int gameIdx=0; gameIdx<normalFormGames.size(); gameIdx++) {
+			DiscreteDistribution<Joint<A>> previousJointActionDistribution = (previousJointActionDistributions == null) ?
+					null : previousJointActionDistributions.get(gameIdx);
+			solutions.add(solve(normalFormGames.get(gameIdx), previousJointActionDistribution));
+		}
+		return solutions;
+	}
+
+	public default List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames) {
+		return solveAll(normalFormGames, null);
+	}
+
+	/**
+	 * Releases the solver's native resources (e.g., its CPLEX environment or gambit processes).
+	 * The solver can't be used afterwards. By default, there is nothing to release.
+	 */
+	public default void close() {
+	}
+
 }
@@ -0,0 +1,17 @@
+package normalformsolver;
+
+import sequentialgame.AbstractAction;
+
+/**
+ * Creates normal form solvers with the same configuration, e.g., one per thread
+ * (see NormalFormSolverPool).
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public interface NormalFormSolverFactory<A extends AbstractAction> {
+
+	public NormalFormSolver<A> createSolver();
+
+}
@@ -0,0 +1,115 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * A solver that can be called from several threads at the same time, by giving each
+ * thread its own solver from a factory. Most solvers can't be shared between threads:
+ * the LP-based ones each own a CPLEX model or simplex tableau, which they reuse from game
+ * to game, and the others keep buffers or statistics. So parallel value iteration, parallel
+ * simulation and batch solves can share one pool, and so one solver configuration.
+ *
+ * Each thread's solver is created the first time the thread uses the pool. The pool keeps
+ * track of every solver it creates, so that close can release their native resources
+ * (e.g., CPLEX environments) once the pool is no longer needed, even if their threads are gone.
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public class NormalFormSolverPool<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	private NormalFormSolverFactory<A> factory;
+	private ThreadLocal<NormalFormSolver<A>> threadSolver;
+	private List<NormalFormSolver<A>> solvers;
+	private boolean isClosed;
+
+	public NormalFormSolverPool(NormalFormSolverFactory<A> factory) {
+		this.factory = factory;
+		solvers = new ArrayList<NormalFormSolver<A>>();
+		threadSolver = new ThreadLocal<NormalFormSolver<A>>() {
+			@Override
+			protected NormalFormSolver<A> initialValue() {
+				return createSolver();
+			}
+		};
+	}
+
+
+	private synchronized NormalFormSolver<A> createSolver() {
+		if (isClosed) {
+			throw new IllegalStateException("The solver pool has been closed.");
+		}
+		NormalFormSolver<A> solver = factory.createSolver();
+		solvers.add(solver);
+		return solver;
+	}
+
+
+	/**
+	 * Returns the calling thread's solver, creating it if needed.
+	 * @return
+	 */
+	public NormalFormSolver<A> getSolver() {
+		NormalFormSolver<A> solver = threadSolver.get();
+		synchronized (this) {
+			if (isClosed) {
+				throw new IllegalStateException("The solver pool has been closed.");
+			}
+		}
+		return solver;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return getSolver().solve(normalFormGame);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		return getSolver().solve(normalFormGame, previousJointActionDistribution);
+	}
+
+
+	/**
+	 * Solves the games at the same time, one chunk per processor, each with
+	 * the solver of the thread that solves it.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		return SolverExecutor.solveAll(Collections.nCopies(SolverExecutor.getNumThreads(), this), normalFormGames, previousJointActionDistributions);
+	}
+
+
+	/**
+	 * Returns the number of solvers created so far (one per thread that has used the pool).
+	 * @return
+	 */
+	public synchronized int getNumSolvers() {
+		return solvers.size();
+	}
+
+
+	/**
+	 * Closes every solver the pool has created. The pool can't be used afterwards.
+	 */
+	@Override
+	public synchronized void close() {
+		if (isClosed) return;
+		isClosed = true;
+		for (NormalFormSolver<A> solver : solvers) {
+			solver.close();
+		}
+		solvers.clear();
+	}
+
+}
@@ -0,0 +1,93 @@
+package normalformsolver;
+
+/**
+ * The pivot steps shared by the Lemke-Howson engine and the simplex solver.
+ * Both spend nearly all their time in a rank-1 update of a dense matrix
+ * (each row minus a multiple of the pivot row), so that is written here once,
+ * as simple loops over whole rows with no per-element branches, which the JIT
+ * compiles to SIMD instructions where the hardware has them. (Versions written with
+ * the incubating Vector API were no faster, for sizes 5 to 200.) They are benchmarked
+ * against the original Lemke-Howson pivot in bench/normalformsolver/PivotKernelsBenchmark.
+ *
+ * Each kernel does the same floating-point operations, in the same order, as the
+ * loops it replaced, so results are unchanged.
+ *
+ * @author sodomka
+ *
+ */
+public class PivotKernels {
+
+	/**
+	 * row[j] -= factor * pivotRow[j], for j < length.
+	 */
+	public static void subtractMultiple(double[] row, double[] pivotRow, double factor, int length) {
+		for (int j=0; j<length; j++) {
+			row[j] -= factor * pivotRow[j];
+		}
+	}
+
+	/**
+	 * row[j] /= divisor, for j < length.
+	 */
+	public static void divide(double[] row, double divisor, int length) {
+		for (int j=0; j<length; j++) {
+			row[j] /= divisor;
+		}
+	}
+
+
+	/**
+	 * A Gauss-Jordan pivot on tableau[pivotRow][pivotColumn]: the pivot row is divided
+	 * by the pivot element, and a multiple of it is subtracted from every other row
+	 * so that the pivot column becomes a unit column.
+	 * @param tableau
+	 * @param numRows the number of rows to update, including the pivot row
+	 * @param numColumns the number of columns to update
+	 * @param pivotRow
+	 * @param pivotColumn
+	 */
+	public static void pivot(double[][] tableau, int numRows, int numColumns, int pivotRow, int pivotColumn) {
+		double[] pivotTableauRow = tableau[pivotRow];
+		divide(pivotTableauRow, pivotTableauRow[pivotColumn], numColumns);
+		for (int row=0; row<numRows; row++) {
+			if (row == pivotRow) continue;
+			double[] tableauRow = tableau[row];
+			double factor = tableauRow[pivotColumn];
+			if (factor == 0) continue;
+			subtractMultiple(tableauRow, pivotTableauRow, factor, numColumns);
+		}
+	}
+
+
+	/**
+	 * The pivot used by Lemke-Howson, for the system w = q + M z: basic variable r1
+	 * and nonbasic variable c1 swap places. (This is the update of the original
+	 * Lemke-Howson code's Pivot, done in place; see PivotKernelsBenchmark.referencePivot.)
+	 * Rows other than r1 are updated first, since they need row r1's old values.
+	 * Nothing is done if the pivot element is within epsilon of zero.
+	 * @param m the dim x dim matrix M
+	 * @param q
+	 * @param dim
+	 * @param r1
+	 * @param c1
+	 * @param epsilon
+	 */
+	public static void complementaryPivot(double[][] m, double[] q, int dim, int r1, int c1, double epsilon) {
+		double[] pivotRow = m[r1];
+		double pPoint = pivotRow[c1];
+		if (Math.abs(pPoint) <= epsilon) return;
+		double qRatio = q[r1]/pPoint;
+		for (int i=0; i<dim; i++) {
+			if (i == r1) continue;
+			double[] mRow = m[i];
+			double factor = mRow[c1]/pPoint;
+			q[i] = q[i] - qRatio*mRow[c1];
+			subtractMultiple(mRow, pivotRow, factor, dim);
+			mRow[c1] = factor;
+		}
+		q[r1] = -q[r1]/pPoint;
+		divide(pivotRow, -pPoint, dim);
+		pivotRow[c1] = 1.0/pPoint;
+	}
+
+}
@@ -0,0 +1,365 @@
+package normalformsolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * Finds approximate correlated equilibria by regret matching, in pure Java
+ * (an alternative to BimatrixCorrelatedEqmSolver, which solves an LP).
+ *
+ * Each player repeatedly plays a mixed strategy against the others' current strategies,
+ * and keeps, for each pair of its actions (j,k), its conditional regret: how much more
+ * it would have gotten by playing k whenever it played j. Its next strategy is the
+ * stationary distribution of the Markov chain that moves from j to k in proportion to
+ * the positive part of that regret. Then the players' conditional regrets grow sublinearly,
+ * so the average over iterations of the joint distributions played (the products of the
+ * players' strategies) approaches the set of correlated equilibria. Nothing is sampled,
+ * so the result is deterministic.
+ *
+ * The largest average conditional regret is exactly the amount by which the average
+ * joint distribution violates the correlated equilibrium constraints, i.e., the average
+ * is an epsilon-correlated equilibrium for epsilon equal to that gap. Iterations stop
+ * once the gap is at most the target gap, or after the maximum number of iterations,
+ * so the two trade off speed against accuracy.
+ *
+ * Games with any number of players can be solved (see solve(NormalFormGame, ...)).
+ *
+ * @author sodomka
+ *
+ */
+public class RegretMatchingCorrelatedEqmSolver<A extends AbstractAction> extends BimatrixNormalFormSolver<A> {
+
+	public static final int DEFAULT_MAX_ITERATIONS = 1000;
+	public static final double DEFAULT_TARGET_GAP = 1e-3;
+
+	/**
+	 * A power iteration for a stationary distribution stops once no probability
+	 * changes by more than this (or after MAX_POWER_ITERATIONS steps).
+	 */
+	private static final double STATIONARY_EPSILON = 1e-12;
+	private static final int MAX_POWER_ITERATIONS = 1000;
+
+	private int maxIterations;
+	private double targetGap;
+
+	/**
+	 * Totals over all games solved, for seeing how accurate the solutions are.
+	 */
+	private int numSolves;
+	private long totalIterations;
+	private double totalGap;
+	private double maxGap;
+
+
+	public RegretMatchingCorrelatedEqmSolver() {
+		this(DEFAULT_MAX_ITERATIONS, DEFAULT_TARGET_GAP);
+	}
+
+	/**
+	 * @param maxIterations the most iterations of regret matching per game
+	 * @param targetGap iterations stop once the solution is a targetGap-correlated equilibrium
+	 */
+	public RegretMatchingCorrelatedEqmSolver(int maxIterations, double targetGap) {
+		this.maxIterations = maxIterations;
+		this.targetGap = targetGap;
+	}
+
+
+	/**
+	 * Solves 2-player games as BimatrixNormalFormSolver does (so that the equilibrium
+	 * selector is used), and games with more players directly.
+	 */
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		int numPlayers = normalFormGame.getNumPlayers();
+		if (numPlayers == 2) {
+			return super.solve(normalFormGame, previousJointActionDistribution);
+		}
+
+		int[] numActions = new int[numPlayers];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numActions[playerIdx] = normalFormGame.getNumActionsForPlayer(playerIdx);
+		}
+		double[] payoffs = normalFormGame.getPayoffs();
+		double[] jointActionProbs = solveForCorrelatedEqm(numActions, payoffs);
+
+		DiscreteDistribution<Joint<A>> jointStrategy = new DiscreteDistribution<Joint<A>>();
+		double[] expectedPayoffs = new double[numPlayers];
+		for (Joint<A> jointAction : normalFormGame.getPossibleJointActions()) {
+			int jointActionIdx = normalFormGame.getJointActionIndex(jointAction);
+			double prob = jointActionProbs[jointActionIdx];
+			jointStrategy.add(jointAction, prob);
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				expectedPayoffs[playerIdx] += prob * payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+		}
+		Joint<Double> expectedPayoffsPerPlayer = new Joint<Double>();
+		Joint<Double> transferPayments = new Joint<Double>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			expectedPayoffsPerPlayer.add(expectedPayoffs[playerIdx]);
+			transferPayments.add(0.0);
+		}
+		return new UncorrelatedGameSolution<A>(normalFormGame, jointStrategy, expectedPayoffsPerPlayer, transferPayments);
+	}
+
+
+	@Override
+	public double[][] solve(double[][] player1Payoffs, double[][] player2Payoffs) {
+		int numPlayer1Actions = player1Payoffs.length;
+		int numPlayer2Actions = player1Payoffs[0].length;
+		double[] payoffs = new double[numPlayer1Actions * numPlayer2Actions * 2];
+		for (int a1=0; a1<numPlayer1Actions; a1++) {
+			for (int a2=0; a2<numPlayer2Actions; a2++) {
+				int jointActionIdx = a1 * numPlayer2Actions + a2;
+				payoffs[jointActionIdx * 2 + player1Idx] = player1Payoffs[a1][a2];
+				payoffs[jointActionIdx * 2 + player2Idx] = player2Payoffs[a1][a2];
+			}
+		}
+		double[] jointActionProbs = solveForCorrelatedEqm(new int[] {numPlayer1Actions, numPlayer2Actions}, payoffs);
+		double[][] jointActionProbMatrix = new double[numPlayer1Actions][numPlayer2Actions];
+		for (int a1=0; a1<numPlayer1Actions; a1++) {
+			System.arraycopy(jointActionProbs, a1 * numPlayer2Actions, jointActionProbMatrix[a1], 0, numPlayer2Actions);
+		}
+		return jointActionProbMatrix;
+	}
+
+
+	/**
+	 * Solves the games at the same time, one chunk per processor. (Solving keeps no state
+	 * besides the statistics and the equilibrium selector's, which are synchronized.)
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		return SolverExecutor.solveAll(Collections.nCopies(SolverExecutor.getNumThreads(), this), normalFormGames, previousJointActionDistributions);
+	}
+
+
+	private double[] solveForCorrelatedEqm(int[] numActions, double[] payoffs) {
+		double[] gapAndIterations = new double[2];
+		double[] jointActionProbs = solveForCorrelatedEqm(numActions, payoffs, maxIterations, targetGap, gapAndIterations);
+		synchronized (this) {
+			numSolves++;
+			totalGap += gapAndIterations[0];
+			maxGap = Math.max(maxGap, gapAndIterations[0]);
+			totalIterations += (long) gapAndIterations[1];
+		}
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Returns an approximate correlated equilibrium, as a probability for each joint action.
+	 * @param numActions the number of actions of each player
+	 * @param payoffs payoffs[jointActionIdx * numPlayers + playerIdx], where joint action indices
+	 *   are as in NormalFormGame (player 0's action is the most significant digit)
+	 * @param maxIterations
+	 * @param targetGap
+	 * @param gapAndIterations if not null, gets the solution's gap (the largest gain any
+	 *   player could get by deviating from some recommended action) and the number of iterations used
+	 * @return
+	 */
+	public static double[] solveForCorrelatedEqm(int[] numActions, double[] payoffs, int maxIterations, double targetGap, double[] gapAndIterations) {
+		int numPlayers = numActions.length;
+		int numJointActions = payoffs.length / numPlayers;
+
+		double[][] strategies = new double[numPlayers][];
+		double[][][] regrets = new double[numPlayers][][];
+		double[][] actionPayoffs = new double[numPlayers][];
+		// Buffers for updateStrategy, one per number of actions.
+		double[][][] transitionBuffers = new double[numPlayers][][];
+		double[][][] systemBuffers = new double[numPlayers][][];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			int n = numActions[playerIdx];
+			strategies[playerIdx] = new double[n];
+			for (int action=0; action<n; action++) {
+				strategies[playerIdx][action] = 1.0 / n;
+			}
+			regrets[playerIdx] = new double[n][n];
+			actionPayoffs[playerIdx] = new double[n];
+			transitionBuffers[playerIdx] = new double[n][n];
+			systemBuffers[playerIdx] = new double[n][n+1];
+		}
+		double[] jointActionProbs = new double[numJointActions];
+		int[] actions = new int[numPlayers];
+		double[] prefixProbs = new double[numPlayers+1];
+
+		double gap = Double.POSITIVE_INFINITY;
+		int iteration = 0;
+		while (iteration < maxIterations) {
+			iteration++;
+
+			// Add the product of the strategies to the running total, and get each player's
+			// expected payoff for each of its actions, given the other players' strategies.
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				Arrays.fill(actionPayoffs[playerIdx], 0);
+				actions[playerIdx] = 0;
+			}
+			prefixProbs[0] = 1;
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					prefixProbs[playerIdx+1] = prefixProbs[playerIdx] * strategies[playerIdx][actions[playerIdx]];
+				}
+				jointActionProbs[jointActionIdx] += prefixProbs[numPlayers];
+				double suffixProb = 1;
+				for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+					actionPayoffs[playerIdx][actions[playerIdx]] += prefixProbs[playerIdx] * suffixProb * payoffs[jointActionIdx * numPlayers + playerIdx];
+					suffixProb *= strategies[playerIdx][actions[playerIdx]];
+				}
+				// Move to the next joint action (the last player's action changes fastest).
+				for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+					if (++actions[playerIdx] < numActions[playerIdx]) break;
+					actions[playerIdx] = 0;
+				}
+			}
+
+			// Update the conditional regrets. Averaged over iterations, they are the gains from
+			// deviations under the average joint distribution, so their maximum is the gap.
+			gap = Double.NEGATIVE_INFINITY;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				double[] strategy = strategies[playerIdx];
+				double[] payoffPerAction = actionPayoffs[playerIdx];
+				for (int j=0; j<strategy.length; j++) {
+					double[] actionRegrets = regrets[playerIdx][j];
+					for (int k=0; k<strategy.length; k++) {
+						if (k == j) continue;
+						actionRegrets[k] += strategy[j] * (payoffPerAction[k] - payoffPerAction[j]);
+						gap = Math.max(gap, actionRegrets[k] / iteration);
+					}
+				}
+			}
+			gap = Math.max(gap, 0);
+			if (gap <= targetGap) break;
+
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				updateStrategy(strategies[playerIdx], regrets[playerIdx], transitionBuffers[playerIdx], systemBuffers[playerIdx]);
+			}
+		}
+
+		for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+			jointActionProbs[jointActionIdx] /= iteration;
+		}
+		if (gapAndIterations != null) {
+			gapAndIterations[0] = gap;
+			gapAndIterations[1] = iteration;
+		}
+		return jointActionProbs;
+	}
+
+
+	/**
+	 * Sets the strategy to a stationary distribution of the Markov chain that moves from
+	 * action j to action k with probability proportional to the positive part of regrets[j][k].
+	 * If there are no positive regrets, the strategy is left as it is.
+	 * The transition matrix (n x n) and linear system (n x n+1) are overwritten.
+	 */
+	private static void updateStrategy(double[] strategy, double[][] regrets, double[][] transitions, double[][] system) {
+		int n = strategy.length;
+		double normalizer = 0;
+		for (int j=0; j<n; j++) {
+			double rowSum = 0;
+			for (int k=0; k<n; k++) {
+				if (k != j) rowSum += Math.max(regrets[j][k], 0);
+			}
+			normalizer = Math.max(normalizer, rowSum);
+		}
+		if (normalizer == 0) return;
+		for (int j=0; j<n; j++) {
+			double rowSum = 0;
+			for (int k=0; k<n; k++) {
+				if (k == j) continue;
+				transitions[j][k] = Math.max(regrets[j][k], 0) / normalizer;
+				rowSum += transitions[j][k];
+			}
+			transitions[j][j] = 1 - rowSum;
+		}
+
+		// Solve q = qP, with the last equation replaced by sum(q) = 1.
+		for (int k=0; k<n-1; k++) {
+			for (int j=0; j<n; j++) {
+				system[k][j] = transitions[j][k] - ((j == k) ? 1 : 0);
+			}
+			system[k][n] = 0;
+		}
+		for (int j=0; j<n; j++) {
+			system[n-1][j] = 1;
+		}
+		system[n-1][n] = 1;
+		double[] stationary = BimatrixSupportEnumerationSolver.solveLinearSystem(system);
+
+		// If the chain has several stationary distributions (e.g., when two actions are
+		// duplicates), find one from the current strategy with a lazy power iteration.
+		if (stationary == null) {
+			stationary = strategy.clone();
+			double[] next = new double[n];
+			for (int step=0; step<MAX_POWER_ITERATIONS; step++) {
+				double change = 0;
+				for (int k=0; k<n; k++) {
+					double prob = 0;
+					for (int j=0; j<n; j++) {
+						prob += stationary[j] * transitions[j][k];
+					}
+					next[k] = (stationary[k] + prob) / 2;
+					change = Math.max(change, Math.abs(next[k] - stationary[k]));
+				}
+				System.arraycopy(next, 0, stationary, 0, n);
+				if (change <= STATIONARY_EPSILON) break;
+			}
+		}
+
+		double total = 0;
+		for (int k=0; k<n; k++) {
+			stationary[k] = Math.max(stationary[k], 0);
+			total += stationary[k];
+		}
+		for (int k=0; k<n; k++) {
+			strategy[k] = stationary[k] / total;
+		}
+	}
+
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double getTargetGap() {
+		return targetGap;
+	}
+
+	public void setTargetGap(double targetGap) {
+		this.targetGap = targetGap;
+	}
+
+	/**
+	 * Returns the largest gap of any game solved so far (see solveForCorrelatedEqm).
+	 * @return
+	 */
+	public synchronized double getMaxGap() {
+		return maxGap;
+	}
+
+	public synchronized double getAverageGap() {
+		return (numSolves == 0) ? 0 : totalGap / numSolves;
+	}
+
+	public synchronized double getAverageIterations() {
+		return (numSolves == 0) ? 0 : (double) totalIterations / numSolves;
+	}
+
+	public synchronized void resetStatistics() {
+		numSolves = 0;
+		totalIterations = 0;
+		totalGap = 0;
+		maxGap = 0;
+	}
+
+}
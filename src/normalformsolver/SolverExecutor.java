@@ -0,0 +1,154 @@
+package normalformsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * Runs the batch solves of the normal form solvers (see NormalFormSolver.solveAll).
+ * Games are solved in order of their numbers of actions, so that solvers that
+ * build a model per game size (e.g., the LP-based ones) rebuild it as little as possible,
+ * and are split into contiguous chunks, one per solver given, which are solved at
+ * the same time on a shared pool of daemon threads. A solver that can solve several
+ * games at once can be given more than once; otherwise each chunk needs its own solver.
+ *
+ * @author sodomka
+ *
+ */
+class SolverExecutor {
+
+	private static ExecutorService executor;
+
+	/**
+	 * The number of games that can usefully be solved at the same time.
+	 * @return
+	 */
+	static int getNumThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(getNumThreads(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "normal-form-solver");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+
+	/**
+	 * Solves the games with the given solvers, returning the solutions in the same order as the games.
+	 * The first chunk is solved on the calling thread. A chunk that fails on the pool is solved
+	 * again on the calling thread once its task has finished. If the calling thread is interrupted
+	 * while waiting, the chunks that haven't finished are cancelled and a CancellationException is
+	 * thrown (with the thread's interrupt status kept), since their solvers may still be in use.
+	 * @param solvers one per chunk; there are at most as many chunks as games.
+	 * @param normalFormGames
+	 * @param previousJointActionDistributions the previous solution for each game (as in NormalFormSolver.solve),
+	 *   or null if there are none.
+	 * @return
+	 */
+	static <A extends AbstractAction> List<GameSolution<A>> solveAll(List<? extends NormalFormSolver<A>> solvers,
+			final List<NormalFormGame<A>> normalFormGames, final List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		int numGames = normalFormGames.size();
+		final Integer[] gameOrder = getGameOrder(normalFormGames);
+		final List<GameSolution<A>> solutions = new ArrayList<GameSolution<A>>(Collections.<GameSolution<A>>nCopies(numGames, null));
+
+		int numChunks = Math.max(1, Math.min(solvers.size(), numGames));
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int chunkIdx=1; chunkIdx<numChunks; chunkIdx++) {
+			final NormalFormSolver<A> solver = solvers.get(chunkIdx);
+			final int start = chunkIdx * numGames / numChunks;
+			final int end = (chunkIdx+1) * numGames / numChunks;
+			futures.add(getExecutor().submit(new Runnable() {
+				@Override
+				public void run() {
+					solveChunk(solver, normalFormGames, previousJointActionDistributions, gameOrder, start, end, solutions);
+				}
+			}));
+		}
+		solveChunk(solvers.get(0), normalFormGames, previousJointActionDistributions, gameOrder, 0, numGames / numChunks, solutions);
+		for (int chunkIdx=1; chunkIdx<numChunks; chunkIdx++) {
+			try {
+				futures.get(chunkIdx-1).get();
+				continue;
+			} catch (InterruptedException e) {
+				for (Future<?> future : futures) {
+					future.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				CancellationException cancellationException = new CancellationException("Interrupted while solving games.");
+				cancellationException.initCause(e);
+				throw cancellationException;
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+			// Solve the chunk here if it failed on the pool.
+			int start = chunkIdx * numGames / numChunks;
+			int end = (chunkIdx+1) * numGames / numChunks;
+			solveChunk(solvers.get(chunkIdx), normalFormGames, previousJointActionDistributions, gameOrder, start, end, solutions);
+		}
+		return solutions;
+	}
+
+
+	/**
+	 * Solves the games at positions start..end-1 of the game order. Each chunk sets different
+	 * elements of the solution list, whose size doesn't change, so no locking is needed.
+	 */
+	private static <A extends AbstractAction> void solveChunk(NormalFormSolver<A> solver,
+			List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions,
+			Integer[] gameOrder, int start, int end, List<GameSolution<A>> solutions) {
+		for (int orderIdx=start; orderIdx<end; orderIdx++) {
+			int gameIdx = gameOrder[orderIdx];
+			DiscreteDistribution<Joint<A>> previousJointActionDistribution = (previousJointActionDistributions == null) ?
+					null : previousJointActionDistributions.get(gameIdx);
+			solutions.set(gameIdx, solver.solve(normalFormGames.get(gameIdx), previousJointActionDistribution));
+		}
+	}
+
+
+	/**
+	 * Returns the game indices sorted by the games' numbers of actions per player (and otherwise left in order).
+	 */
+	private static <A extends AbstractAction> Integer[] getGameOrder(final List<NormalFormGame<A>> normalFormGames) {
+		Integer[] gameOrder = new Integer[normalFormGames.size()];
+		for (int gameIdx=0; gameIdx<gameOrder.length; gameIdx++) {
+			gameOrder[gameIdx] = gameIdx;
+		}
+		Arrays.sort(gameOrder, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer gameIdx1, Integer gameIdx2) {
+				NormalFormGame<A> game1 = normalFormGames.get(gameIdx1);
+				NormalFormGame<A> game2 = normalFormGames.get(gameIdx2);
+				int numPlayers = Math.min(game1.getNumPlayers(), game2.getNumPlayers());
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					int difference = game1.getNumActionsForPlayer(playerIdx) - game2.getNumActionsForPlayer(playerIdx);
+					if (difference != 0) return difference;
+				}
+				return game1.getNumPlayers() - game2.getNumPlayers();
+			}
+		});
+		return gameOrder;
+	}
+
+}
@@ -0,0 +1,337 @@
+package normalformsolver;
+
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.AbstractAction;
+
+/**
+ * A solver that checks a sample of another solver's solutions (see EquilibriumVerifier).
+ * A checked solution violates its solution concept if some player gains more than the
+ * tolerance by deviating from it, or if its expected payoffs without transfers don't match
+ * its joint action distribution (within the tolerance). Violations are counted and the first
+ * few are reported; solutions are returned unchanged either way.
+ *
+ * The tolerance allows for round-off, so it is relative to the size of the game's payoffs
+ * (the largest absolute payoff, or 1 if that is smaller; see EquilibriumVerifier.getPayoffScale),
+ * and the same tolerance works for games whose payoffs are in the hundreds and for games
+ * whose payoffs are near 1. (The joint action probabilities of SolutionConcept.DISTRIBUTION
+ * are compared with the tolerance itself.) An approximate solver's solutions are also
+ * allowed to miss an equilibrium by the solver's own target (see getTarget), which is
+ * absolute, as the solver's is, and is measured the way the solver measures it: for Nash
+ * equilibria, the total of the players' deviation gains (fictitious play's exploitability),
+ * and for correlated equilibria, the largest violation (regret matching's gap). So its
+ * solutions are only violations when it stopped (at its iteration or time budget) before
+ * reaching its target.
+ *
+ * Checking a solution takes one pass over the game's joint actions per player, which is
+ * much less than solving the game, and only a fraction of the solutions are checked
+ * (every (1/sampleFraction)th one, so the sample is spread evenly), so this can be left
+ * on in long runs.
+ *
+ * Coco solutions aren't equilibria (the players are paid to cooperate), so only the
+ * payoffs of those should be checked (SolutionConcept.NONE). Libertarian correlated
+ * equilibria (see CorrelatedEqmSolver.Objective) are neither: the players follow different
+ * equilibria, so their joint action distribution needn't be an equilibrium, and each player's
+ * payoff is from its own equilibrium rather than from that distribution. Only their
+ * distributions can be checked (SolutionConcept.DISTRIBUTION).
+ *
+ * @author sodomka
+ *
+ * @param <A>
+ */
+public class VerifyingNormalFormSolver<A extends AbstractAction> implements NormalFormSolver<A> {
+
+	public static final double DEFAULT_SAMPLE_FRACTION = .1;
+	public static final double DEFAULT_TOLERANCE = 1e-6;
+
+	/**
+	 * Only this many violations are printed; the rest are just counted.
+	 */
+	private static final int MAX_REPORTED_VIOLATIONS = 10;
+
+	public enum SolutionConcept {
+		/** Checks that no player gains by always playing one of its actions instead. */
+		NASH,
+		/** Checks that no player gains by replacing a recommended action with another. */
+		CORRELATED_EQM,
+		/** Only checks the payoffs. */
+		NONE,
+		/** Only checks that the joint action probabilities sum to 1. */
+		DISTRIBUTION
+	}
+
+	private NormalFormSolver<A> solver;
+	private SolutionConcept solutionConcept;
+	private double sampleFraction;
+	private double tolerance;
+	private double target;
+
+	/**
+	 * Grows by the sample fraction with each solution; a solution is checked whenever it reaches 1.
+	 */
+	private double sampleCredit;
+
+	private int numSolved;
+	private int numChecked;
+	private int numViolations;
+	private double maxDeviationGain;
+	private double maxPayoffError;
+	private long totalCheckNanos;
+
+
+	public VerifyingNormalFormSolver(NormalFormSolver<A> solver, SolutionConcept solutionConcept) {
+		this(solver, solutionConcept, DEFAULT_SAMPLE_FRACTION, DEFAULT_TOLERANCE);
+	}
+
+	/**
+	 * @param solver the solver whose solutions are checked
+	 * @param solutionConcept what the solutions should be
+	 * @param sampleFraction the fraction of solutions to check, from 0 (none) to 1 (all)
+	 * @param tolerance the largest deviation gain or payoff error that isn't a violation,
+	 *        as a fraction of the game's payoff scale
+	 */
+	public VerifyingNormalFormSolver(NormalFormSolver<A> solver, SolutionConcept solutionConcept, double sampleFraction, double tolerance) {
+		this(solver, solutionConcept, sampleFraction, tolerance, getTarget(solver));
+	}
+
+	/**
+	 * @param solver the solver whose solutions are checked
+	 * @param solutionConcept what the solutions should be
+	 * @param sampleFraction the fraction of solutions to check, from 0 (none) to 1 (all)
+	 * @param tolerance the largest deviation gain or payoff error that isn't a violation,
+	 *        as a fraction of the game's payoff scale
+	 * @param target the solver's target (see getTarget), or 0 for none
+	 */
+	public VerifyingNormalFormSolver(NormalFormSolver<A> solver, SolutionConcept solutionConcept, double sampleFraction, double tolerance, double target) {
+		this.solver = solver;
+		this.solutionConcept = solutionConcept;
+		this.sampleFraction = sampleFraction;
+		this.tolerance = tolerance;
+		this.target = target;
+	}
+
+
+	/**
+	 * Returns how far from an equilibrium the solver's solutions may be: the target of an
+	 * approximate solver (the loosest target, for a fallback chain, and the calling thread's
+	 * solver's, for a pool), and 0 for an exact solver.
+	 * @param solver
+	 * @return
+	 */
+	public static double getTarget(NormalFormSolver<?> solver) {
+		if (solver instanceof FictitiousPlayNashSolver) {
+			return ((FictitiousPlayNashSolver<?>) solver).getTargetExploitability();
+		} else if (solver instanceof RegretMatchingCorrelatedEqmSolver) {
+			return ((RegretMatchingCorrelatedEqmSolver<?>) solver).getTargetGap();
+		} else if (solver instanceof FallbackNormalFormSolver) {
+			double target = 0;
+			for (NormalFormSolver<?> fallbackSolver : ((FallbackNormalFormSolver<?>) solver).getSolvers()) {
+				target = Math.max(target, getTarget(fallbackSolver));
+			}
+			return target;
+		} else if (solver instanceof NormalFormSolverPool) {
+			return getTarget(((NormalFormSolverPool<?>) solver).getSolver());
+		}
+		return 0;
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame) {
+		return solve(normalFormGame, null);
+	}
+
+
+	@Override
+	public GameSolution<A> solve(NormalFormGame<A> normalFormGame, DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		GameSolution<A> solution = solver.solve(normalFormGame, previousJointActionDistribution);
+		if (isSampled()) {
+			check(normalFormGame, solution);
+		}
+		return solution;
+	}
+
+
+	/**
+	 * Passes the games to the solver's solveAll, so that a solver that solves batches
+	 * in parallel still can, and then checks a sample of the solutions.
+	 */
+	@Override
+	public List<GameSolution<A>> solveAll(List<NormalFormGame<A>> normalFormGames, List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions) {
+		List<GameSolution<A>> solutions = solver.solveAll(normalFormGames, previousJointActionDistributions);
+		for (int gameIdx=0; gameIdx<normalFormGames.size(); gameIdx++) {
+			if (isSampled()) {
+				check(normalFormGames.get(gameIdx), solutions.get(gameIdx));
+			}
+		}
+		return solutions;
+	}
+
+
+	/**
+	 * Counts a solution, and returns whether it should be checked.
+	 */
+	private synchronized boolean isSampled() {
+		numSolved++;
+		sampleCredit += sampleFraction;
+		if (sampleCredit < 1) return false;
+		sampleCredit -= 1;
+		return true;
+	}
+
+
+	/**
+	 * Checks the solution, returning whether it violates the solution concept.
+	 * (With SolutionConcept.DISTRIBUTION, the payoff error is how far the joint action
+	 * probabilities' total is from 1, which isn't scaled.)
+	 * @param normalFormGame
+	 * @param solution
+	 * @return
+	 */
+	public boolean check(NormalFormGame<A> normalFormGame, GameSolution<A> solution) {
+		long startTime = System.nanoTime();
+		double deviationGain = Double.POSITIVE_INFINITY;
+		double payoffError = Double.POSITIVE_INFINITY;
+		double targetGain = Double.POSITIVE_INFINITY;
+		double payoffScale = 1;
+		if (solution != null && solution.getJointActionDistribution() != null) {
+			double[] jointActionProbs = EquilibriumVerifier.getJointActionProbs(normalFormGame, solution.getJointActionDistribution());
+			int[] numActions = EquilibriumVerifier.getNumActions(normalFormGame);
+			double[] payoffs = normalFormGame.getPayoffs();
+			payoffScale = EquilibriumVerifier.getPayoffScale(payoffs);
+			switch (solutionConcept) {
+			case NASH:
+				deviationGain = EquilibriumVerifier.getMaxDeviationGain(numActions, payoffs, jointActionProbs);
+				if (target > 0 && deviationGain > tolerance * payoffScale) {
+					targetGain = EquilibriumVerifier.getTotalDeviationGain(numActions, payoffs, jointActionProbs);
+				}
+				break;
+			case CORRELATED_EQM:
+				deviationGain = EquilibriumVerifier.getMaxCorrelatedEqmViolation(numActions, payoffs, jointActionProbs);
+				targetGain = deviationGain;
+				break;
+			default:
+				deviationGain = 0;
+			}
+			if (solutionConcept == SolutionConcept.DISTRIBUTION) {
+				payoffError = EquilibriumVerifier.getTotalProbError(jointActionProbs);
+				payoffScale = 1;
+			} else {
+				payoffError = EquilibriumVerifier.getMaxPayoffError(normalFormGame, solution, jointActionProbs);
+			}
+		}
+		double scaledTolerance = tolerance * payoffScale;
+		boolean isNearEquilibrium = deviationGain <= scaledTolerance || (target > 0 && targetGain <= target);
+		boolean isViolation = !(isNearEquilibrium && payoffError <= scaledTolerance);
+		synchronized (this) {
+			numChecked++;
+			maxDeviationGain = Math.max(maxDeviationGain, deviationGain);
+			maxPayoffError = Math.max(maxPayoffError, payoffError);
+			totalCheckNanos += System.nanoTime() - startTime;
+			if (isViolation) {
+				numViolations++;
+				if (numViolations <= MAX_REPORTED_VIOLATIONS) {
+					System.err.println(solver.getClass().getSimpleName() + " solution isn't a " + solutionConcept
+							+ " solution: deviation gain=" + deviationGain + ", payoff error=" + payoffError
+							+ ", tolerance=" + scaledTolerance + ", target=" + target);
+				}
+			}
+		}
+		return isViolation;
+	}
+
+
+	public NormalFormSolver<A> getSolver() {
+		return solver;
+	}
+
+	public SolutionConcept getSolutionConcept() {
+		return solutionConcept;
+	}
+
+	public double getSampleFraction() {
+		return sampleFraction;
+	}
+
+	public synchronized void setSampleFraction(double sampleFraction) {
+		this.sampleFraction = sampleFraction;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public synchronized void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	public double getTarget() {
+		return target;
+	}
+
+	public synchronized void setTarget(double target) {
+		this.target = target;
+	}
+
+	public synchronized int getNumSolved() {
+		return numSolved;
+	}
+
+	public synchronized int getNumChecked() {
+		return numChecked;
+	}
+
+	public synchronized int getNumViolations() {
+		return numViolations;
+	}
+
+	/**
+	 * Returns the largest deviation gain of any solution checked so far.
+	 * @return
+	 */
+	public synchronized double getMaxDeviationGain() {
+		return maxDeviationGain;
+	}
+
+	/**
+	 * Returns the largest payoff error of any solution checked so far.
+	 * @return
+	 */
+	public synchronized double getMaxPayoffError() {
+		return maxPayoffError;
+	}
+
+	/**
+	 * Returns the average time spent checking a solution, in nanoseconds.
+	 * @return
+	 */
+	public synchronized double getAverageCheckNanos() {
+		return (numChecked == 0) ? 0 : (double) totalCheckNanos / numChecked;
+	}
+
+	public synchronized void resetStatistics() {
+		sampleCredit = 0;
+		numSolved = 0;
+		numChecked = 0;
+		numViolations = 0;
+		maxDeviationGain = 0;
+		maxPayoffError = 0;
+		totalCheckNanos = 0;
+	}
+
+	@Override
+	public void close() {
+		solver.close();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return solver.getClass().getSimpleName() + " (" + solutionConcept + "): solved=" + numSolved
+				+ ", checked=" + numChecked + ", violations=" + numViolations
+				+ ", maxDeviationGain=" + maxDeviationGain + ", maxPayoffError=" + maxPayoffError;
+	}
+
+}
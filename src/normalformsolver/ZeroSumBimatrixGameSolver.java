@@ -3,6 +3,7 @@ package normalformsolver;
 import ilog.concert.IloException;
 import ilog.concert.IloLinearNumExpr;
 import ilog.concert.IloNumVar;
+import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
 
 /**
@@ -13,81 +14,241 @@ import ilog.cplex.IloCplex;
  */
 public class ZeroSumBimatrixGameSolver {
 
-	IloCplex cplex;
+	/**
+	 * The CPLEX model, which is kept in its own class so that the CPLEX classes
+	 * are only loaded when the CPLEX backend is used.
+	 */
+	private CplexMinimaxModel cplexModel;
+
+	private LpBackend lpBackend;
+
+	/**
+	 * Buffers for the simplex backend's LP, reused while the game size stays the same.
+	 */
+	private DenseSimplexSolver simplexSolver;
+	private double[][] constraintCoefficients;
+	private int[] constraintTypes;
+	private double[] rhs;
+	private double[] objectiveCoefficients;
 	
 	public ZeroSumBimatrixGameSolver() {
-		try {
-			cplex = new IloCplex();
-			cplex.setOut(null); // suppress output
-		} catch (IloException e) {
-			e.printStackTrace();
-		}
+		this(LpBackend.DEFAULT);
+	}
 
+	public ZeroSumBimatrixGameSolver(LpBackend lpBackend) {
+		this.lpBackend = lpBackend;
+		if (lpBackend == LpBackend.SIMPLEX) {
+			simplexSolver = new DenseSimplexSolver();
+			return;
+		}
+		cplexModel = new CplexMinimaxModel();
 	}
 	
 	
 	public double solveForMinimaxValue(double[][] player1Payoffs) {
+		if (lpBackend == LpBackend.SIMPLEX) {
+			return solveForMinimaxValueWithSimplex(player1Payoffs);
+		}
 		
+		return cplexModel.solveForMinimaxValue(player1Payoffs);
+	}
+
+
+	/**
+	 * Releases the CPLEX environment, if there is one. The solver can't be used afterwards.
+	 */
+	public void close() {
+		if (cplexModel != null) {
+			cplexModel.close();
+		}
+	}
+
+
+	/**
+	 * Returns the game's value without solving an LP if it has a pure saddle point, i.e., its
+	 * largest row minimum equals its smallest column maximum, or if it's 2x2; otherwise returns NaN.
+	 * (A 2x2 game without a saddle point has a completely mixed equilibrium, in which each player
+	 * makes the other indifferent between its two actions.)
+	 * @param player1Payoffs
+	 * @param maxRowMinimum the largest of the rows' smallest payoffs
+	 * @param minColumnMaximum the smallest of the columns' largest payoffs
+	 * @return
+	 */
+	public static double solveForMinimaxValueInClosedForm(double[][] player1Payoffs, double maxRowMinimum, double minColumnMaximum) {
+		if (maxRowMinimum == minColumnMaximum) {
+			return maxRowMinimum;
+		}
+		if (player1Payoffs.length == 2 && player1Payoffs[0].length == 2) {
+			double a = player1Payoffs[0][0], b = player1Payoffs[0][1];
+			double c = player1Payoffs[1][0], d = player1Payoffs[1][1];
+			return (a*d - b*c) / (a + d - b - c);
+		}
+		return Double.NaN;
+	}
+
+
+	/**
+	 * Solves the same LP as solveForMinimaxValue with the simplex backend.
+	 * The simplex solver's variables must be nonnegative, so payoffs are shifted
+	 * to be nonnegative (making the game's value, z, nonnegative too), and shifted back afterwards.
+	 * Variables are (p1Probs[0..m-1], z); for each opponent action j, 
+	 * z - sum_i payoff[i][j]*p1Probs[i] <= 0.
+	 */
+	private double solveForMinimaxValueWithSimplex(double[][] player1Payoffs) {
 		int m = player1Payoffs.length; // num player 1 actions
 		int n = player1Payoffs[0].length; // num player 2 actions
+		int numVariables = m+1;
+		int zIdx = m;
+		if (rhs == null || rhs.length != n+1 || objectiveCoefficients.length != numVariables) {
+			constraintCoefficients = new double[n+1][numVariables];
+			constraintTypes = new int[n+1];
+			rhs = new double[n+1];
+			objectiveCoefficients = new double[numVariables];
+		}
+
+		double minPayoff = Double.POSITIVE_INFINITY;
+		for (int i=0; i<m; i++) {
+			for (int j=0; j<n; j++) {
+				minPayoff = Math.min(minPayoff, player1Payoffs[i][j]);
+			}
+		}
+		double shift = Math.max(0, -minPayoff);
+
+		for (int j=0; j<n; j++) {
+			for (int i=0; i<m; i++) {
+				constraintCoefficients[j][i] = -(player1Payoffs[i][j] + shift);
+			}
+			constraintCoefficients[j][zIdx] = 1;
+			constraintTypes[j] = DenseSimplexSolver.LESS_THAN_OR_EQUAL;
+			rhs[j] = 0;
+		}
+		// Probs must sum to 1.
+		for (int i=0; i<m; i++) {
+			constraintCoefficients[n][i] = 1;
+		}
+		constraintCoefficients[n][zIdx] = 0;
+		constraintTypes[n] = DenseSimplexSolver.EQUAL;
+		rhs[n] = 1;
+		// Maximize z.
+		objectiveCoefficients[zIdx] = 1;
+
+		int status = simplexSolver.maximize(constraintCoefficients, constraintTypes, rhs, objectiveCoefficients);
+		if (status != DenseSimplexSolver.OPTIMAL) {
+			System.err.println("Simplex solver failed to find minimax value; status=" + status);
+			return Double.NaN;
+		}
+		return simplexSolver.getObjectiveValue() - shift;
+	}
+
+
+	/**
+	 * The CPLEX model for the last game size solved (see buildMinimaxModel).
+	 */
+	private static class CplexMinimaxModel {
+		private IloCplex cplex;
+		private int modelNumP1Actions = -1;
+		private int modelNumP2Actions = -1;
+		private IloNumVar z;
+		private IloNumVar[] p1Probs;
+		private IloRange[] opponentActionConstraints;
+		private double[] payoffBuffer;
+
+		public CplexMinimaxModel() {
+			try {
+				cplex = new IloCplex();
+				cplex.setOut(null); // suppress output
+				cplex.setParam(IloCplex.IntParam.AdvInd, 1); // warm start from the previous basis
+			} catch (IloException e) {
+				e.printStackTrace();
+			}
+		}
+
+		public void close() {
+			if (cplex != null) {
+				cplex.end();
+			}
+		}
+
+		public double solveForMinimaxValue(double[][] player1Payoffs) {
+			int m = player1Payoffs.length; // num player 1 actions
+			int n = player1Payoffs[0].length; // num player 2 actions
 		
-		double minZ = -1000;
-		double maxZ = 1000;
-		
-		try {
-			cplex.clearModel();
-			IloNumVar z = cplex.numVar(minZ, maxZ);
-			IloNumVar[] p1Probs = cplex.numVarArray(m, 0, 1);
+			try {
+				if (m != modelNumP1Actions || n != modelNumP2Actions) {
+					buildMinimaxModel(m, n);
+				}
+
+				// For each possible opponent action, set the coefficients of the expected payoff 
+				// when opponent plays that action (which must be at least z).
+				for (int j=0; j<n; j++) {
+					for (int i=0; i<m; i++) {
+						payoffBuffer[i] = player1Payoffs[i][j];
+					}
+					cplex.setLinearCoefs(opponentActionConstraints[j], payoffBuffer, p1Probs);
+				}
 			
+				// CPLEX starts from the previous call's basis, since only coefficients have changed.
+				if ( cplex.solve() ) {
+					cplex.output().println("Solution status = " + cplex.getStatus());
+					cplex.output().println("Solution value = " + cplex.getObjValue());
+					cplex.output().println("Objective function = " + cplex.getObjective());
+
+					double objectiveVal = cplex.getObjValue();
+					return objectiveVal;
+				}			
+			} catch (IloException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+				
+			return Double.NaN;
+		}
+
+
+		/**
+		 * Builds the CPLEX model for m x n games. Its structure only depends on the game size,
+		 * so it's built once and reused for every game of that size; solveForMinimaxValue only 
+		 * changes the payoff coefficients. The constraint for each opponent action is 
+		 * created as -z >= 0, with no payoff terms.
+		 */
+		private void buildMinimaxModel(int m, int n) throws IloException {
+			double minZ = -1000;
+			double maxZ = 1000;
+
+			cplex.clearModel();
+			z = cplex.numVar(minZ, maxZ);
+			p1Probs = cplex.numVarArray(m, 0, 1);
+		
 			// ADD OBJECTIVE:
 			// Maximize our expected payoffs
 			cplex.addMaximize(z);
-			
-			// For each possible opponent action,
+		
+			// For each possible opponent action, add constraint saying total expected 
+			// payoffs are at least z.
+			opponentActionConstraints = new IloRange[n];
 			for (int j=0; j<n; j++) {
-				// Compute expected payoff when opponent plays that action
-				IloLinearNumExpr expectedPayoffGivenOpponentAction = cplex.linearNumExpr();
-				for (int i=0; i<m; i++) {
-					expectedPayoffGivenOpponentAction.addTerm(player1Payoffs[i][j], p1Probs[i]);
-				}
-				// Add constraint saying total expected payoffs are at least this high.
-				cplex.addGe(expectedPayoffGivenOpponentAction, z);
+				IloLinearNumExpr expectedPayoffMinusZ = cplex.linearNumExpr();
+				expectedPayoffMinusZ.addTerm(-1, z);
+				opponentActionConstraints[j] = cplex.addGe(expectedPayoffMinusZ, 0);
 			}
-			
+		
 			// Probs must sum to 1.
 			IloLinearNumExpr sumProbs = cplex.linearNumExpr();
 			for (int i=0; i<m; i++) {
 				sumProbs.addTerm(1, p1Probs[i]);
 			}
 			cplex.addEq(1, sumProbs);
-			
+		
 			// Each prob must be nonnegative
 			for (int i=0; i<m; i++) {
 				cplex.addGe(p1Probs[i], 0);
 			}
-			
-			if ( cplex.solve() ) {
-				cplex.output().println("Solution status = " + cplex.getStatus());
-				cplex.output().println("Solution value = " + cplex.getObjValue());
-				cplex.output().println("Objective function = " + cplex.getObjective());
-
-				double objectiveVal = cplex.getObjValue();
-				return objectiveVal;
-
-//				//Create double array to return
-//				for (int a=0; a<numAgents; a++) {
-//					for (int s=0; s<=a; s++) {
-//						I_a_sDouble[a][s] = cplex.getValue(I_a_s[a][s]);
-//					}
-//				}
-
-			}			
-		} catch (IloException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+
+			payoffBuffer = new double[m];
+			modelNumP1Actions = m;
+			modelNumP2Actions = n;
 		}
-				
-		return Double.NaN;
-	}
 	
+	}
+
 }
@@ -32,6 +32,20 @@ public interface SequentialGame<S extends AbstractState, A extends AbstractActio
 	public Joint<Double> getImmediateRewards(S state, Joint<A> jointAction, S nextState);
 	
 	public S getStartingState();
+
+	/**
+	 * Returns the classes of equivalent actions of a player at a state, if the game knows them.
+	 * Two actions are equivalent if swapping one for the other never changes the next state
+	 * distribution or any player's rewards, whatever the other players do, so stage games
+	 * can be solved with only one action from each class (see MultiAgentValueIteration).
+	 * @param state
+	 * @param playerIdx
+	 * @return for each of the player's actions (in getPossibleActionsForPlayer order), the index
+	 *   of the first action equivalent to it, or null if no equivalences are known
+	 */
+	public default int[] getActionEquivalenceClasses(S state, int playerIdx) {
+		return null;
+	}
 	
 	
 }
@@ -1,8 +1,11 @@
 package sequentialgame.grid;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +33,12 @@ public class GridGame implements SequentialGame<GridState, GridAction> {
 	
 	List<GridState> possibleStates;
 	List<Joint<GridAction>> possibleJointActions;
+
+	/**
+	 * For each occupiable position, the index of the first action equivalent to each
+	 * allowable action there (see getActionEquivalenceClasses).
+	 */
+	Map<Position, int[]> actionEquivalenceClassesPerPosition;
 	
 	
 	public GridGame(int numPlayers, Board staticBoard) {
@@ -37,6 +46,7 @@ public class GridGame implements SequentialGame<GridState, GridAction> {
 		this.staticBoard = staticBoard;
 		possibleStates = computePossibleStates(staticBoard, numPlayers);
 		possibleJointActions = computePossibleJointActions(staticBoard.getAllowableActions(), numPlayers);		
+		actionEquivalenceClassesPerPosition = computeActionEquivalenceClasses(staticBoard);
 	}
 	
 	/**
@@ -80,6 +90,38 @@ public class GridGame implements SequentialGame<GridState, GridAction> {
 		return possibleStates;
 	}
 
+	/**
+	 * Returns, for each occupiable position, the index of the first action equivalent to
+	 * each allowable action there. Two actions are equivalent at a position if they have
+	 * the same next position distribution and the same action reward. E.g., moving into a wall
+	 * or the board's edge leaves the player where it is, just as sticking does, so in a corner
+	 * the two moves into walls are equivalent (and equivalent to sticking if moves cost nothing).
+	 * @param staticBoard
+	 * @return
+	 */
+	private static Map<Position, int[]> computeActionEquivalenceClasses(Board staticBoard) {
+		List<GridAction> actions = staticBoard.getAllowableActions();
+		Map<Position, int[]> actionEquivalenceClassesPerPosition = new HashMap<Position, int[]>();
+		for (Position position : staticBoard.getOccupiablePositions()) {
+			List<DiscreteDistribution<Position>> nextPositionDistributions = new ArrayList<DiscreteDistribution<Position>>();
+			int[] actionEquivalenceClasses = new int[actions.size()];
+			for (int actionIdx=0; actionIdx<actions.size(); actionIdx++) {
+				GridAction action = actions.get(actionIdx);
+				nextPositionDistributions.add(staticBoard.getNextPositionDistribution(position, action));
+				actionEquivalenceClasses[actionIdx] = actionIdx;
+				for (int otherActionIdx=0; otherActionIdx<actionIdx; otherActionIdx++) {
+					if (nextPositionDistributions.get(otherActionIdx).equals(nextPositionDistributions.get(actionIdx)) &&
+							staticBoard.getActionReward(actions.get(otherActionIdx)) == staticBoard.getActionReward(action)) {
+						actionEquivalenceClasses[actionIdx] = otherActionIdx;
+						break;
+					}
+				}
+			}
+			actionEquivalenceClassesPerPosition.put(position, actionEquivalenceClasses);
+		}
+		return actionEquivalenceClassesPerPosition;
+	}
+
 	/**
 	 * Creates and returns a list of possible joint actions, 
 	 * Assumptions:
@@ -418,6 +460,165 @@ public class GridGame implements SequentialGame<GridState, GridAction> {
 		return false;
 	}
 
+	/**
+	 * A player's equivalent actions depend only on its own position (see
+	 * computeActionEquivalenceClasses): whatever the other players do, swapping one for
+	 * another gives the same end positions, collisions included, and the same rewards.
+	 */
+	@Override
+	public int[] getActionEquivalenceClasses(GridState state, int playerIdx) {
+		return actionEquivalenceClassesPerPosition.get(state.getPlayerPosition(playerIdx));
+	}
+
+	public Board getBoard() {
+		return staticBoard;
+	}
+
+
+	/**
+	 * Returns, for each state, an estimate of each player's value, which makes a good 
+	 * starting point for value iteration (see MultiAgentValueIteration.setInitialValueFunction).
+	 * Each player is treated as if it were alone on the board (ignoring collisions), but
+	 * since the game ends as soon as any player reaches a goal, a player only gets its 
+	 * single-agent value if no other player is fewer moves from its own goal. Otherwise
+	 * the player is assumed to lose the race and gets zero value. Terminal states get zero values.
+	 * @param gamma the discount factor.
+	 * @return
+	 */
+	public Map<GridState, Joint<Double>> computeGoalDistanceValues(double gamma) {
+		List<Map<Position, Integer>> goalDistancesPerPlayer = new ArrayList<Map<Position, Integer>>();
+		List<Map<Position, Double>> positionValuesPerPlayer = new ArrayList<Map<Position, Double>>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			Map<Position, Integer> goalDistances = computeGoalDistances(playerIdx);
+			goalDistancesPerPlayer.add(goalDistances);
+			positionValuesPerPlayer.add(computeSingleAgentPositionValues(playerIdx, gamma, goalDistances));
+		}
+
+		Map<GridState, Joint<Double>> stateValues = new HashMap<GridState, Joint<Double>>();
+		for (GridState state : possibleStates) {
+			Joint<Double> values = new Joint<Double>();
+			boolean isTerminal = isTerminalState(state);
+			int minGoalDistance = Integer.MAX_VALUE;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				minGoalDistance = Math.min(minGoalDistance, getGoalDistance(goalDistancesPerPlayer.get(playerIdx), state.getPlayerPosition(playerIdx)));
+			}
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				Position position = state.getPlayerPosition(playerIdx);
+				boolean winsRace = (getGoalDistance(goalDistancesPerPlayer.get(playerIdx), position) == minGoalDistance);
+				values.add((isTerminal || !winsRace) ? 0.0 : positionValuesPerPlayer.get(playerIdx).get(position));
+			}
+			stateValues.put(state, values);
+		}
+		return stateValues;
+	}
+
+
+	private static int getGoalDistance(Map<Position, Integer> goalDistances, Position position) {
+		Integer goalDistance = goalDistances.get(position);
+		return (goalDistance == null) ? Integer.MAX_VALUE : goalDistance;
+	}
+
+
+	/**
+	 * Returns the fewest moves it takes a player, alone on the board, to get from 
+	 * each position to one of its goals (ignoring the chance of moves failing).
+	 * Positions from which no goal can be reached are left out.
+	 * This is a breadth-first search outward from the goals, following moves backwards.
+	 * @param playerIdx
+	 * @return
+	 */
+	private Map<Position, Integer> computeGoalDistances(int playerIdx) {
+		// Find the positions that can reach each position in one move.
+		Map<Position, Set<Position>> predecessors = new HashMap<Position, Set<Position>>();
+		for (Position position : staticBoard.getOccupiablePositions()) {
+			predecessors.put(position, new HashSet<Position>());
+		}
+		for (Position position : staticBoard.getOccupiablePositions()) {
+			for (GridAction action : staticBoard.getAllowableActions()) {
+				DiscreteDistribution<Position> nextPositionDistribution = staticBoard.getNextPositionDistribution(position, action);
+				for (Position nextPosition : nextPositionDistribution.keySet()) {
+					if (nextPositionDistribution.get(nextPosition) > 0 && !nextPosition.equals(position)) {
+						predecessors.get(nextPosition).add(position);
+					}
+				}
+			}
+		}
+
+		Map<Position, Integer> goalDistances = new HashMap<Position, Integer>();
+		LinkedList<Position> frontier = new LinkedList<Position>();
+		for (Position position : staticBoard.getOccupiablePositions()) {
+			if (staticBoard.hasGoalForPlayer(position, playerIdx)) {
+				goalDistances.put(position, 0);
+				frontier.add(position);
+			}
+		}
+		while (!frontier.isEmpty()) {
+			Position position = frontier.removeFirst();
+			for (Position predecessor : predecessors.get(position)) {
+				if (!goalDistances.containsKey(predecessor)) {
+					goalDistances.put(predecessor, goalDistances.get(position) + 1);
+					frontier.add(predecessor);
+				}
+			}
+		}
+		return goalDistances;
+	}
+
+
+	/**
+	 * Computes single-agent values for one player at every board position, where reaching 
+	 * one of the player's goals ends the game. Positions are updated in order of their distance
+	 * from the goals, so values propagate outward from the goals in a single sweep when 
+	 * moves always succeed. Further sweeps are made until values converge, to account for 
+	 * semi-walls (which can make a move fail).
+	 * @param playerIdx
+	 * @param gamma
+	 * @param goalDistances from computeGoalDistances
+	 * @return
+	 */
+	private Map<Position, Double> computeSingleAgentPositionValues(int playerIdx, double gamma, final Map<Position, Integer> goalDistances) {
+		final double tolerance = 1e-6;
+		final int maxNumSweeps = 10000;
+		List<GridAction> actions = staticBoard.getAllowableActions();
+
+		// Positions from which a goal can't be reached keep zero value, since
+		// no move costs are worth paying.
+		List<Position> orderedPositions = new ArrayList<Position>(goalDistances.keySet());
+		Collections.sort(orderedPositions, new Comparator<Position>() {
+			public int compare(Position position1, Position position2) {
+				return goalDistances.get(position1).compareTo(goalDistances.get(position2));
+			}
+		});
+
+		Map<Position, Double> positionValues = new HashMap<Position, Double>();
+		for (Position position : staticBoard.getOccupiablePositions()) {
+			positionValues.put(position, 0.0);
+		}
+		for (int sweep=0; sweep<maxNumSweeps; sweep++) {
+			double maxValueChange = 0;
+			for (Position position : orderedPositions) {
+				if (staticBoard.hasGoalForPlayer(position, playerIdx)) continue;
+				double bestValue = Double.NEGATIVE_INFINITY;
+				for (GridAction action : actions) {
+					DiscreteDistribution<Position> nextPositionDistribution = staticBoard.getNextPositionDistribution(position, action);
+					double actionValue = 0;
+					for (Position nextPosition : nextPositionDistribution.keySet()) {
+						double nextPositionValue = staticBoard.hasGoalForPlayer(nextPosition, playerIdx) ? 0 : positionValues.get(nextPosition);
+						actionValue += nextPositionDistribution.get(nextPosition) * (
+								staticBoard.getActionReward(action) + 
+								staticBoard.getGoalReward(nextPosition, playerIdx) + 
+								gamma * nextPositionValue);
+					}
+					bestValue = Math.max(bestValue, actionValue);
+				}
+				maxValueChange = Math.max(maxValueChange, Math.abs(bestValue - positionValues.get(position)));
+				positionValues.put(position, bestValue);
+			}
+			if (maxValueChange < tolerance) break;
+		}
+		return positionValues;
+	}
+
 	//@ Betsy, to allow for simulation
 	
 
@@ -258,6 +258,110 @@ public class SimpleBoard implements Board {
 	}
 
 
+	/**
+	 * Used by coarsen, which fills in the fields itself.
+	 */
+	private SimpleBoard() {
+	}
+
+
+	/**
+	 * Returns a coarser version of this board, where each coarse position is a 
+	 * blockSize x blockSize block of positions on this board. A coarse position is 
+	 * occupiable if any position in its block is, and is a goal for a player 
+	 * if any position in its block is (with the largest of the block's goal rewards). 
+	 * Moving between neighboring blocks succeeds with the highest probability of 
+	 * moving between any pair of adjacent positions on the blocks' shared border.
+	 * A coarse step stands for blockSize steps on this board, so its step reward
+	 * is the discounted sum of blockSize step rewards. Games on the coarse board
+	 * should be discounted by gamma^blockSize. 
+	 * 
+	 * Movement within a block is ignored, so values on the coarse board are only
+	 * an approximation of those on this board.
+	 * @param blockSize
+	 * @param gamma the discount factor for this board.
+	 * @return
+	 */
+	public SimpleBoard coarsen(int blockSize, double gamma) {
+		SimpleBoard coarseBoard = new SimpleBoard();
+		int numCoarseX = (numXLocations + blockSize - 1) / blockSize;
+		int numCoarseY = (numYLocations + blockSize - 1) / blockSize;
+		coarseBoard.numXLocations = numCoarseX;
+		coarseBoard.numYLocations = numCoarseY;
+		coarseBoard.isOccupiablePosition = new boolean[numCoarseX][numCoarseY];
+		coarseBoard.upMovementSuccessProbability = new double[numCoarseX][numCoarseY];
+		coarseBoard.downMovementSuccessProbability = new double[numCoarseX][numCoarseY];
+		coarseBoard.leftMovementSuccessProbability = new double[numCoarseX][numCoarseY];
+		coarseBoard.rightMovementSuccessProbability = new double[numCoarseX][numCoarseY];
+		for (int x=0; x<numXLocations; x++) {
+			for (int y=0; y<numYLocations; y++) {
+				if (!isOccupiablePosition[x][y]) continue;
+				int coarseX = x / blockSize;
+				int coarseY = y / blockSize;
+				coarseBoard.isOccupiablePosition[coarseX][coarseY] = true;
+				// Moves that cross a block border.
+				if (y+1 < numYLocations && (y+1) / blockSize != coarseY && isOccupiablePosition[x][y+1]) {
+					coarseBoard.upMovementSuccessProbability[coarseX][coarseY] = Math.max(coarseBoard.upMovementSuccessProbability[coarseX][coarseY], upMovementSuccessProbability[x][y]);
+				}
+				if (y-1 >= 0 && (y-1) / blockSize != coarseY && isOccupiablePosition[x][y-1]) {
+					coarseBoard.downMovementSuccessProbability[coarseX][coarseY] = Math.max(coarseBoard.downMovementSuccessProbability[coarseX][coarseY], downMovementSuccessProbability[x][y]);
+				}
+				if (x-1 >= 0 && (x-1) / blockSize != coarseX && isOccupiablePosition[x-1][y]) {
+					coarseBoard.leftMovementSuccessProbability[coarseX][coarseY] = Math.max(coarseBoard.leftMovementSuccessProbability[coarseX][coarseY], leftMovementSuccessProbability[x][y]);
+				}
+				if (x+1 < numXLocations && (x+1) / blockSize != coarseX && isOccupiablePosition[x+1][y]) {
+					coarseBoard.rightMovementSuccessProbability[coarseX][coarseY] = Math.max(coarseBoard.rightMovementSuccessProbability[coarseX][coarseY], rightMovementSuccessProbability[x][y]);
+				}
+			}
+		}
+
+		coarseBoard.goalPositionsAndRewardsPerPlayer = new Joint<Map<Position, Double>>();
+		for (Map<Position, Double> positionRewards : goalPositionsAndRewardsPerPlayer) {
+			if (positionRewards == null) {
+				coarseBoard.goalPositionsAndRewardsPerPlayer.add(null);
+				continue;
+			}
+			Map<Position, Double> coarsePositionRewards = new HashMap<Position, Double>();
+			for (Position position : positionRewards.keySet()) {
+				Position coarsePosition = getCoarsePosition(position, blockSize);
+				double reward = positionRewards.get(position);
+				if (!coarsePositionRewards.containsKey(coarsePosition) || coarsePositionRewards.get(coarsePosition) < reward) {
+					coarsePositionRewards.put(coarsePosition, reward);
+				}
+			}
+			coarseBoard.goalPositionsAndRewardsPerPlayer.add(coarsePositionRewards);
+		}
+
+		coarseBoard.initialPositions = new Joint<Position>();
+		for (Position position : initialPositions) {
+			coarseBoard.initialPositions.add((position == null) ? null : getCoarsePosition(position, blockSize));
+		}
+
+		coarseBoard.stepReward = (gamma == 1) ? stepReward * blockSize : 
+			stepReward * (1 - Math.pow(gamma, blockSize)) / (1 - gamma);
+		coarseBoard.occupiablePositions = coarseBoard.computeOccupiablePositions();
+		coarseBoard.allowableActions = coarseBoard.computeAllowableActions();
+		return coarseBoard;
+	}
+
+
+	/**
+	 * Returns the position on a board coarsened by blockSize (see coarsen) that contains the given position.
+	 */
+	public static Position getCoarsePosition(Position position, int blockSize) {
+		return new Position(position.getX() / blockSize, position.getY() / blockSize);
+	}
+
+
+	public int getNumXLocations() {
+		return numXLocations;
+	}
+
+	public int getNumYLocations() {
+		return numYLocations;
+	}
+
+
 	private List<Position> computeOccupiablePositions() {
 		List<Position> occupiablePositions = new ArrayList<Position>();
 		for (int x=0; x<numXLocations; x++) {
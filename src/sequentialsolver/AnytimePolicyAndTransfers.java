@@ -0,0 +1,47 @@
+package sequentialsolver;
+
+import java.util.Map;
+
+import props.Joint;
+import sequentialgame.AbstractAction;
+import sequentialgame.AbstractState;
+
+/**
+ * A policy and transfers returned by an anytime run of value iteration,
+ * along with how far the value function may be from convergence.
+ * 
+ * @author sodomka
+ *
+ * @param <S>
+ * @param <A>
+ */
+public class AnytimePolicyAndTransfers<S extends AbstractState, A extends AbstractAction> extends PolicyAndTransfers<S,A> {
+
+	private double bellmanErrorBound;
+	private double discountFactor;
+
+	public AnytimePolicyAndTransfers(JointPolicy<S,A> policy, Map<S,Joint<Double>> transfers, double bellmanErrorBound, double discountFactor) {
+		super(policy, transfers);
+		this.bellmanErrorBound = bellmanErrorBound;
+		this.discountFactor = discountFactor;
+	}
+
+	/**
+	 * Returns a bound on the largest change (over states and players) that one more
+	 * value iteration update would make.
+	 * @return
+	 */
+	public double getBellmanErrorBound() {
+		return bellmanErrorBound;
+	}
+
+	/**
+	 * Returns a bound on the distance between the current and converged value functions,
+	 * bellmanError / (1 - gamma). This holds when the one-step solution concept is a
+	 * gamma-contraction (e.g., zero-sum games).
+	 * @return
+	 */
+	public double getValueErrorBound() {
+		return bellmanErrorBound / (1 - discountFactor);
+	}
+}
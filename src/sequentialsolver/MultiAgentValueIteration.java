@@ -1,10 +1,15 @@
 package sequentialsolver;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import props.DiscreteDistribution;
 import props.Joint;
@@ -12,6 +17,7 @@ import props.Joint;
 import normalformgame.NormalFormGame;
 import normalformsolver.GameSolution;
 import normalformsolver.NormalFormSolver;
+import normalformsolver.UncorrelatedGameSolution;
 import sequentialgame.AbstractAction;
 import sequentialgame.SequentialGame;
 import sequentialgame.AbstractState;
@@ -67,8 +73,39 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 	
 	
 	private Map<S,Joint<Double>> jointTransfers;
-	
-	
+
+	/**
+	 * Set (possibly from another thread) to stop an anytime run early.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * The current bound on the Bellman error during an anytime run.
+	 */
+	private double bellmanErrorBound = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Values that non-terminal states start from, instead of zeros
+	 * (e.g., from GridGame.computeGoalDistanceValues). States missing from the map start at zero.
+	 */
+	private Map<S,Joint<Double>> initialValueFunction;
+
+	/**
+	 * Value iteration stops early once the value function changes by less than this
+	 * in an iteration. By default it always runs numIterations iterations.
+	 */
+	private double convergenceThreshold = 0;
+
+	/**
+	 * Whether stage games are built and solved with only one action from each class of
+	 * equivalent actions (see SequentialGame.getActionEquivalenceClasses). The probability
+	 * of each reduced joint action is then spread evenly over the joint actions it stands for,
+	 * which can change the policy (e.g., a solver may choose a different equilibrium of the
+	 * smaller game), so it's off by default.
+	 */
+	private boolean collapseEquivalentActions = false;
+
+
 	public MultiAgentValueIteration(int numIterations, NormalFormSolver<A> normalFormSolver, double gamma) {
 		this.numIterations = numIterations;
 		this.normalFormSolver = normalFormSolver;
@@ -79,6 +116,31 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 		this.jointTransfers = new HashMap<S, Joint<Double>>();
 	}
 	
+	/**
+	 * Sets the values that states start from in value iteration. A good estimate
+	 * of the final values means fewer iterations are needed to converge.
+	 * @param initialValueFunction
+	 */
+	public void setInitialValueFunction(Map<S,Joint<Double>> initialValueFunction) {
+		this.initialValueFunction = initialValueFunction;
+	}
+
+	public void setConvergenceThreshold(double convergenceThreshold) {
+		this.convergenceThreshold = convergenceThreshold;
+	}
+
+	public void setCollapseEquivalentActions(boolean collapseEquivalentActions) {
+		this.collapseEquivalentActions = collapseEquivalentActions;
+	}
+
+	/**
+	 * Returns the value function computed by the last run of value iteration.
+	 * @return
+	 */
+	public JointValueFunction<S> getValueFunction() {
+		return jointValueFunction;
+	}
+	
 	public PolicyAndTransfers<S,A> generatePolicyAndTransfers(SequentialGame<S,A> sequentialGame) {
 		
 		// Initialize value function.
@@ -88,13 +150,19 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 			zeros.add(0.0);
 		}
 		for (S state : sequentialGame.getPossibleStates()) {
-			jointValueFunction.put(state, zeros);
+			jointValueFunction.put(state, getInitialValues(sequentialGame, state));
 		}
 		
 		
 		for (int iteration=0; iteration<numIterations; iteration++) {
 			// Create a new value function so that old value function data can be used for each state.
 			JointValueFunction<S> updatedJointValueFunction = new JointValueFunction<S>();
+			// The non-terminal states and their one-step games, which are solved together
+			// once the whole sweep's games have been built.
+			List<S> nonTerminalStates = new ArrayList<S>();
+			List<ReducedActions<A>> reducedActionsPerState = new ArrayList<ReducedActions<A>>();
+			List<NormalFormGame<A>> normalFormGames = new ArrayList<NormalFormGame<A>>();
+			List<DiscreteDistribution<Joint<A>>> previousJointActionDistributions = new ArrayList<DiscreteDistribution<Joint<A>>>();
 			for (S state : sequentialGame.getPossibleStates()) {
 
 				// Only update the value for non-terminal states.
@@ -111,7 +179,8 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 				// the (state, actionProfile, nextState) tuple plus the expected
 				// discounted future reward over next states (based on the 
 				// current value function).
-				NormalFormGame<A> normalFormGame = createNormalFormGame(sequentialGame, state, jointValueFunction, discountFactor);
+				ReducedActions<A> reducedActions = getReducedActions(sequentialGame, state);
+				NormalFormGame<A> normalFormGame = createNormalFormGame(sequentialGame, state, jointValueFunction, discountFactor, null, reducedActions);
 				
 //				/////////////////////////////////// DEBUG
 //				System.out.println("test3");
@@ -155,8 +224,19 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 //				/////////////////////////////////// END DEBUG
 				
 				
-				// Compute solution to normal form game  
-				GameSolution<A> gameSolution = normalFormSolver.solve(normalFormGame);
+				nonTerminalStates.add(state);
+				reducedActionsPerState.add(reducedActions);
+				normalFormGames.add(normalFormGame);
+				previousJointActionDistributions.add(getReducedDistribution(sequentialGame, reducedActions, jointPolicy.get(state)));
+			}
+
+			// Compute solutions to the normal form games, given the previous solution at each state
+			// (so that solvers can consistently choose between multiple equilibria).
+			// All of the sweep's games are handed over at once, so that solvers can solve them in parallel.
+			List<GameSolution<A>> gameSolutions = normalFormSolver.solveAll(normalFormGames, previousJointActionDistributions);
+			for (int stateIdx=0; stateIdx<nonTerminalStates.size(); stateIdx++) {
+				S state = nonTerminalStates.get(stateIdx);
+				GameSolution<A> gameSolution = getExpandedSolution(sequentialGame, reducedActionsPerState.get(stateIdx), normalFormGames.get(stateIdx), gameSolutions.get(stateIdx));
 				
 				// Update values at this state. We don't put the updates into the main value function yet
 				// since we want other states to use the old value function.
@@ -195,12 +275,203 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 			
 			// Now that all states have been considered, update the value function.
 			jointValueFunction = updatedJointValueFunction;
+			if (valueFunctionDiff < convergenceThreshold) {
+				break;
+			}
 		}
 		
 		PolicyAndTransfers<S,A> policyAndTransfers = new PolicyAndTransfers<S,A>(jointPolicy, jointTransfers);
 		return policyAndTransfers;
 	}
 
+	/**
+	 * Runs value iteration until the time budget is used up, the run is cancelled
+	 * (see cancel()), the value function converges, or the equivalent of numIterations
+	 * sweeps have been performed, whichever comes first.
+	 *
+	 * Unlike generatePolicyAndTransfers, states are updated in place and one at a time,
+	 * in order of their estimated Bellman residual (largest first). Every state is
+	 * updated once before any state is updated twice. When a state's values change by
+	 * some amount d, the residual estimate of each state that can transition to it
+	 * increases by gamma*d. The returned Bellman error bound is the largest residual
+	 * estimate. It is infinite until every state has been updated once. The bound is exact when the
+	 * one-step solution concept is a gamma-contraction (e.g., zero-sum games), and
+	 * a heuristic otherwise.
+	 *
+	 * States that have not been updated yet get a uniform joint action distribution
+	 * and no transfers, so the returned policy is always complete.
+	 * @param sequentialGame
+	 * @param timeBudgetMillis
+	 * @return
+	 */
+	public AnytimePolicyAndTransfers<S,A> generatePolicyAndTransfersAnytime(SequentialGame<S,A> sequentialGame, long timeBudgetMillis) {
+		long deadline = System.currentTimeMillis() + timeBudgetMillis;
+
+		// Index states, and initialize the value function, policy, and residual estimates.
+		List<S> states = sequentialGame.getPossibleStates();
+		int numStates = states.size();
+		int numPlayers = sequentialGame.getNumPlayers();
+		Map<S, Integer> stateIndices = new HashMap<S, Integer>();
+		double[] residualEstimates = new double[numStates];
+		List<List<Integer>> predecessors = new ArrayList<List<Integer>>();
+		PriorityQueue<StatePriority> queue = new PriorityQueue<StatePriority>();
+		List<Joint<A>> jointActions = sequentialGame.getPossibleJointActions();
+		int numNonTerminalStates = 0;
+		synchronized (this) {
+			for (int stateIdx=0; stateIdx<numStates; stateIdx++) {
+				S state = states.get(stateIdx);
+				stateIndices.put(state, stateIdx);
+				predecessors.add(new ArrayList<Integer>());
+				jointValueFunction.put(state, getInitialValues(sequentialGame, state));
+				if (sequentialGame.isTerminalState(state)) continue;
+				numNonTerminalStates++;
+				DiscreteDistribution<Joint<A>> uniformDistribution = new DiscreteDistribution<Joint<A>>();
+				for (Joint<A> jointAction : jointActions) {
+					uniformDistribution.add(jointAction, 1.0 / jointActions.size());
+				}
+				jointPolicy.put(state, uniformDistribution);
+				jointTransfers.put(state, createInitialPayoffs(numPlayers));
+				residualEstimates[stateIdx] = Double.POSITIVE_INFINITY;
+				queue.add(new StatePriority(stateIdx, Double.POSITIVE_INFINITY));
+			}
+			bellmanErrorBound = (numNonTerminalStates > 0) ? Double.POSITIVE_INFINITY : 0;
+		}
+
+		long maxNumUpdates = (long) numIterations * numNonTerminalStates;
+		long numUpdates = 0;
+		boolean converged = false;
+		while (!cancelled && numUpdates < maxNumUpdates && System.currentTimeMillis() < deadline) {
+			// Get the state with the largest residual estimate, skipping stale queue entries.
+			StatePriority next = queue.poll();
+			if (next == null) {
+				converged = true;
+				break;
+			}
+			int stateIdx = next.stateIdx;
+			if (next.priority != residualEstimates[stateIdx]) continue;
+			S state = states.get(stateIdx);
+
+			// Solve this state's one-step game, remembering which states it can transition to.
+			Set<S> successors = new HashSet<S>();
+			ReducedActions<A> reducedActions = getReducedActions(sequentialGame, state);
+			NormalFormGame<A> normalFormGame = createNormalFormGame(sequentialGame, state, jointValueFunction, discountFactor, successors, reducedActions);
+			DiscreteDistribution<Joint<A>> previousJointActionDistribution = getPreviousJointActionDistribution(state, residualEstimates[stateIdx]);
+			GameSolution<A> gameSolution = getExpandedSolution(sequentialGame, reducedActions, normalFormGame,
+					normalFormSolver.solve(normalFormGame, getReducedDistribution(sequentialGame, reducedActions, previousJointActionDistribution)));
+			Joint<Double> expectedPayoffs = gameSolution.getExpectedPayoffsWithTransfer();
+			Joint<Double> previousPayoffs = jointValueFunction.get(state);
+			double valueChange = 0;
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				valueChange = Math.max(valueChange, Math.abs(expectedPayoffs.get(playerIdx) - previousPayoffs.get(playerIdx)));
+			}
+			if (residualEstimates[stateIdx] == Double.POSITIVE_INFINITY) {
+				for (S successor : successors) {
+					predecessors.get(stateIndices.get(successor)).add(stateIdx);
+				}
+			}
+			numUpdates++;
+
+			synchronized (this) {
+				jointValueFunction.put(state, expectedPayoffs);
+				jointPolicy.put(state, gameSolution.getJointActionDistribution());
+				jointTransfers.put(state, gameSolution.getTransferPayments());
+
+				// This state is now consistent with its successors. States that
+				// transition to it may no longer be.
+				residualEstimates[stateIdx] = 0;
+				if (valueChange > 0) {
+					for (int predecessorIdx : predecessors.get(stateIdx)) {
+						if (residualEstimates[predecessorIdx] == Double.POSITIVE_INFINITY) continue;
+						residualEstimates[predecessorIdx] += discountFactor * valueChange;
+						queue.add(new StatePriority(predecessorIdx, residualEstimates[predecessorIdx]));
+					}
+				}
+				StatePriority largest = queue.peek();
+				while (largest != null && largest.priority != residualEstimates[largest.stateIdx]) {
+					queue.poll();
+					largest = queue.peek();
+				}
+				bellmanErrorBound = (largest == null) ? 0 : largest.priority;
+			}
+		}
+		// The flag is cleared when a run ends, not when it starts, so that a cancel()
+		// from another thread that comes before the run gets going isn't lost.
+		boolean wasCancelled = cancelled;
+		cancelled = false;
+		System.out.println("anytime value iteration: updates=" + numUpdates + ", bellmanErrorBound=" + bellmanErrorBound
+				+ (wasCancelled ? ", cancelled" : "") + (converged ? ", converged" : ""));
+		return getCurrentPolicyAndTransfers();
+	}
+
+	/**
+	 * Stops a running anytime value iteration (see generatePolicyAndTransfersAnytime)
+	 * after its current state update, or, if none is running, the next one before
+	 * its first update. Can be called from any thread.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns a copy of the current policy and transfers, along with the current
+	 * Bellman error bound. Can be called from any thread during an anytime run.
+	 * @return
+	 */
+	public synchronized AnytimePolicyAndTransfers<S,A> getCurrentPolicyAndTransfers() {
+		JointPolicy<S,A> policyCopy = new JointPolicy<S,A>();
+		policyCopy.putAll(jointPolicy);
+		Map<S,Joint<Double>> transfersCopy = new HashMap<S, Joint<Double>>(jointTransfers);
+		return new AnytimePolicyAndTransfers<S,A>(policyCopy, transfersCopy, bellmanErrorBound, discountFactor);
+	}
+
+	/**
+	 * A queue entry for a state's residual estimate. Entries are ordered by
+	 * decreasing priority. An entry is stale if the state's residual estimate
+	 * has changed since the entry was added.
+	 */
+	private static class StatePriority implements Comparable<StatePriority> {
+		private final int stateIdx;
+		private final double priority;
+
+		public StatePriority(int stateIdx, double priority) {
+			this.stateIdx = stateIdx;
+			this.priority = priority;
+		}
+
+		@Override
+		public int compareTo(StatePriority that) {
+			return Double.compare(that.priority, this.priority);
+		}
+	}
+
+	/**
+	 * Solves the one-step game at a single (non-terminal) state, where payoffs
+	 * are computed from the given value function. This is the unit of work
+	 * performed for each state in a sweep, and is also used by solvers that
+	 * distribute sweeps across processes.
+	 * @param sequentialGame
+	 * @param state
+	 * @param valueFunction
+	 * @param previousJointActionDistribution the previous solution at this state, or null if there is none.
+	 * @return
+	 */
+	GameSolution<A> solveStageGame(SequentialGame<S,A> sequentialGame, S state, JointValueFunction<S> valueFunction, 
+			DiscreteDistribution<Joint<A>> previousJointActionDistribution) {
+		ReducedActions<A> reducedActions = getReducedActions(sequentialGame, state);
+		NormalFormGame<A> normalFormGame = createNormalFormGame(sequentialGame, state, valueFunction, discountFactor, null, reducedActions);
+		return getExpandedSolution(sequentialGame, reducedActions, normalFormGame,
+				normalFormSolver.solve(normalFormGame, getReducedDistribution(sequentialGame, reducedActions, previousJointActionDistribution)));
+	}
+
+	/**
+	 * In anytime value iteration the policy starts out uniform, which isn't a previous solution;
+	 * a state has only been solved before once its residual estimate is finite.
+	 */
+	private synchronized DiscreteDistribution<Joint<A>> getPreviousJointActionDistribution(S state, double residualEstimate) {
+		if (residualEstimate == Double.POSITIVE_INFINITY) return null;
+		return jointPolicy.get(state);
+	}
+
 	private double getValueFunctionDifference(
 			JointValueFunction<S> jointValueFunction,
 			JointValueFunction<S> updatedJointValueFunction) {
@@ -221,24 +492,168 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 		return maxAbsoluteDifference;
 	}
 
+	/**
+	 * The actions of a stage game in which each player only gets the first action of each of
+	 * its classes of equivalent actions (see SequentialGame.getActionEquivalenceClasses),
+	 * and how the full stage game's joint actions map onto them.
+	 */
+	private static class ReducedActions<A extends AbstractAction> {
+		Joint<List<A>> actionsPerPlayer = new Joint<List<A>>();
+		List<Joint<A>> jointActions = new ArrayList<Joint<A>>();
+
+		/**
+		 * For each of the full stage game's joint actions, the index of the reduced joint action
+		 * it's equivalent to, and for each reduced joint action, how many joint actions are.
+		 */
+		int[] reducedJointActionIndices;
+		int[] numEquivalentJointActions;
+	}
+
+	/**
+	 * Returns the reduced actions of the stage game at the state, or null if no player has
+	 * equivalent actions there (or equivalent actions aren't being collapsed). The game's joint
+	 * actions must be listed as NormalFormGame indexes them (player 0's action the most significant).
+	 */
+	private ReducedActions<A> getReducedActions(SequentialGame<S,A> g, S state) {
+		if (!collapseEquivalentActions) return null;
+		int numPlayers = g.getNumPlayers();
+		// For each player and action, the index of the action's class among the player's classes.
+		int[][] classIndices = new int[numPlayers][];
+		boolean[][] isRepresentativeAction = new boolean[numPlayers][];
+		int[] numClasses = new int[numPlayers];
+		boolean hasEquivalentActions = false;
+		int numJointActions = 1;
+		ReducedActions<A> reducedActions = new ReducedActions<A>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			List<A> playerActions = g.getPossibleActionsForPlayer(playerIdx);
+			int[] actionEquivalenceClasses = g.getActionEquivalenceClasses(state, playerIdx);
+			List<A> representativeActions = new ArrayList<A>();
+			classIndices[playerIdx] = new int[playerActions.size()];
+			isRepresentativeAction[playerIdx] = new boolean[playerActions.size()];
+			for (int actionIdx=0; actionIdx<playerActions.size(); actionIdx++) {
+				int representativeIdx = (actionEquivalenceClasses == null) ? actionIdx : actionEquivalenceClasses[actionIdx];
+				if (representativeIdx == actionIdx) {
+					classIndices[playerIdx][actionIdx] = numClasses[playerIdx]++;
+					isRepresentativeAction[playerIdx][actionIdx] = true;
+					representativeActions.add(playerActions.get(actionIdx));
+				} else {
+					classIndices[playerIdx][actionIdx] = classIndices[playerIdx][representativeIdx];
+					hasEquivalentActions = true;
+				}
+			}
+			reducedActions.actionsPerPlayer.add(representativeActions);
+			numJointActions *= playerActions.size();
+		}
+		List<Joint<A>> jointActions = g.getPossibleJointActions();
+		if (!hasEquivalentActions || jointActions.size() != numJointActions) return null;
+
+		int numReducedJointActions = 1;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			numReducedJointActions *= numClasses[playerIdx];
+		}
+		reducedActions.reducedJointActionIndices = new int[numJointActions];
+		reducedActions.numEquivalentJointActions = new int[numReducedJointActions];
+		for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+			// Read the players' actions off the joint action's index, last player first.
+			int remainder = jointActionIdx;
+			int reducedJointActionIdx = 0;
+			int reducedStride = 1;
+			boolean isRepresentative = true;
+			for (int playerIdx=numPlayers-1; playerIdx>=0; playerIdx--) {
+				int numActions = classIndices[playerIdx].length;
+				int actionIdx = remainder % numActions;
+				remainder /= numActions;
+				reducedJointActionIdx += classIndices[playerIdx][actionIdx] * reducedStride;
+				reducedStride *= numClasses[playerIdx];
+				isRepresentative &= isRepresentativeAction[playerIdx][actionIdx];
+			}
+			reducedActions.reducedJointActionIndices[jointActionIdx] = reducedJointActionIdx;
+			reducedActions.numEquivalentJointActions[reducedJointActionIdx]++;
+			// Representatives come in the same order as the reduced joint actions' indices.
+			if (isRepresentative) {
+				reducedActions.jointActions.add(jointActions.get(jointActionIdx));
+			}
+		}
+		return reducedActions;
+	}
+
+	/**
+	 * Returns the distribution over the reduced stage game's joint actions that the given distribution
+	 * over the full stage game's joint actions collapses to (e.g., a previous solution, for the solver).
+	 */
+	private DiscreteDistribution<Joint<A>> getReducedDistribution(SequentialGame<S,A> g, ReducedActions<A> reducedActions,
+			DiscreteDistribution<Joint<A>> jointActionDistribution) {
+		if (reducedActions == null || jointActionDistribution == null) return jointActionDistribution;
+		List<Joint<A>> jointActions = g.getPossibleJointActions();
+		double[] reducedProbs = new double[reducedActions.jointActions.size()];
+		for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+			Double prob = jointActionDistribution.get(jointActions.get(jointActionIdx));
+			if (prob != null) {
+				reducedProbs[reducedActions.reducedJointActionIndices[jointActionIdx]] += prob;
+			}
+		}
+		DiscreteDistribution<Joint<A>> reducedDistribution = new DiscreteDistribution<Joint<A>>();
+		for (int reducedJointActionIdx=0; reducedJointActionIdx<reducedProbs.length; reducedJointActionIdx++) {
+			reducedDistribution.put(reducedActions.jointActions.get(reducedJointActionIdx), reducedProbs[reducedJointActionIdx]);
+		}
+		return reducedDistribution;
+	}
+
+	/**
+	 * Returns the reduced stage game's solution as a solution to the full stage game:
+	 * each reduced joint action's probability is spread evenly over the joint actions
+	 * equivalent to it. Payoffs and transfers are unchanged.
+	 */
+	private GameSolution<A> getExpandedSolution(SequentialGame<S,A> g, ReducedActions<A> reducedActions,
+			NormalFormGame<A> reducedGame, GameSolution<A> reducedSolution) {
+		if (reducedActions == null) return reducedSolution;
+		DiscreteDistribution<Joint<A>> reducedDistribution = reducedSolution.getJointActionDistribution();
+		double[] reducedProbs = new double[reducedActions.jointActions.size()];
+		for (int reducedJointActionIdx=0; reducedJointActionIdx<reducedProbs.length; reducedJointActionIdx++) {
+			Double prob = reducedDistribution.get(reducedActions.jointActions.get(reducedJointActionIdx));
+			reducedProbs[reducedJointActionIdx] = (prob == null) ? 0 : prob / reducedActions.numEquivalentJointActions[reducedJointActionIdx];
+		}
+		List<Joint<A>> jointActions = g.getPossibleJointActions();
+		DiscreteDistribution<Joint<A>> jointActionDistribution = new DiscreteDistribution<Joint<A>>();
+		for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+			jointActionDistribution.put(jointActions.get(jointActionIdx), reducedProbs[reducedActions.reducedJointActionIndices[jointActionIdx]]);
+		}
+		return new UncorrelatedGameSolution<A>(reducedGame, jointActionDistribution,
+				reducedSolution.getExpectedPayoffsWithoutTransfer(), reducedSolution.getTransferPayments());
+	}
+
+	/**
+	 * Creates the one-step game at the current state. If successors is not null,
+	 * every state reachable from the current state in one step is added to it.
+	 * If reducedActions is not null, the game only has those actions.
+	 */
 	private NormalFormGame<A> createNormalFormGame(
-			SequentialGame<S,A> g, S currentState, JointValueFunction<S> v, double gamma) {
+			SequentialGame<S,A> g, S currentState, JointValueFunction<S> v, double gamma, Collection<S> successors,
+			ReducedActions<A> reducedActions) {
 		// Create list of actions
 		Joint<List<A>> actionsPerPlayer = new Joint<List<A>>();
 		for (int playerIdx=0; playerIdx<g.getNumPlayers(); playerIdx++) {
 			List<A> playerActions = g.getPossibleActionsForPlayer(playerIdx); // add something to game to get this.
 			actionsPerPlayer.add(playerActions);
 		}
+		List<Joint<A>> jointActions = g.getPossibleJointActions();
+		if (reducedActions != null) {
+			actionsPerPlayer = reducedActions.actionsPerPlayer;
+			jointActions = reducedActions.jointActions;
+		}
 
 		// Create normal form game with these actions
-		NormalFormGame<A> normalFormGame = new NormalFormGame<A>(g.getNumPlayers(), actionsPerPlayer, g.getPossibleJointActions());
+		NormalFormGame<A> normalFormGame = new NormalFormGame<A>(g.getNumPlayers(), actionsPerPlayer, jointActions);
 		
 		// Create expected payoffs
-		for (Joint<A> jointAction : g.getPossibleJointActions()) {
+		for (Joint<A> jointAction : jointActions) {
 			// Get expected payoffs for each player for this action profile occurring.
 			// (i.e., compute expected payoffs for this cell of the normal form game.)
 			Joint<Double> payoffs = createInitialPayoffs(g.getNumPlayers());
 			DiscreteDistribution<S> nextStateDistribution = g.getTransitionProbabilities(currentState, jointAction);
+			if (successors != null) {
+				successors.addAll(nextStateDistribution.keySet());
+			}
 			//System.out.println("state=" + currentState + ", action=" + jointAction + ", next state distribution: " + nextStateDistribution);
 			for (S nextState : nextStateDistribution.keySet()) {
 				//System.out.println("  nextState=" + nextState);
@@ -254,6 +669,17 @@ public class MultiAgentValueIteration<S extends AbstractState, A extends Abstrac
 	
 	
 
+	/**
+	 * Returns the values a state starts from: zeros for terminal states or
+	 * when no initial value function was given.
+	 */
+	private Joint<Double> getInitialValues(SequentialGame<S,A> sequentialGame, S state) {
+		if (initialValueFunction == null || sequentialGame.isTerminalState(state) || !initialValueFunction.containsKey(state)) {
+			return createInitialPayoffs(sequentialGame.getNumPlayers());
+		}
+		return new Joint<Double>(initialValueFunction.get(state));
+	}
+
 	/**
 	 * Creates an initial payoff vector.
 	 * @param numPlayers
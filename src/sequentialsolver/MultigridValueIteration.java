@@ -0,0 +1,187 @@
+package sequentialsolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import normalformsolver.NormalFormSolver;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.Position;
+import sequentialgame.grid.SimpleBoard;
+
+/**
+ * Runs multi-agent value iteration on a grid game from coarse to fine.
+ * The board is repeatedly coarsened (see SimpleBoard.coarsen) into a hierarchy
+ * of smaller boards. Value iteration is run on the coarsest board first, and the values
+ * it finds are used as the starting values for value iteration on the next finer
+ * board, and so on. Values only propagate one position per iteration, so on a
+ * fine board the number of iterations needed grows with the board's size; starting
+ * from values found on a coarse board means most of that propagation has
+ * already happened.
+ *
+ * A fine state starts from the values of the coarse state containing it. When there
+ * is no such coarse state (e.g., two players are in the same block) or the coarse
+ * state is terminal but the fine state isn't, the fine state starts from the
+ * estimate given by GridGame.computeGoalDistanceValues.
+ *
+ * @author sodomka
+ *
+ */
+public class MultigridValueIteration {
+
+	/**
+	 * The maximum number of iterations of value iteration at each level.
+	 */
+	private int numIterations;
+	private NormalFormSolver<GridAction> normalFormSolver;
+	private double discountFactor;
+
+	/**
+	 * Each coarse position is a blockSize x blockSize block of positions on the next finer board.
+	 */
+	private int blockSize;
+
+	/**
+	 * The number of boards in the hierarchy, including the original board.
+	 */
+	private int numLevels;
+
+	/**
+	 * Value iteration at each level stops once the value function changes by less than this.
+	 */
+	private double convergenceThreshold = .001;
+
+	/**
+	 * The values found on the original board.
+	 */
+	private JointValueFunction<GridState> valueFunction;
+
+	public MultigridValueIteration(int numIterations, NormalFormSolver<GridAction> normalFormSolver, double gamma, int blockSize, int numLevels) {
+		this.numIterations = numIterations;
+		this.normalFormSolver = normalFormSolver;
+		this.discountFactor = gamma;
+		this.blockSize = blockSize;
+		this.numLevels = numLevels;
+	}
+
+	public void setConvergenceThreshold(double convergenceThreshold) {
+		this.convergenceThreshold = convergenceThreshold;
+	}
+
+	public PolicyAndTransfers<GridState,GridAction> generatePolicyAndTransfers(SimpleBoard board, int numPlayers) {
+		GridGame game = new GridGame(numPlayers, board);
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = createValueIteration(discountFactor);
+		valueIteration.setInitialValueFunction(computeInitialValues(game, board, discountFactor, numLevels));
+		PolicyAndTransfers<GridState,GridAction> policyAndTransfers = valueIteration.generatePolicyAndTransfers(game);
+		valueFunction = valueIteration.getValueFunction();
+		return policyAndTransfers;
+	}
+
+	public JointValueFunction<GridState> getValueFunction() {
+		return valueFunction;
+	}
+
+
+	/**
+	 * Returns starting values for value iteration on the given board, found by running 
+	 * value iteration on coarser boards (if there are any more levels).
+	 */
+	Map<GridState, Joint<Double>> computeInitialValues(GridGame game, SimpleBoard board, double gamma, int numRemainingLevels) {
+		Map<GridState, Joint<Double>> initialValues = game.computeGoalDistanceValues(gamma);
+
+		// Only coarsen while the coarse board has at least two blocks in some dimension.
+		boolean canCoarsen = (board.getNumXLocations() > blockSize || board.getNumYLocations() > blockSize);
+		if (numRemainingLevels <= 1 || !canCoarsen) {
+			return initialValues;
+		}
+
+		SimpleBoard coarseBoard = board.coarsen(blockSize, gamma);
+		double coarseGamma = Math.pow(gamma, blockSize);
+		GridGame coarseGame = new GridGame(game.getNumPlayers(), coarseBoard);
+		MultiAgentValueIteration<GridState,GridAction> coarseValueIteration = createValueIteration(coarseGamma);
+		coarseValueIteration.setInitialValueFunction(computeInitialValues(coarseGame, coarseBoard, coarseGamma, numRemainingLevels-1));
+		coarseValueIteration.generatePolicyAndTransfers(coarseGame);
+		return prolong(game, coarseGame, coarseValueIteration.getValueFunction(), initialValues);
+	}
+
+
+	private MultiAgentValueIteration<GridState,GridAction> createValueIteration(double gamma) {
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(numIterations, normalFormSolver, gamma);
+		valueIteration.setConvergenceThreshold(convergenceThreshold);
+		return valueIteration;
+	}
+
+
+	/**
+	 * Maps values on a coarse game to starting values on a fine game.
+	 * When players share a block, the fine state gets the average value of the coarse
+	 * states where all but the first of those players are moved into a neighboring block.
+	 * Fine states without any matching non-terminal coarse state keep their default values.
+	 */
+	Map<GridState, Joint<Double>> prolong(GridGame fineGame, GridGame coarseGame,
+			JointValueFunction<GridState> coarseValueFunction, Map<GridState, Joint<Double>> defaultValues) {
+		int numPlayers = fineGame.getNumPlayers();
+		Map<GridState, Joint<Double>> fineValues = new HashMap<GridState, Joint<Double>>();
+		for (GridState fineState : fineGame.getPossibleStates()) {
+			fineValues.put(fineState, defaultValues.get(fineState));
+			if (fineGame.isTerminalState(fineState)) continue;
+
+			// Find the coarse states this fine state corresponds to.
+			List<Joint<Position>> coarsePositionCandidates = new ArrayList<Joint<Position>>();
+			coarsePositionCandidates.add(new Joint<Position>());
+			Set<Position> occupiedCoarsePositions = new HashSet<Position>();
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				Position coarsePosition = SimpleBoard.getCoarsePosition(fineState.getPlayerPosition(playerIdx), blockSize);
+				List<Position> playerCoarsePositions = new ArrayList<Position>();
+				if (!occupiedCoarsePositions.contains(coarsePosition)) {
+					playerCoarsePositions.add(coarsePosition);
+				} else {
+					playerCoarsePositions.add(new Position(coarsePosition.getX(), coarsePosition.getY()+1));
+					playerCoarsePositions.add(new Position(coarsePosition.getX(), coarsePosition.getY()-1));
+					playerCoarsePositions.add(new Position(coarsePosition.getX()-1, coarsePosition.getY()));
+					playerCoarsePositions.add(new Position(coarsePosition.getX()+1, coarsePosition.getY()));
+				}
+				occupiedCoarsePositions.add(coarsePosition);
+				List<Joint<Position>> extendedCandidates = new ArrayList<Joint<Position>>();
+				for (Joint<Position> candidate : coarsePositionCandidates) {
+					for (Position playerCoarsePosition : playerCoarsePositions) {
+						Joint<Position> extendedCandidate = new Joint<Position>(candidate);
+						extendedCandidate.add(playerCoarsePosition);
+						extendedCandidates.add(extendedCandidate);
+					}
+				}
+				coarsePositionCandidates = extendedCandidates;
+			}
+
+			// Average the values of the coarse states that exist and aren't terminal.
+			Joint<Double> valueSums = null;
+			int numCoarseStates = 0;
+			for (Joint<Position> coarsePositions : coarsePositionCandidates) {
+				GridState coarseState = new GridState(coarsePositions);
+				if (!coarseValueFunction.containsKey(coarseState) || coarseGame.isTerminalState(coarseState)) continue;
+				Joint<Double> coarseValues = coarseValueFunction.get(coarseState);
+				if (valueSums == null) {
+					valueSums = new Joint<Double>(coarseValues);
+				} else {
+					for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+						valueSums.set(playerIdx, valueSums.get(playerIdx) + coarseValues.get(playerIdx));
+					}
+				}
+				numCoarseStates++;
+			}
+			if (numCoarseStates == 0) continue;
+			Joint<Double> fineStateValues = new Joint<Double>();
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				fineStateValues.add(valueSums.get(playerIdx) / numCoarseStates);
+			}
+			fineValues.put(fineState, fineStateValues);
+		}
+		return fineValues;
+	}
+}
@@ -0,0 +1,208 @@
+package sequentialsolver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.SimpleBoard;
+
+/**
+ * Runs multi-agent value iteration for a grid game across several worker JVMs
+ * on the same machine, so that the work (and heap) is not limited to one process.
+ * Each worker owns a contiguous partition of state indices. Value functions
+ * are exchanged through a memory-mapped file (see SharedValueStore), and
+ * this class acts as the coordinator: it starts the workers, tells them
+ * to run each iteration, and waits for all of them to finish (a barrier)
+ * before starting the next.
+ *
+ * Workers rebuild the game from the board file, so the coordinator and workers
+ * agree on state and joint action indices.
+ *
+ * @author sodomka
+ *
+ */
+public class ShardedValueIteration {
+
+	/**
+	 * Shared memory is used for the value file when available.
+	 */
+	private static final String SHARED_MEMORY_DIRECTORY = "/dev/shm";
+
+	private int numIterations;
+	private String solverName;
+	private double discountFactor;
+	private int numWorkers;
+
+	/**
+	 * Extra JVM arguments for each worker (e.g., "-Xmx4g").
+	 */
+	private List<String> workerJvmArgs;
+
+	public ShardedValueIteration(int numIterations, String solverName, double gamma, int numWorkers) {
+		this.numIterations = numIterations;
+		this.solverName = solverName;
+		this.discountFactor = gamma;
+		this.numWorkers = numWorkers;
+		this.workerJvmArgs = new ArrayList<String>();
+	}
+
+	public void setWorkerJvmArgs(List<String> workerJvmArgs) {
+		this.workerJvmArgs = workerJvmArgs;
+	}
+
+	public PolicyAndTransfers<GridState,GridAction> generatePolicyAndTransfers(String boardFilename, int numPlayers) throws IOException {
+		GridGame game = new GridGame(numPlayers, new SimpleBoard(boardFilename));
+		List<GridState> states = game.getPossibleStates();
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+		int numStates = states.size();
+
+		File sharedFile = createSharedFile();
+		SharedValueStore store;
+		try {
+			store = new SharedValueStore(sharedFile, numStates, numPlayers, jointActions.size(), true);
+		} catch (IOException e) {
+			sharedFile.delete();
+			throw e;
+		}
+
+		List<Process> workers = new ArrayList<Process>();
+		List<PrintWriter> workerInputs = new ArrayList<PrintWriter>();
+		List<BufferedReader> workerOutputs = new ArrayList<BufferedReader>();
+		JointPolicy<GridState,GridAction> jointPolicy = new JointPolicy<GridState,GridAction>();
+		Map<GridState,Joint<Double>> jointTransfers = new HashMap<GridState, Joint<Double>>();
+		try {
+			// Start workers, each with an (almost) equal share of the states.
+			for (int workerIdx=0; workerIdx<numWorkers; workerIdx++) {
+				int firstStateIdx = (int) ((long) numStates * workerIdx / numWorkers);
+				int endStateIdx = (int) ((long) numStates * (workerIdx+1) / numWorkers);
+				ProcessBuilder processBuilder = new ProcessBuilder(getWorkerCommand(boardFilename, numPlayers, sharedFile, firstStateIdx, endStateIdx));
+				processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				Process worker = processBuilder.start();
+				workers.add(worker);
+				workerInputs.add(new PrintWriter(worker.getOutputStream(), true));
+				workerOutputs.add(new BufferedReader(new InputStreamReader(worker.getInputStream())));
+			}
+			for (int workerIdx=0; workerIdx<numWorkers; workerIdx++) {
+				readMessage(workerOutputs.get(workerIdx), workerIdx, ShardedValueIterationWorker.READY_MESSAGE);
+			}
+
+			for (int iteration=0; iteration<numIterations; iteration++) {
+				for (PrintWriter workerInput : workerInputs) {
+					workerInput.println(ShardedValueIterationWorker.ITERATE_MESSAGE + " " + iteration);
+				}
+				// Barrier: every worker must finish this iteration before the next one starts.
+				double valueFunctionDiff = 0;
+				for (int workerIdx=0; workerIdx<numWorkers; workerIdx++) {
+					String[] message = readMessage(workerOutputs.get(workerIdx), workerIdx, ShardedValueIterationWorker.DONE_MESSAGE);
+					try {
+						valueFunctionDiff = Math.max(valueFunctionDiff, Double.parseDouble(message[2]));
+					} catch (RuntimeException e) {
+						throw new IOException("Worker " + workerIdx + " sent a malformed message: " + Arrays.toString(message), e);
+					}
+				}
+				System.out.println("iteration=" + iteration + ", valueFunctionDiff=" + valueFunctionDiff);
+			}
+
+			for (PrintWriter workerInput : workerInputs) {
+				workerInput.println(ShardedValueIterationWorker.EXIT_MESSAGE);
+			}
+			for (Process worker : workers) {
+				worker.waitFor();
+			}
+
+			// Collect the policy and transfers written by the final iteration
+			// (only once every worker has finished, so none of them are half-written).
+			for (int stateIdx=0; stateIdx<numStates; stateIdx++) {
+				GridState state = states.get(stateIdx);
+				if (numIterations == 0 || game.isTerminalState(state)) continue;
+				DiscreteDistribution<Joint<GridAction>> jointActionDistribution = new DiscreteDistribution<Joint<GridAction>>();
+				for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+					jointActionDistribution.add(jointActions.get(jointActionIdx), store.getPolicyProb(stateIdx, jointActionIdx));
+				}
+				jointPolicy.put(state, jointActionDistribution);
+				Joint<Double> transferPayments = new Joint<Double>();
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					transferPayments.add(store.getTransfer(stateIdx, playerIdx));
+				}
+				jointTransfers.put(state, transferPayments);
+			}
+		} catch (InterruptedException e) {
+			// Keep the interrupt for the caller, and don't return values from unfinished workers.
+			Thread.currentThread().interrupt();
+			InterruptedIOException interruptedException = new InterruptedIOException("Interrupted while waiting for workers.");
+			interruptedException.initCause(e);
+			throw interruptedException;
+		} finally {
+			for (Process worker : workers) {
+				worker.destroy();
+			}
+			try {
+				store.close();
+			} finally {
+				sharedFile.delete();
+			}
+		}
+
+		return new PolicyAndTransfers<GridState,GridAction>(jointPolicy, jointTransfers);
+	}
+
+
+	/**
+	 * Reads the next protocol message from a worker, checking that it has the expected type.
+	 */
+	private static String[] readMessage(BufferedReader workerOutput, int workerIdx, String expectedMessageType) throws IOException {
+		String line = workerOutput.readLine();
+		if (line == null) {
+			throw new IOException("Worker " + workerIdx + " exited unexpectedly.");
+		}
+		String[] message = line.trim().split(" ");
+		if (!message[0].equals(expectedMessageType)) {
+			throw new IOException("Worker " + workerIdx + " sent '" + line + "'; expected " + expectedMessageType);
+		}
+		return message;
+	}
+
+
+	private List<String> getWorkerCommand(String boardFilename, int numPlayers, File sharedFile, int firstStateIdx, int endStateIdx) {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(workerJvmArgs);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardedValueIterationWorker.class.getName());
+		command.add(boardFilename);
+		command.add(Integer.toString(numPlayers));
+		command.add(solverName);
+		command.add(Double.toString(discountFactor));
+		command.add(sharedFile.getAbsolutePath());
+		command.add(Integer.toString(firstStateIdx));
+		command.add(Integer.toString(endStateIdx));
+		return command;
+	}
+
+
+	private static File createSharedFile() throws IOException {
+		File sharedMemoryDirectory = new File(SHARED_MEMORY_DIRECTORY);
+		File sharedFile;
+		if (sharedMemoryDirectory.isDirectory() && sharedMemoryDirectory.canWrite()) {
+			sharedFile = File.createTempFile("gridgames-values", ".bin", sharedMemoryDirectory);
+		} else {
+			sharedFile = File.createTempFile("gridgames-values", ".bin");
+		}
+		sharedFile.deleteOnExit();
+		return sharedFile;
+	}
+}
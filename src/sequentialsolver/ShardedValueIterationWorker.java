@@ -0,0 +1,164 @@
+package sequentialsolver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import normalformsolver.GameSolution;
+import normalformsolver.NamedNormalFormSolverFactory;
+import normalformsolver.NormalFormSolver;
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.SimpleBoard;
+
+/**
+ * A worker process for sharded value iteration. The worker owns a contiguous
+ * range of state indices. For each iteration requested by the coordinator,
+ * it reads the previous iteration's values for all states from the shared file
+ * and writes updated values, policies, and transfers for its own states.
+ *
+ * Protocol (one line per message, over the worker's stdin/stdout):
+ *   worker -> coordinator: READY
+ *   coordinator -> worker: ITERATE k
+ *   worker -> coordinator: DONE k maxValueDiff
+ *   coordinator -> worker: EXIT
+ * Anything else the worker prints (e.g., board debugging output) goes to stderr.
+ *
+ * Usage: ShardedValueIterationWorker boardFile numPlayers solverName gamma sharedFile firstStateIdx endStateIdx
+ *
+ * @author sodomka
+ *
+ */
+public class ShardedValueIterationWorker {
+
+	static final String READY_MESSAGE = "READY";
+	static final String ITERATE_MESSAGE = "ITERATE";
+	static final String DONE_MESSAGE = "DONE";
+	static final String EXIT_MESSAGE = "EXIT";
+
+
+	public static void main(String[] args) throws IOException {
+		// Keep stdout for the protocol only.
+		PrintStream protocolOut = System.out;
+		System.setOut(System.err);
+
+		String boardFilename = args[0];
+		int numPlayers = Integer.parseInt(args[1]);
+		String solverName = args[2];
+		double gamma = Double.parseDouble(args[3]);
+		String sharedFilename = args[4];
+		int firstStateIdx = Integer.parseInt(args[5]);
+		int endStateIdx = Integer.parseInt(args[6]);
+
+		GridGame game = new GridGame(numPlayers, new SimpleBoard(boardFilename));
+		List<GridState> states = game.getPossibleStates();
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+		Map<GridState, Integer> stateIndices = new HashMap<GridState, Integer>();
+		for (int stateIdx=0; stateIdx<states.size(); stateIdx++) {
+			stateIndices.put(states.get(stateIdx), stateIdx);
+		}
+
+		SharedValueStore store = new SharedValueStore(new File(sharedFilename), states.size(), numPlayers, jointActions.size(), false);
+		NormalFormSolver<GridAction> normalFormSolver = NamedNormalFormSolverFactory.<GridAction>createSolver(solverName);
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(1, normalFormSolver, gamma);
+
+		protocolOut.println(READY_MESSAGE);
+		protocolOut.flush();
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while ((line = in.readLine()) != null) {
+			String[] message = line.trim().split(" ");
+			if (message[0].equals(EXIT_MESSAGE)) {
+				break;
+			} else if (!message[0].equals(ITERATE_MESSAGE)) {
+				System.err.println("Unknown message from coordinator: " + line);
+				continue;
+			}
+			int iteration = Integer.parseInt(message[1]);
+			int readBufferIdx = SharedValueStore.getReadBufferIdx(iteration);
+			int writeBufferIdx = SharedValueStore.getWriteBufferIdx(iteration);
+			JointValueFunction<GridState> valueFunction = new SharedJointValueFunction(store, stateIndices, readBufferIdx, numPlayers);
+
+			double maxAbsoluteDifference = 0;
+			for (int stateIdx=firstStateIdx; stateIdx<endStateIdx; stateIdx++) {
+				GridState state = states.get(stateIdx);
+				if (game.isTerminalState(state)) {
+					for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+						store.setValue(writeBufferIdx, stateIdx, playerIdx, 0);
+					}
+					continue;
+				}
+				// The policy written in the previous iteration is this state's previous solution.
+				DiscreteDistribution<Joint<GridAction>> previousJointActionDistribution = null;
+				if (iteration > 0) {
+					previousJointActionDistribution = new DiscreteDistribution<Joint<GridAction>>();
+					for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+						previousJointActionDistribution.add(jointActions.get(jointActionIdx), store.getPolicyProb(stateIdx, jointActionIdx));
+					}
+				}
+				GameSolution<GridAction> gameSolution = valueIteration.solveStageGame(game, state, valueFunction, previousJointActionDistribution);
+
+				Joint<Double> expectedPayoffs = gameSolution.getExpectedPayoffsWithTransfer();
+				Joint<Double> transferPayments = gameSolution.getTransferPayments();
+				for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+					double updatedValue = expectedPayoffs.getForPlayer(playerIdx);
+					double absoluteDifference = Math.abs(updatedValue - store.getValue(readBufferIdx, stateIdx, playerIdx));
+					if (absoluteDifference > maxAbsoluteDifference) {
+						maxAbsoluteDifference = absoluteDifference;
+					}
+					store.setValue(writeBufferIdx, stateIdx, playerIdx, updatedValue);
+					store.setTransfer(stateIdx, playerIdx, transferPayments.getForPlayer(playerIdx));
+				}
+
+				DiscreteDistribution<Joint<GridAction>> jointActionDistribution = gameSolution.getJointActionDistribution();
+				for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+					Double prob = jointActionDistribution.get(jointActions.get(jointActionIdx));
+					store.setPolicyProb(stateIdx, jointActionIdx, (prob == null) ? 0 : prob);
+				}
+			}
+			protocolOut.println(DONE_MESSAGE + " " + iteration + " " + maxAbsoluteDifference);
+			protocolOut.flush();
+		}
+		normalFormSolver.close();
+		store.close();
+	}
+
+
+	/**
+	 * A value function whose values are read directly from one of the
+	 * shared value buffers, rather than being copied onto this worker's heap.
+	 */
+	@SuppressWarnings("serial")
+	private static class SharedJointValueFunction extends JointValueFunction<GridState> {
+		private SharedValueStore store;
+		private Map<GridState, Integer> stateIndices;
+		private int bufferIdx;
+		private int numPlayers;
+
+		public SharedJointValueFunction(SharedValueStore store, Map<GridState, Integer> stateIndices, int bufferIdx, int numPlayers) {
+			this.store = store;
+			this.stateIndices = stateIndices;
+			this.bufferIdx = bufferIdx;
+			this.numPlayers = numPlayers;
+		}
+
+		@Override
+		public Joint<Double> getJointValuesForState(GridState state) {
+			int stateIdx = stateIndices.get(state);
+			Joint<Double> values = new Joint<Double>();
+			for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+				values.add(store.getValue(bufferIdx, stateIdx, playerIdx));
+			}
+			return values;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package sequentialsolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory-mapped file that holds value iteration data shared between
+ * processes. States, players, and joint actions are addressed by their index
+ * in the game's lists of possible states and joint actions.
+ * The file contains four regions:
+ * 1) values[0][state][player] and 2) values[1][state][player]: two value
+ *    function buffers. Iteration k reads buffer (k % 2) and writes buffer ((k+1) % 2),
+ *    so no copying is needed between iterations.
+ * 3) policy[state][jointAction]: the probability of each joint action.
+ * 4) transfers[state][player]: the transfer payment to each player.
+ * Each region is mapped separately, so each must be smaller than 2GB.
+ *
+ * @author sodomka
+ *
+ */
+public class SharedValueStore {
+
+	private static final int BYTES_PER_DOUBLE = 8;
+
+	private int numStates;
+	private int numPlayers;
+	private int numJointActions;
+
+	private RandomAccessFile file;
+	private DoubleBuffer[] valueBuffers;
+	private DoubleBuffer policyBuffer;
+	private DoubleBuffer transferBuffer;
+
+	/**
+	 * Maps the given file, creating (and zero-filling) it if create is true.
+	 * @param sharedFile
+	 * @param numStates
+	 * @param numPlayers
+	 * @param numJointActions
+	 * @param create
+	 * @throws IOException
+	 */
+	public SharedValueStore(File sharedFile, int numStates, int numPlayers, int numJointActions, boolean create) throws IOException {
+		this.numStates = numStates;
+		this.numPlayers = numPlayers;
+		this.numJointActions = numJointActions;
+
+		long valueRegionBytes = getRegionBytes((long) numStates * numPlayers);
+		long policyRegionBytes = getRegionBytes((long) numStates * numJointActions);
+		long transferRegionBytes = valueRegionBytes;
+		long totalBytes = 2*valueRegionBytes + policyRegionBytes + transferRegionBytes;
+
+		this.file = new RandomAccessFile(sharedFile, "rw");
+		if (create) {
+			// A newly extended file is zero-filled, which gives an all-zero initial value function.
+			file.setLength(0);
+			file.setLength(totalBytes);
+		} else if (file.length() != totalBytes) {
+			file.close();
+			throw new IOException("Shared file " + sharedFile + " has " + file.length() + " bytes; expected " + totalBytes);
+		}
+
+		FileChannel channel = file.getChannel();
+		long offset = 0;
+		valueBuffers = new DoubleBuffer[2];
+		for (int bufferIdx=0; bufferIdx<2; bufferIdx++) {
+			valueBuffers[bufferIdx] = channel.map(FileChannel.MapMode.READ_WRITE, offset, valueRegionBytes).asDoubleBuffer();
+			offset += valueRegionBytes;
+		}
+		policyBuffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, policyRegionBytes).asDoubleBuffer();
+		offset += policyRegionBytes;
+		transferBuffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, transferRegionBytes).asDoubleBuffer();
+	}
+
+	private static long getRegionBytes(long numDoubles) {
+		long numBytes = numDoubles * BYTES_PER_DOUBLE;
+		if (numBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Shared region of " + numBytes + " bytes is too large to map.");
+		}
+		return numBytes;
+	}
+
+	/**
+	 * Returns the value buffer that is read during the given iteration.
+	 * The other buffer is written during that iteration.
+	 * @param iteration
+	 * @return
+	 */
+	public static int getReadBufferIdx(int iteration) {
+		return iteration % 2;
+	}
+
+	public static int getWriteBufferIdx(int iteration) {
+		return (iteration + 1) % 2;
+	}
+
+	public double getValue(int bufferIdx, int stateIdx, int playerIdx) {
+		return valueBuffers[bufferIdx].get(stateIdx*numPlayers + playerIdx);
+	}
+
+	public void setValue(int bufferIdx, int stateIdx, int playerIdx, double value) {
+		valueBuffers[bufferIdx].put(stateIdx*numPlayers + playerIdx, value);
+	}
+
+	public double getPolicyProb(int stateIdx, int jointActionIdx) {
+		return policyBuffer.get(stateIdx*numJointActions + jointActionIdx);
+	}
+
+	public void setPolicyProb(int stateIdx, int jointActionIdx, double prob) {
+		policyBuffer.put(stateIdx*numJointActions + jointActionIdx, prob);
+	}
+
+	public double getTransfer(int stateIdx, int playerIdx) {
+		return transferBuffer.get(stateIdx*numPlayers + playerIdx);
+	}
+
+	public void setTransfer(int stateIdx, int playerIdx, double transfer) {
+		transferBuffer.put(stateIdx*numPlayers + playerIdx, transfer);
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
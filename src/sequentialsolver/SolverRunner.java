@@ -13,10 +13,8 @@ import sequentialgame.grid.GridGame;
 import sequentialgame.grid.GridState;
 import sequentialgame.grid.SimpleBoard;
 import sequentialsimulator.Simulator;
-import normalformsolver.BimatrixCocoSolver;
-import normalformsolver.BimatrixCorrelatedEqmSolver;
-import normalformsolver.BimatrixGambitSolver;
-import normalformsolver.BimatrixHuSolver;
+import normalformsolver.DominanceEliminationSolver;
+import normalformsolver.NamedNormalFormSolverFactory;
 import normalformsolver.NormalFormSolver;
 
 /**
@@ -30,10 +28,11 @@ public class SolverRunner {
 	
 	public static void main(String[] args) {
 		int numIterations = 25;
-		//NormalFormSolver<GridAction> normalFormSolver = new BimatrixHuSolver<GridAction>();
-		//NormalFormSolver<GridAction> normalFormSolver = new BimatrixCocoSolver<GridAction>();
-		//NormalFormSolver<GridAction> normalFormSolver = new BimatrixCorrelatedEqmSolver<GridAction>();
-		NormalFormSolver<GridAction> normalFormSolver = new BimatrixGambitSolver<GridAction>();
+		// The solver's name, e.g. "hu", "coco", "ce", "gambit" or "nash" (see NamedNormalFormSolverFactory.createSolver).
+		String solverName = (args.length > 0) ? args[0] : "nash";
+		NormalFormSolver<GridAction> normalFormSolver = NamedNormalFormSolverFactory.<GridAction>createSolver(solverName);
+		// To remove strictly dominated and duplicate actions before solving each one-step game (not for coco):
+		//normalFormSolver = new DominanceEliminationSolver<GridAction>(normalFormSolver);
 		
 		double gamma = .9;
 		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(numIterations, normalFormSolver, gamma);
@@ -43,7 +42,16 @@ public class SolverRunner {
 		//Board board = new SimpleBoard(2, 2);
 		int numPlayers = 2;
 		SequentialGame<GridState, GridAction> game = new GridGame(numPlayers, board);
+		// To start value iteration from estimated values instead of zeros:
+		//valueIteration.setInitialValueFunction(((GridGame) game).computeGoalDistanceValues(gamma));
+		//valueIteration.setConvergenceThreshold(.001);
+		// Solve smaller stage games where some of a player's actions are equivalent (e.g., moves into walls):
+		valueIteration.setCollapseEquivalentActions(true);
 		PolicyAndTransfers<GridState, GridAction> policyAndTransfers = valueIteration.generatePolicyAndTransfers(game);
+		// To split value iteration across several worker JVMs instead:
+		//PolicyAndTransfers<GridState, GridAction> policyAndTransfers = new ShardedValueIteration(numIterations, solverName, gamma, 4).generatePolicyAndTransfers(filename, numPlayers);
+		// Or, for large boards, to start from values found on coarser versions of the board:
+		//PolicyAndTransfers<GridState, GridAction> policyAndTransfers = new MultigridValueIteration(numIterations, normalFormSolver, gamma, 2, 3).generatePolicyAndTransfers(board, numPlayers);
 		JointPolicy<GridState,GridAction> policy = policyAndTransfers.getPolicy();
 		Map<GridState,Joint<Double>> transfers = policyAndTransfers.getTransfers();
 		
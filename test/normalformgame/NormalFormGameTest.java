@@ -0,0 +1,80 @@
+package normalformgame;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+
+public class NormalFormGameTest {
+
+	@Test
+	public void testJointActionIndicesFollowGridGameOrder() {
+		List<GridAction> actions = TestGames.createActions("U", "D", "S");
+		int numPlayers = 3;
+		NormalFormGame<GridAction> game = TestGames.createGame(actions, numPlayers);
+		List<Joint<GridAction>> jointActions = GridGame.computePossibleJointActions(actions, numPlayers);
+
+		assertEquals(27, game.getNumJointActions());
+		assertEquals(9, game.getStride(0));
+		assertEquals(3, game.getStride(1));
+		assertEquals(1, game.getStride(2));
+		for (int jointActionIdx=0; jointActionIdx<jointActions.size(); jointActionIdx++) {
+			assertEquals(jointActionIdx, game.getJointActionIndex(jointActions.get(jointActionIdx)));
+		}
+		assertEquals(2*9 + 0*3 + 1, game.getJointActionIndex(new int[] {2, 0, 1}));
+	}
+
+	@Test
+	public void testPayoffViews() {
+		NormalFormGame<GridAction> game = TestGames.createGame(TestGames.createActions("U", "D"), 2);
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+
+		Joint<GridAction> jointAction = jointActions.get(2); // (D, U)
+		Joint<Double> payoffs = new Joint<Double>();
+		payoffs.add(3.0);
+		payoffs.add(-1.0);
+		game.addPayoffsForJointAction(jointAction, payoffs);
+		assertEquals(payoffs, game.getPayoffsForJointAction(jointAction));
+		assertEquals(3.0, game.getPayoff(2, 0), 0);
+		assertEquals(-1.0, game.getPayoff(2, 1), 0);
+
+		// Joint actions without payoffs have none in the Joint view.
+		assertNull(game.getPayoffsForJointAction(jointActions.get(0)));
+		game.setPayoff(0, 1, 5.0);
+		assertEquals(5.0, game.getPayoffsForJointAction(jointActions.get(0)).get(1), 0);
+	}
+
+	@Test
+	public void testAddPayoffsRejectsUnknownAndDuplicateJointActions() {
+		NormalFormGame<GridAction> game = TestGames.createGame(TestGames.createActions("U", "D"), 2);
+		Joint<Double> payoffs = new Joint<Double>();
+		payoffs.add(1.0);
+		payoffs.add(2.0);
+
+		Joint<GridAction> unknownJointAction = new Joint<GridAction>();
+		unknownJointAction.add(new GridAction("U"));
+		unknownJointAction.add(new GridAction("S"));
+		try {
+			game.addPayoffsForJointAction(unknownJointAction, payoffs);
+			fail("Payoffs were added for a joint action that isn't in the game.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(unknownJointAction.toString()));
+		}
+
+		Joint<GridAction> jointAction = game.getPossibleJointActions().get(1);
+		game.addPayoffsForJointAction(jointAction, payoffs);
+		try {
+			game.addPayoffsForJointAction(jointAction, payoffs);
+			fail("Payoffs were added twice for the same joint action.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(jointAction.toString()));
+		}
+		assertEquals(payoffs, game.getPayoffsForJointAction(jointAction));
+	}
+
+}
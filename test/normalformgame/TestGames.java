@@ -0,0 +1,83 @@
+package normalformgame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+
+/**
+ * Builds small normal form games for tests. Joint actions are in the same order
+ * as GridGame's (player 1's action varies slowest).
+ *
+ * @author sodomka
+ *
+ */
+public class TestGames {
+
+	public static List<GridAction> createActions(String... names) {
+		List<GridAction> actions = new ArrayList<GridAction>();
+		for (String name : names) {
+			actions.add(new GridAction(name));
+		}
+		return actions;
+	}
+
+	/**
+	 * Creates a game, without payoffs, where every player has the given actions.
+	 */
+	public static NormalFormGame<GridAction> createGame(List<GridAction> actions, int numPlayers) {
+		Joint<List<GridAction>> actionsPerPlayer = new Joint<List<GridAction>>();
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			actionsPerPlayer.add(actions);
+		}
+		return new NormalFormGame<GridAction>(numPlayers, actionsPerPlayer, GridGame.computePossibleJointActions(actions, numPlayers));
+	}
+
+	/**
+	 * Creates a 2-player game where both players have the given actions.
+	 */
+	public static NormalFormGame<GridAction> createGame(List<GridAction> actions, double[][] p1Payoffs, double[][] p2Payoffs) {
+		return createGame(actions, actions, p1Payoffs, p2Payoffs);
+	}
+
+	/**
+	 * Creates a 2-player game with the given payoff matrices, indexed [player1Action][player2Action].
+	 */
+	public static NormalFormGame<GridAction> createGame(List<GridAction> player1Actions, List<GridAction> player2Actions, double[][] p1Payoffs, double[][] p2Payoffs) {
+		Joint<List<GridAction>> actionsPerPlayer = new Joint<List<GridAction>>();
+		actionsPerPlayer.add(player1Actions);
+		actionsPerPlayer.add(player2Actions);
+		List<Joint<GridAction>> jointActions = new ArrayList<Joint<GridAction>>();
+		for (GridAction a1 : player1Actions) {
+			for (GridAction a2 : player2Actions) {
+				Joint<GridAction> jointAction = new Joint<GridAction>();
+				jointAction.add(a1);
+				jointAction.add(a2);
+				jointActions.add(jointAction);
+			}
+		}
+		NormalFormGame<GridAction> game = new NormalFormGame<GridAction>(2, actionsPerPlayer, jointActions);
+		for (int a1=0; a1<player1Actions.size(); a1++) {
+			for (int a2=0; a2<player2Actions.size(); a2++) {
+				Joint<Double> payoffs = new Joint<Double>();
+				payoffs.add(p1Payoffs[a1][a2]);
+				payoffs.add(p2Payoffs[a1][a2]);
+				game.addPayoffsForJointAction(jointActions.get(a1*player2Actions.size() + a2), payoffs);
+			}
+		}
+		return game;
+	}
+
+	/**
+	 * The prisoner's dilemma, with actions C (cooperate) and D (defect).
+	 * Defecting is dominant, so both players get -2 in its only equilibrium.
+	 */
+	public static NormalFormGame<GridAction> createPrisonersDilemma() {
+		double[][] p1Payoffs = {{-1, -3}, {0, -2}};
+		double[][] p2Payoffs = {{-1, 0}, {-3, -2}};
+		return createGame(createActions("C", "D"), p1Payoffs, p2Payoffs);
+	}
+
+}
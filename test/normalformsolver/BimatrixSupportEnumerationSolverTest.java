@@ -0,0 +1,110 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import props.Joint;
+
+public class BimatrixSupportEnumerationSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMatchingPennies() {
+		double[][] p1Payoffs = {{1, -1}, {-1, 1}};
+		double[][] p2Payoffs = {{-1, 1}, {1, -1}};
+		Joint<double[]> equilibrium = BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs);
+		assertArrayEquals(new double[] {.5, .5}, equilibrium.get(0), TOLERANCE);
+		assertArrayEquals(new double[] {.5, .5}, equilibrium.get(1), TOLERANCE);
+	}
+
+	@Test
+	public void testBattleOfTheSexes() {
+		// Two pure equilibria, found first, and one mixed equilibrium.
+		double[][] p1Payoffs = {{2, 0}, {0, 1}};
+		double[][] p2Payoffs = {{1, 0}, {0, 2}};
+		List<Joint<double[]>> equilibria = BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs, false);
+		assertEquals(3, equilibria.size());
+		assertArrayEquals(new double[] {1, 0}, equilibria.get(0).get(0), TOLERANCE);
+		assertArrayEquals(new double[] {1, 0}, equilibria.get(0).get(1), TOLERANCE);
+		assertArrayEquals(new double[] {0, 1}, equilibria.get(1).get(0), TOLERANCE);
+		assertArrayEquals(new double[] {0, 1}, equilibria.get(1).get(1), TOLERANCE);
+		assertArrayEquals(new double[] {2./3, 1./3}, equilibria.get(2).get(0), TOLERANCE);
+		assertArrayEquals(new double[] {1./3, 2./3}, equilibria.get(2).get(1), TOLERANCE);
+	}
+
+	@Test
+	public void testPureEquilibria() {
+		// Prisoner's dilemma: (defect, defect) is the only equilibrium.
+		double[][] p1Payoffs = {{-1, -3}, {0, -2}};
+		double[][] p2Payoffs = {{-1, 0}, {-3, -2}};
+		List<Joint<double[]>> equilibria = BimatrixSupportEnumerationSolver.solveForPureNash(p1Payoffs, p2Payoffs, false);
+		assertEquals(1, equilibria.size());
+		assertArrayEquals(new double[] {0, 1}, equilibria.get(0).get(0), TOLERANCE);
+		assertArrayEquals(new double[] {0, 1}, equilibria.get(0).get(1), TOLERANCE);
+		assertEquals(1, BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs, false).size());
+
+		// Matching pennies has no pure equilibrium.
+		double[][] p1PenniesPayoffs = {{1, -1}, {-1, 1}};
+		double[][] p2PenniesPayoffs = {{-1, 1}, {1, -1}};
+		assertTrue(BimatrixSupportEnumerationSolver.solveForPureNash(p1PenniesPayoffs, p2PenniesPayoffs, false).isEmpty());
+	}
+
+	@Test
+	public void testRandomGamesGiveEquilibria() {
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<200; gameIdx++) {
+			int numP1Actions = 1 + random.nextInt(5);
+			int numP2Actions = 1 + random.nextInt(5);
+			double[][] p1Payoffs = new double[numP1Actions][numP2Actions];
+			double[][] p2Payoffs = new double[numP1Actions][numP2Actions];
+			for (int a1=0; a1<numP1Actions; a1++) {
+				for (int a2=0; a2<numP2Actions; a2++) {
+					// Some games have tied payoffs.
+					p1Payoffs[a1][a2] = (gameIdx % 2 == 0) ? random.nextGaussian() : random.nextInt(3);
+					p2Payoffs[a1][a2] = (gameIdx % 2 == 0) ? random.nextGaussian() : random.nextInt(3);
+				}
+			}
+			Joint<double[]> equilibrium = BimatrixSupportEnumerationSolver.solveForNash(p1Payoffs, p2Payoffs);
+			double[] p1Mix = equilibrium.get(0);
+			double[] p2Mix = equilibrium.get(1);
+			assertEquals(1, sum(p1Mix), 1e-6);
+			assertEquals(1, sum(p2Mix), 1e-6);
+			double p1Payoff = 0;
+			double p2Payoff = 0;
+			for (int a1=0; a1<numP1Actions; a1++) {
+				for (int a2=0; a2<numP2Actions; a2++) {
+					p1Payoff += p1Mix[a1] * p2Mix[a2] * p1Payoffs[a1][a2];
+					p2Payoff += p1Mix[a1] * p2Mix[a2] * p2Payoffs[a1][a2];
+				}
+			}
+			for (int a1=0; a1<numP1Actions; a1++) {
+				double deviationPayoff = 0;
+				for (int a2=0; a2<numP2Actions; a2++) {
+					deviationPayoff += p2Mix[a2] * p1Payoffs[a1][a2];
+				}
+				assertTrue(deviationPayoff <= p1Payoff + 1e-6);
+			}
+			for (int a2=0; a2<numP2Actions; a2++) {
+				double deviationPayoff = 0;
+				for (int a1=0; a1<numP1Actions; a1++) {
+					deviationPayoff += p1Mix[a1] * p2Payoffs[a1][a2];
+				}
+				assertTrue(deviationPayoff <= p2Payoff + 1e-6);
+			}
+		}
+	}
+
+	private static double sum(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+}
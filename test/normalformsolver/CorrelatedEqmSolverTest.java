@@ -0,0 +1,161 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+
+import normalformsolver.CorrelatedEqmSolver.Objective;
+
+import org.junit.Test;
+
+import sequentialgame.grid.GridAction;
+
+public class CorrelatedEqmSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testTwoPlayerGamesMatchBimatrixSolver() {
+		Random random = new Random(0);
+		CorrelatedEqmSolver<GridAction> solver = new CorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		BimatrixCorrelatedEqmSolver<GridAction> bimatrixSolver = new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		for (int gameIdx=0; gameIdx<100; gameIdx++) {
+			int numPlayer1Actions = 2 + random.nextInt(4);
+			int numPlayer2Actions = 2 + random.nextInt(4);
+			double[][] p1Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			double[][] p2Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			double[] payoffs = new double[numPlayer1Actions * numPlayer2Actions * 2];
+			for (int a1=0; a1<numPlayer1Actions; a1++) {
+				for (int a2=0; a2<numPlayer2Actions; a2++) {
+					p1Payoffs[a1][a2] = random.nextInt(4);
+					p2Payoffs[a1][a2] = random.nextGaussian();
+					payoffs[(a1 * numPlayer2Actions + a2) * 2] = p1Payoffs[a1][a2];
+					payoffs[(a1 * numPlayer2Actions + a2) * 2 + 1] = p2Payoffs[a1][a2];
+				}
+			}
+			double[] jointActionProbs = solver.solve(new int[] {numPlayer1Actions, numPlayer2Actions}, payoffs);
+			double[][] bimatrixJointActionProbs = bimatrixSolver.solve(p1Payoffs, p2Payoffs);
+			double welfare = 0, bimatrixWelfare = 0;
+			for (int a1=0; a1<numPlayer1Actions; a1++) {
+				for (int a2=0; a2<numPlayer2Actions; a2++) {
+					double totalPayoff = p1Payoffs[a1][a2] + p2Payoffs[a1][a2];
+					welfare += jointActionProbs[a1 * numPlayer2Actions + a2] * totalPayoff;
+					bimatrixWelfare += bimatrixJointActionProbs[a1][a2] * totalPayoff;
+				}
+			}
+			assertEquals(bimatrixWelfare, welfare, TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testThreePlayerGamesAreCorrelatedEqm() {
+		Random random = new Random(0);
+		CorrelatedEqmSolver<GridAction> solver = new CorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		for (int gameIdx=0; gameIdx<20; gameIdx++) {
+			int[] numActions = {2 + random.nextInt(3), 2 + random.nextInt(3), 2 + random.nextInt(3)};
+			int numJointActions = numActions[0] * numActions[1] * numActions[2];
+			double[] payoffs = new double[numJointActions * 3];
+			for (int i=0; i<payoffs.length; i++) {
+				payoffs[i] = random.nextGaussian();
+			}
+			double[] jointActionProbs = solver.solve(numActions, payoffs);
+			double[] approximateJointActionProbs = RegretMatchingCorrelatedEqmSolver.solveForCorrelatedEqm(numActions, payoffs, 1000, 0, null);
+			double welfare = 0, approximateWelfare = 0, total = 0;
+			for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+				total += jointActionProbs[jointActionIdx];
+				for (int playerIdx=0; playerIdx<3; playerIdx++) {
+					welfare += jointActionProbs[jointActionIdx] * payoffs[jointActionIdx * 3 + playerIdx];
+					approximateWelfare += approximateJointActionProbs[jointActionIdx] * payoffs[jointActionIdx * 3 + playerIdx];
+				}
+			}
+			assertEquals(1, total, TOLERANCE);
+
+			// No player gains by deviating from any recommended action.
+			for (int playerIdx=0; playerIdx<3; playerIdx++) {
+				int stride = 1;
+				for (int otherIdx=playerIdx+1; otherIdx<3; otherIdx++) {
+					stride *= numActions[otherIdx];
+				}
+				for (int action=0; action<numActions[playerIdx]; action++) {
+					for (int deviation=0; deviation<numActions[playerIdx]; deviation++) {
+						double gain = 0;
+						for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+							if ((jointActionIdx / stride) % numActions[playerIdx] != action) continue;
+							int deviationIdx = jointActionIdx + (deviation - action) * stride;
+							gain += jointActionProbs[jointActionIdx] * (payoffs[deviationIdx * 3 + playerIdx] - payoffs[jointActionIdx * 3 + playerIdx]);
+						}
+						assertTrue(gain <= TOLERANCE);
+					}
+				}
+			}
+
+			// The LP's equilibrium is the best one, so it's at least as good as regret matching's
+			// (up to regret matching's gap, which can make its approximate equilibrium better).
+			assertTrue(welfare >= approximateWelfare - .1);
+		}
+	}
+
+	@Test
+	public void testObjectivesShareConstraints() {
+		Random random = new Random(0);
+		CorrelatedEqmSolver<GridAction> solver = new CorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		for (int gameIdx=0; gameIdx<20; gameIdx++) {
+			int[] numActions = {2 + random.nextInt(3), 2 + random.nextInt(3), 2 + random.nextInt(2)};
+			int numJointActions = numActions[0] * numActions[1] * numActions[2];
+			double[] payoffs = new double[numJointActions * 3];
+			for (int i=0; i<payoffs.length; i++) {
+				payoffs[i] = random.nextInt(4);
+			}
+			Map<Objective, double[][]> distributionsPerObjective = solver.solveForAllObjectives(numActions, payoffs);
+			double[][] values = new double[Objective.values().length][];
+			for (Objective objective : Objective.values()) {
+				// Starting from the previous objective's basis gives the same value as solving from scratch.
+				CorrelatedEqmSolver<GridAction> separateSolver = new CorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+				double[] expectedPayoffs = getExpectedPayoffs(separateSolver.solve(numActions, payoffs, objective), payoffs);
+				values[objective.ordinal()] = getExpectedPayoffs(distributionsPerObjective.get(objective), payoffs);
+				assertEquals(getValue(objective, expectedPayoffs), getValue(objective, values[objective.ordinal()]), TOLERANCE);
+			}
+			for (Objective objective : Objective.values()) {
+				double[] expectedPayoffs = values[objective.ordinal()];
+				// Each player does best in its own libertarian equilibrium.
+				for (int playerIdx=0; playerIdx<3; playerIdx++) {
+					assertTrue(expectedPayoffs[playerIdx] <= values[Objective.LIBERTARIAN.ordinal()][playerIdx] + TOLERANCE);
+				}
+				// (The libertarian payoffs come from different equilibria, so they can beat any single one's.)
+				if (objective == Objective.LIBERTARIAN) continue;
+				assertTrue(getValue(Objective.UTILITARIAN, expectedPayoffs) <= getValue(Objective.UTILITARIAN, values[Objective.UTILITARIAN.ordinal()]) + TOLERANCE);
+				assertTrue(getValue(Objective.EGALITARIAN, expectedPayoffs) <= getValue(Objective.EGALITARIAN, values[Objective.EGALITARIAN.ordinal()]) + TOLERANCE);
+			}
+		}
+	}
+
+	private static double[] getExpectedPayoffs(double[][] distributionPerPlayer, double[] payoffs) {
+		int numPlayers = distributionPerPlayer.length;
+		double[] expectedPayoffs = new double[numPlayers];
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			for (int jointActionIdx=0; jointActionIdx<distributionPerPlayer[playerIdx].length; jointActionIdx++) {
+				expectedPayoffs[playerIdx] += distributionPerPlayer[playerIdx][jointActionIdx] * payoffs[jointActionIdx * numPlayers + playerIdx];
+			}
+		}
+		return expectedPayoffs;
+	}
+
+	/**
+	 * Returns the value the objective maximizes, given the players' expected payoffs.
+	 */
+	private static double getValue(Objective objective, double[] expectedPayoffs) {
+		double total = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (double expectedPayoff : expectedPayoffs) {
+			total += expectedPayoff;
+			min = Math.min(min, expectedPayoff);
+			max = Math.max(max, expectedPayoff);
+		}
+		switch (objective) {
+		case EGALITARIAN: return min;
+		case REPUBLICAN: return max;
+		default: return total;
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DenseSimplexSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMaximize() {
+		// maximize 3x + 5y s.t. x <= 4, 2y <= 12, 3x + 2y <= 18 (optimum at x=2, y=6).
+		DenseSimplexSolver solver = new DenseSimplexSolver();
+		double[][] a = {{1, 0}, {0, 2}, {3, 2}};
+		int[] types = {DenseSimplexSolver.LESS_THAN_OR_EQUAL, DenseSimplexSolver.LESS_THAN_OR_EQUAL, DenseSimplexSolver.LESS_THAN_OR_EQUAL};
+		double[] b = {4, 12, 18};
+		double[] c = {3, 5};
+		assertEquals(DenseSimplexSolver.OPTIMAL, solver.maximize(a, types, b, c));
+		assertEquals(36, solver.getObjectiveValue(), TOLERANCE);
+		assertEquals(2, solver.getSolution()[0], TOLERANCE);
+		assertEquals(6, solver.getSolution()[1], TOLERANCE);
+	}
+
+	@Test
+	public void testEqualityAndGreaterThanConstraints() {
+		// maximize -x - y s.t. x + y >= 2, x - y = 1 (optimum at x=1.5, y=.5).
+		DenseSimplexSolver solver = new DenseSimplexSolver();
+		double[][] a = {{1, 1}, {1, -1}};
+		int[] types = {DenseSimplexSolver.GREATER_THAN_OR_EQUAL, DenseSimplexSolver.EQUAL};
+		double[] b = {2, 1};
+		double[] c = {-1, -1};
+		assertEquals(DenseSimplexSolver.OPTIMAL, solver.maximize(a, types, b, c));
+		assertEquals(-2, solver.getObjectiveValue(), TOLERANCE);
+		assertEquals(1.5, solver.getSolution()[0], TOLERANCE);
+		assertEquals(.5, solver.getSolution()[1], TOLERANCE);
+	}
+
+	@Test
+	public void testInfeasibleAndUnbounded() {
+		DenseSimplexSolver solver = new DenseSimplexSolver();
+		// x <= 1 and x >= 2.
+		double[][] a = {{1}, {1}};
+		int[] types = {DenseSimplexSolver.LESS_THAN_OR_EQUAL, DenseSimplexSolver.GREATER_THAN_OR_EQUAL};
+		double[] b = {1, 2};
+		double[] c = {1};
+		assertEquals(DenseSimplexSolver.INFEASIBLE, solver.maximize(a, types, b, c));
+
+		// maximize x s.t. x >= 1.
+		double[][] a2 = {{1}};
+		int[] types2 = {DenseSimplexSolver.GREATER_THAN_OR_EQUAL};
+		double[] b2 = {1};
+		assertEquals(DenseSimplexSolver.UNBOUNDED, solver.maximize(a2, types2, b2, c));
+	}
+
+	@Test
+	public void testReoptimize() {
+		// Same constraints as testMaximize; maximize 3x + y instead (optimum at x=4, y=3).
+		DenseSimplexSolver solver = new DenseSimplexSolver();
+		double[][] a = {{1, 0}, {0, 2}, {3, 2}};
+		int[] types = {DenseSimplexSolver.LESS_THAN_OR_EQUAL, DenseSimplexSolver.LESS_THAN_OR_EQUAL, DenseSimplexSolver.LESS_THAN_OR_EQUAL};
+		double[] b = {4, 12, 18};
+		assertEquals(DenseSimplexSolver.INFEASIBLE, solver.reoptimize(new double[] {3, 1}));
+		solver.maximize(a, types, b, new double[] {3, 5});
+		int numPivots = solver.getNumPivots();
+		assertEquals(DenseSimplexSolver.OPTIMAL, solver.reoptimize(new double[] {3, 1}));
+		assertEquals(15, solver.getObjectiveValue(), TOLERANCE);
+		assertEquals(4, solver.getSolution()[0], TOLERANCE);
+		assertEquals(3, solver.getSolution()[1], TOLERANCE);
+		assertEquals(1, solver.getNumPivots() - numPivots);
+	}
+
+	@Test
+	public void testZeroSumGames() {
+		ZeroSumBimatrixGameSolver solver = new ZeroSumBimatrixGameSolver(LpBackend.SIMPLEX);
+		// Matching pennies.
+		double[][] matchingPennies = {{1, -1}, {-1, 1}};
+		assertEquals(0, solver.solveForMinimaxValue(matchingPennies), TOLERANCE);
+		// A game with a saddle point.
+		double[][] saddle = {{3, 1}, {4, 2}};
+		assertEquals(2, solver.solveForMinimaxValue(saddle), TOLERANCE);
+		// A 3x2 game with value 1/2.
+		double[][] mixed = {{2, -1}, {-1, 2}, {0, 0}};
+		assertEquals(.5, solver.solveForMinimaxValue(mixed), TOLERANCE);
+	}
+
+	@Test
+	public void testMinimaxValueInClosedForm() {
+		Random random = new Random(0);
+		ZeroSumBimatrixGameSolver solver = new ZeroSumBimatrixGameSolver(LpBackend.SIMPLEX);
+		int numClosedForm = 0;
+		for (int gameIdx=0; gameIdx<200; gameIdx++) {
+			int m = 1 + random.nextInt(3);
+			int n = 1 + random.nextInt(3);
+			double[][] payoffs = new double[m][n];
+			double maxRowMinimum = Double.NEGATIVE_INFINITY;
+			double minColumnMaximum = Double.POSITIVE_INFINITY;
+			for (int i=0; i<m; i++) {
+				double rowMinimum = Double.POSITIVE_INFINITY;
+				for (int j=0; j<n; j++) {
+					payoffs[i][j] = random.nextInt(5) - 2;
+					rowMinimum = Math.min(rowMinimum, payoffs[i][j]);
+				}
+				maxRowMinimum = Math.max(maxRowMinimum, rowMinimum);
+			}
+			for (int j=0; j<n; j++) {
+				double columnMaximum = Double.NEGATIVE_INFINITY;
+				for (int i=0; i<m; i++) {
+					columnMaximum = Math.max(columnMaximum, payoffs[i][j]);
+				}
+				minColumnMaximum = Math.min(minColumnMaximum, columnMaximum);
+			}
+			double value = ZeroSumBimatrixGameSolver.solveForMinimaxValueInClosedForm(payoffs, maxRowMinimum, minColumnMaximum);
+			if (Double.isNaN(value)) {
+				// Only games without a saddle point that aren't 2x2 need an LP.
+				assertTrue(maxRowMinimum < minColumnMaximum && !(m == 2 && n == 2));
+				continue;
+			}
+			assertEquals(solver.solveForMinimaxValue(payoffs), value, TOLERANCE);
+			numClosedForm++;
+		}
+		assertTrue(numClosedForm > 100);
+	}
+
+	@Test
+	public void testCorrelatedEquilibrium() {
+		// Chicken: the welfare-maximizing correlated equilibrium puts probability 1/2 on (C,C)
+		// and 1/4 on each of (C,D) and (D,C).
+		BimatrixCorrelatedEqmSolver<?> solver = new BimatrixCorrelatedEqmSolver<sequentialgame.grid.GridAction>(LpBackend.SIMPLEX);
+		double[][] player1Payoffs = {{6,2},{7,0}};
+		double[][] player2Payoffs = {{6,7},{2,0}};
+		double[][] jointProbs = solver.solve(player1Payoffs, player2Payoffs);
+		assertEquals(.5, jointProbs[0][0], TOLERANCE);
+		assertEquals(.25, jointProbs[0][1], TOLERANCE);
+		assertEquals(.25, jointProbs[1][0], TOLERANCE);
+		assertEquals(0, jointProbs[1][1], TOLERANCE);
+	}
+
+	@Test
+	public void testDegenerateCorrelatedEquilibria() {
+		// Games with many tied payoffs (like the one-step games in grid games) make 
+		// the correlated equilibrium LP very degenerate. Check that the solver still
+		// finds distributions that satisfy the incentive constraints.
+		BimatrixCorrelatedEqmSolver<?> solver = new BimatrixCorrelatedEqmSolver<sequentialgame.grid.GridAction>(LpBackend.SIMPLEX);
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<500; gameIdx++) {
+			int numP1Actions = 1 + random.nextInt(5);
+			int numP2Actions = 1 + random.nextInt(5);
+			double[][] player1Payoffs = new double[numP1Actions][numP2Actions];
+			double[][] player2Payoffs = new double[numP1Actions][numP2Actions];
+			for (int a1=0; a1<numP1Actions; a1++) {
+				for (int a2=0; a2<numP2Actions; a2++) {
+					player1Payoffs[a1][a2] = random.nextInt(5);
+					player2Payoffs[a1][a2] = (random.nextBoolean()) ? player1Payoffs[a1][a2] : random.nextInt(5);
+				}
+			}
+			double[][] jointProbs = solver.solve(player1Payoffs, player2Payoffs);
+			assertNotNull(jointProbs);
+			double totalProb = 0;
+			for (int a1=0; a1<numP1Actions; a1++) {
+				for (int a2=0; a2<numP2Actions; a2++) {
+					assertTrue(jointProbs[a1][a2] > -1e-6);
+					totalProb += jointProbs[a1][a2];
+				}
+			}
+			assertEquals(1, totalProb, 1e-6);
+			for (int a1=0; a1<numP1Actions; a1++) {
+				for (int a1Prime=0; a1Prime<numP1Actions; a1Prime++) {
+					double gain = 0;
+					for (int a2=0; a2<numP2Actions; a2++) {
+						gain += (player1Payoffs[a1Prime][a2] - player1Payoffs[a1][a2]) * jointProbs[a1][a2];
+					}
+					assertTrue(gain < 1e-6);
+				}
+			}
+			for (int a2=0; a2<numP2Actions; a2++) {
+				for (int a2Prime=0; a2Prime<numP2Actions; a2Prime++) {
+					double gain = 0;
+					for (int a1=0; a1<numP1Actions; a1++) {
+						gain += (player2Payoffs[a1][a2Prime] - player2Payoffs[a1][a2]) * jointProbs[a1][a2];
+					}
+					assertTrue(gain < 1e-6);
+				}
+			}
+		}
+	}
+
+}
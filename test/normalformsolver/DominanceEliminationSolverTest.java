@@ -0,0 +1,107 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class DominanceEliminationSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testIteratedDominance() {
+		// Prisoner's dilemma: cooperating is strictly dominated for both players.
+		NormalFormGame<GridAction> game = TestGames.createPrisonersDilemma();
+		DominanceEliminationSolver<GridAction> solver = new DominanceEliminationSolver<GridAction>(new BimatrixHuSolver<GridAction>());
+		NormalFormGame<GridAction> reducedGame = solver.getReducedGame(game);
+		assertEquals(1, reducedGame.getPossibleActionsForPlayer(0).size());
+		assertEquals(1, reducedGame.getPossibleActionsForPlayer(1).size());
+		assertEquals(new GridAction("D"), reducedGame.getPossibleActionsForPlayer(0).get(0));
+
+		// The solution covers every joint action of the original game.
+		GameSolution<GridAction> solution = solver.solve(game);
+		DiscreteDistribution<Joint<GridAction>> distribution = solution.getJointActionDistribution();
+		assertEquals(4, distribution.size());
+		Joint<GridAction> defectDefect = game.getPossibleJointActions().get(3);
+		assertEquals(1, distribution.get(defectDefect), TOLERANCE);
+		assertEquals(0, distribution.get(game.getPossibleJointActions().get(0)), TOLERANCE);
+		assertEquals(-2, solution.getExpectedPayoffsWithoutTransfer().get(0), TOLERANCE);
+	}
+
+	@Test
+	public void testDuplicateActions() {
+		// Matching pennies, with a third action that duplicates the first one.
+		// Nothing is dominated; only the duplicate is removed.
+		List<GridAction> actions = TestGames.createActions("H", "T", "H2");
+		double[][] p1Payoffs = {{1, -1, 1}, {-1, 1, -1}, {1, -1, 1}};
+		double[][] p2Payoffs = {{-1, 1, -1}, {1, -1, 1}, {-1, 1, -1}};
+		NormalFormGame<GridAction> game = TestGames.createGame(actions, p1Payoffs, p2Payoffs);
+
+		DominanceEliminationSolver<GridAction> solver = new DominanceEliminationSolver<GridAction>(new BimatrixHuSolver<GridAction>());
+		NormalFormGame<GridAction> reducedGame = solver.getReducedGame(game);
+		assertEquals(TestGames.createActions("H", "T"), reducedGame.getPossibleActionsForPlayer(0));
+		assertEquals(TestGames.createActions("H", "T"), reducedGame.getPossibleActionsForPlayer(1));
+		assertEquals(0, solver.solve(game).getExpectedPayoffsWithoutTransfer().get(0), TOLERANCE);
+
+		DominanceEliminationSolver<GridAction> dominanceOnlySolver = new DominanceEliminationSolver<GridAction>(new BimatrixHuSolver<GridAction>(), true, false);
+		assertSame(game, dominanceOnlySolver.getReducedGame(game));
+	}
+
+	@Test
+	public void testSolveAllMatchesSolve() {
+		// Games of several sizes, with some duplicate actions, solved one at a time and as a batch.
+		Random random = new Random(0);
+		List<NormalFormGame<GridAction>> games = new ArrayList<NormalFormGame<GridAction>>();
+		for (int gameIdx=0; gameIdx<40; gameIdx++) {
+			int numActions = 2 + random.nextInt(4);
+			List<GridAction> actions = TestGames.createActions("N", "S", "E", "W", "X").subList(0, numActions);
+			double[][] p1Payoffs = new double[numActions][numActions];
+			double[][] p2Payoffs = new double[numActions][numActions];
+			for (int a1=0; a1<numActions; a1++) {
+				for (int a2=0; a2<numActions; a2++) {
+					p1Payoffs[a1][a2] = random.nextGaussian();
+					p2Payoffs[a1][a2] = random.nextGaussian();
+				}
+			}
+			if (random.nextBoolean()) {
+				p1Payoffs[numActions-1] = p1Payoffs[0].clone();
+				p2Payoffs[numActions-1] = p2Payoffs[0].clone();
+			}
+			games.add(TestGames.createGame(actions, p1Payoffs, p2Payoffs));
+		}
+
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(new BimatrixHuSolver<GridAction>());
+		solvers.add(new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX));
+		solvers.add(new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX));
+		solvers.add(new DominanceEliminationSolver<GridAction>(new BimatrixHuSolver<GridAction>()));
+		for (NormalFormSolver<GridAction> solver : solvers) {
+			List<GameSolution<GridAction>> solutions = solver.solveAll(games);
+			assertEquals(games.size(), solutions.size());
+			for (int gameIdx=0; gameIdx<games.size(); gameIdx++) {
+				GameSolution<GridAction> solution = solver.solve(games.get(gameIdx));
+				GameSolution<GridAction> batchSolution = solutions.get(gameIdx);
+				for (int playerIdx=0; playerIdx<2; playerIdx++) {
+					assertEquals(solution.getExpectedPayoffsWithTransfer().get(playerIdx),
+							batchSolution.getExpectedPayoffsWithTransfer().get(playerIdx), TOLERANCE);
+				}
+				for (Joint<GridAction> jointAction : games.get(gameIdx).getPossibleJointActions()) {
+					assertEquals(solution.getJointActionDistribution().get(jointAction),
+							batchSolution.getJointActionDistribution().get(jointAction), TOLERANCE);
+				}
+			}
+		}
+	}
+
+}
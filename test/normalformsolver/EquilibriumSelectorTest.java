@@ -0,0 +1,100 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import normalformsolver.EquilibriumSelector.Criterion;
+
+import org.junit.Test;
+
+public class EquilibriumSelectorTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	// Battle of the sexes, where player 1 likes the first outcome more than player 2 likes the second.
+	private static final double[][] PLAYER1_PAYOFFS = {{3, 0}, {0, 1}};
+	private static final double[][] PLAYER2_PAYOFFS = {{1, 0}, {0, 2}};
+
+	private static final double[][] FIRST_PURE = {{1, 0}, {0, 0}};
+	private static final double[][] SECOND_PURE = {{0, 0}, {0, 1}};
+	// Player 1 plays (2/3, 1/3) and player 2 plays (1/4, 3/4).
+	private static final double[][] MIXED = {{2/12., 6/12.}, {1/12., 3/12.}};
+
+	@Test
+	public void testClosestToPrevious() {
+		EquilibriumSelector selector = new EquilibriumSelector(Criterion.CLOSEST_TO_PREVIOUS);
+		List<double[][]> equilibria = getEquilibria();
+		assertEquals(1, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, SECOND_PURE));
+		assertEquals(2, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, new double[][] {{.2, .5}, {.1, .2}}));
+		// The closest equilibrium in L1 needn't have the same support as the previous solution.
+		assertEquals(2, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, new double[][] {{.01, .99}, {0, 0}}));
+		// Without a previous solution, the first equilibrium is chosen.
+		assertEquals(0, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, null));
+	}
+
+	@Test
+	public void testMaxWelfare() {
+		EquilibriumSelector selector = new EquilibriumSelector(Criterion.MAX_WELFARE);
+		List<double[][]> equilibria = getEquilibria();
+		// Welfare is 4, 3, and 2/12*4 + 3/12*3 = 17/12.
+		assertEquals(0, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, null));
+		assertEquals(0, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, SECOND_PURE));
+		equilibria.remove(0);
+		assertEquals(0, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, null));
+		equilibria.add(0, MIXED);
+		assertEquals(1, selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, null));
+	}
+
+	@Test
+	public void testFlipCounting() {
+		EquilibriumSelector selector = new EquilibriumSelector(Criterion.FIRST);
+		List<double[][]> equilibria = getEquilibria();
+		// Selections without a previous solution aren't counted.
+		selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, null);
+		assertEquals(0, selector.getNumSelections());
+		assertEquals(0, selector.getFlipRate(), 0);
+
+		// Same support, with different probabilities, isn't a flip.
+		selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, new double[][] {{1 - 1e-7, 1e-7}, {0, 0}});
+		assertEquals(1, selector.getNumSelections());
+		assertEquals(0, selector.getNumFlips());
+
+		selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, SECOND_PURE);
+		selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, MIXED);
+		selector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, FIRST_PURE);
+		assertEquals(4, selector.getNumSelections());
+		assertEquals(2, selector.getNumFlips());
+		assertEquals(.5, selector.getFlipRate(), TOLERANCE);
+
+		// Choosing the previous equilibrium never flips.
+		EquilibriumSelector closestSelector = new EquilibriumSelector(Criterion.CLOSEST_TO_PREVIOUS);
+		for (double[][] previous : equilibria) {
+			closestSelector.select(equilibria, PLAYER1_PAYOFFS, PLAYER2_PAYOFFS, previous);
+		}
+		assertEquals(3, closestSelector.getNumSelections());
+		assertEquals(0, closestSelector.getNumFlips());
+
+		selector.resetStatistics();
+		assertEquals(0, selector.getNumSelections());
+		assertEquals(0, selector.getNumFlips());
+	}
+
+	@Test
+	public void testSupportAndDistance() {
+		assertTrue(EquilibriumSelector.haveSameSupport(MIXED, new double[][] {{.25, .25}, {.25, .25}}));
+		assertFalse(EquilibriumSelector.haveSameSupport(FIRST_PURE, SECOND_PURE));
+		assertEquals(2, EquilibriumSelector.getDistance(FIRST_PURE, SECOND_PURE), TOLERANCE);
+		assertEquals(0, EquilibriumSelector.getDistance(MIXED, MIXED), 0);
+	}
+
+	private static List<double[][]> getEquilibria() {
+		List<double[][]> equilibria = new ArrayList<double[][]>();
+		equilibria.add(FIRST_PURE);
+		equilibria.add(SECOND_PURE);
+		equilibria.add(MIXED);
+		return equilibria;
+	}
+
+}
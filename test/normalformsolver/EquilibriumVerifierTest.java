@@ -0,0 +1,164 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+import normalformsolver.VerifyingNormalFormSolver.SolutionConcept;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class EquilibriumVerifierTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMatchingPennies() {
+		int[] numActions = {2, 2};
+		double[] payoffs = {1, -1, -1, 1, -1, 1, 1, -1};
+		double[] equilibrium = {.25, .25, .25, .25};
+		assertEquals(0, EquilibriumVerifier.getMaxDeviationGain(numActions, payoffs, equilibrium), TOLERANCE);
+		assertEquals(0, EquilibriumVerifier.getMaxCorrelatedEqmViolation(numActions, payoffs, equilibrium), TOLERANCE);
+		// Player 2 gains 2 by switching to action 2 whenever it's told to play action 1.
+		double[] pure = {1, 0, 0, 0};
+		assertEquals(2, EquilibriumVerifier.getMaxDeviationGain(numActions, payoffs, pure), TOLERANCE);
+		assertEquals(2, EquilibriumVerifier.getMaxCorrelatedEqmViolation(numActions, payoffs, pure), TOLERANCE);
+	}
+
+	@Test
+	public void testCorrelatedEqmViolationIsRegretMatchingGap() {
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<20; gameIdx++) {
+			int[] numActions = {2 + random.nextInt(3), 2 + random.nextInt(3), 2 + random.nextInt(3)};
+			double[] payoffs = new double[numActions[0] * numActions[1] * numActions[2] * 3];
+			for (int i=0; i<payoffs.length; i++) {
+				payoffs[i] = random.nextGaussian();
+			}
+			double[] gapAndIterations = new double[2];
+			double[] jointActionProbs = RegretMatchingCorrelatedEqmSolver.solveForCorrelatedEqm(numActions, payoffs, 20, 0, gapAndIterations);
+			assertEquals(gapAndIterations[0], EquilibriumVerifier.getMaxCorrelatedEqmViolation(numActions, payoffs, jointActionProbs), 1e-6);
+
+			double[] ceJointActionProbs = new CorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX).solve(numActions, payoffs);
+			assertEquals(0, EquilibriumVerifier.getMaxCorrelatedEqmViolation(numActions, payoffs, ceJointActionProbs), 1e-6);
+		}
+	}
+
+	@Test
+	public void testVerifyingSolverSamplesSolutions() {
+		NormalFormGame<GridAction> game = TestGames.createPrisonersDilemma();
+		VerifyingNormalFormSolver<GridAction> solver = new VerifyingNormalFormSolver<GridAction>(
+				new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX), SolutionConcept.NASH, .5, VerifyingNormalFormSolver.DEFAULT_TOLERANCE);
+		for (int gameIdx=0; gameIdx<10; gameIdx++) {
+			solver.solve(game);
+		}
+		// Coco has both players cooperate, which isn't a Nash equilibrium.
+		assertEquals(10, solver.getNumSolved());
+		assertEquals(5, solver.getNumChecked());
+		assertEquals(5, solver.getNumViolations());
+		assertEquals(1, solver.getMaxDeviationGain(), TOLERANCE);
+		assertEquals(0, solver.getMaxPayoffError(), TOLERANCE);
+
+		solver = new VerifyingNormalFormSolver<GridAction>(new BimatrixHuSolver<GridAction>(), SolutionConcept.NASH, 1, VerifyingNormalFormSolver.DEFAULT_TOLERANCE);
+		for (int gameIdx=0; gameIdx<10; gameIdx++) {
+			solver.solve(game);
+		}
+		assertEquals(10, solver.getNumChecked());
+		assertEquals(0, solver.getNumViolations());
+	}
+
+	@Test
+	public void testToleranceIsRelativeToPayoffs() {
+		assertEquals(1, EquilibriumVerifier.getPayoffScale(new double[] {.5, -.25}), 0);
+		assertEquals(100, EquilibriumVerifier.getPayoffScale(new double[] {10, -100, 50}), 0);
+
+		// Both players gain 100 by defecting from coco's cooperation, which is a third of the largest payoff.
+		double[][] p1Payoffs = {{-100, -300}, {0, -200}};
+		double[][] p2Payoffs = {{-100, 0}, {-300, -200}};
+		NormalFormGame<GridAction> game = TestGames.createGame(TestGames.createActions("C", "D"), p1Payoffs, p2Payoffs);
+		NormalFormSolver<GridAction> cocoSolver = new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX);
+		assertTrue(new VerifyingNormalFormSolver<GridAction>(cocoSolver, SolutionConcept.NASH, 1, .3).check(game, cocoSolver.solve(game)));
+		assertFalse(new VerifyingNormalFormSolver<GridAction>(cocoSolver, SolutionConcept.NASH, 1, .4).check(game, cocoSolver.solve(game)));
+		// Only the distribution is checked.
+		assertFalse(new VerifyingNormalFormSolver<GridAction>(cocoSolver, SolutionConcept.DISTRIBUTION).check(game, cocoSolver.solve(game)));
+	}
+
+
+	private static NormalFormGame<GridAction> createMatchingPennies(double payoff) {
+		double[][] p1Payoffs = {{payoff, -payoff}, {-payoff, payoff}};
+		double[][] p2Payoffs = {{-payoff, payoff}, {payoff, -payoff}};
+		return TestGames.createGame(TestGames.createActions("H", "T"), p1Payoffs, p2Payoffs);
+	}
+
+
+	/**
+	 * Returns the solution in which player 1 plays its first action with probability p1Prob,
+	 * and player 2 plays its first action with probability p2Prob.
+	 */
+	private static GameSolution<GridAction> createProductSolution(NormalFormGame<GridAction> game, double p1Prob, double p2Prob) {
+		double[][] strategies = {{p1Prob, 1 - p1Prob}, {p2Prob, 1 - p2Prob}};
+		DiscreteDistribution<Joint<GridAction>> jointStrategy = new DiscreteDistribution<Joint<GridAction>>();
+		Joint<Double> expectedPayoffs = new Joint<Double>();
+		Joint<Double> transferPayments = new Joint<Double>();
+		double[] payoffs = game.getPayoffs();
+		double[] expectedPayoffPerPlayer = new double[2];
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+		for (Joint<GridAction> jointAction : jointActions) {
+			int jointActionIdx = game.getJointActionIndex(jointAction);
+			double prob = strategies[0][jointActionIdx / 2] * strategies[1][jointActionIdx % 2];
+			jointStrategy.add(jointAction, prob);
+			for (int playerIdx=0; playerIdx<2; playerIdx++) {
+				expectedPayoffPerPlayer[playerIdx] += prob * payoffs[jointActionIdx * 2 + playerIdx];
+			}
+		}
+		for (int playerIdx=0; playerIdx<2; playerIdx++) {
+			expectedPayoffs.add(expectedPayoffPerPlayer[playerIdx]);
+			transferPayments.add(0.0);
+		}
+		return new UncorrelatedGameSolution<GridAction>(game, jointStrategy, expectedPayoffs, transferPayments);
+	}
+
+	@Test
+	public void testTargetIsSolversTarget() {
+		NormalFormSolver<GridAction> huSolver = new BimatrixHuSolver<GridAction>();
+		NormalFormSolver<GridAction> regretMatchingSolver = new RegretMatchingCorrelatedEqmSolver<GridAction>(1000, .01);
+		assertEquals(0, VerifyingNormalFormSolver.getTarget(huSolver), 0);
+		assertEquals(.01, VerifyingNormalFormSolver.getTarget(regretMatchingSolver), 0);
+		VerifyingNormalFormSolver<GridAction> solver = new VerifyingNormalFormSolver<GridAction>(new FictitiousPlayNashSolver<GridAction>(), SolutionConcept.NASH);
+		assertEquals(FictitiousPlayNashSolver.DEFAULT_TARGET_EXPLOITABILITY, solver.getTarget(), 0);
+		assertEquals(VerifyingNormalFormSolver.DEFAULT_TOLERANCE, solver.getTolerance(), 0);
+
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(huSolver);
+		solvers.add(regretMatchingSolver);
+		assertEquals(.01, VerifyingNormalFormSolver.getTarget(new FallbackNormalFormSolver<GridAction>(solvers)), 0);
+	}
+
+	@Test
+	public void testTargetIsTotalDeviationGainAndIsNotScaled() {
+		NormalFormSolver<GridAction> fictitiousPlaySolver = new FictitiousPlayNashSolver<GridAction>(1000, 1e-3);
+		VerifyingNormalFormSolver<GridAction> solver = new VerifyingNormalFormSolver<GridAction>(fictitiousPlaySolver, SolutionConcept.NASH);
+
+		// Each player gains about 2 * .0003 by deviating, which is within the target, but their total isn't.
+		NormalFormGame<GridAction> game = createMatchingPennies(1);
+		GameSolution<GridAction> solution = createProductSolution(game, .5003, .5003);
+		double[] jointActionProbs = EquilibriumVerifier.getJointActionProbs(game, solution.getJointActionDistribution());
+		int[] numActions = EquilibriumVerifier.getNumActions(game);
+		assertTrue(EquilibriumVerifier.getMaxDeviationGain(numActions, game.getPayoffs(), jointActionProbs) < 1e-3);
+		assertEquals(.0012, EquilibriumVerifier.getTotalDeviationGain(numActions, game.getPayoffs(), jointActionProbs), 1e-6);
+		assertTrue(solver.check(game, solution));
+		assertFalse(solver.check(game, createProductSolution(game, .5001, .5001)));
+
+		// With payoffs in the hundreds, the gains are a hundred times larger, and the target is the same.
+		game = createMatchingPennies(100);
+		assertTrue(solver.check(game, createProductSolution(game, .5001, .5001)));
+	}
+
+}
@@ -0,0 +1,106 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import sequentialgame.grid.GridAction;
+
+public class FallbackNormalFormSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testFallsBackOnTimeoutAndFailure() {
+		final Object lock = new Object();
+		NormalFormSolver<GridAction> stallingSolver = new NormalFormSolver<GridAction>() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+				// Ignores interrupts, as a stalled native solver would, until the test is done.
+				synchronized (lock) {
+					return null;
+				}
+			}
+		};
+		NormalFormSolver<GridAction> failingSolver = new NormalFormSolver<GridAction>() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+				throw new IllegalStateException("LP failed");
+			}
+		};
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(stallingSolver);
+		solvers.add(failingSolver);
+		solvers.add(new RegretMatchingCorrelatedEqmSolver<GridAction>());
+		FallbackNormalFormSolver<GridAction> solver = new FallbackNormalFormSolver<GridAction>(solvers, 50);
+
+		NormalFormGame<GridAction> game = TestGames.createPrisonersDilemma();
+		synchronized (lock) {
+			for (int gameIdx=0; gameIdx<3; gameIdx++) {
+				GameSolution<GridAction> solution = solver.solve(game);
+				assertEquals(-2, solution.getExpectedPayoffsWithoutTransfer().get(0), .01);
+			}
+		}
+		// The stalled solver is skipped until its first call finishes.
+		assertEquals(1, solver.getNumTimeouts(0));
+		assertEquals(0, solver.getNumAnswered(0));
+		assertEquals(3, solver.getNumFailures(1));
+		assertEquals(3, solver.getNumAnswered(2));
+	}
+
+	@Test
+	public void testPrimarySolverAnswers() {
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(new BimatrixHuSolver<GridAction>());
+		solvers.add(new RegretMatchingCorrelatedEqmSolver<GridAction>());
+		FallbackNormalFormSolver<GridAction> solver = new FallbackNormalFormSolver<GridAction>(solvers);
+		GameSolution<GridAction> solution = solver.solve(TestGames.createPrisonersDilemma());
+		assertEquals(-2, solution.getExpectedPayoffsWithoutTransfer().get(1), TOLERANCE);
+		assertEquals(1, solver.getNumAnswered(0));
+		assertEquals(0, solver.getNumAnswered(1));
+	}
+
+	@Test(timeout=30000)
+	public void testCallsFromSeveralThreadsAreNotSerialized() throws Exception {
+		// Each call waits until the other thread's call has also reached the primary solver.
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		NormalFormSolver<GridAction> waitingSolver = new NormalFormSolver<GridAction>() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+				try {
+					barrier.await(10, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException("The calls were serialized.", e);
+				}
+				return new BimatrixHuSolver<GridAction>().solve(normalFormGame);
+			}
+		};
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(waitingSolver);
+		solvers.add(new RegretMatchingCorrelatedEqmSolver<GridAction>());
+		// With no time budget, each call runs the primary solver on its own thread.
+		final FallbackNormalFormSolver<GridAction> solver = new FallbackNormalFormSolver<GridAction>(solvers, 0);
+
+		Thread otherThread = new Thread() {
+			@Override
+			public void run() {
+				solver.solve(TestGames.createPrisonersDilemma());
+			}
+		};
+		otherThread.start();
+		GameSolution<GridAction> solution = solver.solve(TestGames.createPrisonersDilemma());
+		otherThread.join();
+		assertEquals(-2, solution.getExpectedPayoffsWithoutTransfer().get(0), TOLERANCE);
+		assertEquals(2, solver.getNumAnswered(0));
+		assertEquals(0, solver.getNumFailures(0));
+	}
+
+}
@@ -0,0 +1,83 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class FictitiousPlayNashSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMatchingPennies() {
+		double[] payoffs = {1, -1, -1, 1, -1, 1, 1, -1};
+		double[] exploitabilityAndIterations = new double[2];
+		double[][] strategies = FictitiousPlayNashSolver.solveForNash(new int[] {2, 2}, payoffs, null, 1, 100000, 1e-3, 0, 0, exploitabilityAndIterations);
+		assertTrue(exploitabilityAndIterations[0] <= 1e-3);
+		assertEquals(.5, strategies[0][0], .01);
+		assertEquals(.5, strategies[1][0], .01);
+
+		// Starting from the equilibrium, no iterations are needed.
+		double[][] equilibrium = {{.5, .5}, {.5, .5}};
+		FictitiousPlayNashSolver.solveForNash(new int[] {2, 2}, payoffs, equilibrium, 1, 100000, 1e-3, 0, 0, exploitabilityAndIterations);
+		assertEquals(0, exploitabilityAndIterations[0], TOLERANCE);
+		assertEquals(0, exploitabilityAndIterations[1], 0);
+	}
+
+	@Test
+	public void testNearEquilibriumWarmStartNeedsFewerIterations() {
+		// A zero-sum game whose equilibrium has each player play its first action with probability .4.
+		double[] payoffs = {2, -2, -1, 1, -1, 1, 1, -1};
+		int[] numActions = {2, 2};
+		double[] exploitabilityAndIterations = new double[2];
+		FictitiousPlayNashSolver.solveForNash(numActions, payoffs, null, 1, 100000, 1e-2, 0, 0, exploitabilityAndIterations);
+		double uniformIterations = exploitabilityAndIterations[1];
+
+		// The warm start doesn't meet the target, but is within NEAR_EQUILIBRIUM_FACTOR of it.
+		double[][] nearEquilibrium = {{.403, .597}, {.397, .603}};
+		FictitiousPlayNashSolver.solveForNash(numActions, payoffs, nearEquilibrium, 10000, 0, 1e-2, 0, 0, exploitabilityAndIterations);
+		assertTrue(exploitabilityAndIterations[0] > 1e-2);
+		FictitiousPlayNashSolver.solveForNash(numActions, payoffs, nearEquilibrium, 10000, 100000, 1e-2, 0, 0, exploitabilityAndIterations);
+		assertTrue(exploitabilityAndIterations[0] <= 1e-2);
+		double warmStartIterations = exploitabilityAndIterations[1];
+		assertTrue(warmStartIterations < uniformIterations / 2);
+
+		// Counted as a single play, the warm start is lost after the first best response.
+		FictitiousPlayNashSolver.solveForNash(numActions, payoffs, nearEquilibrium, 1, 100000, 1e-2, 0, 0, exploitabilityAndIterations);
+		assertTrue(exploitabilityAndIterations[1] > uniformIterations / 2);
+	}
+
+	@Test
+	public void testThreePlayerGameWithHuSolver() {
+		// Each player gets 1 for matching the next player's action, and B is worth 2.
+		List<GridAction> actions = TestGames.createActions("A", "B");
+		NormalFormGame<GridAction> game = TestGames.createGame(actions, 3);
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+		for (Joint<GridAction> jointAction : jointActions) {
+			Joint<Double> payoffs = new Joint<Double>();
+			for (int playerIdx=0; playerIdx<3; playerIdx++) {
+				boolean isMatch = jointAction.get(playerIdx).equals(jointAction.get((playerIdx+1) % 3));
+				payoffs.add(!isMatch ? 0.0 : jointAction.get(playerIdx).equals(actions.get(1)) ? 2.0 : 1.0);
+			}
+			game.addPayoffsForJointAction(jointAction, payoffs);
+		}
+
+		// Players start out uniform, so B is the best response for everyone.
+		BimatrixHuSolver<GridAction> solver = new BimatrixHuSolver<GridAction>();
+		GameSolution<GridAction> solution = solver.solve(game);
+		DiscreteDistribution<Joint<GridAction>> distribution = solution.getJointActionDistribution();
+		assertEquals(1, distribution.get(jointActions.get(7)), .01);
+		assertEquals(2, solution.getExpectedPayoffsWithoutTransfer().get(2), .02);
+		assertTrue(solver.getMultiPlayerSolver().getMaxExploitability() <= FictitiousPlayNashSolver.DEFAULT_TARGET_EXPLOITABILITY);
+	}
+
+}
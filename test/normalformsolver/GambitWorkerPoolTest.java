@@ -0,0 +1,89 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class GambitWorkerPoolTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * What the stub gambit answers for every game: player 1 plays C and player 2 plays D.
+	 */
+	private static final String EQUILIBRIUM = "NE,1,0,0,1";
+
+	@Test(timeout=30000)
+	public void testStandardErrorIsDiscarded() throws IOException {
+		// More than a pipe's worth of warnings per game.
+		File gambit = createStubGambit("head -c 100000 /dev/zero | tr '\\000' w >&2");
+		GambitWorkerPool pool = new GambitWorkerPool(gambit.getPath(), 1);
+		try {
+			for (int gameIdx=0; gameIdx<5; gameIdx++) {
+				List<String> output = pool.solve("NFG 1 R \"Title\"");
+				assertEquals(1, output.size());
+				assertEquals(EQUILIBRIUM, output.get(0));
+			}
+		} finally {
+			pool.shutdown();
+			gambit.delete();
+		}
+	}
+
+	@Test(timeout=30000)
+	public void testSolveAllUsesEveryWorker() throws IOException {
+		File gambit = createStubGambit("sleep 1");
+		int numGames = 4;
+		BimatrixGambitSolver<GridAction> solver = new BimatrixGambitSolver<GridAction>();
+		solver.setWorkerPool(new GambitWorkerPool(gambit.getPath(), numGames));
+		try {
+			List<NormalFormGame<GridAction>> games = new ArrayList<NormalFormGame<GridAction>>();
+			for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+				games.add(TestGames.createPrisonersDilemma());
+			}
+			long startTime = System.currentTimeMillis();
+			List<GameSolution<GridAction>> solutions = solver.solveAll(games);
+			long elapsedMillis = System.currentTimeMillis() - startTime;
+
+			// The games were solved at the same time, rather than taking a second each.
+			assertTrue("solveAll took " + elapsedMillis + "ms", elapsedMillis < 2500);
+			for (int gameIdx=0; gameIdx<numGames; gameIdx++) {
+				Joint<GridAction> cooperateDefect = games.get(gameIdx).getPossibleJointActions().get(1);
+				assertEquals(1, solutions.get(gameIdx).getJointActionDistribution().get(cooperateDefect), TOLERANCE);
+				assertEquals(-3, solutions.get(gameIdx).getExpectedPayoffsWithoutTransfer().get(0), TOLERANCE);
+			}
+		} finally {
+			solver.close();
+			gambit.delete();
+		}
+	}
+
+	/**
+	 * Creates an executable script that stands in for a gambit tool: it reads a game,
+	 * runs the given commands, and then answers EQUILIBRIUM.
+	 */
+	private static File createStubGambit(String commands) throws IOException {
+		File gambit = File.createTempFile("gambit-stub", ".sh");
+		FileWriter writer = new FileWriter(gambit);
+		try {
+			writer.write("#!/bin/sh\ncat > /dev/null\n" + commands + "\necho " + EQUILIBRIUM + "\n");
+		} finally {
+			writer.close();
+		}
+		gambit.setExecutable(true);
+		return gambit;
+	}
+
+}
@@ -0,0 +1,160 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LemkeHowsonEngineTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMatchingPennies() {
+		double[][] p1Payoffs = {{1, -1}, {-1, 1}};
+		double[][] p2Payoffs = {{-1, 1}, {1, -1}};
+		double[] equilibrium = LemkeHowsonEngine.solveForFirstEquilibrium(p1Payoffs, p2Payoffs);
+		assertArrayEquals(new double[] {.5, .5, .5, .5}, equilibrium, TOLERANCE);
+	}
+
+	@Test
+	public void testBattleOfTheSexes() {
+		// Each starting label leads to a different pure equilibrium.
+		double[][] p1Payoffs = {{2, 0}, {0, 1}};
+		double[][] p2Payoffs = {{1, 0}, {0, 2}};
+		double[][] equilibria = LemkeHowsonEngine.solveFromAllLabels(p1Payoffs, p2Payoffs, false);
+		assertArrayEquals(new double[] {1, 0, 1, 0}, equilibria[0], TOLERANCE);
+		assertArrayEquals(new double[] {0, 1, 0, 1}, equilibria[1], TOLERANCE);
+	}
+
+	@Test
+	public void testLabelsGiveSameResultsInParallel() {
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<100; gameIdx++) {
+			int numPlayer1Actions = 1 + random.nextInt(6);
+			int numPlayer2Actions = 1 + random.nextInt(6);
+			double[][] p1Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			double[][] p2Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			for (int i=0; i<numPlayer1Actions; i++) {
+				for (int j=0; j<numPlayer2Actions; j++) {
+					p1Payoffs[i][j] = random.nextGaussian();
+					p2Payoffs[i][j] = random.nextGaussian();
+				}
+			}
+			double[][] equilibria = LemkeHowsonEngine.solveFromAllLabels(p1Payoffs, p2Payoffs, false);
+			double[][] parallelEquilibria = LemkeHowsonEngine.solveFromAllLabels(p1Payoffs, p2Payoffs, true);
+			for (int label=0; label<numPlayer1Actions; label++) {
+				assertArrayEquals(equilibria[label], parallelEquilibria[label], 0);
+				double[] equilibrium = new double[numPlayer1Actions + numPlayer2Actions];
+				LemkeHowsonEngine.solveFromLabel(p1Payoffs, p2Payoffs, label, equilibrium);
+				assertArrayEquals(equilibria[label], equilibrium, 0);
+			}
+			assertArrayEquals(equilibria[0], LemkeHowsonEngine.solveForFirstEquilibrium(p1Payoffs, p2Payoffs), 0);
+		}
+	}
+
+	@Test
+	public void testDegenerateGamesGiveEquilibria() {
+		// Small integer payoffs give lots of ties.
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<500; gameIdx++) {
+			int numPlayer1Actions = 1 + random.nextInt(6);
+			int numPlayer2Actions = 1 + random.nextInt(6);
+			double[][] p1Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			double[][] p2Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+			for (int i=0; i<numPlayer1Actions; i++) {
+				for (int j=0; j<numPlayer2Actions; j++) {
+					p1Payoffs[i][j] = random.nextInt(3);
+					p2Payoffs[i][j] = random.nextInt(3);
+				}
+			}
+			double[][] equilibria = LemkeHowsonEngine.solveFromAllLabels(p1Payoffs, p2Payoffs, false);
+			for (double[] equilibrium : equilibria) {
+				assertTrue(LemkeHowsonEngine.isValid(equilibrium));
+				assertTrue(isEquilibrium(p1Payoffs, p2Payoffs, equilibrium));
+			}
+		}
+	}
+
+	@Test
+	public void testPivotLimitReportsFailure() {
+		Random random = new Random(0);
+		int numFailures = 0;
+		for (int gameIdx=0; gameIdx<100; gameIdx++) {
+			double[][] p1Payoffs = new double[6][6];
+			double[][] p2Payoffs = new double[6][6];
+			for (int i=0; i<6; i++) {
+				for (int j=0; j<6; j++) {
+					p1Payoffs[i][j] = random.nextGaussian();
+					p2Payoffs[i][j] = random.nextGaussian();
+				}
+			}
+			double[] equilibrium = new double[12];
+			if (!LemkeHowsonEngine.solveFromLabel(p1Payoffs, p2Payoffs, 0, equilibrium, LemkeHowsonEngine.DEFAULT_TOLERANCE, 1)) {
+				assertFalse(LemkeHowsonEngine.isValid(equilibrium));
+				numFailures++;
+			} else {
+				assertTrue(isEquilibrium(p1Payoffs, p2Payoffs, equilibrium));
+			}
+		}
+		assertTrue(numFailures > 0);
+	}
+
+	@Test
+	public void testInterruptedCallerGetsFinishedLabelsOnly() {
+		Random random = new Random(0);
+		int numActions = 60;
+		double[][] p1Payoffs = new double[numActions][numActions];
+		double[][] p2Payoffs = new double[numActions][numActions];
+		for (int i=0; i<numActions; i++) {
+			for (int j=0; j<numActions; j++) {
+				p1Payoffs[i][j] = random.nextGaussian();
+				p2Payoffs[i][j] = random.nextGaussian();
+			}
+		}
+		Thread.currentThread().interrupt();
+		double[][] equilibria = LemkeHowsonEngine.solveFromAllLabels(p1Payoffs, p2Payoffs, true);
+		assertTrue(Thread.interrupted());
+		// Label 0 is run on the calling thread; other labels are either finished or NaN.
+		assertTrue(isEquilibrium(p1Payoffs, p2Payoffs, equilibria[0]));
+		for (double[] equilibrium : equilibria) {
+			if (LemkeHowsonEngine.isValid(equilibrium)) {
+				assertTrue(isEquilibrium(p1Payoffs, p2Payoffs, equilibrium));
+			} else {
+				for (double prob : equilibrium) {
+					assertTrue(Double.isNaN(prob));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if neither player gains more than TOLERANCE by deviating to a pure strategy.
+	 */
+	private static boolean isEquilibrium(double[][] p1Payoffs, double[][] p2Payoffs, double[] equilibrium) {
+		int numPlayer1Actions = p1Payoffs.length;
+		int numPlayer2Actions = p1Payoffs[0].length;
+		double[] p1ActionPayoffs = new double[numPlayer1Actions];
+		double[] p2ActionPayoffs = new double[numPlayer2Actions];
+		double p1Payoff = 0, p2Payoff = 0;
+		for (int i=0; i<numPlayer1Actions; i++) {
+			for (int j=0; j<numPlayer2Actions; j++) {
+				double p1Prob = equilibrium[i];
+				double p2Prob = equilibrium[numPlayer1Actions+j];
+				p1ActionPayoffs[i] += p2Prob * p1Payoffs[i][j];
+				p2ActionPayoffs[j] += p1Prob * p2Payoffs[i][j];
+				p1Payoff += p1Prob * p2Prob * p1Payoffs[i][j];
+				p2Payoff += p1Prob * p2Prob * p2Payoffs[i][j];
+			}
+		}
+		for (double payoff : p1ActionPayoffs) {
+			if (payoff > p1Payoff + TOLERANCE) return false;
+		}
+		for (double payoff : p2ActionPayoffs) {
+			if (payoff > p2Payoff + TOLERANCE) return false;
+		}
+		return true;
+	}
+
+}
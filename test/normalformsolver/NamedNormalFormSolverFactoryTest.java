@@ -0,0 +1,55 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import normalformsolver.VerifyingNormalFormSolver.SolutionConcept;
+
+import org.junit.Test;
+
+import sequentialgame.grid.GridAction;
+
+public class NamedNormalFormSolverFactoryTest {
+
+	@Test
+	public void testCreateSolver() {
+		assertTrue(NamedNormalFormSolverFactory.<GridAction>createSolver("nash") instanceof BimatrixSupportEnumerationSolver);
+		assertTrue(NamedNormalFormSolverFactory.<GridAction>createSolver("HU") instanceof BimatrixHuSolver);
+		assertTrue(NamedNormalFormSolverFactory.<GridAction>createSolver("ce-egalitarian-simplex") instanceof BimatrixCorrelatedEqmSolver);
+
+		VerifyingNormalFormSolver<GridAction> verifyingSolver = (VerifyingNormalFormSolver<GridAction>) NamedNormalFormSolverFactory.<GridAction>createSolver("verified-ce-rm");
+		assertTrue(verifyingSolver.getSolver() instanceof RegretMatchingCorrelatedEqmSolver);
+		assertEquals(SolutionConcept.CORRELATED_EQM, verifyingSolver.getSolutionConcept());
+
+		// Each thread gets its own chain.
+		NormalFormSolverPool<GridAction> pool = (NormalFormSolverPool<GridAction>) NamedNormalFormSolverFactory.<GridAction>createSolver("ce, hu");
+		assertTrue(pool.getSolver() instanceof FallbackNormalFormSolver);
+	}
+
+	@Test
+	public void testUnknownSolver() {
+		try {
+			NamedNormalFormSolverFactory.<GridAction>createSolver("no-such-solver");
+			fail("Created a solver for an unknown name.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGetSolutionConcept() {
+		assertEquals(SolutionConcept.NASH, NamedNormalFormSolverFactory.getSolutionConcept("hu,fp"));
+		assertEquals(SolutionConcept.CORRELATED_EQM, NamedNormalFormSolverFactory.getSolutionConcept("ce,hu"));
+		assertEquals(SolutionConcept.NONE, NamedNormalFormSolverFactory.getSolutionConcept("ce,coco"));
+		assertEquals(SolutionConcept.DISTRIBUTION, NamedNormalFormSolverFactory.getSolutionConcept("ce-libertarian"));
+	}
+
+	@Test
+	public void testFactoryCreatesNamedSolver() {
+		NamedNormalFormSolverFactory<GridAction> factory = new NamedNormalFormSolverFactory<GridAction>("fp");
+		assertEquals("fp", factory.getSolverName());
+		NormalFormSolver<GridAction> solver = factory.createSolver();
+		assertTrue(solver instanceof FictitiousPlayNashSolver);
+		assertTrue(solver != factory.createSolver());
+	}
+
+}
@@ -0,0 +1,112 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class NormalFormSolverPoolTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testThreadsGetTheirOwnSolvers() throws InterruptedException {
+		final AtomicInteger numClosed = new AtomicInteger();
+		final NormalFormSolverPool<GridAction> pool = new NormalFormSolverPool<GridAction>(new NormalFormSolverFactory<GridAction>() {
+			@Override
+			public NormalFormSolver<GridAction> createSolver() {
+				return new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX) {
+					@Override
+					public void close() {
+						numClosed.incrementAndGet();
+					}
+				};
+			}
+		});
+
+		final List<NormalFormGame<GridAction>> games = new ArrayList<NormalFormGame<GridAction>>();
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<50; gameIdx++) {
+			games.add(createRandomGame(random, 2 + random.nextInt(3), 2 + random.nextInt(3)));
+		}
+		BimatrixCorrelatedEqmSolver<GridAction> serialSolver = new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		final List<Double> expectedWelfares = new ArrayList<Double>();
+		for (NormalFormGame<GridAction> game : games) {
+			expectedWelfares.add(getWelfare(serialSolver.solve(game)));
+		}
+
+		// Several threads solve all the games with the pool at the same time.
+		final AtomicInteger numMismatches = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int threadIdx=0; threadIdx<4; threadIdx++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int gameIdx=0; gameIdx<games.size(); gameIdx++) {
+						if (Math.abs(getWelfare(pool.solve(games.get(gameIdx))) - expectedWelfares.get(gameIdx)) > TOLERANCE) {
+							numMismatches.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, numMismatches.get());
+		assertEquals(4, pool.getNumSolvers());
+
+		List<GameSolution<GridAction>> solutions = pool.solveAll(games);
+		for (int gameIdx=0; gameIdx<games.size(); gameIdx++) {
+			assertEquals(expectedWelfares.get(gameIdx), getWelfare(solutions.get(gameIdx)), TOLERANCE);
+		}
+
+		int numSolvers = pool.getNumSolvers();
+		pool.close();
+		assertEquals(numSolvers, numClosed.get());
+		try {
+			pool.solve(games.get(0));
+			fail("A closed pool shouldn't solve games.");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	private static double getWelfare(GameSolution<GridAction> solution) {
+		Joint<Double> expectedPayoffs = solution.getExpectedPayoffsWithoutTransfer();
+		return expectedPayoffs.get(0) + expectedPayoffs.get(1);
+	}
+
+	private static NormalFormGame<GridAction> createRandomGame(Random random, int numPlayer1Actions, int numPlayer2Actions) {
+		List<GridAction> player1Actions = new ArrayList<GridAction>();
+		for (int a1=0; a1<numPlayer1Actions; a1++) {
+			player1Actions.add(new GridAction("A" + a1));
+		}
+		List<GridAction> player2Actions = new ArrayList<GridAction>();
+		for (int a2=0; a2<numPlayer2Actions; a2++) {
+			player2Actions.add(new GridAction("B" + a2));
+		}
+		double[][] p1Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+		double[][] p2Payoffs = new double[numPlayer1Actions][numPlayer2Actions];
+		for (int a1=0; a1<numPlayer1Actions; a1++) {
+			for (int a2=0; a2<numPlayer2Actions; a2++) {
+				p1Payoffs[a1][a2] = random.nextInt(5);
+				p2Payoffs[a1][a2] = random.nextInt(5);
+			}
+		}
+		return TestGames.createGame(player1Actions, player2Actions, p1Payoffs, p2Payoffs);
+	}
+
+}
@@ -0,0 +1,35 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PivotKernelsTest {
+
+	@Test
+	public void testPivot() {
+		double[][] tableau = {{2, 4, 6}, {1, 3, 5}, {0, 1, 2}};
+		PivotKernels.pivot(tableau, 3, 3, 0, 0);
+		assertArrayEquals(new double[] {1, 2, 3}, tableau[0], 0);
+		assertArrayEquals(new double[] {0, 1, 2}, tableau[1], 0);
+		assertArrayEquals(new double[] {0, 1, 2}, tableau[2], 0);
+	}
+
+	@Test
+	public void testComplementaryPivot() {
+		// w = q + M z, with w1 and z1 swapping places.
+		double[][] m = {{2, 1}, {4, 3}};
+		double[] q = {1, 2};
+		PivotKernels.complementaryPivot(m, q, 2, 0, 0, 1e-9);
+		assertArrayEquals(new double[] {-.5, 0}, q, 0);
+		assertArrayEquals(new double[] {.5, -.5}, m[0], 0);
+		assertArrayEquals(new double[] {2, 1}, m[1], 0);
+
+		// A pivot element of zero leaves everything unchanged.
+		m = new double[][] {{0, 1}, {4, 3}};
+		PivotKernels.complementaryPivot(m, q, 2, 0, 0, 1e-9);
+		assertArrayEquals(new double[] {-.5, 0}, q, 0);
+		assertArrayEquals(new double[] {0, 1}, m[0], 0);
+	}
+
+}
@@ -0,0 +1,111 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+
+public class RegretMatchingCorrelatedEqmSolverTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testGapIsCorrelatedEqmViolation() {
+		Random random = new Random(0);
+		for (int gameIdx=0; gameIdx<50; gameIdx++) {
+			int[] numActions = {2 + random.nextInt(3), 2 + random.nextInt(3), 1 + random.nextInt(3)};
+			int numJointActions = numActions[0] * numActions[1] * numActions[2];
+			double[] payoffs = new double[numJointActions * 3];
+			for (int i=0; i<payoffs.length; i++) {
+				payoffs[i] = random.nextGaussian();
+			}
+			double[] gapAndIterations = new double[2];
+			double[] jointActionProbs = RegretMatchingCorrelatedEqmSolver.solveForCorrelatedEqm(numActions, payoffs, 2000, 0, gapAndIterations);
+			double total = 0;
+			for (double prob : jointActionProbs) {
+				assertTrue(prob >= 0);
+				total += prob;
+			}
+			assertEquals(1, total, TOLERANCE);
+			assertEquals(getViolation(numActions, payoffs, jointActionProbs), gapAndIterations[0], TOLERANCE);
+			assertTrue(gapAndIterations[0] < .05);
+		}
+	}
+
+	@Test
+	public void testTargetGapStopsEarly() {
+		// Prisoner's dilemma: defecting soon has no regret.
+		double[][] p1Payoffs = {{-1, -3}, {0, -2}};
+		double[][] p2Payoffs = {{-1, 0}, {-3, -2}};
+		RegretMatchingCorrelatedEqmSolver<GridAction> solver = new RegretMatchingCorrelatedEqmSolver<GridAction>(10000, .01);
+		double[][] jointActionProbs = solver.solve(p1Payoffs, p2Payoffs);
+		assertTrue(solver.getMaxGap() <= .01);
+		assertTrue(solver.getAverageIterations() < 10000);
+		assertTrue(jointActionProbs[1][1] > .9);
+	}
+
+	@Test
+	public void testThreePlayerGame() {
+		// Each player gets 1 for matching the next player's action.
+		List<GridAction> actions = TestGames.createActions("A", "B");
+		NormalFormGame<GridAction> game = TestGames.createGame(actions, 3);
+		List<Joint<GridAction>> jointActions = game.getPossibleJointActions();
+		for (Joint<GridAction> jointAction : jointActions) {
+			Joint<Double> payoffs = new Joint<Double>();
+			for (int playerIdx=0; playerIdx<3; playerIdx++) {
+				payoffs.add(jointAction.get(playerIdx).equals(jointAction.get((playerIdx+1) % 3)) ? 1.0 : 0.0);
+			}
+			game.addPayoffsForJointAction(jointAction, payoffs);
+		}
+
+		RegretMatchingCorrelatedEqmSolver<GridAction> solver = new RegretMatchingCorrelatedEqmSolver<GridAction>();
+		GameSolution<GridAction> solution = solver.solve(game);
+		DiscreteDistribution<Joint<GridAction>> distribution = solution.getJointActionDistribution();
+		assertEquals(8, distribution.size());
+		double total = 0;
+		for (Joint<GridAction> jointAction : jointActions) {
+			total += distribution.get(jointAction);
+		}
+		assertEquals(1, total, TOLERANCE);
+		assertEquals(3, solution.getExpectedPayoffsWithoutTransfer().size());
+		assertTrue(solver.getMaxGap() <= RegretMatchingCorrelatedEqmSolver.DEFAULT_TARGET_GAP);
+	}
+
+	/**
+	 * Returns the most any player gains, in expectation, by replacing one of its actions with another
+	 * whenever it is recommended.
+	 */
+	private static double getViolation(int[] numActions, double[] payoffs, double[] jointActionProbs) {
+		int numPlayers = numActions.length;
+		int numJointActions = jointActionProbs.length;
+		double violation = 0;
+		for (int playerIdx=0; playerIdx<numPlayers; playerIdx++) {
+			int stride = 1;
+			for (int otherIdx=playerIdx+1; otherIdx<numPlayers; otherIdx++) {
+				stride *= numActions[otherIdx];
+			}
+			for (int action=0; action<numActions[playerIdx]; action++) {
+				for (int deviation=0; deviation<numActions[playerIdx]; deviation++) {
+					double gain = 0;
+					for (int jointActionIdx=0; jointActionIdx<numJointActions; jointActionIdx++) {
+						if ((jointActionIdx / stride) % numActions[playerIdx] != action) continue;
+						int deviationIdx = jointActionIdx + (deviation - action) * stride;
+						gain += jointActionProbs[jointActionIdx] * (payoffs[deviationIdx * numPlayers + playerIdx] - payoffs[jointActionIdx * numPlayers + playerIdx]);
+					}
+					violation = Math.max(violation, gain);
+				}
+			}
+		}
+		return violation;
+	}
+
+}
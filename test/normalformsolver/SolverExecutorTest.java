@@ -0,0 +1,71 @@
+package normalformsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import normalformgame.NormalFormGame;
+import normalformgame.TestGames;
+
+import org.junit.Test;
+
+import sequentialgame.grid.GridAction;
+
+public class SolverExecutorTest {
+
+	@Test(timeout=30000)
+	public void testInterruptCancelsUnfinishedChunks() throws InterruptedException {
+		final NormalFormSolver<GridAction> solver = new BimatrixSupportEnumerationSolver<GridAction>();
+		final AtomicInteger numBlockingSolves = new AtomicInteger();
+		final CountDownLatch poolChunkStarted = new CountDownLatch(1);
+		final CountDownLatch poolChunkInterrupted = new CountDownLatch(1);
+		// The calling thread's chunk is interrupted, while the pool's chunk is still being solved.
+		NormalFormSolver<GridAction> interruptedSolver = new NormalFormSolver<GridAction>() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+				try {
+					poolChunkStarted.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					fail("Interrupted too soon.");
+				}
+				Thread.currentThread().interrupt();
+				return solver.solve(normalFormGame);
+			}
+		};
+		NormalFormSolver<GridAction> blockingSolver = new NormalFormSolver<GridAction>() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+				numBlockingSolves.incrementAndGet();
+				poolChunkStarted.countDown();
+				try {
+					Thread.sleep(20000);
+				} catch (InterruptedException e) {
+					poolChunkInterrupted.countDown();
+				}
+				return solver.solve(normalFormGame);
+			}
+		};
+		List<NormalFormSolver<GridAction>> solvers = new ArrayList<NormalFormSolver<GridAction>>();
+		solvers.add(interruptedSolver);
+		solvers.add(blockingSolver);
+		List<NormalFormGame<GridAction>> games = new ArrayList<NormalFormGame<GridAction>>();
+		games.add(TestGames.createPrisonersDilemma());
+		games.add(TestGames.createPrisonersDilemma());
+
+		try {
+			SolverExecutor.solveAll(solvers, games, null);
+			fail("An interrupted batch returned solutions.");
+		} catch (CancellationException e) {
+			// The pool's chunk was cancelled rather than solved again on this thread.
+			assertTrue(Thread.interrupted());
+			assertTrue(poolChunkInterrupted.await(10, TimeUnit.SECONDS));
+			assertEquals(1, numBlockingSolves.get());
+		}
+	}
+
+}
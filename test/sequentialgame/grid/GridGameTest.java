@@ -2,6 +2,9 @@ package sequentialgame.grid;
 
 import static org.junit.Assert.*;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 
 import props.DiscreteDistribution;
@@ -126,9 +129,81 @@ public class GridGameTest {
 		System.out.println(transitionProbs);
 	}
 
+
+
+	@Test
+	public void testComputeGoalDistanceValues() {
+		// On the default 2x2 board, player 1's goal is at (1,1) and player 2's is at (0,1),
+		// each worth 100, and each step costs 1.
+		int numPlayers = 2;
+		double gamma = .9;
+		Board board = new SimpleBoard(2, 2);
+		GridGame game = new GridGame(numPlayers, board);
+		Map<GridState, Joint<Double>> values = game.computeGoalDistanceValues(gamma);
+		assertEquals(game.getPossibleStates().size(), values.size());
+
+		// Both players are two steps from their goals.
+		Joint<Position> positions = new Joint<Position>();
+		positions.add(new Position(0,0)); // player 1 position
+		positions.add(new Position(1,0)); // player 2 position
+		Joint<Double> stateValues = values.get(new GridState(positions));
+		double twoStepValue = -1 + gamma * (-1 + 100);
+		assertEquals(twoStepValue, stateValues.getForPlayer(0), 1e-6);
+		assertEquals(twoStepValue, stateValues.getForPlayer(1), 1e-6);
+
+		// Player 1 is one step from its goal; player 2 is two steps from its goal,
+		// so is expected to lose the race.
+		positions = new Joint<Position>();
+		positions.add(new Position(0,1)); // player 1 position
+		positions.add(new Position(1,0)); // player 2 position
+		stateValues = values.get(new GridState(positions));
+		assertEquals(-1 + 100, stateValues.getForPlayer(0), 1e-6);
+		assertEquals(0, stateValues.getForPlayer(1), 0);
+
+		// Terminal states have no value.
+		positions = new Joint<Position>();
+		positions.add(new Position(1,1)); // player 1 position
+		positions.add(new Position(0,0)); // player 2 position
+		stateValues = values.get(new GridState(positions));
+		assertEquals(0, stateValues.getForPlayer(0), 0);
+		assertEquals(0, stateValues.getForPlayer(1), 0);
+	}
 	
 	
-	
+	@Test
+	public void testGetActionEquivalenceClasses() {
+		// Actions are (up, down, left, right, stick), and each step costs 1.
+		int numPlayers = 2;
+		Board board = new SimpleBoard(2, 2);
+		GridGame game = new GridGame(numPlayers, board);
+		Joint<Position> positions = new Joint<Position>();
+		positions.add(new Position(0,0)); // player 1 position
+		positions.add(new Position(1,0)); // player 2 position
+		GridState state = new GridState(positions);
+
+		// In the bottom left corner, moving down or left goes nowhere, but costs a step, unlike sticking.
+		assertArrayEquals(new int[] {0, 1, 1, 3, 4}, game.getActionEquivalenceClasses(state, 0));
+		// In the bottom right corner, moving down or right goes nowhere.
+		assertArrayEquals(new int[] {0, 1, 2, 1, 4}, game.getActionEquivalenceClasses(state, 1));
+
+		// Equivalent actions give the same transitions and rewards, whatever the other player does.
+		List<GridAction> actions = game.getPossibleActionsForPlayer(0);
+		for (GridAction otherAction : actions) {
+			Joint<GridAction> jointAction = new Joint<GridAction>();
+			jointAction.add(actions.get(1));
+			jointAction.add(otherAction);
+			Joint<GridAction> equivalentJointAction = new Joint<GridAction>();
+			equivalentJointAction.add(actions.get(2));
+			equivalentJointAction.add(otherAction);
+			DiscreteDistribution<GridState> transitionProbs = game.getTransitionProbabilities(state, jointAction);
+			assertEquals(transitionProbs, game.getTransitionProbabilities(state, equivalentJointAction));
+			for (GridState nextState : transitionProbs.keySet()) {
+				assertEquals(game.getImmediateRewards(state, jointAction, nextState), game.getImmediateRewards(state, equivalentJointAction, nextState));
+			}
+		}
+	}
+
+
 	@Test
 	public void testGetTransitionProbabilities3Player() {
 		System.out.println("3 Player test.");
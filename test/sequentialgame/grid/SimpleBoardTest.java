@@ -102,4 +102,36 @@ public class SimpleBoardTest {
 		assertEquals(expectedNextPositionDistribution, nextPositionDistribution);		
 	}
 
+
+	@Test
+	public void testCoarsen() {
+		// The default 4x4 board has player 1's goal at (1,1) and player 2's at (0,1).
+		int blockSize = 2;
+		double gamma = .9;
+		SimpleBoard board = new SimpleBoard(4, 4);
+		SimpleBoard coarseBoard = board.coarsen(blockSize, gamma);
+		assertEquals(2, coarseBoard.getNumXLocations());
+		assertEquals(2, coarseBoard.getNumYLocations());
+		assertEquals(4, coarseBoard.getOccupiablePositions().size());
+
+		// Both goals are in the lower-left block.
+		Position lowerLeft = new Position(0,0);
+		assertTrue(coarseBoard.hasGoalForPlayer(lowerLeft, 0));
+		assertTrue(coarseBoard.hasGoalForPlayer(lowerLeft, 1));
+		assertEquals(100, coarseBoard.getGoalReward(lowerLeft, 0), 0);
+		assertEquals(0, coarseBoard.getGoalReward(new Position(1,1), 0), 0);
+
+		// A coarse step stands for two discounted steps.
+		GridAction up = new GridAction("up");
+		assertEquals(-1 - gamma, coarseBoard.getActionReward(up), 1e-9);
+
+		// Moves between blocks.
+		DiscreteDistribution<Position> expectedNextPositionDistribution = new DiscreteDistribution<Position>();
+		expectedNextPositionDistribution.add(new Position(0,1), 1);
+		assertEquals(expectedNextPositionDistribution, coarseBoard.getNextPositionDistribution(lowerLeft, up));
+		expectedNextPositionDistribution = new DiscreteDistribution<Position>();
+		expectedNextPositionDistribution.add(lowerLeft, 1);
+		assertEquals(expectedNextPositionDistribution, coarseBoard.getNextPositionDistribution(lowerLeft, new GridAction("down")));
+	}
+
 }
@@ -0,0 +1,206 @@
+package sequentialsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import normalformgame.NormalFormGame;
+import normalformsolver.BimatrixCocoSolver;
+import normalformsolver.BimatrixCorrelatedEqmSolver;
+import normalformsolver.GameSolution;
+import normalformsolver.LpBackend;
+import normalformsolver.NormalFormSolver;
+import normalformsolver.UncorrelatedGameSolution;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.SimpleBoard;
+
+public class MultiAgentValueIterationTest {
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testAnytimeRunCancelledFromAnotherThread() throws InterruptedException {
+		final GridGame game = new GridGame(2, new SimpleBoard("input/grid1.txt"));
+		// The solver stalls on its fifth game until the run has been cancelled.
+		final CountDownLatch stalled = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		final CountingSolver solver = new CountingSolver() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame, DiscreteDistribution<Joint<GridAction>> previousJointActionDistribution) {
+				GameSolution<GridAction> solution = super.solve(normalFormGame, previousJointActionDistribution);
+				if (numSolved.get() == 5) {
+					stalled.countDown();
+					try {
+						cancelled.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return solution;
+			}
+		};
+		final MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(100, solver, .9);
+		final AtomicReference<AnytimePolicyAndTransfers<GridState,GridAction>> snapshot = new AtomicReference<AnytimePolicyAndTransfers<GridState,GridAction>>();
+		Thread canceller = new Thread() {
+			@Override
+			public void run() {
+				try {
+					stalled.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				snapshot.set(valueIteration.getCurrentPolicyAndTransfers());
+				valueIteration.cancel();
+				cancelled.countDown();
+			}
+		};
+		canceller.start();
+		AnytimePolicyAndTransfers<GridState,GridAction> policyAndTransfers = valueIteration.generatePolicyAndTransfersAnytime(game, 60000);
+		canceller.join();
+
+		// The run stopped right after the stalled game, before every state had been updated.
+		assertEquals(5, solver.numSolved.get());
+		assertEquals(Double.POSITIVE_INFINITY, policyAndTransfers.getBellmanErrorBound(), 0);
+		assertCoversNonTerminalStates(game, policyAndTransfers);
+		assertCoversNonTerminalStates(game, snapshot.get());
+	}
+
+	@Test
+	public void testCancelBeforeAnytimeRunIsKept() {
+		GridGame game = new GridGame(2, new SimpleBoard("input/grid1.txt"));
+		CountingSolver solver = new CountingSolver();
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(100, solver, .9);
+		valueIteration.cancel();
+		AnytimePolicyAndTransfers<GridState,GridAction> policyAndTransfers = valueIteration.generatePolicyAndTransfersAnytime(game, 60000);
+		assertEquals(0, solver.numSolved.get());
+		assertCoversNonTerminalStates(game, policyAndTransfers);
+
+		// The cancellation only applies to one run, and the next one converges.
+		policyAndTransfers = valueIteration.generatePolicyAndTransfersAnytime(game, 60000);
+		assertTrue(solver.numSolved.get() > 0);
+		assertTrue(policyAndTransfers.getBellmanErrorBound() < Double.POSITIVE_INFINITY);
+		assertCoversNonTerminalStates(game, policyAndTransfers);
+	}
+
+	@Test
+	public void testAnytimeRunStopsAtDeadline() {
+		GridGame game = new GridGame(2, new SimpleBoard("input/grid1.txt"));
+		CountingSolver solver = new CountingSolver();
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(100, solver, .9);
+		AnytimePolicyAndTransfers<GridState,GridAction> policyAndTransfers = valueIteration.generatePolicyAndTransfersAnytime(game, 0);
+		assertEquals(0, solver.numSolved.get());
+		assertEquals(Double.POSITIVE_INFINITY, policyAndTransfers.getBellmanErrorBound(), 0);
+		assertCoversNonTerminalStates(game, policyAndTransfers);
+	}
+
+	@Test
+	public void testCollapsingEquivalentActionsKeepsValues() {
+		GridGame game = new GridGame(2, new SimpleBoard("input/grid1.txt"));
+		// The utilitarian correlated equilibrium's payoffs are the same however the actions are listed.
+		NormalFormSolver<GridAction> ceSolver = new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX);
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(20, ceSolver, .9);
+		valueIteration.generatePolicyAndTransfers(game);
+		JointValueFunction<GridState> values = valueIteration.getValueFunction();
+
+		final int numJointActions = game.getPossibleJointActions().size();
+		final AtomicInteger numReducedGames = new AtomicInteger();
+		NormalFormSolver<GridAction> countingSolver = new CountingSolver(new BimatrixCorrelatedEqmSolver<GridAction>(LpBackend.SIMPLEX)) {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame, DiscreteDistribution<Joint<GridAction>> previousJointActionDistribution) {
+				if (normalFormGame.getNumJointActions() < numJointActions) {
+					numReducedGames.incrementAndGet();
+				}
+				return super.solve(normalFormGame, previousJointActionDistribution);
+			}
+		};
+		MultiAgentValueIteration<GridState,GridAction> collapsedValueIteration = new MultiAgentValueIteration<GridState,GridAction>(20, countingSolver, .9);
+		collapsedValueIteration.setCollapseEquivalentActions(true);
+		PolicyAndTransfers<GridState,GridAction> policyAndTransfers = collapsedValueIteration.generatePolicyAndTransfers(game);
+		JointValueFunction<GridState> collapsedValues = collapsedValueIteration.getValueFunction();
+
+		assertTrue(numReducedGames.get() > 0);
+		for (GridState state : game.getPossibleStates()) {
+			for (int playerIdx=0; playerIdx<2; playerIdx++) {
+				assertEquals(values.get(state).get(playerIdx), collapsedValues.get(state).get(playerIdx), 1e-6);
+			}
+		}
+		// The expanded distributions are over every joint action of the full game.
+		assertCoversNonTerminalStates(game, policyAndTransfers);
+		for (GridState state : game.getPossibleStates()) {
+			if (game.isTerminalState(state)) continue;
+			DiscreteDistribution<Joint<GridAction>> jointActionDistribution = policyAndTransfers.getPolicy().get(state);
+			for (Joint<GridAction> jointAction : game.getPossibleJointActions()) {
+				assertNotNull(jointActionDistribution.get(jointAction));
+			}
+		}
+
+		// A reduced joint action's probability is shared by the joint actions it stands for.
+		NormalFormSolver<GridAction> uniformSolver = new CountingSolver() {
+			@Override
+			public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame, DiscreteDistribution<Joint<GridAction>> previousJointActionDistribution) {
+				GameSolution<GridAction> solution = super.solve(normalFormGame, previousJointActionDistribution);
+				DiscreteDistribution<Joint<GridAction>> uniformDistribution = new DiscreteDistribution<Joint<GridAction>>();
+				for (Joint<GridAction> jointAction : normalFormGame.getPossibleJointActions()) {
+					uniformDistribution.put(jointAction, 1.0 / normalFormGame.getNumJointActions());
+				}
+				return new UncorrelatedGameSolution<GridAction>(normalFormGame, uniformDistribution,
+						solution.getExpectedPayoffsWithoutTransfer(), solution.getTransferPayments());
+			}
+		};
+		collapsedValueIteration = new MultiAgentValueIteration<GridState,GridAction>(1, uniformSolver, .9);
+		collapsedValueIteration.setCollapseEquivalentActions(true);
+		assertCoversNonTerminalStates(game, collapsedValueIteration.generatePolicyAndTransfers(game));
+	}
+
+	/**
+	 * Checks that every non-terminal state has a joint action distribution that sums to 1, and transfers.
+	 */
+	private static void assertCoversNonTerminalStates(GridGame game, PolicyAndTransfers<GridState,GridAction> policyAndTransfers) {
+		for (GridState state : game.getPossibleStates()) {
+			if (game.isTerminalState(state)) continue;
+			DiscreteDistribution<Joint<GridAction>> jointActionDistribution = policyAndTransfers.getPolicy().get(state);
+			assertNotNull(jointActionDistribution);
+			double totalProb = 0;
+			for (double prob : jointActionDistribution.values()) {
+				totalProb += prob;
+			}
+			assertEquals(1, totalProb, TOLERANCE);
+			assertEquals(2, policyAndTransfers.getTransfers().get(state).size());
+		}
+	}
+
+	private static class CountingSolver implements NormalFormSolver<GridAction> {
+		final AtomicInteger numSolved = new AtomicInteger();
+		private final NormalFormSolver<GridAction> solver;
+
+		CountingSolver() {
+			this(new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX));
+		}
+
+		CountingSolver(NormalFormSolver<GridAction> solver) {
+			this.solver = solver;
+		}
+
+		@Override
+		public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame) {
+			return solve(normalFormGame, null);
+		}
+
+		@Override
+		public GameSolution<GridAction> solve(NormalFormGame<GridAction> normalFormGame, DiscreteDistribution<Joint<GridAction>> previousJointActionDistribution) {
+			numSolved.incrementAndGet();
+			return solver.solve(normalFormGame, previousJointActionDistribution);
+		}
+	}
+
+}
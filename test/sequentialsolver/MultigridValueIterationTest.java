@@ -0,0 +1,126 @@
+package sequentialsolver;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import normalformsolver.BimatrixCocoSolver;
+import normalformsolver.LpBackend;
+import normalformsolver.NormalFormSolver;
+
+import org.junit.Test;
+
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.Position;
+import sequentialgame.grid.SimpleBoard;
+
+public class MultigridValueIterationTest {
+
+	private static final double GAMMA = .9;
+	private static final double CONVERGENCE_THRESHOLD = 1e-4;
+
+	@Test
+	public void testMatchesValueIteration() {
+		// Coco values are unique, so both runs converge to the same values.
+		NormalFormSolver<GridAction> solver = new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX);
+		SimpleBoard board = new SimpleBoard(4, 4);
+		GridGame game = new GridGame(2, board);
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(1000, solver, GAMMA);
+		valueIteration.setConvergenceThreshold(CONVERGENCE_THRESHOLD);
+		valueIteration.generatePolicyAndTransfers(game);
+		JointValueFunction<GridState> values = valueIteration.getValueFunction();
+
+		MultigridValueIteration multigrid = new MultigridValueIteration(1000, solver, GAMMA, 2, 2);
+		multigrid.setConvergenceThreshold(CONVERGENCE_THRESHOLD);
+		multigrid.generatePolicyAndTransfers(board, 2);
+
+		// Each run stops within CONVERGENCE_THRESHOLD * GAMMA / (1 - GAMMA) of the true values.
+		double tolerance = 2 * CONVERGENCE_THRESHOLD * GAMMA / (1 - GAMMA);
+		assertEquals(values.size(), multigrid.getValueFunction().size());
+		assertTrue(getMaxDifference(values, multigrid.getValueFunction()) <= tolerance);
+	}
+
+	@Test
+	public void testCoarseValuesSeedFineLevel() {
+		NormalFormSolver<GridAction> solver = new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX);
+		SimpleBoard board = new SimpleBoard(4, 4);
+		GridGame game = new GridGame(2, board);
+		MultigridValueIteration multigrid = new MultigridValueIteration(1000, solver, GAMMA, 2, 2);
+		multigrid.setConvergenceThreshold(CONVERGENCE_THRESHOLD);
+
+		// With one level, the starting values are the goal distance estimates.
+		Map<GridState, Joint<Double>> goalDistanceValues = game.computeGoalDistanceValues(GAMMA);
+		assertEquals(goalDistanceValues, multigrid.computeInitialValues(game, board, GAMMA, 1));
+
+		// With two, they're the values found on the coarse board.
+		SimpleBoard coarseBoard = board.coarsen(2, GAMMA);
+		GridGame coarseGame = new GridGame(2, coarseBoard);
+		MultiAgentValueIteration<GridState,GridAction> coarseValueIteration = new MultiAgentValueIteration<GridState,GridAction>(1000, solver, GAMMA * GAMMA);
+		coarseValueIteration.setConvergenceThreshold(CONVERGENCE_THRESHOLD);
+		coarseValueIteration.setInitialValueFunction(coarseGame.computeGoalDistanceValues(GAMMA * GAMMA));
+		coarseValueIteration.generatePolicyAndTransfers(coarseGame);
+		Map<GridState, Joint<Double>> initialValues = multigrid.computeInitialValues(game, board, GAMMA, 2);
+		assertEquals(multigrid.prolong(game, coarseGame, coarseValueIteration.getValueFunction(), goalDistanceValues), initialValues);
+		GridState fineState = createState(new Position(2,0), new Position(0,2));
+		assertEquals(coarseValueIteration.getValueFunction().get(createState(new Position(1,0), new Position(0,1))), initialValues.get(fineState));
+	}
+
+	@Test
+	public void testProlong() {
+		// The default 4x4 board has both goals in the lower-left 2x2 block.
+		SimpleBoard board = new SimpleBoard(4, 4);
+		GridGame game = new GridGame(2, board);
+		GridGame coarseGame = new GridGame(2, board.coarsen(2, GAMMA));
+		JointValueFunction<GridState> coarseValues = new JointValueFunction<GridState>();
+		for (GridState coarseState : coarseGame.getPossibleStates()) {
+			Position p1Position = coarseState.getPlayerPosition(0);
+			Position p2Position = coarseState.getPlayerPosition(1);
+			coarseValues.put(coarseState, createValues(10 * p1Position.getX() + p1Position.getY(), 10 * p2Position.getX() + p2Position.getY()));
+		}
+		Map<GridState, Joint<Double>> defaultValues = game.computeGoalDistanceValues(GAMMA);
+		Map<GridState, Joint<Double>> fineValues = new MultigridValueIteration(1, null, GAMMA, 2, 2).prolong(game, coarseGame, coarseValues, defaultValues);
+		assertEquals(defaultValues.size(), fineValues.size());
+
+		// Players in different blocks get the values of the coarse state.
+		assertEquals(createValues(10, 1), fineValues.get(createState(new Position(2,0), new Position(0,2))));
+		// Players in the same block get the average over the second player's neighboring blocks.
+		assertEquals(createValues(11, (10 + 1) / 2.0), fineValues.get(createState(new Position(2,2), new Position(3,3))));
+		// Fine states that are terminal, or whose coarse states are, keep their default values.
+		GridState terminalState = createState(new Position(1,1), new Position(2,2));
+		assertEquals(defaultValues.get(terminalState), fineValues.get(terminalState));
+		GridState goalBlockState = createState(new Position(0,0), new Position(2,2));
+		assertFalse(game.isTerminalState(goalBlockState));
+		assertEquals(defaultValues.get(goalBlockState), fineValues.get(goalBlockState));
+	}
+
+
+	private static GridState createState(Position p1Position, Position p2Position) {
+		Joint<Position> positions = new Joint<Position>();
+		positions.add(p1Position);
+		positions.add(p2Position);
+		return new GridState(positions);
+	}
+
+
+	private static Joint<Double> createValues(double p1Value, double p2Value) {
+		Joint<Double> values = new Joint<Double>();
+		values.add(p1Value);
+		values.add(p2Value);
+		return values;
+	}
+
+
+	private static double getMaxDifference(Map<GridState, Joint<Double>> values, Map<GridState, Joint<Double>> otherValues) {
+		double maxDifference = 0;
+		for (GridState state : values.keySet()) {
+			for (int playerIdx=0; playerIdx<values.get(state).size(); playerIdx++) {
+				maxDifference = Math.max(maxDifference, Math.abs(values.get(state).get(playerIdx) - otherValues.get(state).get(playerIdx)));
+			}
+		}
+		return maxDifference;
+	}
+
+}
@@ -0,0 +1,78 @@
+package sequentialsolver;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import normalformsolver.BimatrixCocoSolver;
+import normalformsolver.LpBackend;
+
+import org.junit.Test;
+
+import props.DiscreteDistribution;
+import props.Joint;
+import sequentialgame.grid.GridAction;
+import sequentialgame.grid.GridGame;
+import sequentialgame.grid.GridState;
+import sequentialgame.grid.SimpleBoard;
+
+public class ShardedValueIterationTest {
+
+	private static final String BOARD_FILENAME = "input/grid1.txt";
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void testMatchesValueIteration() throws IOException {
+		int numIterations = 3;
+		double gamma = .9;
+		ShardedValueIteration shardedValueIteration = new ShardedValueIteration(numIterations, "coco", gamma, 2);
+		PolicyAndTransfers<GridState,GridAction> sharded = shardedValueIteration.generatePolicyAndTransfers(BOARD_FILENAME, 2);
+
+		GridGame game = new GridGame(2, new SimpleBoard(BOARD_FILENAME));
+		MultiAgentValueIteration<GridState,GridAction> valueIteration = new MultiAgentValueIteration<GridState,GridAction>(
+				numIterations, new BimatrixCocoSolver<GridAction>(LpBackend.SIMPLEX), gamma);
+		PolicyAndTransfers<GridState,GridAction> expected = valueIteration.generatePolicyAndTransfers(game);
+
+		for (GridState state : game.getPossibleStates()) {
+			if (game.isTerminalState(state)) continue;
+			DiscreteDistribution<Joint<GridAction>> expectedDistribution = expected.getPolicy().get(state);
+			DiscreteDistribution<Joint<GridAction>> distribution = sharded.getPolicy().get(state);
+			for (Joint<GridAction> jointAction : game.getPossibleJointActions()) {
+				Double expectedProb = expectedDistribution.get(jointAction);
+				assertEquals((expectedProb == null) ? 0 : expectedProb, distribution.get(jointAction), TOLERANCE);
+			}
+			for (int playerIdx=0; playerIdx<2; playerIdx++) {
+				assertEquals(expected.getTransfers().get(state).get(playerIdx), sharded.getTransfers().get(state).get(playerIdx), TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testWorkerFailureRemovesSharedFile() {
+		int numSharedFiles = countSharedFiles();
+		ShardedValueIteration shardedValueIteration = new ShardedValueIteration(3, "no-such-solver", .9, 2);
+		try {
+			shardedValueIteration.generatePolicyAndTransfers(BOARD_FILENAME, 2);
+			fail("Workers with an unknown solver should fail.");
+		} catch (IOException e) {
+			// Expected.
+		}
+		assertEquals(numSharedFiles, countSharedFiles());
+	}
+
+	private static int countSharedFiles() {
+		int numSharedFiles = 0;
+		for (String directory : new String[] {"/dev/shm", System.getProperty("java.io.tmpdir")}) {
+			File[] files = new File(directory).listFiles();
+			if (files == null) continue;
+			for (File file : files) {
+				if (file.getName().startsWith("gridgames-values")) {
+					numSharedFiles++;
+				}
+			}
+		}
+		return numSharedFiles;
+	}
+
+}